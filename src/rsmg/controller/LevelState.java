@@ -6,6 +6,7 @@ import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import org.lwjgl.Sys;
 import org.newdawn.slick.Animation;
@@ -27,13 +28,9 @@ import rsmg.io.CharacterProgress;
 import rsmg.io.Config;
 import rsmg.io.Levels;
 import rsmg.levelfactory.LevelFactory;
+import rsmg.model.FrameSnapshot;
 import rsmg.model.Level;
-import rsmg.model.object.bullet.Bullet;
-import rsmg.model.object.bullet.RotatableBullet;
-import rsmg.model.object.item.Item;
-import rsmg.model.object.unit.Enemy;
-import rsmg.model.object.unit.PCharacter;
-import rsmg.model.object.unit.weapon.Weapon;
+import rsmg.model.tile.Tiles;
 import rsmg.model.variables.Constants;
 import rsmg.model.variables.ObjectName;
 
@@ -82,25 +79,42 @@ class LevelState extends State {
 	private CharacterImage character;
 	
 	/**
-	 * Reference to the level model.
+	 * Reference to the level model. While the level is being played, only
+	 * its tile grid is read here; everything else that is drawn is read from
+	 * the simulation's snapshots.
 	 */
 	private Level level;
-
+	
+	/**
+	 * Updates the level, either on the game's thread or on its own thread if
+	 * that is set in the config.
+	 */
+	private Simulation simulation;
+	
 	/**
-	 * Track if the up key is down or not.
+	 * The snapshot of the level that is drawn.
 	 */
-	private boolean upKeyIsDown;
+	private FrameSnapshot snapshot;
 	
 	/**
-	 * Track if the right key is down or not
+	 * How far between the snapshot's previous and current positions that the
+	 * objects are drawn in this frame.
 	 */
-	private boolean rightKeyIsDown;
+	private double alpha;
 	
 	/**
-	 * Track if the left key is down or not
+	 * The number of shots and dashes in the last snapshot, to know when to
+	 * play a sound.
 	 */
-	private boolean leftKeyIsDown;
+	private int lastShotCount;
+	private int lastDashCount;
 	
+	/**
+	 * The pool the enemies are updated in, if more than one AI thread is set
+	 * in the config. It is shared by all levels.
+	 */
+	private ForkJoinPool aiPool;
+
 	/**
 	 * Store how much everything should be scaled in the view.
 	 */
@@ -296,19 +310,44 @@ class LevelState extends State {
 	 */
 	public void initLevel(int levelNumber) {
 		this.levelNumber = levelNumber;
+		if (simulation != null)
+			simulation.stop();
+		if (level != null)
+			LevelFactory.releaseLevel(level);
 		level = LevelFactory.getLevel(levelNumber);
+		LevelFactory.prefetchNextLevel(levelNumber);
+		level.setActivityRegion(numberOfTilesVisibleX * Constants.TILESIZE,
+				numberOfTilesVisibleY * Constants.TILESIZE, Constants.ACTIVITY_MARGIN);
+		level.setVisibleTiles(numberOfTilesVisibleX, numberOfTilesVisibleY);
+		
+		if (Config.aiThreads() > 1) {
+			if (aiPool == null)
+				aiPool = new ForkJoinPool(Config.aiThreads());
+			level.setAiPool(aiPool);
+		}
+		
+		simulation = new Simulation(level, Config.tickRate());
+		snapshot = simulation.getSnapshot();
+		lastShotCount = 0;
+		lastDashCount = 0;
+		if (Config.simulationThreadOn())
+			simulation.start();
 	}
 
 	@Override
 	public void enter(GameContainer gc, StateBasedGame sbg)
 			throws SlickException {
 		super.enter(gc, sbg);
+		if (simulation != null)
+			simulation.setPaused(false);
 	}
 
 	@Override
 	public void leave(GameContainer gc, StateBasedGame sbg)
 			throws SlickException {
 		super.leave(gc, sbg);
+		if (simulation != null)
+			simulation.setPaused(true);
 	}
 
 	/**
@@ -318,6 +357,8 @@ class LevelState extends State {
 	public void render(GameContainer gc, StateBasedGame sbg, Graphics g)
 			throws SlickException {
 		
+		snapshot = simulation.getSnapshot();
+		alpha = snapshot.getAlpha(System.nanoTime());
 		setUpCamera(gc.getWidth(), gc.getHeight());
 		
 		drawBackground();
@@ -342,15 +383,18 @@ class LevelState extends State {
 	 */
 	private void drawBullets() {
 		
-		for (Bullet bullet : level.getEnemyBulletList()) {
-			if(bullet instanceof RotatableBullet){
-				((Image)bullets.get(bullet.getName())).setRotation(-((float) (((RotatableBullet)bullet).getRotation()*180/Math.PI)));
+		FrameSnapshot.Sprites enemyBullets = snapshot.getEnemyBullets();
+		for (int i = 0; i < enemyBullets.size(); i++) {
+			Renderable image = bullets.get(enemyBullets.getName(i));
+			if (image instanceof Image) {
+				((Image)image).setRotation(-((float) (enemyBullets.getRotation(i)*180/Math.PI)));
 			}
-			bullets.get(bullet.getName()).draw((float)bullet.getX()*scale+cameraX, (float)bullet.getY()*scale+cameraY);
+			image.draw((float)enemyBullets.getX(i, alpha)*scale+cameraX, (float)enemyBullets.getY(i, alpha)*scale+cameraY);
 		}
 		
-		for (Bullet bullet : level.getAlliedBulletList()) {
-			bullets.get(bullet.getName()).draw((float)bullet.getX()*scale+cameraX, (float)bullet.getY()*scale+cameraY);
+		FrameSnapshot.Sprites alliedBullets = snapshot.getAlliedBullets();
+		for (int i = 0; i < alliedBullets.size(); i++) {
+			bullets.get(alliedBullets.getName(i)).draw((float)alliedBullets.getX(i, alpha)*scale+cameraX, (float)alliedBullets.getY(i, alpha)*scale+cameraY);
 		}
 	}
 	
@@ -358,34 +402,38 @@ class LevelState extends State {
 	 * Draw enemies on the screen.
 	 */
 	private void drawEnemies() {
-		for (Enemy enemy : level.getEnemies()) {
+		FrameSnapshot.Sprites levelEnemies = snapshot.getEnemies();
+		for (int i = 0; i < levelEnemies.size(); i++) {
+			ObjectName name = levelEnemies.getName(i);
+			float x = (float)levelEnemies.getX(i, alpha);
+			float y = (float)levelEnemies.getY(i, alpha);
 			
 			//different facing Animations are not yet supported. 
 
 			int offsetX = 0;
 			int offsetY = 0;
-			if (enemy.getName().equals(ObjectName.BOSSBOT)) {
+			if (name.equals(ObjectName.BOSSBOT)) {
 				offsetX = -97*scale;
 			}
 			//different facing Animations are not yet supported. 
 			Renderable enemyRenderable;
-			if(enemy.isFacingRight() && (enemies.get(enemy.getName()) instanceof Image)) {
-				enemyRenderable = ((Image)enemies.get(enemy.getName())).getFlippedCopy(true, false);
+			if(levelEnemies.isFacingRight(i) && (enemies.get(name) instanceof Image)) {
+				enemyRenderable = ((Image)enemies.get(name)).getFlippedCopy(true, false);
 			} else {
-				enemyRenderable = enemies.get(enemy.getName());
+				enemyRenderable = enemies.get(name);
 			}
 			
 			//make the enemy flash if he recently took damage
 
-			if (enemy.recentlytookDamage()) {
+			if (levelEnemies.isFlashing(i)) {
 				if (enemyRenderable instanceof Animation) {
-					((Animation)enemyRenderable).drawFlash((float)enemy.getX()*scale+cameraX+offsetX, (float)enemy.getY()*scale+cameraY+offsetY, (float)enemy.getWidth()*scale, (float)enemy.getHeight()*scale);
+					((Animation)enemyRenderable).drawFlash(x*scale+cameraX+offsetX, y*scale+cameraY+offsetY, (float)levelEnemies.getWidth(i)*scale, (float)levelEnemies.getHeight(i)*scale);
 				} else if(enemyRenderable instanceof Image) {
-					((Image)enemyRenderable).drawFlash((float)enemy.getX()*scale+cameraX+offsetX, (float)enemy.getY()*scale+cameraY+offsetY);
+					((Image)enemyRenderable).drawFlash(x*scale+cameraX+offsetX, y*scale+cameraY+offsetY);
 				}
 				
 			} else {
-					enemyRenderable.draw((float)enemy.getX()*scale+cameraX+offsetX, (float)enemy.getY()*scale+cameraY+offsetY);	
+					enemyRenderable.draw(x*scale+cameraX+offsetX, y*scale+cameraY+offsetY);	
 			}
 		}
 	}
@@ -394,8 +442,9 @@ class LevelState extends State {
 	 * Draw items on the screen.
 	 */
 	private void drawItems() {
-		for(Item item : level.getItemList())
-			items.get(item.getName()).draw((float)item.getX()*scale+cameraX, (float)item.getY()*scale+cameraY);
+		FrameSnapshot.Sprites levelItems = snapshot.getItems();
+		for (int i = 0; i < levelItems.size(); i++)
+			items.get(levelItems.getName(i)).draw((float)levelItems.getX(i, alpha)*scale+cameraX, (float)levelItems.getY(i, alpha)*scale+cameraY);
 	}
 	
 	/**
@@ -420,10 +469,12 @@ class LevelState extends State {
 		
 		// Now only draw the tiles that are visible on the screen. This greatly
 		// improves the performance compared to drawing all tiles in the whole
-		// tile grid.
+		// tile grid. The tiles are read from the snapshot, since the grid is
+		// changed on the thread that updates the level and a streamed grid
+		// would have to load its missing chunks here.
 		for (int y = tileVisibleTop; y < tileVisibleBottom; y++) {
 			for (int x = tileVisibleLeft; x < tileVisibleRight; x++) {
-				tiles.get(level.getTileGrid().getFromCoord(x, y).getName()).draw(x*Constants.TILESIZE*scale+cameraX, y*Constants.TILESIZE*scale+cameraY);
+				tiles.get(Tiles.get(snapshot.getTileCode(x, y)).getName()).draw(x*Constants.TILESIZE*scale+cameraX, y*Constants.TILESIZE*scale+cameraY);
 			}
 		}
 	}
@@ -462,15 +513,19 @@ class LevelState extends State {
 		handleKeyboardEvents(gc.getInput(), sbg);
 		
 		/**
-		 * Play sounds: gun shots, dash.... 
+		 * Update the model and give it the time that has passed since last
+		 * update as seconds. With a fixed tick rate the time is instead split
+		 * up into ticks of equal length. If the level has its own thread, it
+		 * updates itself.
 		 */
-		playSounds();
+		if (!Config.simulationThreadOn())
+			simulation.update((double)delta / 1000);
+		snapshot = simulation.getSnapshot();
 		
 		/**
-		 * Update the model and give it the time that has passed since last
-		 * update as seconds.
+		 * Play sounds: gun shots, dash.... 
 		 */
-		level.update((double)delta / 1000);
+		playSounds();
 		
 		/**
 		 * Update the character image.
@@ -480,19 +535,22 @@ class LevelState extends State {
 		/**
 		 * Update health bar's overlay size.
 		 */
-		healthBarOverlayRectangle.setWidth(147 * level.getCharacter().getHealth() / level.getCharacter().getMaxHealth());
+		healthBarOverlayRectangle.setWidth(147 * snapshot.getHealth() / snapshot.getMaxHealth());
 		
 		/**
 		 * Update weapon cooldown bar's overlay size.
 		 */
-		weaponCooldownBarOverlayRectangle.setWidth(147 * level.getCharacter().getWeaponLoadedPercentage());
+		weaponCooldownBarOverlayRectangle.setWidth(147 * snapshot.getWeaponLoadedPercentage());
 		
 		/**
 		 * Check if the player has won the level. If he has, init the next level
 		 * into this state. But if he has won the last level, change state to
 		 * level selection state.
 		 */
-		if (level.hasWon()) {
+		if (snapshot.hasWon()) {
+			
+			// Stop the simulation's thread before the level is read.
+			simulation.stop();
 
 			// List of the level numbers
 			List<Integer> levelNumbers = (ArrayList<Integer>)Levels.getLevelNumbers();
@@ -522,7 +580,7 @@ class LevelState extends State {
 				sbg.enterState(Controller.LEVEL_SELECTION_STATE, new FadeOutTransition(), new FadeInTransition());
 			}
 			
-		} else if (level.hasLost()) {
+		} else if (snapshot.hasLost()) {
 			Controller.initLevel(levelNumber);
 		}
 	}
@@ -533,26 +591,27 @@ class LevelState extends State {
 	 */
 	private void playSounds() throws SlickException {
 		if (Config.soundEffectsOn()) {
-			PCharacter character = level.getCharacter();
 			
 			/**
-			 * Play sound if the character is dashing
+			 * Play sound if the character has started to dash
 			 */
-			if(character.isDashing() && character.getDistanceDashed() == 0)
+			if (snapshot.getDashCount() != lastDashCount)
 				new Sound("res/sounds/dash.wav").play();
 			
 			/**
 			 * Play a sound if the character has fired his weapon.
 			 */
-			Weapon weapon = character.getWeapon();
-			boolean isShooting = weapon.shot();
-			if (isShooting && weapon.getName().equals(ObjectName.PISTOL))
+			ObjectName weapon = snapshot.getShotWeapon();
+			boolean isShooting = snapshot.getShotCount() != lastShotCount;
+			if (isShooting && weapon.equals(ObjectName.PISTOL))
 				new Sound("res/sounds/pistol.wav").play();
-			else if(isShooting && weapon.getName().equals(ObjectName.SHOTGUN))
+			else if(isShooting && weapon.equals(ObjectName.SHOTGUN))
 				new Sound("res/sounds/shotgun.wav").play();
-			else if(isShooting && weapon.getName().equals(ObjectName.ROCKET_LAUNCHER))
+			else if(isShooting && weapon.equals(ObjectName.ROCKET_LAUNCHER))
 				new Sound("res/sounds/rocketLauncher.wav").play();
 		}
+		lastDashCount = snapshot.getDashCount();
+		lastShotCount = snapshot.getShotCount();
 	}
 	
 	/**
@@ -561,43 +620,23 @@ class LevelState extends State {
 	 */
 	private void handleKeyboardEvents(Input input, StateBasedGame sbg) {
 		
-		PCharacter modelCharacter = level.getCharacter();
-		
-		// left arrow key
-		if (input.isKeyDown(Input.KEY_LEFT)) {
-			modelCharacter.moveLeft();
-			leftKeyIsDown = true;
-		} else if(LeftIsReleased()) {
-			modelCharacter.moveLeftReleased();
-		}
-		
-		// right arrow key
-		if (input.isKeyDown(Input.KEY_RIGHT) && !leftKeyIsDown) {
-			modelCharacter.moveRight();
-			rightKeyIsDown = true;
-			
-		} else if(rightIsReleased()) {
-			modelCharacter.moveRightReleased();
-		}
-		
-		
-		// up arrow key
-		if (input.isKeyDown(Input.KEY_UP)) {
-			if (!upKeyIsDown)
-				modelCharacter.jump();
-			upKeyIsDown = true;
-		} else if (upKeyIsReleased()) {
-			modelCharacter.jumpReleased();
-		}
-		
+		// arrow keys
+		int heldKeys = 0;
+		if (input.isKeyDown(Input.KEY_LEFT))
+			heldKeys |= Simulation.LEFT;
+		if (input.isKeyDown(Input.KEY_RIGHT))
+			heldKeys |= Simulation.RIGHT;
+		if (input.isKeyDown(Input.KEY_UP))
+			heldKeys |= Simulation.JUMP;
+		simulation.setHeldKeys(heldKeys);
 
 		// space bar
 		if (input.isKeyPressed(Input.KEY_SPACE))
-			modelCharacter.attack();
+			simulation.press(Simulation.ATTACK);
 
 		// x key
 		if (input.isKeyPressed(Input.KEY_X))
-			modelCharacter.dash();
+			simulation.press(Simulation.DASH);
 		
 		// escape key
 		if (input.isKeyPressed(Input.KEY_ESCAPE))
@@ -605,61 +644,25 @@ class LevelState extends State {
 		
 		// digit key 1
 		if (input.isKeyPressed(Input.KEY_1)) 
-			modelCharacter.changeWeapon(ObjectName.PISTOL);
+			simulation.press(Simulation.PISTOL);
 		
 		// digit key 2
 		if (input.isKeyPressed(Input.KEY_2)) 
-			modelCharacter.changeWeapon(ObjectName.LASER_PISTOL);
+			simulation.press(Simulation.LASER_PISTOL);
 		
 		// digit key 3
 		if (input.isKeyPressed(Input.KEY_3))
-			modelCharacter.changeWeapon(ObjectName.SHOTGUN);
+			simulation.press(Simulation.SHOTGUN);
 		
 		// digit key 4
 		if (input.isKeyPressed(Input.KEY_4))
-			modelCharacter.changeWeapon(ObjectName.ROCKET_LAUNCHER);
+			simulation.press(Simulation.ROCKET_LAUNCHER);
 		
 		// digit key 0. Cheat to instantaneously complete the level.
 		if (input.isKeyPressed(Input.KEY_0))
-			level.completeLevel();
+			simulation.press(Simulation.COMPLETE_LEVEL);
 		
 	}
-
-	/**
-	 * Returns if the up key has been released since last loop.
-	 * @return If the up key has been released.
-	 */
-	private boolean upKeyIsReleased() {
-		if (upKeyIsDown) {
-			upKeyIsDown = false;
-			return true;
-		}
-		return false;
-	}
-	
-	/**
-	 * Returns if the up key has been released since last loop.
-	 * @return If the up key has been released.
-	 */
-	private boolean rightIsReleased() {
-		if (rightKeyIsDown) {
-			rightKeyIsDown = false;
-			return true;
-		}
-		return false;
-	}
-	
-	/**
-	 * Returns if the up key has been released since last loop.
-	 * @return If the up key has been released.
-	 */
-	private boolean LeftIsReleased() {
-		if (leftKeyIsDown) {
-			leftKeyIsDown = false;
-			return true;
-		}
-		return false;
-	}
 	
 	/**
 	 * Sets up the camera by telling that either the camera will move(environment, items and enemies)(cameraX,cameraY) 
@@ -668,8 +671,8 @@ class LevelState extends State {
 	private void setUpCamera(int screenWidth, int screenHeight) {
 		
 		// Camera in Y-axis
-		int centerY = screenHeight/2 - (int)level.getCharacter().getHeight()*scale/2;
-		float posY = (float)level.getCharacter().getY()*scale;
+		int centerY = screenHeight/2 - (int)snapshot.getCharacterHeight()*scale/2;
+		float posY = (float)snapshot.getCharacterY(alpha)*scale;
 		int levelHeight = level.getTileGrid().getHeight()*Constants.TILESIZE*scale;
 		
 		// If the Character is in the upper part of the screen
@@ -678,7 +681,7 @@ class LevelState extends State {
 			cameraY = 0;
 		}
 		// If the Character is in the bottom part of the screen
-		else if (levelHeight - posY < centerY + (int)level.getCharacter().getHeight()*scale) {
+		else if (levelHeight - posY < centerY + (int)snapshot.getCharacterHeight()*scale) {
 			cameraY = -(levelHeight - screenHeight);
 			characterY = posY + cameraY;
 		}
@@ -689,8 +692,8 @@ class LevelState extends State {
 		}
 		
 		// Camera in X-axis
-		int centerX = screenWidth/2 - (int)level.getCharacter().getWidth()*scale/2;
-		float posX = (float)level.getCharacter().getX()*scale;
+		int centerX = screenWidth/2 - (int)snapshot.getCharacterWidth()*scale/2;
+		float posX = (float)snapshot.getCharacterX(alpha)*scale;
 		int levelWidth = level.getTileGrid().getWidth()*Constants.TILESIZE*scale;
 		
 		// If the Character is in the left part of the screen
@@ -699,7 +702,7 @@ class LevelState extends State {
 			cameraX = 0;
 		}
 		// If the Character is in the right part of the screen
-		else if (levelWidth - posX < centerX + (int)level.getCharacter().getWidth()*scale) {
+		else if (levelWidth - posX < centerX + (int)snapshot.getCharacterWidth()*scale) {
 			cameraX = -(levelWidth - screenWidth);
 			characterX = posX + cameraX;
 		}
@@ -850,7 +853,7 @@ class LevelState extends State {
 			int offset = charXOffsets.get(key);
 			
 			// Make the character flash white if he is immortal.
-			if (level.getCharacter().isImmortal() && Sys.getTime() % 400 < 200) {
+			if (snapshot.isCharacterImmortal() && Sys.getTime() % 400 < 200) {
 				if (charImg instanceof Image) {
 					((Image) charImg).drawFlash(characterX+offset, characterY);
 				} else if (charImg instanceof Animation) {
@@ -869,7 +872,7 @@ class LevelState extends State {
 		public void update() {
 
 			// Update which map should be used.
-			ObjectName weaponName = level.getCharacter().getWeapon().getName();
+			ObjectName weaponName = snapshot.getWeapon();
 			switch (weaponName) {
 				case PISTOL : 
 					charMap = pistolMap;
@@ -886,34 +889,34 @@ class LevelState extends State {
 			}
 			
 			// Update which key should be used.
-			if (level.getCharacter().isDead()) { // Char is dead
+			if (snapshot.isCharacterDead()) { // Char is dead
 				
 				key = deadKey;
 
-			} else if (level.getCharacter().isDashing()) { // Char is dashing
+			} else if (snapshot.isCharacterDashing()) { // Char is dashing
 				
-				if(level.getCharacter().isFacingRight())
+				if(snapshot.isCharacterFacingRight())
 					key = dashRKey;
 				else
 					key = dashLKey;	
 
-			} else if (level.getCharacter().isAirborne()) { // Char is jumping
+			} else if (snapshot.isCharacterAirborne()) { // Char is jumping
 					
-				if (level.getCharacter().isFacingRight())
+				if (snapshot.isCharacterFacingRight())
 					key = jumpRKey;
 				else
 					key = jumpLKey;
 			
-			} else if (level.getCharacter().isRunning()) { // Char is standing still
+			} else if (snapshot.isCharacterRunning()) { // Char is standing still
 				
-				if (level.getCharacter().isFacingRight())
+				if (snapshot.isCharacterFacingRight())
 					key = runRKey;
 				else
 					key = runLKey;
 				
 			} else { // Char is standing still
 		
-				if (level.getCharacter().isFacingRight())
+				if (snapshot.isCharacterFacingRight())
 					key = standRKey;
 				else
 					key = standLKey;
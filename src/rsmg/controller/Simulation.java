@@ -0,0 +1,318 @@
+package rsmg.controller;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rsmg.model.FixedTimestep;
+import rsmg.model.FrameSnapshot;
+import rsmg.model.Level;
+import rsmg.model.SnapshotBuffer;
+import rsmg.model.object.unit.PCharacter;
+import rsmg.model.object.unit.weapon.Weapon;
+import rsmg.model.variables.ObjectName;
+
+/**
+ * Updates a level and publishes a FrameSnapshot of it after every update, so
+ * LevelState can draw the snapshots instead of the level.
+ *
+ * The level is either updated from LevelState.update() on the game's thread,
+ * or on a thread of its own with start(). On its own thread the level is
+ * updated with a fixed tick rate no matter how long the frames take to draw,
+ * and the game's thread only reads the snapshots. The keys are handed to the
+ * simulation as bit masks, and the snapshots through a SnapshotBuffer, so the
+ * threads never wait for each other.
+ */
+class Simulation implements Runnable {
+
+	/**
+	 * The keys that are held down.
+	 */
+	static final int LEFT = 1;
+	static final int RIGHT = 2;
+	static final int JUMP = 4;
+
+	/**
+	 * The keys that only do something when they are pressed.
+	 */
+	static final int ATTACK = 1;
+	static final int DASH = 2;
+	static final int PISTOL = 4;
+	static final int LASER_PISTOL = 8;
+	static final int SHOTGUN = 16;
+	static final int ROCKET_LAUNCHER = 32;
+	static final int COMPLETE_LEVEL = 64;
+
+	/**
+	 * The tick rate on the simulation's own thread if no tick rate is set.
+	 */
+	private static final int DEFAULT_TICK_RATE = 60;
+
+	/**
+	 * How long the thread sleeps at a time while the simulation is paused or
+	 * the level is over, in milliseconds.
+	 */
+	private static final long IDLE_SLEEP = 10;
+
+	private final Level level;
+
+	/**
+	 * Used to update the level in fixed steps on the game's thread, if a tick
+	 * rate is set. Otherwise it is null and the level is updated once every
+	 * frame.
+	 */
+	private final FixedTimestep timestep;
+
+	/**
+	 * The length of a tick on the simulation's own thread.
+	 */
+	private final double tickLength;
+
+	private final SnapshotBuffer snapshots = new SnapshotBuffer();
+
+	/**
+	 * The keys that are held down, and the keys that have been pressed since
+	 * the last update.
+	 */
+	private final AtomicInteger heldKeys = new AtomicInteger();
+	private final AtomicInteger pressedKeys = new AtomicInteger();
+
+	/**
+	 * Which keys were held down during the last update, to know when they
+	 * are released.
+	 */
+	private boolean leftKeyIsDown;
+	private boolean rightKeyIsDown;
+	private boolean upKeyIsDown;
+
+	/**
+	 * Counts the shots and dashes for the sounds. See FrameSnapshot.
+	 */
+	private int shotCount;
+	private ObjectName shotWeapon;
+	private int dashCount;
+
+	private Thread thread;
+	private volatile boolean running;
+	private volatile boolean paused;
+
+	/**
+	 * Create a simulation of a level.
+	 * @param level The level.
+	 * @param tickRate How many times per second the level is updated, or
+	 *            zero to update it once every frame.
+	 */
+	Simulation(Level level, int tickRate) {
+		this.level = level;
+		timestep = tickRate > 0 ? new FixedTimestep(tickRate) : null;
+		tickLength = 1.0 / (tickRate > 0 ? tickRate : DEFAULT_TICK_RATE);
+		publishSnapshot();
+	}
+
+	/**
+	 * Returns the level. It may only be used while the simulation doesn't
+	 * run on its own thread, e.g. after stop().
+	 * @return The level.
+	 */
+	Level getLevel() {
+		return level;
+	}
+
+	/**
+	 * Set which keys are held down.
+	 * @param keys LEFT, RIGHT and JUMP or:ed together.
+	 */
+	void setHeldKeys(int keys) {
+		heldKeys.set(keys);
+	}
+
+	/**
+	 * Tell that a key has been pressed. It's handled in the next update.
+	 * @param key ATTACK, DASH, a weapon or COMPLETE_LEVEL.
+	 */
+	void press(int key) {
+		int keys;
+		do {
+			keys = pressedKeys.get();
+		} while (!pressedKeys.compareAndSet(keys, keys | key));
+	}
+
+	/**
+	 * Returns the latest snapshot of the level. Only called on the game's
+	 * thread.
+	 * @return The snapshot.
+	 */
+	FrameSnapshot getSnapshot() {
+		return snapshots.getReadSnapshot();
+	}
+
+	/**
+	 * Update the level on the game's thread. Only used when the simulation
+	 * doesn't have its own thread.
+	 * @param delta Time since last frame in seconds.
+	 */
+	void update(double delta) {
+		applyKeys();
+		if (timestep != null)
+			timestep.update(level, delta);
+		else
+			level.update(delta);
+		countSounds();
+		publishSnapshot();
+	}
+
+	/**
+	 * Start updating the level on a thread of its own.
+	 */
+	void start() {
+		running = true;
+		thread = new Thread(this, "Simulation");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stop the simulation's thread, and wait for it to finish its update.
+	 * Does nothing if the simulation doesn't have a thread.
+	 */
+	void stop() {
+		if (thread == null)
+			return;
+		running = false;
+		thread.interrupt();
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		thread = null;
+	}
+
+	/**
+	 * Pause or resume the simulation's thread. The time while it's paused is
+	 * not simulated.
+	 * @param paused If the level should stand still.
+	 */
+	void setPaused(boolean paused) {
+		this.paused = paused;
+	}
+
+	/**
+	 * Update the level once every tick until stopped. If the updates can't
+	 * keep up, the time that is too far behind is thrown away, like in
+	 * FixedTimestep.
+	 */
+	@Override
+	public void run() {
+		long tickNanos = (long)(tickLength * 1e9);
+		long next = System.nanoTime();
+		try {
+			while (running) {
+				if (paused || level.hasWon() || level.hasLost()) {
+					Thread.sleep(IDLE_SLEEP);
+					next = System.nanoTime();
+					continue;
+				}
+
+				long wait = next - System.nanoTime();
+				if (wait > 0)
+					Thread.sleep(wait / 1000000, (int)(wait % 1000000));
+
+				applyKeys();
+				level.update(tickLength);
+				countSounds();
+				publishSnapshot();
+
+				next += tickNanos;
+				if (System.nanoTime() - next > FixedTimestep.DEFAULT_MAX_TICKS * tickNanos)
+					next = System.nanoTime();
+			}
+		} catch (InterruptedException e) {
+			// Stopped.
+		}
+	}
+
+	/**
+	 * Control the character with the keys, the same way as ScriptedInput.
+	 */
+	private void applyKeys() {
+		PCharacter character = level.getCharacter();
+		int held = heldKeys.get();
+		int pressed = pressedKeys.getAndSet(0);
+
+		// left arrow key
+		if ((held & LEFT) != 0) {
+			character.moveLeft();
+			leftKeyIsDown = true;
+		} else if (leftKeyIsDown) {
+			leftKeyIsDown = false;
+			character.moveLeftReleased();
+		}
+
+		// right arrow key
+		if ((held & RIGHT) != 0 && !leftKeyIsDown) {
+			character.moveRight();
+			rightKeyIsDown = true;
+		} else if (rightKeyIsDown) {
+			rightKeyIsDown = false;
+			character.moveRightReleased();
+		}
+
+		// up arrow key
+		if ((held & JUMP) != 0) {
+			if (!upKeyIsDown)
+				character.jump();
+			upKeyIsDown = true;
+		} else if (upKeyIsDown) {
+			upKeyIsDown = false;
+			character.jumpReleased();
+		}
+
+		if ((pressed & ATTACK) != 0)
+			character.attack();
+		if ((pressed & DASH) != 0)
+			character.dash();
+		if ((pressed & PISTOL) != 0)
+			character.changeWeapon(ObjectName.PISTOL);
+		if ((pressed & LASER_PISTOL) != 0)
+			character.changeWeapon(ObjectName.LASER_PISTOL);
+		if ((pressed & SHOTGUN) != 0)
+			character.changeWeapon(ObjectName.SHOTGUN);
+		if ((pressed & ROCKET_LAUNCHER) != 0)
+			character.changeWeapon(ObjectName.ROCKET_LAUNCHER);
+		if ((pressed & COMPLETE_LEVEL) != 0)
+			level.completeLevel();
+	}
+
+	/**
+	 * Count the shots fired and dashes started in the last update.
+	 */
+	private void countSounds() {
+		PCharacter character = level.getCharacter();
+		if (character.isDashing() && character.getDistanceDashed() == 0)
+			dashCount++;
+		Weapon weapon = character.getWeapon();
+		if (weapon.shot()) {
+			shotCount++;
+			shotWeapon = weapon.getName();
+		}
+	}
+
+	/**
+	 * Publish the state of the level. The snapshot is told when the state was
+	 * current, so it can be drawn between the last two ticks. When the level
+	 * is updated with a variable timestep every frame is a tick of its own,
+	 * and nothing is interpolated.
+	 */
+	private void publishSnapshot() {
+		FrameSnapshot snapshot = snapshots.getWriteSnapshot();
+		level.writeSnapshot(snapshot);
+		long now = System.nanoTime();
+		if (thread != null)
+			snapshot.setTiming(now, tickLength);
+		else if (timestep != null)
+			snapshot.setTiming(now - (long)(timestep.getAlpha() * tickLength * 1e9), tickLength);
+		else
+			snapshot.setTiming(now, 0);
+		snapshot.setSoundCounters(shotCount, shotWeapon, dashCount);
+		snapshots.publish();
+	}
+}
@@ -0,0 +1,380 @@
+package rsmg.io;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import rsmg.io.CompiledLevelFile.Spawn;
+import rsmg.model.TileChunk;
+import rsmg.model.TileChunkSource;
+import rsmg.model.TileGrid;
+import rsmg.model.tile.Tiles;
+import rsmg.model.variables.ObjectName;
+
+/**
+ * A level stored in a file as chunks, so a streamed TileGrid can read only
+ * the chunks around the character, and the level can read only the items and
+ * enemies placed in those chunks. The file is:
+ *
+ * <pre>
+ * int    magic, "RSMC"
+ * int    version
+ * int    width and height, in tiles
+ * int    chunk size, which must be TileChunk.SIZE
+ * int    number of special tiles, then for every one of them:
+ * byte   its kind, from TileGrid
+ * int    its x and y in the grid
+ * long   for every chunk, row by row, the position of its tiles in the file,
+ *        or 0 if the chunk only has air, and the position of its spawns, or
+ *        0 if nothing is placed in it
+ * </pre>
+ *
+ * followed by the tiles and the spawns of the chunks. The tiles of a chunk are
+ * TileChunk.SIZE * TileChunk.SIZE tile codes. The spawns of a chunk are the
+ * number of items, then the code of every item as in CompiledLevelFile and
+ * its x and y in the grid, and then the enemies in the same way.
+ *
+ * The chunks are read with positional reads, so several threads can read from
+ * the same file at the same time.
+ */
+public final class ChunkedLevelFile implements TileChunkSource, Closeable {
+
+	private static final int MAGIC = 0x52534D43;
+	private static final int VERSION = 2;
+
+	private static final int CHUNK_BYTES = TileChunk.SIZE * TileChunk.SIZE;
+
+	/**
+	 * The size of a spawn in the file: its code, x and y.
+	 */
+	private static final int SPAWN_BYTES = 9;
+
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+
+	private final int width;
+	private final int height;
+	private final int chunksX;
+
+	/**
+	 * The features of every kind, as x and y pairs.
+	 */
+	private final int[][] features = new int[TileGrid.END + 1][];
+
+	/**
+	 * Where in the file the table with the positions of the chunks' tiles and
+	 * spawns starts.
+	 */
+	private final long offsetTable;
+
+	/**
+	 * Open a level file. The header is read at once; the chunks are read
+	 * when they are asked for.
+	 * @param path The file.
+	 * @throws IOException If the file can't be read or isn't a level file.
+	 */
+	public ChunkedLevelFile(File path) throws IOException {
+		file = new RandomAccessFile(path, "r");
+		channel = file.getChannel();
+		try {
+			if (file.readInt() != MAGIC)
+				throw new IOException(path + " is not a chunked level file.");
+			int version = file.readInt();
+			if (version != VERSION)
+				throw new IOException("Unsupported level file version " + version + ".");
+			width = file.readInt();
+			height = file.readInt();
+			if (width <= 0 || height <= 0)
+				throw new IOException("Invalid level size " + width + "x" + height + ".");
+			if (file.readInt() != TileChunk.SIZE)
+				throw new IOException("The chunks of the level don't have the size " + TileChunk.SIZE + ".");
+			chunksX = (width + TileChunk.SIZE - 1) / TileChunk.SIZE;
+
+			int featureCount = file.readInt();
+			int[] counts = new int[features.length];
+			byte[] kinds = new byte[featureCount];
+			int[] positions = new int[featureCount * 2];
+			for (int i = 0; i < featureCount; i++) {
+				kinds[i] = file.readByte();
+				if (kinds[i] < 0 || kinds[i] >= features.length)
+					throw new IOException("Invalid tile kind " + kinds[i] + ".");
+				positions[i * 2] = file.readInt();
+				positions[i * 2 + 1] = file.readInt();
+				counts[kinds[i]]++;
+			}
+			for (int kind = 0; kind < features.length; kind++)
+				features[kind] = new int[counts[kind] * 2];
+			int[] filled = new int[features.length];
+			for (int i = 0; i < featureCount; i++) {
+				features[kinds[i]][filled[kinds[i]]++] = positions[i * 2];
+				features[kinds[i]][filled[kinds[i]]++] = positions[i * 2 + 1];
+			}
+			offsetTable = file.getFilePointer();
+		} catch (IOException e) {
+			file.close();
+			throw e;
+		}
+	}
+
+	@Override
+	public int getWidth() {
+		return width;
+	}
+
+	@Override
+	public int getHeight() {
+		return height;
+	}
+
+	@Override
+	public int[] getFeatures(byte kind) {
+		return features[kind].clone();
+	}
+
+	@Override
+	public TileChunk loadChunk(int chunkX, int chunkY) {
+		try {
+			long position = readPosition(chunkX, chunkY, 0);
+			if (position == 0)
+				return new TileChunk();
+
+			ByteBuffer codes = ByteBuffer.allocate(CHUNK_BYTES);
+			readFully(codes, position);
+			return new TileChunk(codes.array());
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not read chunk (" + chunkX + ", " + chunkY + ").", e);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalStateException("Chunk (" + chunkX + ", " + chunkY + ") is invalid.", e);
+		}
+	}
+
+	/**
+	 * Read the items and the enemies that are placed in a chunk.
+	 * @param chunkX The chunk's column.
+	 * @param chunkY The chunk's row.
+	 * @param items The list that the chunk's items are added to.
+	 * @param enemies The list that the chunk's enemies are added to.
+	 * @throws IOException If the spawns can't be read or are invalid.
+	 */
+	public void loadSpawns(int chunkX, int chunkY, List<Spawn> items, List<Spawn> enemies) throws IOException {
+		long position = readPosition(chunkX, chunkY, 8);
+		if (position == 0)
+			return;
+		position = readSpawns(position, CompiledLevelFile.ITEMS, items);
+		readSpawns(position, CompiledLevelFile.ENEMIES, enemies);
+	}
+
+	/**
+	 * Read a chunk's position from the table.
+	 * @param field 0 for the position of the tiles, 8 for the spawns.
+	 */
+	private long readPosition(int chunkX, int chunkY, int field) throws IOException {
+		if (chunkX < 0 || chunkX >= chunksX || chunkY < 0 || (long)chunkY * TileChunk.SIZE >= height)
+			throw new IllegalArgumentException("Chunk (" + chunkX + ", " + chunkY + ") is outside the level.");
+		ByteBuffer position = ByteBuffer.allocate(8);
+		readFully(position, offsetTable + ((long)chunkY * chunksX + chunkX) * 16 + field);
+		return position.getLong(0);
+	}
+
+	/**
+	 * Read a list of spawns.
+	 * @return The position after the spawns.
+	 */
+	private long readSpawns(long position, ObjectName[] names, List<Spawn> spawns) throws IOException {
+		ByteBuffer count = ByteBuffer.allocate(4);
+		readFully(count, position);
+		int spawnCount = count.getInt(0);
+		if (spawnCount < 0 || spawnCount > CHUNK_BYTES)
+			throw new IOException("Invalid number of spawns " + spawnCount + ".");
+		ByteBuffer buffer = ByteBuffer.allocate(spawnCount * SPAWN_BYTES);
+		readFully(buffer, position + 4);
+		buffer.flip();
+		try {
+			for (int i = 0; i < spawnCount; i++)
+				spawns.add(CompiledLevelFile.readSpawn(buffer, names));
+		} catch (BufferUnderflowException e) {
+			throw new IOException("Unexpected end of the level file.");
+		}
+		return position + 4 + buffer.capacity();
+	}
+
+	private void readFully(ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position + buffer.position());
+			if (read < 0)
+				throw new IOException("Unexpected end of the level file.");
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		file.close();
+	}
+
+	/**
+	 * Write the tiles of a grid to a level file, without any items or
+	 * enemies.
+	 * @param grid The grid.
+	 * @param path The file to write.
+	 * @throws IOException If the file can't be written.
+	 */
+	public static void write(TileGrid grid, File path) throws IOException {
+		write(grid, Collections.<Spawn>emptyList(), Collections.<Spawn>emptyList(), path);
+	}
+
+	/**
+	 * Write a level to a level file. Every item and enemy is stored with the
+	 * chunk it's placed in.
+	 * @param grid The level's tiles.
+	 * @param items The level's items.
+	 * @param enemies The level's enemies.
+	 * @param path The file to write.
+	 * @throws IOException If the file can't be written.
+	 * @throws IllegalArgumentException If an item or an enemy is outside the
+	 *             grid or can't be stored.
+	 */
+	public static void write(TileGrid grid, List<Spawn> items, List<Spawn> enemies, File path) throws IOException {
+		int width = grid.getWidth();
+		int height = grid.getHeight();
+		int chunksX = (width + TileChunk.SIZE - 1) / TileChunk.SIZE;
+		int chunksY = (height + TileChunk.SIZE - 1) / TileChunk.SIZE;
+
+		int featureCount = 0;
+		for (byte kind = 0; kind <= TileGrid.END; kind++)
+			featureCount += grid.getFeatureCount(kind);
+
+		// Find out which chunks only have air, since their tiles aren't
+		// written, and what is placed in every chunk.
+		boolean[] empty = new boolean[chunksX * chunksY];
+		for (int chunkY = 0; chunkY < chunksY; chunkY++) {
+			for (int chunkX = 0; chunkX < chunksX; chunkX++) {
+				empty[chunkY * chunksX + chunkX] = isEmpty(grid, chunkX, chunkY);
+			}
+		}
+		Map<Integer, List<Spawn>> chunkItems = byChunk(items, grid, chunksX);
+		Map<Integer, List<Spawn>> chunkEnemies = byChunk(enemies, grid, chunksX);
+
+		// Write to another file first, so a level that is being loaded at the
+		// same time never sees half a file.
+		File temporary = File.createTempFile(path.getName(), ".tmp", path.getAbsoluteFile().getParentFile());
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+		boolean written = false;
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(width);
+			out.writeInt(height);
+			out.writeInt(TileChunk.SIZE);
+			out.writeInt(featureCount);
+			for (byte kind = 0; kind <= TileGrid.END; kind++) {
+				for (int i = 0; i < grid.getFeatureCount(kind); i++) {
+					out.writeByte(kind);
+					out.writeInt(grid.getFeature(kind, i).x);
+					out.writeInt(grid.getFeature(kind, i).y);
+				}
+			}
+
+			long position = out.size() + (long)empty.length * 16;
+			for (int i = 0; i < empty.length; i++) {
+				if (empty[i]) {
+					out.writeLong(0);
+				} else {
+					out.writeLong(position);
+					position += CHUNK_BYTES;
+				}
+				int spawnCount = size(chunkItems.get(i)) + size(chunkEnemies.get(i));
+				if (spawnCount == 0) {
+					out.writeLong(0);
+				} else {
+					out.writeLong(position);
+					position += 8 + spawnCount * SPAWN_BYTES;
+				}
+			}
+
+			for (int chunkY = 0; chunkY < chunksY; chunkY++) {
+				for (int chunkX = 0; chunkX < chunksX; chunkX++) {
+					int index = chunkY * chunksX + chunkX;
+					if (!empty[index]) {
+						for (int y = 0; y < TileChunk.SIZE; y++) {
+							for (int x = 0; x < TileChunk.SIZE; x++) {
+								out.writeByte(getCode(grid, chunkX * TileChunk.SIZE + x, chunkY * TileChunk.SIZE + y));
+							}
+						}
+					}
+					if (size(chunkItems.get(index)) + size(chunkEnemies.get(index)) > 0) {
+						CompiledLevelFile.writeSpawns(out, orEmpty(chunkItems.get(index)), CompiledLevelFile.ITEMS);
+						CompiledLevelFile.writeSpawns(out, orEmpty(chunkEnemies.get(index)), CompiledLevelFile.ENEMIES);
+					}
+				}
+			}
+			out.close();
+			CompiledLevelFile.replace(temporary, path);
+			written = true;
+		} finally {
+			if (!written) {
+				out.close();
+				temporary.delete();
+			}
+		}
+	}
+
+	/**
+	 * Sort spawns by the index of the chunk they are placed in.
+	 */
+	private static Map<Integer, List<Spawn>> byChunk(List<Spawn> spawns, TileGrid grid, int chunksX) {
+		Map<Integer, List<Spawn>> chunks = new HashMap<Integer, List<Spawn>>();
+		for (int i = 0; i < spawns.size(); i++) {
+			Spawn spawn = spawns.get(i);
+			if (spawn.getX() < 0 || spawn.getX() >= grid.getWidth() || spawn.getY() < 0 || spawn.getY() >= grid.getHeight())
+				throw new IllegalArgumentException(spawn.getName() + " is placed outside the level.");
+			int index = (spawn.getY() / TileChunk.SIZE) * chunksX + spawn.getX() / TileChunk.SIZE;
+			List<Spawn> chunk = chunks.get(index);
+			if (chunk == null) {
+				chunk = new ArrayList<Spawn>();
+				chunks.put(index, chunk);
+			}
+			chunk.add(spawn);
+		}
+		return chunks;
+	}
+
+	private static int size(List<Spawn> spawns) {
+		return spawns == null ? 0 : spawns.size();
+	}
+
+	private static List<Spawn> orEmpty(List<Spawn> spawns) {
+		return spawns == null ? Collections.<Spawn>emptyList() : spawns;
+	}
+
+	private static boolean isEmpty(TileGrid grid, int chunkX, int chunkY) {
+		for (int y = chunkY * TileChunk.SIZE; y < (chunkY + 1) * TileChunk.SIZE; y++) {
+			for (int x = chunkX * TileChunk.SIZE; x < (chunkX + 1) * TileChunk.SIZE; x++) {
+				if (getCode(grid, x, y) != 0)
+					return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the code of a tile, or air's code for positions outside the
+	 * grid, which is what the last chunks are filled with.
+	 */
+	private static byte getCode(TileGrid grid, int x, int y) {
+		if (x >= grid.getWidth() || y >= grid.getHeight())
+			return 0;
+		return Tiles.getCode(grid.getFromCoord(x, y).getName());
+	}
+}
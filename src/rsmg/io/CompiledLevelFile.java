@@ -0,0 +1,377 @@
+package rsmg.io;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import rsmg.model.TileChunk;
+import rsmg.model.TileChunkSource;
+import rsmg.model.TileGrid;
+import rsmg.model.tile.Tiles;
+import rsmg.model.variables.ObjectName;
+
+/**
+ * A level compiled from its XML file to a binary file, so it can be loaded
+ * without parsing any XML. The file is:
+ *
+ * <pre>
+ * int    magic, "RSML"
+ * int    version
+ * long   the length and the modification time of the XML file it was
+ *        compiled from
+ * int    width and height, in tiles
+ * int    number of special tiles, then for every one of them:
+ * byte   its kind, from TileGrid
+ * int    its x and y in the grid
+ * int    number of items, then for every one of them:
+ * byte   its code, the index of its name in ITEMS
+ * int    its x and y in the grid
+ * int    number of enemies, then for every one of them:
+ * byte   its code, the index of its name in ENEMIES
+ * int    its x and y in the grid
+ * byte[] the tile codes from Tiles, row by row
+ * </pre>
+ *
+ * The file is memory-mapped when it's opened. The header and the spawn tables
+ * are read at once, and the tiles are copied straight from the mapping into
+ * the chunks of a TileGrid, so nothing is kept in memory but the grid.
+ */
+public final class CompiledLevelFile implements TileChunkSource {
+
+	/**
+	 * An item or an enemy in the level, and where it's placed.
+	 */
+	public static final class Spawn {
+
+		private final ObjectName name;
+		private final int x;
+		private final int y;
+
+		/**
+		 * Create a spawn.
+		 * @param name The item's or the enemy's name.
+		 * @param x X coordinate in the grid.
+		 * @param y Y coordinate in the grid.
+		 */
+		public Spawn(ObjectName name, int x, int y) {
+			this.name = name;
+			this.x = x;
+			this.y = y;
+		}
+
+		/**
+		 * Returns the name of what is spawned.
+		 * @return The item's or the enemy's name.
+		 */
+		public ObjectName getName() {
+			return name;
+		}
+
+		/**
+		 * Returns the spawn's column in the grid.
+		 * @return X coordinate in the grid.
+		 */
+		public int getX() {
+			return x;
+		}
+
+		/**
+		 * Returns the spawn's row in the grid.
+		 * @return Y coordinate in the grid.
+		 */
+		public int getY() {
+			return y;
+		}
+	}
+
+	private static final int MAGIC = 0x52534D4C;
+	private static final int VERSION = 1;
+
+	/**
+	 * The items and the enemies that can be stored, by code. Shared with
+	 * ChunkedLevelFile.
+	 */
+	static final ObjectName[] ITEMS = {
+		ObjectName.HEALTH_PACK, ObjectName.UPGRADE_POINT, ObjectName.LASER_PISTOL,
+		ObjectName.SHOTGUN, ObjectName.ROCKET_LAUNCHER
+	};
+	static final ObjectName[] ENEMIES = {
+		ObjectName.TANKBOT, ObjectName.ROCKETBOT, ObjectName.BALLBOT,
+		ObjectName.BUCKETBOT, ObjectName.BOSSBOT, ObjectName.SPIKES
+	};
+
+	private final MappedByteBuffer buffer;
+
+	private final long sourceLength;
+	private final long sourceModified;
+
+	private final int width;
+	private final int height;
+
+	/**
+	 * The features of every kind, as x and y pairs.
+	 */
+	private final int[][] features = new int[TileGrid.END + 1][];
+
+	private final List<Spawn> items;
+	private final List<Spawn> enemies;
+
+	/**
+	 * Where in the file the tile codes start.
+	 */
+	private final int tilesOffset;
+
+	/**
+	 * Open a compiled level. The file is mapped into memory and its header
+	 * is read; the tiles are read when the chunks are asked for.
+	 * @param path The file.
+	 * @throws IOException If the file can't be read or isn't a compiled
+	 *             level.
+	 */
+	public CompiledLevelFile(File path) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(path, "r");
+		try {
+			// The mapping stays valid after the file is closed.
+			buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+		} finally {
+			file.close();
+		}
+
+		try {
+			if (buffer.getInt() != MAGIC)
+				throw new IOException(path + " is not a compiled level file.");
+			int version = buffer.getInt();
+			if (version != VERSION)
+				throw new IOException("Unsupported level file version " + version + ".");
+			sourceLength = buffer.getLong();
+			sourceModified = buffer.getLong();
+			width = buffer.getInt();
+			height = buffer.getInt();
+			if (width <= 0 || height <= 0)
+				throw new IOException("Invalid level size " + width + "x" + height + ".");
+
+			int featureCount = buffer.getInt();
+			int[] counts = new int[features.length];
+			int start = buffer.position();
+			for (int i = 0; i < featureCount; i++) {
+				byte kind = buffer.get();
+				if (kind < 0 || kind >= features.length)
+					throw new IOException("Invalid tile kind " + kind + ".");
+				counts[kind]++;
+				buffer.position(buffer.position() + 8);
+			}
+			for (int kind = 0; kind < features.length; kind++)
+				features[kind] = new int[counts[kind] * 2];
+			int[] filled = new int[features.length];
+			buffer.position(start);
+			for (int i = 0; i < featureCount; i++) {
+				byte kind = buffer.get();
+				features[kind][filled[kind]++] = buffer.getInt();
+				features[kind][filled[kind]++] = buffer.getInt();
+			}
+
+			items = readSpawns(ITEMS);
+			enemies = readSpawns(ENEMIES);
+
+			tilesOffset = buffer.position();
+			if (buffer.remaining() != (long)width * height)
+				throw new IOException("The level file doesn't have " + width + "x" + height + " tiles.");
+		} catch (BufferUnderflowException e) {
+			throw new IOException("Unexpected end of the level file.");
+		}
+	}
+
+	private List<Spawn> readSpawns(ObjectName[] names) throws IOException {
+		int count = buffer.getInt();
+		if (count < 0)
+			throw new IOException("Invalid number of spawns " + count + ".");
+		List<Spawn> spawns = new ArrayList<Spawn>(Math.min(count, buffer.remaining()));
+		for (int i = 0; i < count; i++)
+			spawns.add(readSpawn(buffer, names));
+		return Collections.unmodifiableList(spawns);
+	}
+
+	/**
+	 * Read a spawn that was written by writeSpawns().
+	 * @param buffer Where the spawn is read from.
+	 * @param names ITEMS or ENEMIES.
+	 * @return The spawn.
+	 * @throws IOException If the spawn's code is invalid.
+	 */
+	static Spawn readSpawn(ByteBuffer buffer, ObjectName[] names) throws IOException {
+		byte code = buffer.get();
+		if (code < 0 || code >= names.length)
+			throw new IOException("Invalid spawn code " + code + ".");
+		return new Spawn(names[code], buffer.getInt(), buffer.getInt());
+	}
+
+	/**
+	 * Returns if the level was compiled from a file as it is now. A level
+	 * should be compiled again if its XML file has been changed.
+	 * @param source The XML file.
+	 * @return If the file has the same length and modification time as when
+	 *         the level was compiled.
+	 */
+	public boolean isCompiledFrom(File source) {
+		return source.length() == sourceLength && source.lastModified() == sourceModified;
+	}
+
+	@Override
+	public int getWidth() {
+		return width;
+	}
+
+	@Override
+	public int getHeight() {
+		return height;
+	}
+
+	@Override
+	public int[] getFeatures(byte kind) {
+		return features[kind].clone();
+	}
+
+	/**
+	 * Returns the items in the level.
+	 * @return The items, in the order they were compiled.
+	 */
+	public List<Spawn> getItems() {
+		return items;
+	}
+
+	/**
+	 * Returns the enemies in the level.
+	 * @return The enemies, in the order they were compiled.
+	 */
+	public List<Spawn> getEnemies() {
+		return enemies;
+	}
+
+	@Override
+	public TileChunk loadChunk(int chunkX, int chunkY) {
+		// Every call reads through its own view of the mapping, so chunks can
+		// be loaded on several threads at the same time.
+		ByteBuffer tiles = buffer.duplicate();
+		byte[] codes = new byte[TileChunk.SIZE * TileChunk.SIZE];
+		int left = chunkX * TileChunk.SIZE;
+		int top = chunkY * TileChunk.SIZE;
+		int columns = Math.min(TileChunk.SIZE, width - left);
+		int rows = Math.min(TileChunk.SIZE, height - top);
+		for (int y = 0; y < rows; y++) {
+			tiles.position(tilesOffset + (top + y) * width + left);
+			tiles.get(codes, y * TileChunk.SIZE, columns);
+		}
+		try {
+			return new TileChunk(codes);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalStateException("Chunk (" + chunkX + ", " + chunkY + ") is invalid.", e);
+		}
+	}
+
+	/**
+	 * Compile a level to a file.
+	 * @param grid The level's tiles.
+	 * @param items The level's items.
+	 * @param enemies The level's enemies.
+	 * @param source The XML file that the level was read from.
+	 * @param path The file to write.
+	 * @throws IOException If the file can't be written.
+	 * @throws IllegalArgumentException If an item or an enemy can't be
+	 *             stored.
+	 */
+	public static void write(TileGrid grid, List<Spawn> items, List<Spawn> enemies, File source, File path)
+			throws IOException {
+		int featureCount = 0;
+		for (byte kind = 0; kind <= TileGrid.END; kind++)
+			featureCount += grid.getFeatureCount(kind);
+
+		// Write to another file first, so a level that is being loaded at the
+		// same time never sees half a file.
+		File temporary = File.createTempFile(path.getName(), ".tmp", path.getAbsoluteFile().getParentFile());
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+		boolean written = false;
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(source.length());
+			out.writeLong(source.lastModified());
+			out.writeInt(grid.getWidth());
+			out.writeInt(grid.getHeight());
+			out.writeInt(featureCount);
+			for (byte kind = 0; kind <= TileGrid.END; kind++) {
+				for (int i = 0; i < grid.getFeatureCount(kind); i++) {
+					out.writeByte(kind);
+					out.writeInt(grid.getFeature(kind, i).x);
+					out.writeInt(grid.getFeature(kind, i).y);
+				}
+			}
+			writeSpawns(out, items, ITEMS);
+			writeSpawns(out, enemies, ENEMIES);
+			for (int y = 0; y < grid.getHeight(); y++) {
+				for (int x = 0; x < grid.getWidth(); x++) {
+					out.writeByte(Tiles.getCode(grid.getFromCoord(x, y).getName()));
+				}
+			}
+			out.close();
+			replace(temporary, path);
+			written = true;
+		} finally {
+			if (!written) {
+				out.close();
+				temporary.delete();
+			}
+		}
+	}
+
+	/**
+	 * Move a file that has been written in full to where it belongs,
+	 * replacing the file that is there. The move is atomic where the file
+	 * system allows it, so a reader sees either the old or the new file.
+	 * @param temporary The written file.
+	 * @param path Where it's moved.
+	 * @throws IOException If the file can't be moved.
+	 */
+	static void replace(File temporary, File path) throws IOException {
+		try {
+			Files.move(temporary.toPath(), path.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temporary.toPath(), path.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Write the number of spawns, and then the code and the position of every
+	 * spawn.
+	 */
+	static void writeSpawns(DataOutputStream out, List<Spawn> spawns, ObjectName[] names) throws IOException {
+		out.writeInt(spawns.size());
+		for (int i = 0; i < spawns.size(); i++) {
+			Spawn spawn = spawns.get(i);
+			out.writeByte(codeOf(spawn.getName(), names));
+			out.writeInt(spawn.getX());
+			out.writeInt(spawn.getY());
+		}
+	}
+
+	private static int codeOf(ObjectName name, ObjectName[] names) {
+		for (int code = 0; code < names.length; code++) {
+			if (names[code] == name)
+				return code;
+		}
+		throw new IllegalArgumentException(name + " can't be stored in a level file.");
+	}
+}
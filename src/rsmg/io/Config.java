@@ -43,6 +43,24 @@ public class Config {
 	 */
 	private boolean soundEffectsOn;
 	
+	/**
+	 * How many times per second the level should be updated. If it is zero,
+	 * the level is updated once every frame with the frame's length instead.
+	 */
+	private int tickRate;
+	
+	/**
+	 * How many threads the enemies should be updated on. If it is zero or
+	 * one, they are updated on the game's thread.
+	 */
+	private int aiThreads;
+	
+	/**
+	 * If the level should be updated on its own thread, while the game's
+	 * thread only draws it.
+	 */
+	private boolean simulationThreadOn;
+	
 	/**
 	 * Make this class to a singleton. Reads the settings from the config file
 	 * and stores the values in this class.
@@ -61,6 +79,14 @@ public class Config {
 			musicOn = rootNode.getChild("music").getText().equals("true");
 			soundEffectsOn = rootNode.getChild("soundEffects").getText().equals("true");
 			
+			// Config files from older versions of the game lack this setting.
+			String tickRateText = rootNode.getChildText("tickRate");
+			tickRate = tickRateText == null ? 0 : Integer.parseInt(tickRateText.trim());
+			String aiThreadsText = rootNode.getChildText("aiThreads");
+			aiThreads = aiThreadsText == null ? 0 : Integer.parseInt(aiThreadsText.trim());
+			String simulationThreadText = rootNode.getChildText("simulationThread");
+			simulationThreadOn = simulationThreadText != null && simulationThreadText.trim().equals("true");
+			
 		} catch (IOException e) {
 			System.out.println(e.getMessage());
 			e.printStackTrace();
@@ -94,6 +120,32 @@ public class Config {
 		return config.soundEffectsOn;
 	}
 	
+	/**
+	 * Returns how many times per second the level should be updated.
+	 * @return The tick rate, or zero if the level should be updated once
+	 *         every frame.
+	 */
+	public static int tickRate() {
+		return config.tickRate;
+	}
+	
+	/**
+	 * Returns how many threads the enemies should be updated on.
+	 * @return The number of threads, or zero if the enemies should be updated
+	 *         on the game's thread.
+	 */
+	public static int aiThreads() {
+		return config.aiThreads;
+	}
+	
+	/**
+	 * Returns if the level should be updated on its own thread.
+	 * @return If the level has its own thread.
+	 */
+	public static boolean simulationThreadOn() {
+		return config.simulationThreadOn;
+	}
+	
 	/**
 	 * Store that the game should be played in full screen mode.
 	 * @param on If full screen should be turned on.
@@ -118,6 +170,31 @@ public class Config {
 		config.soundEffectsOn = on;
 	}
 	
+	/**
+	 * Store how many times per second the level should be updated.
+	 * @param rate The tick rate, or zero to update the level once every frame.
+	 */
+	public static void setTickRate(int rate) {
+		config.tickRate = rate;
+	}
+	
+	/**
+	 * Store how many threads the enemies should be updated on.
+	 * @param threads The number of threads, or zero to update the enemies on
+	 *            the game's thread.
+	 */
+	public static void setAiThreads(int threads) {
+		config.aiThreads = threads;
+	}
+	
+	/**
+	 * Store if the level should be updated on its own thread.
+	 * @param on If the level should have its own thread.
+	 */
+	public static void setSimulationThreadOn(boolean on) {
+		config.simulationThreadOn = on;
+	}
+	
 	/**
 	 * Write the configurations to the hard drive.
 	 * Until this is run, changed settings are only available in the current
@@ -136,6 +213,15 @@ public class Config {
 			rootNode.getChild("fullScreen").setText(Boolean.toString(fullScreenOn()));
 			rootNode.getChild("music").setText(Boolean.toString(musicOn()));
 			rootNode.getChild("soundEffects").setText(Boolean.toString(soundEffectsOn()));
+			if (rootNode.getChild("tickRate") == null)
+				rootNode.addContent(new Element("tickRate"));
+			rootNode.getChild("tickRate").setText(Integer.toString(tickRate()));
+			if (rootNode.getChild("aiThreads") == null)
+				rootNode.addContent(new Element("aiThreads"));
+			rootNode.getChild("aiThreads").setText(Integer.toString(aiThreads()));
+			if (rootNode.getChild("simulationThread") == null)
+				rootNode.addContent(new Element("simulationThread"));
+			rootNode.getChild("simulationThread").setText(Boolean.toString(simulationThreadOn()));
         	
 			// Write the document to the config file on the HDD
     		XMLOutputter outputter = new XMLOutputter();
@@ -0,0 +1,317 @@
+package rsmg.io;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * The levels in a level folder. The folder is scanned once when the catalog
+ * is created, and is then watched for changes on a thread of its own, so the
+ * catalog can be asked about the levels without the disk being read. Levels
+ * that are added to, changed in or removed from the folder show up in the
+ * catalog shortly afterwards.
+ *
+ * A level is a file named LevelX.xml or LevelXBoss.xml, where X is the
+ * level's number, or a ChunkedLevelFile named LevelX.rsmc or LevelXBoss.rsmc,
+ * which is streamed. If a number has both a boss level and a regular level,
+ * the boss level is used, and if it has both a streamed file and an XML file,
+ * the streamed file is used.
+ */
+public final class LevelCatalog implements Closeable {
+
+	/**
+	 * What the catalog knows about a level.
+	 */
+	public static final class Entry {
+
+		private final int number;
+		private final boolean boss;
+		private final boolean streamed;
+		private final File file;
+		private final long size;
+		private final long hash;
+
+		private Entry(int number, boolean boss, boolean streamed, File file, long size, long hash) {
+			this.number = number;
+			this.boss = boss;
+			this.streamed = streamed;
+			this.file = file;
+			this.size = size;
+			this.hash = hash;
+		}
+
+		/**
+		 * Returns the level's number.
+		 * @return The number.
+		 */
+		public int getNumber() {
+			return number;
+		}
+
+		/**
+		 * Returns if the level is a boss level.
+		 * @return If the level's file is named LevelXBoss.xml.
+		 */
+		public boolean isBoss() {
+			return boss;
+		}
+
+		/**
+		 * Returns if the level is streamed.
+		 * @return If the level's file is a ChunkedLevelFile.
+		 */
+		public boolean isStreamed() {
+			return streamed;
+		}
+
+		/**
+		 * Returns the level's file.
+		 * @return The file.
+		 */
+		public File getFile() {
+			return file;
+		}
+
+		/**
+		 * Returns the size of the level's file.
+		 * @return Number of bytes.
+		 */
+		public long getSize() {
+			return size;
+		}
+
+		/**
+		 * Returns a hash of the level file's content. It's different if the
+		 * file has been changed, so it can be used to find out if something
+		 * read from the file is out of date.
+		 * @return The CRC-32 of an XML file. Streamed files can be large, so
+		 *         their hash is made from their size and modification time.
+		 */
+		public long getHash() {
+			return hash;
+		}
+	}
+
+	private static final Pattern LEVEL_FILE = Pattern.compile("^Level([0-9]+)(Boss)?\\.(xml|rsmc)$");
+
+	private final File folder;
+
+	/**
+	 * The levels by number. The map is never changed; it's replaced when the
+	 * folder changes, so it can be read without locking.
+	 */
+	private volatile Map<Integer, Entry> entries;
+
+	/**
+	 * Watches the folder, or null if it can't be watched.
+	 */
+	private final WatchService watcher;
+
+	/**
+	 * Create a catalog of the levels in a folder, and start watching the
+	 * folder. If the folder can't be watched, the catalog is only updated
+	 * when refresh() is called.
+	 * @param folder The level folder.
+	 */
+	public LevelCatalog(File folder) {
+		this.folder = folder;
+
+		// Start watching before the folder is scanned, so nothing that is
+		// changed in between is missed.
+		WatchService service = null;
+		try {
+			service = FileSystems.getDefault().newWatchService();
+			folder.toPath().register(service, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+		} catch (IOException e) {
+			e.printStackTrace();
+			close(service);
+			service = null;
+		}
+		watcher = service;
+		entries = scan();
+
+		if (watcher != null) {
+			Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					watch();
+				}
+			}, "Level watcher");
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	/**
+	 * Returns the numbers of the levels.
+	 * @return A new list with the numbers in increasing order.
+	 */
+	public List<Integer> getLevelNumbers() {
+		List<Integer> numbers = new ArrayList<Integer>(entries.keySet());
+		Collections.sort(numbers);
+		return numbers;
+	}
+
+	/**
+	 * Returns what the catalog knows about a level.
+	 * @param levelNumber The level's number.
+	 * @return The level's entry, or null if there is no level with the
+	 *         number.
+	 */
+	public Entry getEntry(int levelNumber) {
+		return entries.get(levelNumber);
+	}
+
+	/**
+	 * Scan the whole folder again.
+	 */
+	public synchronized void refresh() {
+		entries = scan();
+	}
+
+	/**
+	 * Stop watching the folder.
+	 */
+	@Override
+	public void close() {
+		close(watcher);
+	}
+
+	private static void close(WatchService service) {
+		if (service == null)
+			return;
+		try {
+			service.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Wait for changes in the folder and update the levels that are changed,
+	 * until the catalog is closed or the folder is removed.
+	 */
+	private void watch() {
+		try {
+			boolean valid = true;
+			while (valid) {
+				WatchKey key = watcher.take();
+				boolean overflow = false;
+				for (WatchEvent<?> event : key.pollEvents()) {
+					if (event.kind() == OVERFLOW)
+						overflow = true;
+					else
+						update(((Path)event.context()).getFileName().toString());
+				}
+				// Some changes were lost, so find out what they were.
+				if (overflow)
+					refresh();
+				valid = key.reset();
+			}
+		} catch (InterruptedException e) {
+			// Stop watching.
+		} catch (ClosedWatchServiceException e) {
+			// The catalog was closed.
+		}
+	}
+
+	/**
+	 * Read the level that a file belongs to again.
+	 * @param fileName The name of a file in the folder that has changed.
+	 */
+	private synchronized void update(String fileName) {
+		Matcher matcher = LEVEL_FILE.matcher(fileName);
+		if (!matcher.matches())
+			return;
+		int number = Integer.parseInt(matcher.group(1));
+		Map<Integer, Entry> updated = new HashMap<Integer, Entry>(entries);
+		Entry entry = read(number);
+		if (entry == null)
+			updated.remove(number);
+		else
+			updated.put(number, entry);
+		entries = Collections.unmodifiableMap(updated);
+	}
+
+	private Map<Integer, Entry> scan() {
+		Set<Integer> numbers = new TreeSet<Integer>();
+		File[] files = folder.listFiles();
+		if (files != null) {
+			for (File f : files) {
+				Matcher matcher = LEVEL_FILE.matcher(f.getName());
+				if (matcher.matches())
+					numbers.add(Integer.parseInt(matcher.group(1)));
+			}
+		}
+
+		Map<Integer, Entry> scanned = new HashMap<Integer, Entry>();
+		for (int number : numbers) {
+			Entry entry = read(number);
+			if (entry != null)
+				scanned.put(number, entry);
+		}
+		return Collections.unmodifiableMap(scanned);
+	}
+
+	/**
+	 * Read the file of a level.
+	 * @param number The level's number.
+	 * @return The level's entry, or null if it has no file.
+	 */
+	private Entry read(int number) {
+		String[] names = { "Boss.rsmc", "Boss.xml", ".rsmc", ".xml" };
+		for (String name : names) {
+			File file = new File(folder, "Level" + number + name);
+			if (!file.isFile())
+				continue;
+			boolean streamed = name.endsWith(".rsmc");
+			long hash = streamed ? file.length() * 31 + file.lastModified() : hash(file);
+			return new Entry(number, name.startsWith("Boss"), streamed, file, file.length(), hash);
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the CRC-32 of a file's content, or -1 if it can't be read.
+	 */
+	private static long hash(File file) {
+		CRC32 crc = new CRC32();
+		byte[] buffer = new byte[8192];
+		try {
+			InputStream in = new FileInputStream(file);
+			try {
+				int read;
+				while ((read = in.read(buffer)) != -1)
+					crc.update(buffer, 0, read);
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			return -1;
+		}
+		return crc.getValue();
+	}
+}
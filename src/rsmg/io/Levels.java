@@ -2,12 +2,10 @@ package rsmg.io;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
-import org.jdom.Document;
-import org.jdom.JDOMException;
-import org.jdom.input.SAXBuilder;
+import rsmg.model.TileGrid;
 
 /**
  * This class provides methods for reading information about the available levels.
@@ -22,53 +20,165 @@ public final class Levels {
 	 */
 	private static final String levelFolder = "res/data/level/";
 	
+	/**
+	 * Path to the folder where the compiled levels are kept.
+	 */
+	private static final String compiledLevelFolder = levelFolder + "compiled/";
+	
+	/**
+	 * The levels in the level folder.
+	 */
+	private static final LevelCatalog catalog = new LevelCatalog(new File(levelFolder));
+	
 	/**
 	 * Each level has a unique number. This method returns a collection
-	 * containing these numbers.
+	 * containing these numbers. The numbers are read from the level catalog,
+	 * so the level folder isn't read.
 	 * 
-	 * @return A collection containing the available levels' numbers.
+	 * @return A new ArrayList containing the available levels' numbers, in
+	 *         increasing order.
 	 */
 	public static Collection<Integer> getLevelNumbers() {
-		File[] files = new File(levelFolder).listFiles();
-		Collection<Integer> numberCollection = new ArrayList<Integer>();
-		for (File f : files) {
-			String fileName = f.getName();
-			String regex = "^Level[0-9]+(Boss)?+\\.xml$";
-			// Check if the file name matches the regular expression
-			// All files with the name LevelX.xml or LevelXBoss.xml, where X is
-			// an number, will return true.
-			if (fileName.matches(regex)) {
-				// Get the number from the file name
-				int levelNumber = Integer.parseInt(f.getName().split("Level|Boss|\\.")[1]);
-				numberCollection.add(levelNumber);
-			}
+		return catalog.getLevelNumbers();
+	}
+	
+	/**
+	 * Returns a hash of a level file's content, which changes when the file
+	 * is changed.
+	 * 
+	 * @param levelNumber
+	 *            The level's number.
+	 * @return The hash, or -1 if there is no level with the number.
+	 */
+	public static long getLevelHash(int levelNumber) {
+		LevelCatalog.Entry entry = catalog.getEntry(levelNumber);
+		return entry == null ? -1 : entry.getHash();
+	}
+	
+	/**
+	 * Get the XML file of a level. A streamed level's XML file is the one
+	 * next to its streamed file, which may not exist.
+	 * 
+	 * @param levelNumber
+	 *            The level's number.
+	 * @return The level's XML file.
+	 */
+	public static File getLevelFile(int levelNumber) {
+		LevelCatalog.Entry entry = catalog.getEntry(levelNumber);
+		if (entry == null) {
+			return new File(levelFolder + "Level" + levelNumber + ".xml");
+		} else if (entry.isStreamed()) {
+			return withExtension(entry.getFile(), ".xml");
+		} else {
+			return entry.getFile();
 		}
-		return numberCollection;
 	}
 	
 	/**
-	 * Get a level as an jDom XML document.
+	 * Get the streamed file of a level. See ChunkedLevelFile. A level that
+	 * isn't streamed becomes streamed if this file is written.
 	 * 
 	 * @param levelNumber
 	 *            The level's number.
-	 * @return The level as an jDom XML document.
+	 * @return The level's streamed file, which may not exist.
 	 */
-	public static Document getLevel(int levelNumber) {
-		try {
-			if (isBossLevel(levelNumber)) {
-				return new SAXBuilder().build("res/data/level/Level" + levelNumber + "Boss.xml");
-			} else {
-				return new SAXBuilder().build("res/data/level/Level" + levelNumber + ".xml");
-			}
-		} catch (JDOMException e) {
-			e.printStackTrace();
+	public static File getStreamedLevelFile(int levelNumber) {
+		LevelCatalog.Entry entry = catalog.getEntry(levelNumber);
+		if (entry == null) {
+			return new File(levelFolder + "Level" + levelNumber + ".rsmc");
+		} else if (entry.isStreamed()) {
+			return entry.getFile();
+		} else {
+			return withExtension(entry.getFile(), ".rsmc");
+		}
+	}
+	
+	private static File withExtension(File file, String extension) {
+		String name = file.getName();
+		return new File(file.getParentFile(), name.substring(0, name.lastIndexOf('.')) + extension);
+	}
+	
+	/**
+	 * Returns if a level is streamed, i.e. has a streamed file that is used
+	 * instead of its XML file.
+	 * 
+	 * @param levelNumber
+	 *            The level's number.
+	 * @return If the level is streamed.
+	 */
+	public static boolean isStreamedLevel(int levelNumber) {
+		LevelCatalog.Entry entry = catalog.getEntry(levelNumber);
+		return entry != null && entry.isStreamed();
+	}
+	
+	/**
+	 * Open the streamed file of a level.
+	 * 
+	 * @param levelNumber
+	 *            The level's number.
+	 * @return The level's streamed file.
+	 * @throws IOException
+	 *             If the file can't be read or isn't a streamed level.
+	 */
+	public static ChunkedLevelFile openStreamedLevel(int levelNumber) throws IOException {
+		return new ChunkedLevelFile(getStreamedLevelFile(levelNumber));
+	}
+	
+	/**
+	 * Get the file that a level is compiled to. See CompiledLevelFile. The
+	 * file may not exist, or may be older than the level's XML file.
+	 * 
+	 * @param levelNumber
+	 *            The level's number.
+	 * @return The level's compiled file.
+	 */
+	public static File getCompiledLevelFile(int levelNumber) {
+		return new File(compiledLevelFolder + "Level" + levelNumber + ".lvl");
+	}
+	
+	/**
+	 * Open the compiled file of a level, if the level has been compiled since
+	 * its XML file was last changed.
+	 * 
+	 * @param levelNumber
+	 *            The level's number.
+	 * @return The compiled level, or null if there is no up to date compiled
+	 *         file.
+	 */
+	public static CompiledLevelFile getCompiledLevel(int levelNumber) {
+		File file = getCompiledLevelFile(levelNumber);
+		if (!file.exists())
 			return null;
+		try {
+			CompiledLevelFile level = new CompiledLevelFile(file);
+			return level.isCompiledFrom(getLevelFile(levelNumber)) ? level : null;
 		} catch (IOException e) {
 			e.printStackTrace();
 			return null;
 		}
 	}
 	
+	/**
+	 * Compile a level and store it where getCompiledLevel() finds it.
+	 * 
+	 * @param levelNumber
+	 *            The level's number.
+	 * @param grid
+	 *            The level's tiles.
+	 * @param items
+	 *            The level's items.
+	 * @param enemies
+	 *            The level's enemies.
+	 * @throws IOException
+	 *             If the file can't be written.
+	 */
+	public static void compileLevel(int levelNumber, TileGrid grid, List<CompiledLevelFile.Spawn> items,
+			List<CompiledLevelFile.Spawn> enemies) throws IOException {
+		File file = getCompiledLevelFile(levelNumber);
+		file.getParentFile().mkdirs();
+		CompiledLevelFile.write(grid, items, enemies, getLevelFile(levelNumber), file);
+	}
+	
 	/**
 	 * This methods checks if there exist a boss level with the given
 	 * levelNumber. However, false will be returned even if a regular level
@@ -81,6 +191,7 @@ public final class Levels {
 	 *         doesn't exist.
 	 */
 	public static boolean isBossLevel(int levelNumber) {
-		return new File("res/data/level/Level" + levelNumber + "Boss.xml").exists();
+		LevelCatalog.Entry entry = catalog.getEntry(levelNumber);
+		return entry != null && entry.isBoss();
 	}
 }
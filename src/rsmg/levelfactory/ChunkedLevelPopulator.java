@@ -0,0 +1,52 @@
+package rsmg.levelfactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import rsmg.io.ChunkedLevelFile;
+import rsmg.io.CompiledLevelFile.Spawn;
+import rsmg.model.ChunkPopulator;
+import rsmg.model.SpawnQueue;
+import rsmg.model.ai.Ai;
+import rsmg.model.object.item.Item;
+import rsmg.model.object.unit.PCharacter;
+
+/**
+ * Creates the items and the enemies of a streamed level from the spawns that
+ * are stored with every chunk in its file.
+ */
+final class ChunkedLevelPopulator implements ChunkPopulator {
+
+	private final ChunkedLevelFile file;
+	private final PCharacter character;
+	private final SpawnQueue spawnQueue;
+
+	/**
+	 * Create a populator for a level.
+	 * @param file The level's file.
+	 * @param character The level's character, which the enemies act on.
+	 * @param spawnQueue Where the enemies put the bullets and enemies they
+	 *            create.
+	 */
+	ChunkedLevelPopulator(ChunkedLevelFile file, PCharacter character, SpawnQueue spawnQueue) {
+		this.file = file;
+		this.character = character;
+		this.spawnQueue = spawnQueue;
+	}
+
+	@Override
+	public void populate(int chunkX, int chunkY, List<Item> items, List<Ai> enemies) {
+		List<Spawn> itemSpawns = new ArrayList<Spawn>();
+		List<Spawn> enemySpawns = new ArrayList<Spawn>();
+		try {
+			file.loadSpawns(chunkX, chunkY, itemSpawns, enemySpawns);
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not read the spawns of chunk (" + chunkX + ", " + chunkY + ").", e);
+		}
+		for (int i = 0; i < itemSpawns.size(); i++)
+			items.add(LevelFactory.createItem(itemSpawns.get(i)));
+		for (int i = 0; i < enemySpawns.size(); i++)
+			enemies.add(LevelFactory.createAi(enemySpawns.get(i), character, spawnQueue));
+	}
+}
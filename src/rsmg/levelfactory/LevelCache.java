@@ -0,0 +1,105 @@
+package rsmg.levelfactory;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the prototypes of the levels that have been loaded, so a level that
+ * is started again, e.g. when the character has died, doesn't have to be read
+ * from the disk. The cache has a limit on how much memory the prototypes may
+ * take together. When it's reached, the prototypes that were used the longest
+ * time ago are removed.
+ *
+ * The cache may be used from several threads.
+ */
+final class LevelCache {
+
+	/**
+	 * How much memory the prototypes may take if nothing else is set, in
+	 * bytes.
+	 */
+	static final long DEFAULT_CAPACITY = 16 * 1024 * 1024;
+
+	private final long capacity;
+
+	/**
+	 * The prototypes by level number, from the one used the longest time ago
+	 * to the one used last.
+	 */
+	private final LinkedHashMap<Integer, LevelPrototype> prototypes =
+			new LinkedHashMap<Integer, LevelPrototype>(16, 0.75f, true);
+
+	/**
+	 * How much memory the prototypes in the cache take together.
+	 */
+	private long size;
+
+	/**
+	 * Create a cache.
+	 * @param capacity How much memory the prototypes may take together, in
+	 *            bytes.
+	 */
+	LevelCache(long capacity) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException("The capacity must be positive.");
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Returns the prototype of a level, and marks it as the last one used.
+	 * @param levelNumber The level's number.
+	 * @return The prototype, or null if it isn't in the cache.
+	 */
+	synchronized LevelPrototype get(int levelNumber) {
+		return prototypes.get(levelNumber);
+	}
+
+	/**
+	 * Add the prototype of a level, or replace the one that is in the cache.
+	 * Prototypes are removed until the cache is within its capacity, but the
+	 * one that is added is always kept, even if it's larger than the
+	 * capacity on its own.
+	 * @param levelNumber The level's number.
+	 * @param prototype The prototype.
+	 */
+	synchronized void put(int levelNumber, LevelPrototype prototype) {
+		LevelPrototype old = prototypes.put(levelNumber, prototype);
+		if (old != null)
+			size -= old.getSize();
+		size += prototype.getSize();
+
+		Iterator<Map.Entry<Integer, LevelPrototype>> it = prototypes.entrySet().iterator();
+		while (size > capacity && prototypes.size() > 1) {
+			Map.Entry<Integer, LevelPrototype> eldest = it.next();
+			size -= eldest.getValue().getSize();
+			it.remove();
+		}
+	}
+
+	/**
+	 * Remove the prototype of a level, so it's read again the next time.
+	 * @param levelNumber The level's number.
+	 */
+	synchronized void remove(int levelNumber) {
+		LevelPrototype old = prototypes.remove(levelNumber);
+		if (old != null)
+			size -= old.getSize();
+	}
+
+	/**
+	 * Remove all prototypes.
+	 */
+	synchronized void clear() {
+		prototypes.clear();
+		size = 0;
+	}
+
+	/**
+	 * Returns how much memory the prototypes in the cache take together.
+	 * @return Number of bytes.
+	 */
+	synchronized long getSize() {
+		return size;
+	}
+}
@@ -0,0 +1,46 @@
+package rsmg.levelfactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+
+import rsmg.io.Levels;
+
+/**
+ * Converts the levels' XML files to compiled level files ahead of time, so
+ * not even the first start of a level has to parse any XML. LevelFactory
+ * otherwise compiles a level the first time it's loaded.
+ *
+ * Usage: LevelCompiler [--streamed] [level numbers...]. All levels are
+ * compiled if no numbers are given. With --streamed, the levels are converted
+ * to streamed files instead, which are played in place of their XML files
+ * from then on.
+ */
+public final class LevelCompiler {
+
+	private LevelCompiler() {
+	}
+
+	public static void main(String[] args) throws IOException {
+		boolean streamed = false;
+		Collection<Integer> levelNumbers = new ArrayList<Integer>();
+		for (String arg : args) {
+			if (arg.equals("--streamed"))
+				streamed = true;
+			else
+				levelNumbers.add(Integer.parseInt(arg));
+		}
+		if (levelNumbers.isEmpty())
+			levelNumbers = Levels.getLevelNumbers();
+
+		for (int levelNumber : levelNumbers) {
+			if (streamed) {
+				LevelFactory.compileStreamedLevel(levelNumber);
+				System.out.println("Converted level " + levelNumber + " to " + Levels.getStreamedLevelFile(levelNumber));
+			} else {
+				LevelFactory.compileLevel(levelNumber);
+				System.out.println("Compiled level " + levelNumber + " to " + Levels.getCompiledLevelFile(levelNumber));
+			}
+		}
+	}
+}
@@ -1,15 +1,28 @@
 package rsmg.levelfactory;
 
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
-import org.jdom.Document;
-import org.jdom.Element;
-
+import rsmg.io.ChunkedLevelFile;
+import rsmg.io.CompiledLevelFile;
+import rsmg.io.CompiledLevelFile.Spawn;
 import rsmg.io.Levels;
 import rsmg.model.Level;
+import rsmg.model.SpawnQueue;
 import rsmg.model.TileGrid;
 import rsmg.model.ai.Ai;
 import rsmg.model.ai.BallBotAi;
@@ -32,188 +45,473 @@ import rsmg.model.object.unit.PCharacter;
 import rsmg.model.object.unit.RocketBot;
 import rsmg.model.object.unit.Spikes;
 import rsmg.model.object.unit.TankBot;
-import rsmg.model.tile.AirTile;
-import rsmg.model.tile.EndTile;
-import rsmg.model.tile.GroundTile;
-import rsmg.model.tile.SpawnTile;
-import rsmg.model.tile.Tile;
 import rsmg.model.variables.Constants;
-import rsmg.model.variables.ObjectName;
 
 /**
  * This class is responsible for creating the levels. It asks the class Levels i
- * the io package for a level XML file, and then it converts it into a working
- * Level.
+ * the io package for a level XML file, reads it with LevelXmlReader, and then
+ * it converts it into a working Level. Levels are also compiled to binary
+ * files, which are loaded instead of the XML files when they are up to date,
+ * and the prototypes of the loaded levels are kept in memory so restarting a
+ * level doesn't read the disk. The next level is loaded in the background
+ * while a level is played; see prefetchNextLevel().
+ * 
+ * A level that has a streamed file is not loaded as a whole. Its tiles are
+ * streamed around the character on a background thread, and its items and
+ * enemies are created chunk by chunk as the chunks are loaded.
  * 
  * @author Johan Rigns, Daniel Jonsson
  * 
  */
 public final class LevelFactory {
 
-	/*
-	 * These maps are needed to bridge a String to an Enum. The XML document
-	 * does of course contain Strings, and we want to use switch statements when
-	 * walking through those objects. However, we also want the project to be
-	 * compatible with Java 1.6, and in 1.6 is switch statements with Strings
-	 * not supported.
-	 */
-	@SuppressWarnings("serial")
-	private static Map<String, ObjectName> tiles = new HashMap<String, ObjectName>() {{
-		put("AirTile", ObjectName.AIR_TILE);
-		put("GroundTile", ObjectName.BOX_TILE1);
-		put("GroundTile2", ObjectName.BOX_TILE2);
-		put("GroundTile3", ObjectName.BOX_TILE3);
-		put("GroundTile4", ObjectName.BOX_TILE4);
-		put("SpawnTile", ObjectName.SPAWN_TILE);
-		put("EndTile", ObjectName.END_TILE);
-	}};
-	
-	@SuppressWarnings("serial")
-	private static Map<String, ObjectName> items = new HashMap<String, ObjectName>() {{
-		put("healthPack", ObjectName.HEALTH_PACK);
-		put("upgradePoint", ObjectName.UPGRADE_POINT);
-		put("laserPistol", ObjectName.LASER_PISTOL);
-		put("shotgun", ObjectName.SHOTGUN);
-		put("rocketLauncher", ObjectName.ROCKET_LAUNCHER);
-	}};
-	
-	@SuppressWarnings("serial")
-	private static Map<String, ObjectName> enemies = new HashMap<String, ObjectName>() {{
-		put("tankbot", ObjectName.TANKBOT);
-		put("rocketbot", ObjectName.ROCKETBOT);
-		put("ballbot", ObjectName.BALLBOT);
-		put("bucketbot", ObjectName.BUCKETBOT);
-		put("bossbot", ObjectName.BOSSBOT);
-		put("spikes", ObjectName.SPIKES);
-	}};
-	
-	/**
-	 * Get a working, playable Level.
+	/**
+	 * The prototypes of the levels that have been loaded.
+	 */
+	private static final LevelCache cache = new LevelCache(LevelCache.DEFAULT_CAPACITY);
+	
+	/**
+	 * The prototypes that are being loaded in the background, by level
+	 * number.
+	 */
+	private static final ConcurrentMap<Integer, CompletableFuture<LevelPrototype>> loading =
+			new ConcurrentHashMap<Integer, CompletableFuture<LevelPrototype>>();
+	
+	/**
+	 * Loads the prototypes in the background, one at a time.
+	 */
+	private static final Executor loader = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable task) {
+			Thread thread = new Thread(task, "Level loader");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+	
+	/**
+	 * Loads the chunks of the streamed levels in the background.
+	 */
+	private static final Executor chunkLoader = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable task) {
+			Thread thread = new Thread(task, "Chunk loader");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+	
+	/**
+	 * The files of the streamed levels that have been played, by level
+	 * number, so restarting a level doesn't open its file again.
+	 */
+	private static final Map<Integer, StreamedFile> streamedFiles = new HashMap<Integer, StreamedFile>();
+	
+	/**
+	 * The streamed levels that haven't been released, and the files they
+	 * read their chunks from. Guarded by streamedFiles.
+	 */
+	private static final Map<Level, StreamedFile> streamedLevels = new IdentityHashMap<Level, StreamedFile>();
+	
+	/**
+	 * An open streamed file, the hash of the level when it was opened and the
+	 * number of levels that read from it.
+	 */
+	private static final class StreamedFile {
+		private final ChunkedLevelFile file;
+		private final long hash;
+		private int users;
+		
+		private StreamedFile(ChunkedLevelFile file, long hash) {
+			this.file = file;
+			this.hash = hash;
+		}
+	}
+	
+	/**
+	 * Get a working, playable Level. Every call returns a new Level, but the
+	 * level's prototype is only loaded the first time; see getPrototype().
+	 * A streamed level is instead created around the character's spawn
+	 * point, and the rest of it is loaded while it's played; it should be
+	 * given to releaseLevel() when it's no longer played.
 	 * 
 	 * @param levelNumber
 	 *            The level's number.
 	 * @return A Level.
 	 */
 	public static Level getLevel(int levelNumber) {
+		if (Levels.isStreamedLevel(levelNumber)) {
+			synchronized (streamedFiles) {
+				StreamedFile open = getStreamedFile(levelNumber);
+				Level level = createStreamedLevel(open.file);
+				open.users++;
+				streamedLevels.put(level, open);
+				return level;
+			}
+		}
+		return createLevel(getPrototype(levelNumber));
+	}
+	
+	/**
+	 * Tell the factory that a level from getLevel() is no longer played. The
+	 * file of a streamed level is closed if it has been replaced or
+	 * forgotten and no other level reads from it. Does nothing for the other
+	 * levels.
+	 * 
+	 * @param level
+	 *            The level.
+	 */
+	public static void releaseLevel(Level level) {
+		synchronized (streamedFiles) {
+			StreamedFile open = streamedLevels.remove(level);
+			if (open == null)
+				return;
+			open.users--;
+			if (!streamedFiles.containsValue(open))
+				closeIfUnused(open);
+		}
+	}
+	
+	/**
+	 * Start loading the level after a level in the background, so it can be
+	 * started without being loaded when the player gets to it. Should be
+	 * called when a level is started.
+	 * 
+	 * @param levelNumber
+	 *            The number of the level that is started.
+	 * @return Completed when the next level has been loaded, or at once if
+	 *         there is no next level or it's already loaded.
+	 */
+	public static CompletableFuture<?> prefetchNextLevel(int levelNumber) {
+		int next = -1;
+		for (int number : Levels.getLevelNumbers()) {
+			if (number > levelNumber && (next == -1 || number < next))
+				next = number;
+		}
+		// A streamed level isn't loaded ahead, since only the part around the
+		// character is loaded when it's started.
+		if (next == -1 || Levels.isStreamedLevel(next))
+			return CompletableFuture.completedFuture(null);
+		return prefetch(next);
+	}
+	
+	/**
+	 * Start loading the prototype of a level in the background, unless it's
+	 * in the cache or is already being loaded.
+	 * 
+	 * @param levelNumber
+	 *            The level's number.
+	 * @return Completed with the prototype when it has been loaded.
+	 */
+	static CompletableFuture<LevelPrototype> prefetch(final int levelNumber) {
+		LevelPrototype prototype = getCachedPrototype(levelNumber);
+		if (prototype != null)
+			return CompletableFuture.completedFuture(prototype);
+		
+		final CompletableFuture<LevelPrototype> future = new CompletableFuture<LevelPrototype>();
+		CompletableFuture<LevelPrototype> pending = loading.putIfAbsent(levelNumber, future);
+		if (pending != null)
+			return pending;
+		loader.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					LevelPrototype prototype = loadPrototype(levelNumber);
+					cache.put(levelNumber, prototype);
+					future.complete(prototype);
+				} catch (RuntimeException e) {
+					future.completeExceptionally(e);
+				} finally {
+					loading.remove(levelNumber, future);
+				}
+			}
+		});
+		return future;
+	}
+	
+	/**
+	 * Remove a level from the cache, so it's loaded from the disk the next
+	 * time. Levels whose files are changed are loaded again anyway, since the
+	 * level catalog notices the change.
+	 * 
+	 * @param levelNumber
+	 *            The level's number.
+	 */
+	public static void forgetLevel(int levelNumber) {
+		cache.remove(levelNumber);
+		synchronized (streamedFiles) {
+			StreamedFile open = streamedFiles.remove(levelNumber);
+			if (open != null)
+				closeIfUnused(open);
+		}
+	}
+	
+	/**
+	 * Get the open file of a streamed level, or open it if it hasn't been
+	 * opened or has changed since. A file that is replaced is closed when no
+	 * level that is being played reads chunks from it any longer. Should be
+	 * called while holding the lock on streamedFiles.
+	 * 
+	 * @param levelNumber
+	 *            The level's number.
+	 * @return The level's streamed file.
+	 */
+	private static StreamedFile getStreamedFile(int levelNumber) {
+		long hash = Levels.getLevelHash(levelNumber);
+		StreamedFile open = streamedFiles.get(levelNumber);
+		if (open != null && open.hash == hash)
+			return open;
+		try {
+			StreamedFile opened = new StreamedFile(Levels.openStreamedLevel(levelNumber), hash);
+			streamedFiles.put(levelNumber, opened);
+			if (open != null)
+				closeIfUnused(open);
+			return opened;
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not read level " + levelNumber + ".", e);
+		}
+	}
+	
+	/**
+	 * Close a streamed file that is no longer in streamedFiles, unless a
+	 * level still reads from it.
+	 */
+	private static void closeIfUnused(StreamedFile open) {
+		if (open.users > 0)
+			return;
+		try {
+			open.file.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Get the prototype of a level from the cache, or load it if it isn't in
+	 * the cache or the level's file has changed since it was loaded. If the
+	 * prototype is being loaded in the background, that load is waited for
+	 * instead of starting another one.
+	 * 
+	 * @param levelNumber
+	 *            The level's number.
+	 * @return The level's prototype.
+	 */
+	static LevelPrototype getPrototype(int levelNumber) {
+		LevelPrototype prototype = getCachedPrototype(levelNumber);
+		if (prototype != null)
+			return prototype;
+		
+		CompletableFuture<LevelPrototype> pending = loading.get(levelNumber);
+		if (pending != null) {
+			try {
+				return pending.join();
+			} catch (CompletionException e) {
+				// Load the level here instead, so the error is thrown to the
+				// caller if it happens again.
+			}
+		}
+		prototype = loadPrototype(levelNumber);
+		cache.put(levelNumber, prototype);
+		return prototype;
+	}
+	
+	/**
+	 * Returns the prototype of a level from the cache, unless the level's
+	 * file has changed since the prototype was loaded. The level catalog
+	 * keeps the hashes of the files, so this doesn't read the disk.
+	 * 
+	 * @param levelNumber
+	 *            The level's number.
+	 * @return The prototype, or null if it has to be loaded.
+	 */
+	private static LevelPrototype getCachedPrototype(int levelNumber) {
+		LevelPrototype prototype = cache.get(levelNumber);
+		if (prototype != null && prototype.getSourceHash() != Levels.getLevelHash(levelNumber)) {
+			cache.remove(levelNumber);
+			return null;
+		}
+		return prototype;
+	}
+	
+	/**
+	 * Load the prototype of a level. The level is loaded from its compiled
+	 * file if it has one that is up to date. Otherwise the level's XML file is
+	 * read and compiled, so the next time it's loaded it doesn't have to be
+	 * parsed.
+	 * 
+	 * @param levelNumber
+	 *            The level's number.
+	 * @return The level's prototype.
+	 */
+	private static LevelPrototype loadPrototype(int levelNumber) {
+		// Get the hash before the file is read, so a change during the read
+		// makes the prototype out of date rather than being missed.
+		long hash = Levels.getLevelHash(levelNumber);
+		CompiledLevelFile compiled = Levels.getCompiledLevel(levelNumber);
+		if (compiled != null)
+			return new LevelPrototype(compiled, compiled.getItems(), compiled.getEnemies(), hash);
+		
+		LevelPrototype prototype;
+		try {
+			LevelXmlReader xml = readLevel(levelNumber);
+			prototype = new LevelPrototype(xml, xml.getItems(), xml.getEnemies(), hash);
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not read level " + levelNumber + ".", e);
+		}
+		try {
+			Levels.compileLevel(levelNumber, new TileGrid(prototype), prototype.getItems(), prototype.getEnemies());
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return prototype;
+	}
+	
+	/**
+	 * Compile a level from its XML file, whether it has an up to date
+	 * compiled file or not.
+	 * 
+	 * @param levelNumber
+	 *            The level's number.
+	 * @throws IOException
+	 *             If the XML file can't be read or the compiled file can't be
+	 *             written.
+	 */
+	public static void compileLevel(int levelNumber) throws IOException {
+		LevelXmlReader xml = readLevel(levelNumber);
+		Levels.compileLevel(levelNumber, new TileGrid(xml), xml.getItems(), xml.getEnemies());
+	}
+	
+	/**
+	 * Convert a level from its XML file to a streamed file. The level is
+	 * streamed from then on, until the streamed file is removed.
+	 * 
+	 * @param levelNumber
+	 *            The level's number.
+	 * @throws IOException
+	 *             If the XML file can't be read or the streamed file can't be
+	 *             written.
+	 */
+	public static void compileStreamedLevel(int levelNumber) throws IOException {
+		LevelXmlReader xml = readLevel(levelNumber);
+		ChunkedLevelFile.write(new TileGrid(xml), xml.getItems(), xml.getEnemies(), Levels.getStreamedLevelFile(levelNumber));
+	}
+	
+	/**
+	 * Read a level's XML file with the streaming parser.
+	 * 
+	 * @param levelNumber
+	 *            The level's number.
+	 * @return The level's tiles, items and enemies.
+	 * @throws IOException
+	 *             If the file can't be read or isn't a valid level.
+	 */
+	private static LevelXmlReader readLevel(int levelNumber) throws IOException {
+		InputStream in = new BufferedInputStream(new FileInputStream(Levels.getLevelFile(levelNumber)));
+		try {
+			return new LevelXmlReader(in);
+		} finally {
+			in.close();
+		}
+	}
+	
+	/**
+	 * Create a Level from a prototype, with a copy of its tiles and new items,
+	 * enemies and a new character.
+	 * 
+	 * @param prototype
+	 *            The level's prototype.
+	 * @return A Level.
+	 */
+	static Level createLevel(LevelPrototype prototype) {
+		List<Spawn> itemSpawns = prototype.getItems();
+		List<Spawn> enemySpawns = prototype.getEnemies();
 
 		// Prepare some variables that Level's constructor will need.
-		Tile[][] grid;
-		List<Item> itemList = new ArrayList<Item>();
-		List<Ai> aiList = new ArrayList<Ai>();
-		List<Bullet> enemyBulletList = new ArrayList<Bullet>();
-		List<Bullet> alliedBulletList = new ArrayList<Bullet>();
-		PCharacter character = new PCharacter(alliedBulletList);
+		List<Item> itemList = new ArrayList<Item>(itemSpawns.size());
+		List<Ai> aiList = new ArrayList<Ai>(enemySpawns.size());
+		SpawnQueue spawnQueue = new SpawnQueue();
+		PCharacter character = new PCharacter(spawnQueue.getAlliedBullets());
 		
-		// Get the document from the io package.
-		Document document = Levels.getLevel(levelNumber);
+		for (int i = 0; i < itemSpawns.size(); i++) {
+			itemList.add(createItem(itemSpawns.get(i)));
+		}
 		
-		// Get the root node.
-		Element rootNode = document.getRootElement();
-
-		// Set the size of tile tile grid.
-		Element sizeElem = rootNode.getChild("size");
-		int height = Integer.parseInt(sizeElem.getChildText("height"));
-		int width = Integer.parseInt(sizeElem.getChildText("width"));
-		grid = new Tile[height][width];
-
-		// Walk through all row nodes in the document. These row nodes defines
-		// how the tile grid should be constructed.
-		@SuppressWarnings("unchecked")
-		List<Element> rows = rootNode.getChildren("row");
-		for (int y = 0; y < rows.size(); y++) {
-			
-			// Walk through all cells on the current row.
-			Element row = rows.get(y);
-			@SuppressWarnings("unchecked")
-			List<Element> cells = row.getChildren("cell");
-			for (int x = 0; x < cells.size(); x++) {
-
-				// Retrieve tile
-				Element cell = (Element) cells.get(x);
-				String cellValue = cell.getText();
-				Tile tile;
-				switch (tiles.get(cellValue)) {
-					case AIR_TILE :
-						tile = new AirTile();
-						break;
-					case BOX_TILE1 :
-						tile = new GroundTile(ObjectName.BOX_TILE1);
-						break;
-					case BOX_TILE2 :
-						tile = new GroundTile(ObjectName.BOX_TILE2);
-						break;
-					case BOX_TILE3 :
-						tile = new GroundTile(ObjectName.BOX_TILE3);
-						break;
-					case BOX_TILE4 :
-						tile = new GroundTile(ObjectName.BOX_TILE4);
-						break;
-					case SPAWN_TILE :
-						tile = new SpawnTile();
-						break;
-					case END_TILE :
-						tile = new EndTile();
-						break;
-					default :
-						tile = new AirTile();
-						break;
-				}
-				grid[y][x] = tile;
-				
-				int scale = Constants.TILESIZE; // Used to place items and enemies on appropriate positions.
-				// Retrieve eventual item
-				String itemValue = cell.getAttributeValue("item");
-				if (itemValue != null) {
-					Item item;
-					switch (items.get(itemValue)) {
-						case HEALTH_PACK :
-							item = new HealthPack(x*scale,y*scale);
-							break;
-						case UPGRADE_POINT :
-							item = new UpgradePoints(x*scale,y*scale);
-							break;
-						case LASER_PISTOL :
-							item = new LaserPistol(x*scale,y*scale, 15, 15);
-							break;
-						case SHOTGUN :
-							item = new Shotgun(x*scale,y*scale, 15, 15);
-							break;
-						default :
-							item = new RocketLauncher(x*scale,y*scale, 28, 15);
-							break;
-					}
-					itemList.add(item);
-				}
-				
-				// Retrieve Enemies and assign AI to them
-				String enemyValue = cell.getAttributeValue("enemy");
-				if (enemyValue != null) {
-					Ai ai;
-					switch (enemies.get(enemyValue)) {
-						case TANKBOT :
-							ai = new TankBotAi(new TankBot(x*scale, y*scale, enemyBulletList), character);
-							break;
-						case ROCKETBOT :
-							ai = new RocketBotAi(new RocketBot(x*scale, y*scale), character);
-							break;
-						case BALLBOT :
-							ai = new BallBotAi(new BallBot(x*scale, y*scale), aiList, character);
-							break;
-						case BUCKETBOT :
-							ai = new BucketBotAi(new BucketBot(x*scale, y*scale, enemyBulletList), character);
-							break;
-						case BOSSBOT :
-							ai = new BossBotAi(new BossBotHead(x*scale, y*scale, enemyBulletList), character);
-							break;
-						default :
-							ai = new EmptyAi(new Spikes(x*scale, y*scale));
-							break;
-					}
-					aiList.add(ai);
-				}
-			}
+		// Create the enemies and assign AI to them
+		for (int i = 0; i < enemySpawns.size(); i++) {
+			aiList.add(createAi(enemySpawns.get(i), character, spawnQueue));
 		}
 		
-		return new Level(new TileGrid(grid), character, itemList, aiList, enemyBulletList, alliedBulletList);
+		return new Level(new TileGrid(prototype), character, itemList, aiList, spawnQueue);
+	}
+	
+	/**
+	 * Create a streamed Level, with a new character.
+	 * 
+	 * @param file
+	 *            The level's streamed file.
+	 * @return A Level.
+	 */
+	static Level createStreamedLevel(ChunkedLevelFile file) {
+		SpawnQueue spawnQueue = new SpawnQueue();
+		PCharacter character = new PCharacter(spawnQueue.getAlliedBullets());
+		return new Level(new TileGrid(file, chunkLoader), character,
+				new ChunkedLevelPopulator(file, character, spawnQueue), spawnQueue);
+	}
+	
+	/**
+	 * Create an item.
+	 * 
+	 * @param spawn
+	 *            The item and where it's placed in the grid.
+	 * @return The item.
+	 */
+	static Item createItem(Spawn spawn) {
+		int scale = Constants.TILESIZE; // Used to place items and enemies on appropriate positions.
+		int x = spawn.getX();
+		int y = spawn.getY();
+		switch (spawn.getName()) {
+			case HEALTH_PACK :
+				return new HealthPack(x*scale,y*scale);
+			case UPGRADE_POINT :
+				return new UpgradePoints(x*scale,y*scale);
+			case LASER_PISTOL :
+				return new LaserPistol(x*scale,y*scale, 15, 15);
+			case SHOTGUN :
+				return new Shotgun(x*scale,y*scale, 15, 15);
+			default :
+				return new RocketLauncher(x*scale,y*scale, 28, 15);
+		}
+	}
+	
+	/**
+	 * Create an enemy and its AI.
+	 * 
+	 * @param spawn
+	 *            The enemy and where it's placed in the grid.
+	 * @param character
+	 *            The character that the AI acts on.
+	 * @param spawnQueue
+	 *            Where the enemy puts the bullets and enemies it creates.
+	 * @return The enemy's AI.
+	 */
+	static Ai createAi(Spawn spawn, PCharacter character, SpawnQueue spawnQueue) {
+		int scale = Constants.TILESIZE;
+		int x = spawn.getX();
+		int y = spawn.getY();
+		List<Bullet> enemyBulletList = spawnQueue.getEnemyBullets();
+		switch (spawn.getName()) {
+			case TANKBOT :
+				return new TankBotAi(new TankBot(x*scale, y*scale, enemyBulletList), character);
+			case ROCKETBOT :
+				return new RocketBotAi(new RocketBot(x*scale, y*scale), character);
+			case BALLBOT :
+				return new BallBotAi(new BallBot(x*scale, y*scale), spawnQueue.getEnemies(), character);
+			case BUCKETBOT :
+				return new BucketBotAi(new BucketBot(x*scale, y*scale, enemyBulletList), character);
+			case BOSSBOT :
+				return new BossBotAi(new BossBotHead(x*scale, y*scale, enemyBulletList), character);
+			default :
+				return new EmptyAi(new Spikes(x*scale, y*scale));
+		}
 	}
 }
@@ -0,0 +1,142 @@
+package rsmg.levelfactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import rsmg.io.CompiledLevelFile.Spawn;
+import rsmg.model.TileChunk;
+import rsmg.model.TileChunkSource;
+import rsmg.model.TileGrid;
+
+/**
+ * The parsed description of a level: its tiles, and where its items and
+ * enemies are placed. A prototype is never changed after it's created, so it
+ * can be kept between the starts of a level and be shared between threads.
+ *
+ * A Level is created from a prototype by LevelFactory. The level shares the
+ * prototype's tile chunks, which are marked as shared so the level copies a
+ * chunk the first time it changes a tile in it. It gets new items, enemies,
+ * bullet lists and a new character, so nothing that is changed while the
+ * level is played is shared with the prototype.
+ */
+final class LevelPrototype implements TileChunkSource {
+
+	/**
+	 * Approximate number of bytes that a spawn takes.
+	 */
+	private static final int SPAWN_BYTES = 32;
+
+	private final int width;
+	private final int height;
+	private final int chunksX;
+
+	/**
+	 * The tiles, row by row. The chunks are shared with the levels and are
+	 * never changed.
+	 */
+	private final TileChunk[] chunks;
+
+	/**
+	 * The features of every kind, as x and y pairs.
+	 */
+	private final int[][] features = new int[TileGrid.END + 1][];
+
+	private final List<Spawn> items;
+	private final List<Spawn> enemies;
+
+	/**
+	 * The hash of the level file that the prototype was read from.
+	 */
+	private final long sourceHash;
+
+	/**
+	 * Create a prototype with the chunks of a tile source.
+	 * @param tiles Where the tiles are read from. All chunks are read at once.
+	 * @param items The level's items.
+	 * @param enemies The level's enemies.
+	 * @param sourceHash The hash of the level file, from Levels.getLevelHash().
+	 */
+	LevelPrototype(TileChunkSource tiles, List<Spawn> items, List<Spawn> enemies, long sourceHash) {
+		this(tiles.getWidth(), tiles.getHeight(), items, enemies, sourceHash);
+		int chunksY = chunks.length / chunksX;
+		for (int chunkY = 0; chunkY < chunksY; chunkY++) {
+			for (int chunkX = 0; chunkX < chunksX; chunkX++) {
+				TileChunk chunk = tiles.loadChunk(chunkX, chunkY);
+				chunk.share();
+				chunks[chunkY * chunksX + chunkX] = chunk;
+			}
+		}
+		for (byte kind = 0; kind < features.length; kind++)
+			features[kind] = tiles.getFeatures(kind);
+	}
+
+	private LevelPrototype(int width, int height, List<Spawn> items, List<Spawn> enemies, long sourceHash) {
+		this.width = width;
+		this.height = height;
+		chunksX = (width + TileChunk.SIZE - 1) / TileChunk.SIZE;
+		int chunksY = (height + TileChunk.SIZE - 1) / TileChunk.SIZE;
+		chunks = new TileChunk[chunksX * chunksY];
+		this.items = Collections.unmodifiableList(new ArrayList<Spawn>(items));
+		this.enemies = Collections.unmodifiableList(new ArrayList<Spawn>(enemies));
+		this.sourceHash = sourceHash;
+	}
+
+	@Override
+	public int getWidth() {
+		return width;
+	}
+
+	@Override
+	public int getHeight() {
+		return height;
+	}
+
+	@Override
+	public int[] getFeatures(byte kind) {
+		return features[kind].clone();
+	}
+
+	/**
+	 * Returns a shared chunk, which the level that asks for it copies before
+	 * changing it.
+	 */
+	@Override
+	public TileChunk loadChunk(int chunkX, int chunkY) {
+		return chunks[chunkY * chunksX + chunkX];
+	}
+
+	/**
+	 * Returns the items in the level.
+	 * @return The items, which can't be changed.
+	 */
+	List<Spawn> getItems() {
+		return items;
+	}
+
+	/**
+	 * Returns the enemies in the level.
+	 * @return The enemies, which can't be changed.
+	 */
+	List<Spawn> getEnemies() {
+		return enemies;
+	}
+
+	/**
+	 * Returns the hash of the level file that the prototype was read from.
+	 * If the file's hash has changed since, the prototype is out of date.
+	 * @return The hash.
+	 */
+	long getSourceHash() {
+		return sourceHash;
+	}
+
+	/**
+	 * Returns about how much memory the prototype takes.
+	 * @return Number of bytes.
+	 */
+	long getSize() {
+		long chunkBytes = TileChunk.SIZE * TileChunk.SIZE + TileChunk.SIZE * 8;
+		return chunks.length * chunkBytes + (items.size() + enemies.size()) * SPAWN_BYTES;
+	}
+}
@@ -0,0 +1,228 @@
+package rsmg.levelfactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import rsmg.io.CompiledLevelFile.Spawn;
+import rsmg.model.TileChunk;
+import rsmg.model.TileChunkSource;
+import rsmg.model.TileGrid;
+import rsmg.model.tile.Tiles;
+import rsmg.model.variables.ObjectName;
+
+/**
+ * Reads a level XML file with a streaming parser. The file is read element
+ * by element, and every cell is put straight into the chunks of the level's
+ * tiles and into the item and enemy lists. No document is built, so apart
+ * from the tiles the memory used doesn't depend on the size of the level.
+ *
+ * The file has a size element with the width and the height of the level,
+ * followed by one row element per row, with one cell element per tile. A
+ * cell's text is the name of its tile, and its item and enemy attributes name
+ * what is placed on it.
+ */
+final class LevelXmlReader implements TileChunkSource {
+
+	/*
+	 * These maps are needed to bridge a String to an Enum. The XML document
+	 * does of course contain Strings, and we want to use switch statements when
+	 * walking through those objects. However, we also want the project to be
+	 * compatible with Java 1.6, and in 1.6 is switch statements with Strings
+	 * not supported.
+	 */
+	@SuppressWarnings("serial")
+	private static Map<String, ObjectName> tiles = new HashMap<String, ObjectName>() {{
+		put("AirTile", ObjectName.AIR_TILE);
+		put("GroundTile", ObjectName.BOX_TILE1);
+		put("GroundTile2", ObjectName.BOX_TILE2);
+		put("GroundTile3", ObjectName.BOX_TILE3);
+		put("GroundTile4", ObjectName.BOX_TILE4);
+		put("SpawnTile", ObjectName.SPAWN_TILE);
+		put("EndTile", ObjectName.END_TILE);
+	}};
+
+	@SuppressWarnings("serial")
+	private static Map<String, ObjectName> items = new HashMap<String, ObjectName>() {{
+		put("healthPack", ObjectName.HEALTH_PACK);
+		put("upgradePoint", ObjectName.UPGRADE_POINT);
+		put("laserPistol", ObjectName.LASER_PISTOL);
+		put("shotgun", ObjectName.SHOTGUN);
+		put("rocketLauncher", ObjectName.ROCKET_LAUNCHER);
+	}};
+
+	@SuppressWarnings("serial")
+	private static Map<String, ObjectName> enemies = new HashMap<String, ObjectName>() {{
+		put("tankbot", ObjectName.TANKBOT);
+		put("rocketbot", ObjectName.ROCKETBOT);
+		put("ballbot", ObjectName.BALLBOT);
+		put("bucketbot", ObjectName.BUCKETBOT);
+		put("bossbot", ObjectName.BOSSBOT);
+		put("spikes", ObjectName.SPIKES);
+	}};
+
+	private int width;
+	private int height;
+	private int chunksX;
+
+	/**
+	 * The tile codes of every chunk, row by row. Created when the first cell
+	 * is read, since the size of the level has to be known.
+	 */
+	private byte[][] chunks;
+
+	/**
+	 * The features of every kind, as x and y pairs. Only the first
+	 * featureCounts[kind] * 2 elements are used.
+	 */
+	private final int[][] features = new int[TileGrid.END + 1][];
+	private final int[] featureCounts = new int[TileGrid.END + 1];
+
+	private final List<Spawn> itemSpawns = new ArrayList<Spawn>();
+	private final List<Spawn> enemySpawns = new ArrayList<Spawn>();
+
+	/**
+	 * Read a level.
+	 * @param in The level's XML file. It's read to the end but not closed.
+	 * @throws IOException If the file can't be read or isn't a valid level.
+	 */
+	LevelXmlReader(InputStream in) throws IOException {
+		for (int kind = 0; kind < features.length; kind++)
+			features[kind] = new int[0];
+		try {
+			XMLInputFactory factory = XMLInputFactory.newInstance();
+			factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+			factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+			XMLStreamReader reader = factory.createXMLStreamReader(in);
+			try {
+				read(reader);
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException e) {
+			throw new IOException("Invalid level file: " + e.getMessage(), e);
+		}
+		if (chunks == null)
+			throw new IOException("The level file has no cells.");
+	}
+
+	private void read(XMLStreamReader reader) throws XMLStreamException, IOException {
+		int x = 0;
+		int y = -1;
+		while (reader.hasNext()) {
+			if (reader.next() != XMLStreamConstants.START_ELEMENT)
+				continue;
+			String element = reader.getLocalName();
+			if (element.equals("width")) {
+				width = parseSize(reader.getElementText());
+			} else if (element.equals("height")) {
+				height = parseSize(reader.getElementText());
+			} else if (element.equals("row")) {
+				y++;
+				x = 0;
+			} else if (element.equals("cell")) {
+				if (chunks == null)
+					createChunks();
+				if (y < 0 || y >= height || x >= width)
+					throw new IOException("Cell (" + x + ", " + y + ") is outside the level.");
+
+				// The attributes have to be read before the text, which moves
+				// the reader to the end of the cell.
+				String itemValue = reader.getAttributeValue(null, "item");
+				if (itemValue != null)
+					itemSpawns.add(new Spawn(lookUp(items, itemValue), x, y));
+				String enemyValue = reader.getAttributeValue(null, "enemy");
+				if (enemyValue != null)
+					enemySpawns.add(new Spawn(lookUp(enemies, enemyValue), x, y));
+
+				byte code = Tiles.getCode(lookUp(tiles, reader.getElementText().trim()));
+				chunks[(y >> TileChunk.SHIFT) * chunksX + (x >> TileChunk.SHIFT)]
+						[((y & (TileChunk.SIZE - 1)) << TileChunk.SHIFT) + (x & (TileChunk.SIZE - 1))] = code;
+				addFeature(TileGrid.getKindOfCode(code), x, y);
+				x++;
+			}
+		}
+	}
+
+	private static int parseSize(String text) throws IOException {
+		try {
+			int size = Integer.parseInt(text.trim());
+			if (size > 0)
+				return size;
+		} catch (NumberFormatException e) {
+			// Reported below.
+		}
+		throw new IOException("Invalid level size " + text + ".");
+	}
+
+	private static ObjectName lookUp(Map<String, ObjectName> names, String value) throws IOException {
+		ObjectName name = names.get(value);
+		if (name == null)
+			throw new IOException("Unknown name " + value + " in the level file.");
+		return name;
+	}
+
+	private void createChunks() throws IOException {
+		if (width <= 0 || height <= 0)
+			throw new IOException("The level's size must come before its cells.");
+		chunksX = (width + TileChunk.SIZE - 1) / TileChunk.SIZE;
+		int chunksY = (height + TileChunk.SIZE - 1) / TileChunk.SIZE;
+		chunks = new byte[chunksX * chunksY][TileChunk.SIZE * TileChunk.SIZE];
+	}
+
+	private void addFeature(byte kind, int x, int y) {
+		if (kind == TileGrid.AIR || kind == TileGrid.GROUND)
+			return;
+		int count = featureCounts[kind];
+		if (count * 2 == features[kind].length)
+			features[kind] = Arrays.copyOf(features[kind], Math.max(4, count * 4));
+		features[kind][count * 2] = x;
+		features[kind][count * 2 + 1] = y;
+		featureCounts[kind]++;
+	}
+
+	@Override
+	public int getWidth() {
+		return width;
+	}
+
+	@Override
+	public int getHeight() {
+		return height;
+	}
+
+	@Override
+	public int[] getFeatures(byte kind) {
+		return Arrays.copyOf(features[kind], featureCounts[kind] * 2);
+	}
+
+	@Override
+	public TileChunk loadChunk(int chunkX, int chunkY) {
+		return new TileChunk(chunks[chunkY * chunksX + chunkX].clone());
+	}
+
+	/**
+	 * Returns the items in the level.
+	 * @return The items, in the order they are in the file.
+	 */
+	List<Spawn> getItems() {
+		return itemSpawns;
+	}
+
+	/**
+	 * Returns the enemies in the level.
+	 * @return The enemies, in the order they are in the file.
+	 */
+	List<Spawn> getEnemies() {
+		return enemySpawns;
+	}
+}
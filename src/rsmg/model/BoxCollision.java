@@ -0,0 +1,77 @@
+package rsmg.model;
+
+/**
+ * Overlap tests between axis-aligned rectangles. Two rectangles overlap if
+ * they share any area, so rectangles on the same position or with edges on
+ * the same line overlap, but rectangles that only touch each other don't.
+ *
+ * overlapping() tests one rectangle against many rectangles stored in
+ * arrays, one array per coordinate, like in BulletStore. It's done in two
+ * passes. The first one only compares and writes a flag per rectangle, with
+ * no branches and no index that depends on earlier rectangles, so it's a loop
+ * that the JIT can compile to vector instructions. The second pass collects
+ * the indexes of the flagged rectangles one at a time.
+ */
+public final class BoxCollision {
+
+	private BoxCollision() {
+	}
+
+	/**
+	 * Check if two rectangles overlap.
+	 * @param x The first rectangle's horizontal position.
+	 * @param y The first rectangle's vertical position.
+	 * @param width The first rectangle's width.
+	 * @param height The first rectangle's height.
+	 * @param otherX The second rectangle's horizontal position.
+	 * @param otherY The second rectangle's vertical position.
+	 * @param otherWidth The second rectangle's width.
+	 * @param otherHeight The second rectangle's height.
+	 * @return If the rectangles overlap.
+	 */
+	public static boolean overlaps(double x, double y, double width, double height,
+			double otherX, double otherY, double otherWidth, double otherHeight) {
+		return otherX < x + width && x < otherX + otherWidth
+				&& otherY < y + height && y < otherY + otherHeight;
+	}
+
+	/**
+	 * Find the rectangles in arrays that overlap a rectangle.
+	 * @param x The rectangle's horizontal position.
+	 * @param y The rectangle's vertical position.
+	 * @param width The rectangle's width.
+	 * @param height The rectangle's height.
+	 * @param xs The horizontal positions of the other rectangles.
+	 * @param ys The vertical positions of the other rectangles.
+	 * @param widths The widths of the other rectangles.
+	 * @param heights The heights of the other rectangles.
+	 * @param count Number of rectangles in the arrays to test.
+	 * @param hits Where the indexes of the overlapping rectangles are written,
+	 *            in increasing order. Must have room for count indexes, since
+	 *            the flags of the first pass are kept there too.
+	 * @return Number of overlapping rectangles.
+	 */
+	public static int overlapping(double x, double y, double width, double height,
+			double[] xs, double[] ys, double[] widths, double[] heights, int count, int[] hits) {
+		if (count > hits.length || count > xs.length || count > ys.length
+				|| count > widths.length || count > heights.length)
+			throw new IllegalArgumentException("The arrays don't have room for " + count + " rectangles.");
+
+		double right = x + width;
+		double bottom = y + height;
+		for (int i = 0; i < count; i++) {
+			hits[i] = (xs[i] < right & x < xs[i] + widths[i]
+					& ys[i] < bottom & y < ys[i] + heights[i]) ? 1 : 0;
+		}
+
+		// Replace the flags with the indexes. An index is never written after
+		// the flag it replaces, so the flag is always read first.
+		int found = 0;
+		for (int i = 0; i < count; i++) {
+			int overlaps = hits[i];
+			hits[found] = i;
+			found += overlaps;
+		}
+		return found;
+	}
+}
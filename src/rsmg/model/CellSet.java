@@ -0,0 +1,133 @@
+package rsmg.model;
+
+import java.util.Arrays;
+
+/**
+ * A set of tiles in a grid. Every tile is stored as a long in a hash table
+ * with open addressing, so checking if a tile is in the set takes the same
+ * time however many tiles there are, and doesn't create any objects.
+ */
+final class CellSet {
+
+	/**
+	 * Marks a slot in the table that has no tile. Never a valid key, since
+	 * the keys of tiles inside a grid aren't negative.
+	 */
+	private static final long EMPTY = -1;
+
+	/**
+	 * The keys of the tiles, or EMPTY. The length is always a power of two,
+	 * and at most half of the slots are used.
+	 */
+	private long[] keys;
+	private int size;
+
+	/**
+	 * Create an empty set.
+	 */
+	CellSet() {
+		keys = new long[16];
+		Arrays.fill(keys, EMPTY);
+	}
+
+	/**
+	 * Returns the key of a tile.
+	 * @param kind A kind of tile from TileGrid, e.g. TileGrid.END.
+	 * @param x X coordinate in the grid.
+	 * @param y Y coordinate in the grid.
+	 * @return The key.
+	 */
+	static long key(byte kind, int x, int y) {
+		return ((long)y << 34) | ((long)x << 2) | kind;
+	}
+
+	/**
+	 * Add a tile.
+	 * @param key The tile's key.
+	 * @return If the tile wasn't in the set already.
+	 */
+	boolean add(long key) {
+		int i = find(key);
+		if (keys[i] == key)
+			return false;
+		keys[i] = key;
+		size++;
+		if (size * 2 > keys.length)
+			grow();
+		return true;
+	}
+
+	/**
+	 * Check if a tile is in the set.
+	 * @param key The tile's key.
+	 * @return If the tile is in the set.
+	 */
+	boolean contains(long key) {
+		return keys[find(key)] == key;
+	}
+
+	/**
+	 * Remove a tile.
+	 * @param key The tile's key.
+	 * @return If the tile was in the set.
+	 */
+	boolean remove(long key) {
+		int hole = find(key);
+		if (keys[hole] != key)
+			return false;
+		keys[hole] = EMPTY;
+		size--;
+
+		// Move the keys after the removed one back into the hole if their
+		// search would otherwise stop at it.
+		int mask = keys.length - 1;
+		for (int i = (hole + 1) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+			int home = slot(keys[i]);
+			boolean reachable = hole <= i ? home > hole && home <= i : home > hole || home <= i;
+			if (!reachable) {
+				keys[hole] = keys[i];
+				keys[i] = EMPTY;
+				hole = i;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the number of tiles in the set.
+	 * @return Number of tiles.
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the slot that a key is in, or the empty slot where it would be
+	 * put.
+	 */
+	private int find(long key) {
+		int mask = keys.length - 1;
+		int i = slot(key);
+		while (keys[i] != EMPTY && keys[i] != key)
+			i = (i + 1) & mask;
+		return i;
+	}
+
+	/**
+	 * Returns the first slot that is tried for a key.
+	 */
+	private int slot(long key) {
+		long hash = key * 0x9E3779B97F4A7C15L;
+		return (int)(hash >>> 32) & (keys.length - 1);
+	}
+
+	private void grow() {
+		long[] old = keys;
+		keys = new long[old.length * 2];
+		Arrays.fill(keys, EMPTY);
+		for (long key : old) {
+			if (key != EMPTY)
+				keys[find(key)] = key;
+		}
+	}
+}
@@ -0,0 +1,27 @@
+package rsmg.model;
+
+import java.util.List;
+
+import rsmg.model.ai.Ai;
+import rsmg.model.object.item.Item;
+
+/**
+ * Creates the items and the enemies of a streamed level, one chunk at a time.
+ * A chunk is only populated the first time it's loaded; the level keeps what
+ * is left in it when it's unloaded. See Level.
+ */
+public interface ChunkPopulator {
+
+	/**
+	 * Create the items and the enemies that are placed in a chunk. Called on
+	 * the thread that loaded the chunk, which is usually not the thread that
+	 * updates the level, so it may only create new objects.
+	 * @param chunkX The chunk's column, in chunks.
+	 * @param chunkY The chunk's row, in chunks.
+	 * @param items The list that the chunk's items are added to.
+	 * @param enemies The list that the chunk's enemies are added to.
+	 * @throws IllegalStateException If the chunk's items and enemies can't be
+	 *             read.
+	 */
+	public void populate(int chunkX, int chunkY, List<Item> items, List<Ai> enemies);
+}
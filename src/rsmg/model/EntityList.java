@@ -0,0 +1,252 @@
+package rsmg.model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * A list for the objects in a level, such as bullets and enemies, that are
+ * added and removed all the time.
+ *
+ * An element is removed by moving the last element to its index, so removing
+ * is done in constant time but the order of the elements isn't kept. While
+ * the level is being updated, elements are instead marked as removed with
+ * markRemoved(). They are then left where they are, so the indexes of the
+ * other elements don't change, until removeMarked() is called once at the end
+ * of the update.
+ *
+ * @param <T> The type of the elements.
+ */
+public class EntityList<T> extends AbstractList<T> implements RandomAccess {
+
+	/**
+	 * An element that knows its index in an EntityList, so it can be marked as
+	 * removed without the list being searched. An element may only be in one
+	 * EntityList at a time.
+	 */
+	public interface Indexed {
+
+		/**
+		 * Returns the element's index in the list it's in.
+		 * @return The index, or -1 if the element isn't in a list.
+		 */
+		public int getEntityIndex();
+
+		/**
+		 * Set the element's index. Only called by EntityList.
+		 * @param index The index, or -1 if the element is removed from the list.
+		 */
+		public void setEntityIndex(int index);
+	}
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private Object[] elements;
+	private int size;
+
+	/**
+	 * If the element at an index is marked as removed.
+	 */
+	private boolean[] marked;
+
+	/**
+	 * The indexes that are marked as removed, in the order they were marked.
+	 */
+	private int[] markedIndexes;
+	private int markedCount;
+
+	/**
+	 * Create an empty list.
+	 */
+	public EntityList() {
+		elements = new Object[INITIAL_CAPACITY];
+		marked = new boolean[INITIAL_CAPACITY];
+		markedIndexes = new int[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Create a list with the elements of a collection.
+	 * @param collection The elements.
+	 */
+	public EntityList(Collection<? extends T> collection) {
+		this();
+		addAll(collection);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public T get(int index) {
+		checkIndex(index);
+		return (T)elements[index];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public T set(int index, T element) {
+		T old = get(index);
+		if (old instanceof Indexed)
+			((Indexed)old).setEntityIndex(-1);
+		boolean wasMarked = marked[index];
+		place(index, element);
+		marked[index] = wasMarked;
+		return old;
+	}
+
+	/**
+	 * Add an element to the end of the list.
+	 */
+	@Override
+	public boolean add(T element) {
+		if (size == elements.length) {
+			int capacity = elements.length * 2;
+			elements = Arrays.copyOf(elements, capacity);
+			marked = Arrays.copyOf(marked, capacity);
+		}
+		place(size++, element);
+		modCount++;
+		return true;
+	}
+
+	/**
+	 * Elements can only be added to the end of the list.
+	 */
+	@Override
+	public void add(int index, T element) {
+		if (index != size)
+			throw new UnsupportedOperationException("Elements can only be added to the end of an EntityList.");
+		add(element);
+	}
+
+	/**
+	 * Remove an element at once. The last element is moved to its index.
+	 * Can't be used while there are elements marked as removed.
+	 */
+	@Override
+	public T remove(int index) {
+		if (markedCount > 0)
+			throw new IllegalStateException("There are elements marked as removed.");
+		T element = get(index);
+		swapRemove(index);
+		modCount++;
+		return element;
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			if (elements[i] instanceof Indexed)
+				((Indexed)elements[i]).setEntityIndex(-1);
+			elements[i] = null;
+			marked[i] = false;
+		}
+		size = 0;
+		markedCount = 0;
+		modCount++;
+	}
+
+	/**
+	 * Mark the element at an index as removed. It stays in the list until
+	 * removeMarked() is called. Marking an element twice has no effect.
+	 * @param index The element's index.
+	 */
+	public void markRemoved(int index) {
+		checkIndex(index);
+		if (marked[index])
+			return;
+		marked[index] = true;
+		if (markedCount == markedIndexes.length)
+			markedIndexes = Arrays.copyOf(markedIndexes, markedIndexes.length * 2);
+		markedIndexes[markedCount++] = index;
+	}
+
+	/**
+	 * Mark an element as removed. It stays in the list until removeMarked() is
+	 * called. Marking an element twice has no effect.
+	 * @param element The element. If it isn't Indexed the list is searched
+	 *            for it.
+	 * @return If the element was in the list.
+	 */
+	public boolean markRemoved(T element) {
+		int index = element instanceof Indexed ? ((Indexed)element).getEntityIndex() : indexOf(element);
+		if (index < 0 || index >= size || elements[index] != element)
+			return false;
+		markRemoved(index);
+		return true;
+	}
+
+	/**
+	 * Returns if the element at an index is marked as removed.
+	 * @param index The element's index.
+	 * @return If the element is marked as removed.
+	 */
+	public boolean isMarkedRemoved(int index) {
+		checkIndex(index);
+		return marked[index];
+	}
+
+	/**
+	 * Remove all elements that are marked as removed. The time it takes
+	 * depends on how many elements that are removed, not on the size of the
+	 * list.
+	 * @param removed Collection where the removed elements are added, or null.
+	 * @return Number of removed elements.
+	 */
+	@SuppressWarnings("unchecked")
+	public int removeMarked(Collection<? super T> removed) {
+		int count = markedCount;
+		if (count == 0)
+			return 0;
+
+		// Remove from the highest index down, so the element that is moved
+		// from the end is never one that is also going to be removed.
+		Arrays.sort(markedIndexes, 0, count);
+		for (int i = count - 1; i >= 0; i--) {
+			int index = markedIndexes[i];
+			if (removed != null)
+				removed.add((T)elements[index]);
+			swapRemove(index);
+		}
+		markedCount = 0;
+		modCount++;
+		return count;
+	}
+
+	/**
+	 * Remove the element at an index by moving the last element there.
+	 * @param index The index.
+	 */
+	private void swapRemove(int index) {
+		if (elements[index] instanceof Indexed)
+			((Indexed)elements[index]).setEntityIndex(-1);
+
+		int last = --size;
+		if (index != last) {
+			place(index, elements[last]);
+			marked[index] = marked[last];
+		}
+		elements[last] = null;
+		marked[last] = false;
+	}
+
+	/**
+	 * Put an element at an index and tell it where it is.
+	 * @param index The index.
+	 * @param element The element.
+	 */
+	private void place(int index, Object element) {
+		elements[index] = element;
+		marked[index] = false;
+		if (element instanceof Indexed)
+			((Indexed)element).setEntityIndex(index);
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+	}
+}
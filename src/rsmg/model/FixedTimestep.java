@@ -0,0 +1,110 @@
+package rsmg.model;
+
+/**
+ * Steps a level forward in fixed time increments, no matter how much time that
+ * has passed between two frames. The time from the frames is collected, and
+ * for every whole tick that has been collected the level is updated once. This
+ * makes the physics behave the same on every frame rate.
+ *
+ * If the game can't keep up, at most a limited number of ticks are run per
+ * frame and the rest of the time is thrown away. The game will then run
+ * slower instead of falling further and further behind.
+ */
+public class FixedTimestep {
+
+	/**
+	 * Default number of ticks that may be run during one frame.
+	 */
+	public static final int DEFAULT_MAX_TICKS = 5;
+
+	/**
+	 * The length of a tick in seconds.
+	 */
+	private final double tickLength;
+
+	/**
+	 * Maximum number of ticks that are run during one frame.
+	 */
+	private final int maxTicks;
+
+	/**
+	 * Time that has been collected but not yet simulated, in seconds.
+	 */
+	private double accumulator;
+
+	/**
+	 * Create a fixed timestep.
+	 *
+	 * @param ticksPerSecond How many times per second the level is updated.
+	 */
+	public FixedTimestep(int ticksPerSecond) {
+		this(ticksPerSecond, DEFAULT_MAX_TICKS);
+	}
+
+	/**
+	 * Create a fixed timestep.
+	 *
+	 * @param ticksPerSecond How many times per second the level is updated.
+	 * @param maxTicks Maximum number of ticks that are run during one frame.
+	 */
+	public FixedTimestep(int ticksPerSecond, int maxTicks) {
+		if (ticksPerSecond <= 0)
+			throw new IllegalArgumentException("The tick rate must be positive.");
+		if (maxTicks <= 0)
+			throw new IllegalArgumentException("At least one tick per frame must be allowed.");
+		this.tickLength = 1.0 / ticksPerSecond;
+		this.maxTicks = maxTicks;
+	}
+
+	/**
+	 * Collect the time of a frame and update the level once for every whole
+	 * tick that is available.
+	 *
+	 * @param level The level to update.
+	 * @param delta Time since last frame in seconds.
+	 * @return Number of ticks the level was updated.
+	 */
+	public int update(Level level, double delta) {
+		accumulator += delta;
+		int ticks = 0;
+		while (accumulator >= tickLength && ticks < maxTicks) {
+			level.update(tickLength);
+			accumulator -= tickLength;
+			ticks++;
+		}
+
+		// Too much time has passed to catch up with. Drop the whole ticks that
+		// are left.
+		if (accumulator >= tickLength) {
+			accumulator %= tickLength;
+		}
+		return ticks;
+	}
+
+	/**
+	 * Returns how far it is between the last tick and the next one. Can be used
+	 * to interpolate positions between the last two ticks when drawing.
+	 *
+	 * @return A value from 0.0, right at the last tick, up to 1.0.
+	 */
+	public double getAlpha() {
+		return accumulator / tickLength;
+	}
+
+	/**
+	 * Returns the length of a tick.
+	 *
+	 * @return The length of a tick in seconds.
+	 */
+	public double getTickLength() {
+		return tickLength;
+	}
+
+	/**
+	 * Throw away all collected time. Should be done when a new level is
+	 * started.
+	 */
+	public void reset() {
+		accumulator = 0;
+	}
+}
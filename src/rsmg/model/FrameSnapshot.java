@@ -0,0 +1,434 @@
+package rsmg.model;
+
+import java.util.Arrays;
+
+import rsmg.model.variables.ObjectName;
+
+/**
+ * Everything the view needs to draw one frame of a level: where the
+ * character, the enemies, the bullets and the items are, what they look like,
+ * the tiles around the character and the numbers in the HUD. It's filled in
+ * by Level.writeSnapshot() on the thread that updates the level, and is then
+ * read by the thread that draws, which never has to look at the level itself
+ * while it's being updated.
+ *
+ * The positions before the last update are kept too, so the objects can be
+ * drawn between the last two updates when the frame rate is higher than the
+ * tick rate. See getAlpha().
+ *
+ * Snapshots are reused. Their arrays only grow, so filling in a snapshot
+ * doesn't allocate anything once the arrays are big enough. See
+ * SnapshotBuffer for how they are handed between the threads.
+ */
+public final class FrameSnapshot {
+
+	/**
+	 * The positions and looks of a group of objects, such as the enemies.
+	 * Only the first size() elements are used.
+	 */
+	public static final class Sprites {
+
+		private static final int INITIAL_CAPACITY = 16;
+
+		private int size;
+		private double[] x = new double[INITIAL_CAPACITY];
+		private double[] y = new double[INITIAL_CAPACITY];
+		private double[] previousX = new double[INITIAL_CAPACITY];
+		private double[] previousY = new double[INITIAL_CAPACITY];
+		private double[] width = new double[INITIAL_CAPACITY];
+		private double[] height = new double[INITIAL_CAPACITY];
+		private ObjectName[] name = new ObjectName[INITIAL_CAPACITY];
+		private float[] rotation = new float[INITIAL_CAPACITY];
+		private boolean[] facingRight = new boolean[INITIAL_CAPACITY];
+		private boolean[] flashing = new boolean[INITIAL_CAPACITY];
+
+		/**
+		 * Add an object.
+		 * @return The object's index.
+		 */
+		int add(double x, double y, double previousX, double previousY, double width, double height, ObjectName name) {
+			if (size == this.x.length)
+				grow();
+			int i = size++;
+			this.x[i] = x;
+			this.y[i] = y;
+			this.previousX[i] = previousX;
+			this.previousY[i] = previousY;
+			this.width[i] = width;
+			this.height[i] = height;
+			this.name[i] = name;
+			rotation[i] = 0;
+			facingRight[i] = false;
+			flashing[i] = false;
+			return i;
+		}
+
+		void setRotation(int index, float rotation) {
+			this.rotation[index] = rotation;
+		}
+
+		void setFacingRight(int index, boolean facingRight) {
+			this.facingRight[index] = facingRight;
+		}
+
+		void setFlashing(int index, boolean flashing) {
+			this.flashing[index] = flashing;
+		}
+
+		void clear() {
+			size = 0;
+		}
+
+		private void grow() {
+			int capacity = x.length * 2;
+			x = Arrays.copyOf(x, capacity);
+			y = Arrays.copyOf(y, capacity);
+			previousX = Arrays.copyOf(previousX, capacity);
+			previousY = Arrays.copyOf(previousY, capacity);
+			width = Arrays.copyOf(width, capacity);
+			height = Arrays.copyOf(height, capacity);
+			name = Arrays.copyOf(name, capacity);
+			rotation = Arrays.copyOf(rotation, capacity);
+			facingRight = Arrays.copyOf(facingRight, capacity);
+			flashing = Arrays.copyOf(flashing, capacity);
+		}
+
+		public int size() {
+			return size;
+		}
+
+		public double getX(int index) {
+			return x[index];
+		}
+
+		public double getY(int index) {
+			return y[index];
+		}
+
+		/**
+		 * Returns the object's horizontal position between the last two
+		 * updates.
+		 * @param index The object's index.
+		 * @param alpha How far from the previous position to the current one,
+		 *            from 0.0 to 1.0.
+		 */
+		public double getX(int index, double alpha) {
+			return previousX[index] + (x[index] - previousX[index]) * alpha;
+		}
+
+		/**
+		 * Returns the object's vertical position between the last two
+		 * updates.
+		 * @param index The object's index.
+		 * @param alpha How far from the previous position to the current one,
+		 *            from 0.0 to 1.0.
+		 */
+		public double getY(int index, double alpha) {
+			return previousY[index] + (y[index] - previousY[index]) * alpha;
+		}
+
+		public double getWidth(int index) {
+			return width[index];
+		}
+
+		public double getHeight(int index) {
+			return height[index];
+		}
+
+		public ObjectName getName(int index) {
+			return name[index];
+		}
+
+		/**
+		 * Returns the object's rotation in radians. Always 0 for the objects
+		 * that can't be rotated.
+		 */
+		public float getRotation(int index) {
+			return rotation[index];
+		}
+
+		public boolean isFacingRight(int index) {
+			return facingRight[index];
+		}
+
+		/**
+		 * Returns if the object should flash, because it recently took damage.
+		 */
+		public boolean isFlashing(int index) {
+			return flashing[index];
+		}
+	}
+
+	private final Sprites enemies = new Sprites();
+	private final Sprites enemyBullets = new Sprites();
+	private final Sprites alliedBullets = new Sprites();
+	private final Sprites items = new Sprites();
+
+	private double characterX;
+	private double characterY;
+	private double characterPreviousX;
+	private double characterPreviousY;
+	private double characterWidth;
+	private double characterHeight;
+	private boolean characterFacingRight;
+	private boolean characterDead;
+	private boolean characterDashing;
+	private boolean characterAirborne;
+	private boolean characterRunning;
+	private boolean characterImmortal;
+	private ObjectName weapon;
+	private int health;
+	private int maxHealth;
+	private float weaponLoadedPercentage;
+
+	private boolean won;
+	private boolean lost;
+
+	/**
+	 * When the state in the snapshot was current, from System.nanoTime(), and
+	 * the time between two updates. A tick length of 0 means that the
+	 * snapshot shouldn't be interpolated.
+	 */
+	private long time;
+	private double tickLength;
+
+	/**
+	 * Number of shots fired and dashes started since the level started, and
+	 * the weapon of the last shot. Counted instead of flagged, so no sound is
+	 * lost when a snapshot is skipped.
+	 */
+	private int shotCount;
+	private ObjectName shotWeapon;
+	private int dashCount;
+
+	/**
+	 * The codes from Tiles of the tiles around the character, row by row, and
+	 * the rectangle of the grid that they were copied from. Only the first
+	 * tilesWidth * tilesHeight codes are used.
+	 */
+	private byte[] tileCodes = new byte[0];
+	private int tilesLeft;
+	private int tilesTop;
+	private int tilesWidth;
+	private int tilesHeight;
+
+	/**
+	 * Empty the lists of objects. Done before the snapshot is filled in.
+	 */
+	void clear() {
+		enemies.clear();
+		enemyBullets.clear();
+		alliedBullets.clear();
+		items.clear();
+	}
+
+	void setCharacter(double x, double y, double previousX, double previousY, double width, double height,
+			boolean facingRight) {
+		characterX = x;
+		characterY = y;
+		characterPreviousX = previousX;
+		characterPreviousY = previousY;
+		characterWidth = width;
+		characterHeight = height;
+		characterFacingRight = facingRight;
+	}
+
+	void setCharacterState(boolean dead, boolean dashing, boolean airborne, boolean running, boolean immortal) {
+		characterDead = dead;
+		characterDashing = dashing;
+		characterAirborne = airborne;
+		characterRunning = running;
+		characterImmortal = immortal;
+	}
+
+	void setHud(ObjectName weapon, int health, int maxHealth, float weaponLoadedPercentage) {
+		this.weapon = weapon;
+		this.health = health;
+		this.maxHealth = maxHealth;
+		this.weaponLoadedPercentage = weaponLoadedPercentage;
+	}
+
+	/**
+	 * Copy the loaded tiles in a rectangle of a tile grid.
+	 */
+	void setTiles(TileGrid grid, int left, int top, int width, int height) {
+		if (tileCodes.length < width * height)
+			tileCodes = new byte[width * height];
+		grid.copyLoadedCodes(left, top, width, height, tileCodes);
+		tilesLeft = left;
+		tilesTop = top;
+		tilesWidth = width;
+		tilesHeight = height;
+	}
+
+	/**
+	 * Returns the code from Tiles of a tile around the character. The tiles
+	 * that weren't copied, e.g. because their chunk wasn't loaded, are air.
+	 * @param x X coordinate in the grid.
+	 * @param y Y coordinate in the grid.
+	 * @return The tile's code.
+	 */
+	public byte getTileCode(int x, int y) {
+		x -= tilesLeft;
+		y -= tilesTop;
+		if (x < 0 || x >= tilesWidth || y < 0 || y >= tilesHeight)
+			return 0;
+		return tileCodes[y * tilesWidth + x];
+	}
+
+	void setOutcome(boolean won, boolean lost) {
+		this.won = won;
+		this.lost = lost;
+	}
+
+	/**
+	 * Set when the snapshot's state was current. It's set by whoever updates
+	 * the level, since only it knows how the time is stepped.
+	 * @param time When the state was current, from System.nanoTime().
+	 * @param tickLength The time between two updates in seconds, or 0 if the
+	 *            snapshot shouldn't be interpolated.
+	 */
+	public void setTiming(long time, double tickLength) {
+		this.time = time;
+		this.tickLength = tickLength;
+	}
+
+	/**
+	 * Returns how far between the previous and the current positions that
+	 * the objects should be drawn at a given time. The objects are drawn one
+	 * update behind, so they can move smoothly towards the current positions
+	 * until the next snapshot arrives.
+	 * @param now The time, from System.nanoTime().
+	 * @return A value from 0.0, at the previous positions, up to 1.0, at the
+	 *         current positions.
+	 */
+	public double getAlpha(long now) {
+		if (tickLength <= 0)
+			return 1;
+		double alpha = (now - time) / (tickLength * 1e9);
+		return Math.max(0, Math.min(1, alpha));
+	}
+
+	/**
+	 * Set the sound counters. They are kept by whoever updates the level,
+	 * since finding out if a weapon has been fired resets it.
+	 * @param shotCount Number of shots fired.
+	 * @param shotWeapon The weapon of the last shot, or null.
+	 * @param dashCount Number of dashes started.
+	 */
+	public void setSoundCounters(int shotCount, ObjectName shotWeapon, int dashCount) {
+		this.shotCount = shotCount;
+		this.shotWeapon = shotWeapon;
+		this.dashCount = dashCount;
+	}
+
+	public Sprites getEnemies() {
+		return enemies;
+	}
+
+	public Sprites getEnemyBullets() {
+		return enemyBullets;
+	}
+
+	public Sprites getAlliedBullets() {
+		return alliedBullets;
+	}
+
+	public Sprites getItems() {
+		return items;
+	}
+
+	public double getCharacterX() {
+		return characterX;
+	}
+
+	public double getCharacterY() {
+		return characterY;
+	}
+
+	/**
+	 * Returns the character's horizontal position between the last two
+	 * updates.
+	 * @param alpha How far from the previous position to the current one.
+	 */
+	public double getCharacterX(double alpha) {
+		return characterPreviousX + (characterX - characterPreviousX) * alpha;
+	}
+
+	/**
+	 * Returns the character's vertical position between the last two
+	 * updates.
+	 * @param alpha How far from the previous position to the current one.
+	 */
+	public double getCharacterY(double alpha) {
+		return characterPreviousY + (characterY - characterPreviousY) * alpha;
+	}
+
+	public double getCharacterWidth() {
+		return characterWidth;
+	}
+
+	public double getCharacterHeight() {
+		return characterHeight;
+	}
+
+	public boolean isCharacterFacingRight() {
+		return characterFacingRight;
+	}
+
+	public boolean isCharacterDead() {
+		return characterDead;
+	}
+
+	public boolean isCharacterDashing() {
+		return characterDashing;
+	}
+
+	public boolean isCharacterAirborne() {
+		return characterAirborne;
+	}
+
+	public boolean isCharacterRunning() {
+		return characterRunning;
+	}
+
+	public boolean isCharacterImmortal() {
+		return characterImmortal;
+	}
+
+	public ObjectName getWeapon() {
+		return weapon;
+	}
+
+	public int getHealth() {
+		return health;
+	}
+
+	public int getMaxHealth() {
+		return maxHealth;
+	}
+
+	public float getWeaponLoadedPercentage() {
+		return weaponLoadedPercentage;
+	}
+
+	public boolean hasWon() {
+		return won;
+	}
+
+	public boolean hasLost() {
+		return lost;
+	}
+
+	public int getShotCount() {
+		return shotCount;
+	}
+
+	public ObjectName getShotWeapon() {
+		return shotWeapon;
+	}
+
+	public int getDashCount() {
+		return dashCount;
+	}
+}
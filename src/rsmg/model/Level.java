@@ -1,18 +1,27 @@
 package rsmg.model;
 
 import java.awt.Point;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
 
 import rsmg.model.ai.Ai;
 import rsmg.model.object.InteractiveObject;
 import rsmg.model.object.bullet.Bullet;
+import rsmg.model.object.bullet.BulletPool;
+import rsmg.model.object.bullet.BulletStore;
+import rsmg.model.object.bullet.BulletView;
 import rsmg.model.object.bullet.Explosion;
 import rsmg.model.object.bullet.ExplosionFactory;
-import rsmg.model.object.bullet.LaserFire;
 import rsmg.model.object.item.Item;
 import rsmg.model.object.unit.Enemy;
 import rsmg.model.object.unit.PCharacter;
@@ -36,12 +45,18 @@ public class Level {
 	/**
 	 * List where friendly bullets from guns are stored.
 	 */
-	private List<Bullet> alliedBulletsList;
+	private EntityList<Bullet> alliedBulletsList;
 	
 	/**
-	 * List where enemy bullets are stored
+	 * Where the bullets, explosions and enemies that are created during an
+	 * update wait until the start of the next update.
 	 */
-	private List<Bullet> enemyBulletList;
+	private SpawnQueue spawnQueue;
+	
+	/**
+	 * Where enemy bullets are stored
+	 */
+	private BulletStore enemyBulletStore;
 	
 	/**
 	 *  List where all the items are stored
@@ -51,7 +66,7 @@ public class Level {
 	/**
 	 * List where references to all living enemies in the level are stored.
 	 */
-	private List<Ai> enemies;
+	private EntityList<Ai> enemies;
 	
 	/**
 	 * The grid layout of the level. (I.e. the environment.)
@@ -68,11 +83,108 @@ public class Level {
 	 */
 	private boolean hasLost;
 	
+	/**
+	 * The level's clock. It's moved forward every update and the character
+	 * and the enemies measure their cooldowns with it.
+	 */
+	private SimulationClock clock;
+	
+	/**
+	 * Updates the enemies on several threads, or null if they are updated
+	 * one at a time.
+	 */
+	private ParallelAiUpdate parallelAi;
+	
+	/**
+	 * Half the width and height of the region around the character where the
+	 * enemies are moved and their AI is updated. Negative if all enemies are.
+	 */
+	private double activeHalfWidth = -1;
+	private double activeHalfHeight = -1;
+	
+	/**
+	 * How many tiles to the left and right, and above and below, the
+	 * character are copied into the snapshots.
+	 */
+	private int visibleTilesX;
+	private int visibleTilesY;
+	
+	/**
+	 * The bounds of the active region in the current update.
+	 */
+	private double activeLeft;
+	private double activeRight;
+	private double activeTop;
+	private double activeBottom;
+	
+	/**
+	 * How far around an enemy the tiles must be loaded for the enemy to be
+	 * moved, when the tile grid is streamed. An enemy can't move that far in
+	 * one update, so moving it never has to load a chunk on the thread that
+	 * updates it.
+	 */
+	private static final double STREAMING_MARGIN = TileChunk.SIZE * Constants.TILESIZE;
+	
+	/**
+	 * Loads and unloads the items and enemies with the chunks of a streamed
+	 * tile grid, or null if the level isn't streamed.
+	 */
+	private StreamedEntities streamedEntities;
+	
 	/**
 	 * Counts the time the character has been dead.
 	 */
 	private double deathCounter = 0;
 	
+	/**
+	 * Broad phase grids used to find which bullets and items that are close
+	 * enough to an object to possibly collide with it. The bullets are stored
+	 * along the path they moved during the last update.
+	 */
+	private SpatialHash<Bullet> alliedBulletGrid;
+	private SpatialHash<Item> itemGrid;
+	
+	/**
+	 * Lists that the broad phase queries write their results to. They are
+	 * reused between the updates.
+	 */
+	private List<Bullet> nearbyBullets;
+	private List<Bullet> hitBullets;
+	
+	/**
+	 * The first enemy that every allied bullet hits during an update, and when
+	 * along the bullet's move it hits it, by the bullet's index in the allied
+	 * bullet list. A bullet that doesn't pass through enemies is only given to
+	 * the enemy that it hits first, once all enemies have been tested.
+	 * firstHitIndexes holds the indexes of the bullets that hit anything.
+	 */
+	private Enemy[] firstHitEnemies = new Enemy[16];
+	private double[] firstHitTimes = new double[16];
+	private int[] firstHitIndexes = new int[16];
+	private int firstHitCount;
+	
+	/**
+	 * List that the bullets removed during an update are put in, before they
+	 * are given back to the BulletPool.
+	 */
+	private List<Bullet> removedBullets;
+	private List<Item> nearbyItems;
+	
+	/**
+	 * The enemies of the AIs in the enemy list, returned by getEnemies().
+	 */
+	private final List<Enemy> enemyView = new AbstractList<Enemy>() {
+		@Override
+		public Enemy get(int index) {
+			return enemies.get(index).getEnemy();
+		}
+		
+		@Override
+		public int size() {
+			return enemies.size();
+		}
+	};
+	
 	/**
 	 * Creates a level.
 	 * 
@@ -80,18 +192,55 @@ public class Level {
 	 * @param character Reference to the character.
 	 * @param items The items that should be in the level.
 	 * @param aiList The enemies in the level.
-	 * @param enemyBullets List containing the enemies' bullets.
-	 * @param alliedBullets List containing the allied' bullets.
+	 * @param spawnQueue The queue that the character, the enemies and their
+	 *            AI put the bullets and enemies they create in.
 	 */
-	public Level(TileGrid tileGrid, PCharacter character, List<Item> items, List<Ai> aiList, List<Bullet> enemyBullets, List<Bullet> alliedBullets) {
+	public Level(TileGrid tileGrid, PCharacter character, List<Item> items, List<Ai> aiList, SpawnQueue spawnQueue) {
 		this.tileGrid = tileGrid;
 		this.character = character;
 		this.items = items;
-		this.enemies = aiList;
-		enemyBulletList = enemyBullets;
-		alliedBulletsList = alliedBullets;
+		this.enemies = new EntityList<Ai>(aiList);
+		this.spawnQueue = spawnQueue;
+		alliedBulletsList = new EntityList<Bullet>();
+		enemyBulletStore = new BulletStore();
+		
+		alliedBulletGrid = new SpatialHash<Bullet>(true);
+		itemGrid = new SpatialHash<Item>();
+		itemGrid.insertAll(items);
+		nearbyBullets = new ArrayList<Bullet>();
+		hitBullets = new ArrayList<Bullet>();
+		removedBullets = new ArrayList<Bullet>();
+		nearbyItems = new ArrayList<Item>();
+		
+		clock = new SimulationClock();
+		character.setClock(clock);
+		for (Ai ai : aiList) {
+			ai.getEnemy().setClock(clock);
+		}
+		
 		spawnChar();
 	}
+	
+	/**
+	 * Creates a streamed level. Only the chunks around the character are
+	 * loaded, and the items and enemies are loaded and unloaded with the
+	 * chunks they are in.
+	 * 
+	 * @param tileGrid The streamed tile grid that the level shall use.
+	 * @param character Reference to the character.
+	 * @param populator Creates the items and enemies of the chunks.
+	 * @param spawnQueue The queue that the character, the enemies and their
+	 *            AI put the bullets and enemies they create in.
+	 */
+	public Level(TileGrid tileGrid, PCharacter character, ChunkPopulator populator, SpawnQueue spawnQueue) {
+		this(tileGrid, character, new ArrayList<Item>(), new ArrayList<Ai>(), spawnQueue);
+		if (!tileGrid.isStreamed())
+			throw new IllegalArgumentException("The tile grid of a streamed level must be streamed.");
+		streamedEntities = new StreamedEntities(populator);
+		tileGrid.setChunkListener(streamedEntities);
+		tileGrid.loadAround(character.getX() + character.getWidth() / 2, character.getY() + character.getHeight() / 2);
+		streamedEntities.addArrived();
+	}
 
 	/**
 	 * Method for spawning the character.
@@ -99,12 +248,12 @@ public class Level {
 	 * spawned at 0, 0.
 	 */
 	private void spawnChar() {
-		try {
+		// Without a spawn tile the character will remain on position (0, 0).
+		if (tileGrid.hasSpawnPoint()) {
 			Point spawnPoint = tileGrid.getSpawnPoint();
 			character.setX(spawnPoint.getX());
 			character.setY(spawnPoint.getY());
-		} catch (Exception NullPointerException) {
-			// The character will remain on position (0, 0).
+			character.holdPosition();
 		}
 	}
 
@@ -113,34 +262,71 @@ public class Level {
 	 * @param delta Time since last update in seconds.
 	 */
 	public void update(double delta) {
+		clock.advance(delta);
+		flushSpawnQueue();
 		updateCharacter(delta);
+		tileGrid.streamAround(character.getX() + character.getWidth() / 2, character.getY() + character.getHeight() / 2);
+		if (streamedEntities != null)
+			streamedEntities.addArrived();
  		updateEnemies(delta);
- 		updateBullets(delta, alliedBulletsList);
- 		updateBullets(delta, enemyBulletList);
+ 		updateBullets(delta);
+ 		updateEnemyBullets(delta);
 		enemyBulletCollision();
  		// Checks if any items are picked-up
 		updateItems();
 		outsideLevelCheck();
+		removeMarked();
+	}
+	
+	/**
+	 * Add everything that has been created since the last update to the
+	 * level. This is the only place where bullets and enemies are added, so
+	 * the lists are never added to while they are looped over.
+	 */
+	private void flushSpawnQueue() {
+		List<Bullet> newAlliedBullets = spawnQueue.getAlliedBullets();
+		for (int i = 0; i < newAlliedBullets.size(); i++) {
+			alliedBulletsList.add(newAlliedBullets.get(i));
+		}
+		newAlliedBullets.clear();
+		
+		enemyBulletStore.addAll(spawnQueue.getEnemyBullets());
 		
+		List<Ai> newEnemies = spawnQueue.getEnemies();
+		for (int i = 0; i < newEnemies.size(); i++) {
+			Ai ai = newEnemies.get(i);
+			ai.getEnemy().setClock(clock);
+			enemies.add(ai);
+		}
+		newEnemies.clear();
+	}
+	
+	/**
+	 * Remove the bullets and enemies that have been marked as removed during
+	 * the update, and give the bullets back to the BulletPool.
+	 */
+	private void removeMarked() {
+		alliedBulletsList.removeMarked(removedBullets);
+		for (int i = 0; i < removedBullets.size(); i++) {
+			BulletPool.release(removedBullets.get(i));
+		}
+		removedBullets.clear();
+		enemies.removeMarked(null);
 	}
+	
 	/**
 	 * Method which removes all objects that are outside the map in the objectLists
-	 * @param object
 	 */
 	private void outsideLevelCheck() {
 		for(int i = 0; i < alliedBulletsList.size(); i++) {
 			if(isOutsideLevel(alliedBulletsList.get(i))){
-				alliedBulletsList.remove(i);
-			}
-		}
-		for(int i = 0; i < enemyBulletList.size(); i++) {
-			if(isOutsideLevel(enemyBulletList.get(i))){
-				enemyBulletList.remove(i);
+				alliedBulletsList.markRemoved(i);
 			}
 		}
+		enemyBulletStore.removeOutsideLevel();
 		for(int i = 0; i < enemies.size(); i++) {
 			if(isOutsideLevel(enemies.get(i).getEnemy())){
-				enemies.remove(i);
+				enemies.markRemoved(i);
 			}
 		}
 	}
@@ -169,17 +355,15 @@ public class Level {
 	}
 
 	private void enemyBulletCollision() {
-		List<Bullet> expiredBullets = new ArrayList<Bullet>(); 
-		for (Iterator<Bullet> j = enemyBulletList.iterator(); j.hasNext(); ) {
-			Bullet bullet = j.next();
-
-			if (character.hasCollidedWith(bullet)) {
-				character.collide(bullet);
-				bullet.collide(character);
-				expiredBullets.add(bullet);
-			}
+		hitBullets.clear();
+		enemyBulletStore.removeCollisions(character, hitBullets);
+		for (int i = 0; i < hitBullets.size(); i++) {
+			Bullet bullet = hitBullets.get(i);
+			character.collide(bullet);
+			bullet.collide(character);
+			BulletPool.release(bullet);
 		}
-		enemyBulletList.removeAll(expiredBullets);
+		hitBullets.clear();
 	}
 	
 	/**
@@ -188,96 +372,251 @@ public class Level {
 	 * @param delta Time sine last update.
 	 */
 	private void updateEnemies(double delta) {
-		for (int i = 0; i < enemies.size(); i++) {
-			//update the ai
-			Ai ai = enemies.get(i);
-			
-			Enemy enemy = ai.getEnemy();
-			
-			if (enemy.isDead()) {
-				// Set the level as won if the enemy killed was a boss
-				if (enemies.get(i).getEnemy().getName() == ObjectName.BOSSBOT) {
-					hasWon = true;
-				}
-				enemies.remove(i);
-				continue;
+		// Fill the grid with the allied bullets so every enemy only has to be
+		// tested against the bullets close to it.
+		alliedBulletGrid.clear();
+		alliedBulletGrid.insertAll(alliedBulletsList);
+		if (firstHitEnemies.length < alliedBulletsList.size()) {
+			int capacity = Math.max(alliedBulletsList.size(), firstHitEnemies.length * 2);
+			firstHitEnemies = new Enemy[capacity];
+			firstHitTimes = new double[capacity];
+			firstHitIndexes = new int[capacity];
+		}
+		
+		updateActiveRegion();
+		
+		if (parallelAi != null && enemies.size() >= 2 * ParallelAiUpdate.CHUNK_SIZE) {
+			// Let the enemies think and move on several threads, and then
+			// check the collisions one enemy at a time.
+			parallelAi.update(this, enemies, spawnQueue, delta);
+			for (int i = 0; i < enemies.size(); i++) {
+				if (!removeIfDead(i))
+					collideEnemy(enemies.get(i).getEnemy());
 			}
-			
-			if(!enemy.isFlyingUnit()){
-				enemy.applyGravity(delta);
+		} else {
+			for (int i = 0; i < enemies.size(); i++) {
+				if (removeIfDead(i))
+					continue;
+				Ai ai = enemies.get(i);
+				if (isActive(ai.getEnemy()))
+					moveEnemy(ai, delta);
+				else
+					ai.getEnemy().holdPosition();
+				collideEnemy(ai.getEnemy());
 			}
-			
-			ai.update(delta);
-			enemy.move(delta);
-			applyNormalForce(enemy);
-			
-			enemy.updateVulnerability();
-			// see if enemy has collided with the character and act appropriately
-			if (enemy.hasCollidedWith(character)) {
-				character.collide(enemy);
-				enemy.collide(character);
+		}
+		
+		resolveFirstHits();
+	}
+	
+	/**
+	 * Center the active region on the character.
+	 */
+	private void updateActiveRegion() {
+		if (activeHalfWidth < 0)
+			return;
+		double centerX = character.getX() + character.getWidth() / 2;
+		double centerY = character.getY() + character.getHeight() / 2;
+		activeLeft = centerX - activeHalfWidth;
+		activeRight = centerX + activeHalfWidth;
+		activeTop = centerY - activeHalfHeight;
+		activeBottom = centerY + activeHalfHeight;
+	}
+	
+	/**
+	 * Check if an enemy is inside the active region. Enemies outside it are
+	 * dormant: they stand still and don't think until the character comes
+	 * close, but they can still be hit. In a streamed tile grid the enemies
+	 * whose surroundings aren't loaded are dormant too, so the region never
+	 * reaches further than the grid's streaming radius.
+	 * @param enemy The enemy.
+	 * @return If the enemy should be moved and have its AI updated.
+	 */
+	boolean isActive(Enemy enemy) {
+		if (!tileGrid.isAreaLoaded(enemy.getX() - STREAMING_MARGIN, enemy.getY() - STREAMING_MARGIN,
+				enemy.getWidth() + 2 * STREAMING_MARGIN, enemy.getHeight() + 2 * STREAMING_MARGIN))
+			return false;
+		if (activeHalfWidth < 0)
+			return true;
+		return enemy.getX() + enemy.getWidth() >= activeLeft && enemy.getX() <= activeRight
+				&& enemy.getY() + enemy.getHeight() >= activeTop && enemy.getY() <= activeBottom;
+	}
+	
+	/**
+	 * Mark an enemy as removed if it's dead.
+	 * @param index The enemy's index.
+	 * @return If the enemy was dead.
+	 */
+	private boolean removeIfDead(int index) {
+		Enemy enemy = enemies.get(index).getEnemy();
+		if (enemy.isDead()) {
+			// Set the level as won if the enemy killed was a boss
+			if (enemy.getName() == ObjectName.BOSSBOT) {
+				hasWon = true;
 			}
+			enemies.markRemoved(index);
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Let an enemy's AI decide what to do, and then move the enemy. Only
+	 * changes the enemy itself and the spawn queue lists it adds bullets and
+	 * enemies to, so it can be called for several enemies at the same time.
+	 * @param ai The enemy's AI.
+	 * @param delta Time since last update.
+	 */
+	void moveEnemy(Ai ai, double delta) {
+		Enemy enemy = ai.getEnemy();
+		if(!enemy.isFlyingUnit()){
+			enemy.applyGravity(delta);
+		}
+		
+		ai.update(delta);
+		enemy.move(delta);
+		applyNormalForce(enemy);
+		
+		enemy.updateVulnerability();
+	}
+	
+	/**
+	 * Check if an enemy has collided with the character or any allied bullets
+	 * and act appropriately. Bullets that pass through enemies hit the enemy
+	 * at once. The other bullets are only noted, since a later enemy in the
+	 * list may be hit earlier along the bullet's move.
+	 * @param enemy The enemy.
+	 */
+	private void collideEnemy(Enemy enemy) {
+		// see if enemy has collided with the character and act appropriately
+		if (enemy.hasCollidedWith(character)) {
+			character.collide(enemy);
+			enemy.collide(character);
+		}
+
+		//see if enemy has collided with any bullets and act appropriately
+		alliedBulletGrid.getNearby(enemy, nearbyBullets);
+		for (int i = 0; i < nearbyBullets.size(); i++) {
+			Bullet bullet = nearbyBullets.get(i);
 
-			//see if enemy has collided with any bullets and act appropriately
-			List<Bullet> newBullets = new ArrayList<Bullet>();
-			List<Bullet> expiredBullets = new ArrayList<Bullet>();
+			// Test the whole path the bullet moved, so fast bullets can't pass
+			// through the enemy.
+			double hit = SweptCollision.sweep(bullet, enemy);
+			if (hit == SweptCollision.NO_HIT)
+				continue;
 			
-			for (Iterator<Bullet> j = alliedBulletsList.iterator(); j.hasNext(); ) {
-				Bullet bullet = j.next();
-
-				if (enemy.hasCollidedWith(bullet)) {
-					enemy.collide(bullet);
-					bullet.collide(enemy);
-
-					// this shouldn't be levels responsibility, but I do not
-					// know where to put it otherwise
-
-					if (bullet.getName() == ObjectName.ROCKETR || bullet.getName() == ObjectName.ROCKETL)
-						newBullets.add(ExplosionFactory.getExplosion(bullet));
-					
-					//remove the colliding bullets if they aren't laserBullets or explosions
-					if(!(bullet.isExplosion() || bullet.getName().equals(ObjectName.LASER_BULLET))) {
-						expiredBullets.add(bullet);
-					}
-				}
+			// laserBullets and explosions hit every enemy they pass
+			if (bullet.isExplosion() || bullet.getName().equals(ObjectName.LASER_BULLET)) {
+				hitEnemy(enemy, bullet);
+				continue;
 			}
-			alliedBulletsList.removeAll(expiredBullets);
-			alliedBulletsList.addAll(newBullets);
+			
+			int index = bullet.getEntityIndex();
+			if (firstHitEnemies[index] == null)
+				firstHitIndexes[firstHitCount++] = index;
+			else if (hit >= firstHitTimes[index])
+				continue;
+			firstHitEnemies[index] = enemy;
+			firstHitTimes[index] = hit;
+		}
+	}
+	
+	/**
+	 * Let every bullet that hit an enemy, and doesn't pass through enemies,
+	 * hit the enemy it hit first and then remove it.
+	 */
+	private void resolveFirstHits() {
+		for (int i = 0; i < firstHitCount; i++) {
+			int index = firstHitIndexes[i];
+			Bullet bullet = alliedBulletsList.get(index);
+			alliedBulletsList.markRemoved(index);
+			// Put the bullet where it hit the enemy.
+			SweptCollision.moveBack(bullet, firstHitTimes[index]);
+			hitEnemy(firstHitEnemies[index], bullet);
+			firstHitEnemies[index] = null;
+		}
+		firstHitCount = 0;
+	}
+	
+	/**
+	 * Let a bullet hit an enemy.
+	 * @param enemy The enemy.
+	 * @param bullet The allied bullet.
+	 */
+	private void hitEnemy(Enemy enemy, Bullet bullet) {
+		enemy.collide(bullet);
+		bullet.collide(enemy);
+
+		// this shouldn't be levels responsibility, but I do not
+		// know where to put it otherwise
+
+		if (bullet.getName() == ObjectName.ROCKETR || bullet.getName() == ObjectName.ROCKETL) {
+			spawnQueue.getAlliedBullets().add(ExplosionFactory.getExplosion(bullet));
 		}
 	}
 
 
 	/**
-	 * Update all bullets in the level.
+	 * Update all enemy bullets.
 	 * @param delta Time sine last update.
 	 */
-	private void updateBullets(double delta, List<Bullet> bulletList) {
+	private void updateEnemyBullets(double delta) {
+		enemyBulletStore.update(delta, tileGrid, spawnQueue.getAlliedBullets());
+	}
+
+	/**
+	 * Update all allied bullets in the level.
+	 * @param delta Time sine last update.
+	 */
+	private void updateBullets(double delta) {
+		EntityList<Bullet> bulletList = alliedBulletsList;
 		for (int i = 0; i < bulletList.size(); i++) {
+			// Skip the bullets that have already hit an enemy.
+			if (bulletList.isMarkedRemoved(i))
+				continue;
+			
 			Bullet bullet = bulletList.get(i);
 			bullet.update(delta);
 			bullet.move(delta);
 			
-			//if a bullet hits a solid tile
-			if (tileGrid.intersectsWith(bullet)) {
+			// A bullet that leaves the loaded part of a streamed tile grid is
+			// far from the character, and is removed instead of having the
+			// chunks it reaches loaded.
+			if (!tileGrid.isAreaLoaded(Math.min(bullet.getX(), bullet.getPX()), Math.min(bullet.getY(), bullet.getPY()),
+					bullet.getWidth() + Math.abs(bullet.getX() - bullet.getPX()),
+					bullet.getHeight() + Math.abs(bullet.getY() - bullet.getPY()))) {
+				bulletList.markRemoved(i);
+				continue;
+			}
+			
+			//if a bullet hits a solid tile somewhere along its move
+			double hit = tileGrid.sweep(bullet);
+			if (hit != SweptCollision.NO_HIT) {
+				
+				// Put the bullet where it first hit the tile, so explosions
+				// and laser fire start there.
+				if (!bullet.isExplosion())
+					SweptCollision.moveBack(bullet, hit);
 				
 				if (bullet.getName() == ObjectName.ROCKETR  || bullet.getName() == ObjectName.ROCKETL)
-					bulletList.add(ExplosionFactory.getExplosion(bullet));
+					spawnQueue.getAlliedBullets().add(ExplosionFactory.getExplosion(bullet));
 				
 				
 				if (bullet.getName().equals(ObjectName.LASERBOLT)) {
-					alliedBulletsList.add(new LaserFire(bullet));
+					spawnQueue.getAlliedBullets().add(BulletPool.getLaserFire(bullet));
 				}
 				
 				//if the bullet is an explosion, do not remove it unless its past its duration
 				//otherwise, remove the bullet
 				if (!bullet.isExplosion()){
-					bulletList.remove(i);
+					bulletList.markRemoved(i);
+					continue;
 				}
 			}
 			
 			if (bullet.isExplosion()){
 				if(((Explosion)bullet).getAge() > Constants.EXPLOSIONDURATION){
-					bulletList.remove(i);
+					bulletList.markRemoved(i);
 				}
 			}
 			
@@ -288,10 +627,12 @@ public class Level {
 	 * Remove item if it is picked-up.
 	 */
 	public void updateItems() {
-		for (Iterator<Item> i = items.iterator(); i.hasNext(); ) {
-			Item item = i.next();
+		itemGrid.getNearby(character, nearbyItems);
+		for (int i = 0; i < nearbyItems.size(); i++) {
+			Item item = nearbyItems.get(i);
 			if (character.hasCollidedWith(item)) {
-				i.remove();
+				items.remove(item);
+				itemGrid.remove(item);
 				character.collide(item);
 			}
 		}
@@ -451,6 +792,65 @@ public class Level {
 		return character;
 	}
 	
+	/**
+	 * Let the enemies' AI and movement be updated on several threads when
+	 * there are many enemies. Collisions are still checked one enemy at a
+	 * time, and the bullets and enemies that the enemies create are added in
+	 * the same order as without threads.
+	 * @param pool The pool the enemies are updated in, or null to update them
+	 *            one at a time.
+	 */
+	public void setAiPool(ForkJoinPool pool) {
+		parallelAi = pool == null ? null : new ParallelAiUpdate(pool);
+	}
+	
+	/**
+	 * Only move the enemies and update their AI when they are close to the
+	 * character, so the time an update takes depends on what's around the
+	 * character instead of on the size of the level. The region is centered
+	 * on the character.
+	 * @param width The width of the screen in the model's units.
+	 * @param height The height of the screen in the model's units.
+	 * @param margin How many tiles outside the screen the region reaches.
+	 */
+	public void setActivityRegion(double width, double height, int margin) {
+		if (width < 0 || height < 0 || margin < 0)
+			throw new IllegalArgumentException("The activity region can't have a negative size.");
+		activeHalfWidth = width / 2 + margin * Constants.TILESIZE;
+		activeHalfHeight = height / 2 + margin * Constants.TILESIZE;
+	}
+	
+	/**
+	 * Set how many tiles around the character are copied into the snapshots
+	 * and drawn. Only tiles in loaded chunks are copied; the rest are drawn
+	 * as air.
+	 * @param tilesX How many tiles to the left and right of the character.
+	 * @param tilesY How many tiles above and below the character.
+	 */
+	public void setVisibleTiles(int tilesX, int tilesY) {
+		if (tilesX < 0 || tilesY < 0)
+			throw new IllegalArgumentException("The number of visible tiles can't be negative.");
+		visibleTilesX = tilesX;
+		visibleTilesY = tilesY;
+	}
+	
+	/**
+	 * Move and update all enemies in the level, no matter where they are.
+	 * This is the default.
+	 */
+	public void clearActivityRegion() {
+		activeHalfWidth = -1;
+		activeHalfHeight = -1;
+	}
+	
+	/**
+	 * Returns the level's clock.
+	 * @return The clock.
+	 */
+	public SimulationClock getClock() {
+		return clock;
+	}
+	
 	/**
 	 * Returns the list of allied bullets.
 	 * @return The list of bullets.
@@ -459,23 +859,21 @@ public class Level {
 		return alliedBulletsList;
 	}
 	/**
-	 * returns the list of enemy bullets
-	 * @return the list of enemy bullets
+	 * returns the enemy bullets
+	 * @return the enemy bullets
 	 */
-	public Collection<Bullet> getEnemyBulletList() {
-		return enemyBulletList;
+	public BulletView getEnemyBullets() {
+		return enemyBulletStore;
 	}
 
 	/**
-	 * Returns the list of alive enemies.
+	 * Returns the list of alive enemies. The list is a view of the enemies in
+	 * the level, so it changes when the level is updated and can't be changed
+	 * itself. The same list is returned every time.
 	 * @return The list of alive enemies.
 	 */
-	public Collection<Enemy> getEnemies() {
-		Collection<Enemy> enemySet = new HashSet<Enemy>();
-		for(Ai ai : enemies ){
-			enemySet.add(ai.getEnemy());
-		}
-		return enemySet;
+	public List<Enemy> getEnemies() {
+		return enemyView;
 	}
 
 	/**
@@ -485,4 +883,178 @@ public class Level {
 	public Collection<Item> getItemList() {
 		return items;
 	}
+	
+	/**
+	 * Copy everything that is drawn into a snapshot, so it can be drawn on
+	 * another thread while the level is updated. Should be called on the
+	 * thread that updates the level, between two updates.
+	 * @param snapshot The snapshot to fill in.
+	 */
+	public void writeSnapshot(FrameSnapshot snapshot) {
+		snapshot.clear();
+		
+		snapshot.setCharacter(character.getX(), character.getY(), character.getPX(), character.getPY(),
+				character.getWidth(), character.getHeight(), character.isFacingRight());
+		snapshot.setCharacterState(character.isDead(), character.isDashing(), character.isAirborne(),
+				character.isRunning(), character.isImmortal());
+		snapshot.setHud(character.getWeapon().getName(), character.getHealth(),
+				character.getMaxHealth(), character.getWeaponLoadedPercentage());
+		snapshot.setOutcome(hasWon, hasLost);
+		
+		int centerX = tileGrid.getTilePosFromRealPos(character.getX() + character.getWidth() / 2);
+		int centerY = tileGrid.getTilePosFromRealPos(character.getY() + character.getHeight() / 2);
+		snapshot.setTiles(tileGrid, centerX - visibleTilesX, centerY - visibleTilesY,
+				2 * visibleTilesX + 1, 2 * visibleTilesY + 1);
+		
+		FrameSnapshot.Sprites enemySprites = snapshot.getEnemies();
+		for (int i = 0; i < enemies.size(); i++) {
+			Enemy enemy = enemies.get(i).getEnemy();
+			int index = enemySprites.add(enemy.getX(), enemy.getY(), enemy.getPX(), enemy.getPY(),
+					enemy.getWidth(), enemy.getHeight(), enemy.getName());
+			enemySprites.setFacingRight(index, enemy.isFacingRight());
+			enemySprites.setFlashing(index, enemy.recentlytookDamage());
+		}
+		
+		FrameSnapshot.Sprites enemyBulletSprites = snapshot.getEnemyBullets();
+		for (int i = 0; i < enemyBulletStore.size(); i++) {
+			int index = enemyBulletSprites.add(enemyBulletStore.getX(i), enemyBulletStore.getY(i),
+					enemyBulletStore.getPreviousX(i), enemyBulletStore.getPreviousY(i), enemyBulletStore.getWidth(i), enemyBulletStore.getHeight(i), enemyBulletStore.getName(i));
+			enemyBulletSprites.setRotation(index, enemyBulletStore.getRotation(i));
+		}
+		
+		FrameSnapshot.Sprites alliedBulletSprites = snapshot.getAlliedBullets();
+		for (int i = 0; i < alliedBulletsList.size(); i++) {
+			Bullet bullet = alliedBulletsList.get(i);
+			alliedBulletSprites.add(bullet.getX(), bullet.getY(), bullet.getPX(), bullet.getPY(),
+					bullet.getWidth(), bullet.getHeight(), bullet.getName());
+		}
+		
+		FrameSnapshot.Sprites itemSprites = snapshot.getItems();
+		for (Item item : items) {
+			itemSprites.add(item.getX(), item.getY(), item.getPX(), item.getPY(),
+					item.getWidth(), item.getHeight(), item.getName());
+		}
+	}
+	
+	/**
+	 * The items and enemies of a chunk, while they aren't in the level.
+	 */
+	private static final class ChunkEntities {
+		private final List<Item> items = new ArrayList<Item>();
+		private final List<Ai> enemies = new ArrayList<Ai>();
+		
+		private boolean isEmpty() {
+			return items.isEmpty() && enemies.isEmpty();
+		}
+	}
+	
+	/**
+	 * Loads and unloads the items and enemies of a streamed level with the
+	 * chunks they are in. The first time a chunk is loaded, its items and
+	 * enemies are created by a ChunkPopulator. When it's unloaded, the items
+	 * and enemies that are in it are taken out of the level and kept with the
+	 * chunk until it's loaded again, so killed enemies and picked up items
+	 * don't come back.
+	 * 
+	 * The chunks are loaded on other threads, so what they bring is queued
+	 * and added to the level by addArrived() on the level's own thread.
+	 */
+	private final class StreamedEntities implements TileGrid.ChunkListener {
+		
+		private final ChunkPopulator populator;
+		
+		/**
+		 * The chunks that have been populated.
+		 */
+		private final Set<Long> populated = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+		
+		/**
+		 * The items and enemies of the chunks that aren't loaded.
+		 */
+		private final ConcurrentMap<Long, ChunkEntities> parked = new ConcurrentHashMap<Long, ChunkEntities>();
+		
+		/**
+		 * The items and enemies of the chunks that have been loaded, until
+		 * they are added to the level.
+		 */
+		private final Queue<ChunkEntities> arrived = new ConcurrentLinkedQueue<ChunkEntities>();
+		
+		private StreamedEntities(ChunkPopulator populator) {
+			this.populator = populator;
+		}
+		
+		@Override
+		public void chunkLoaded(int chunkX, int chunkY) {
+			long key = chunkKey(chunkX, chunkY);
+			ChunkEntities entities = parked.remove(key);
+			if (entities == null) {
+				if (!populated.add(key))
+					return;
+				entities = new ChunkEntities();
+				try {
+					populator.populate(chunkX, chunkY, entities.items, entities.enemies);
+				} catch (RuntimeException e) {
+					// Whatever was created is dropped, and the chunk is
+					// populated again the next time it's loaded.
+					e.printStackTrace();
+					populated.remove(key);
+					return;
+				}
+			}
+			if (!entities.isEmpty())
+				arrived.add(entities);
+		}
+		
+		@Override
+		public void chunkUnloaded(int chunkX, int chunkY) {
+			// Whatever the chunk has brought must be in the level, so it's
+			// taken out with the rest.
+			addArrived();
+			
+			ChunkEntities entities = new ChunkEntities();
+			for (int i = enemies.size() - 1; i >= 0; i--) {
+				if (isInChunk(enemies.get(i).getEnemy(), chunkX, chunkY))
+					entities.enemies.add(enemies.remove(i));
+			}
+			for (Iterator<Item> it = items.iterator(); it.hasNext();) {
+				Item item = it.next();
+				if (isInChunk(item, chunkX, chunkY)) {
+					it.remove();
+					itemGrid.remove(item);
+					entities.items.add(item);
+				}
+			}
+			if (!entities.isEmpty())
+				parked.put(chunkKey(chunkX, chunkY), entities);
+		}
+		
+		/**
+		 * Add the items and enemies of the chunks that have been loaded to
+		 * the level.
+		 */
+		private void addArrived() {
+			ChunkEntities entities;
+			while ((entities = arrived.poll()) != null) {
+				for (int i = 0; i < entities.items.size(); i++) {
+					Item item = entities.items.get(i);
+					items.add(item);
+					itemGrid.insert(item);
+				}
+				for (int i = 0; i < entities.enemies.size(); i++) {
+					Ai ai = entities.enemies.get(i);
+					ai.getEnemy().setClock(clock);
+					enemies.add(ai);
+				}
+			}
+		}
+		
+		private boolean isInChunk(InteractiveObject obj, int chunkX, int chunkY) {
+			return tileGrid.getTilePosFromRealPos(obj.getX() + obj.getWidth() / 2) >> TileChunk.SHIFT == chunkX
+					&& tileGrid.getTilePosFromRealPos(obj.getY() + obj.getHeight() / 2) >> TileChunk.SHIFT == chunkY;
+		}
+		
+		private long chunkKey(int chunkX, int chunkY) {
+			return ((long)chunkY << 32) | (chunkX & 0xFFFFFFFFL);
+		}
+	}
 }
\ No newline at end of file
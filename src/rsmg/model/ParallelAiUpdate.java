@@ -0,0 +1,150 @@
+package rsmg.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import rsmg.model.ai.Ai;
+import rsmg.model.object.bullet.Bullet;
+
+/**
+ * Runs the AI and the movement of the enemies on several threads. The enemy
+ * list is split into chunks that are updated by a ForkJoinPool.
+ *
+ * The enemies fire bullets and spawn new enemies by adding them to the lists
+ * of the level's SpawnQueue. While the chunks are updated those lists are
+ * buffering, so every chunk puts what it adds in buffers of its own. When all
+ * chunks are done the buffers are appended to the shared lists in chunk
+ * order, which gives the same order as when the enemies are updated one at a
+ * time.
+ */
+class ParallelAiUpdate {
+
+	/**
+	 * Number of enemies in every chunk.
+	 */
+	static final int CHUNK_SIZE = 32;
+
+	private final ForkJoinPool pool;
+
+	/**
+	 * The chunks. They are reused between the updates.
+	 */
+	private final List<Chunk> chunks = new ArrayList<Chunk>();
+
+	/**
+	 * Task that starts the chunks inside the pool.
+	 */
+	private final Root root = new Root();
+
+	private Level level;
+	private EntityList<Ai> enemies;
+	private SpawnQueue spawnQueue;
+	private double delta;
+
+	/**
+	 * @param pool The pool that runs the chunks.
+	 */
+	ParallelAiUpdate(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Update the enemies of a list in parallel. Enemies that are dead or
+	 * dormant are skipped.
+	 *
+	 * @param level The level that the enemies are in.
+	 * @param enemies The enemies.
+	 * @param spawnQueue The queue the enemies put their bullets and new
+	 *            enemies in.
+	 * @param delta Time since last update.
+	 */
+	void update(Level level, EntityList<Ai> enemies, SpawnQueue spawnQueue,
+			double delta) {
+		this.level = level;
+		this.enemies = enemies;
+		this.spawnQueue = spawnQueue;
+		this.delta = delta;
+		SpawnList<Ai> spawnedEnemies = spawnQueue.getEnemyList();
+		SpawnList<Bullet> enemyBullets = spawnQueue.getEnemyBulletList();
+		int count = enemies.size();
+
+		int chunkCount = (count + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		while (chunks.size() < chunkCount)
+			chunks.add(new Chunk());
+		for (int i = 0; i < chunkCount; i++) {
+			Chunk chunk = chunks.get(i);
+			chunk.reinitialize();
+			chunk.from = i * CHUNK_SIZE;
+			chunk.to = Math.min(count, chunk.from + CHUNK_SIZE);
+		}
+		root.reinitialize();
+		root.chunkCount = chunkCount;
+
+		spawnedEnemies.setBuffering(true);
+		enemyBullets.setBuffering(true);
+		try {
+			pool.invoke(root);
+		} finally {
+			spawnedEnemies.setBuffering(false);
+			enemyBullets.setBuffering(false);
+		}
+
+		// Merge the buffers in the same order as the enemies are in.
+		for (int i = 0; i < chunkCount; i++) {
+			Chunk chunk = chunks.get(i);
+			spawnedEnemies.addAll(chunk.spawnedEnemies);
+			enemyBullets.addAll(chunk.firedBullets);
+			chunk.spawnedEnemies.clear();
+			chunk.firedBullets.clear();
+		}
+		this.level = null;
+		this.enemies = null;
+		this.spawnQueue = null;
+	}
+
+	/**
+	 * Task that runs all chunks and waits for them.
+	 */
+	private class Root extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private int chunkCount;
+
+		@Override
+		protected void compute() {
+			invokeAll(chunks.subList(0, chunkCount));
+		}
+	}
+
+	/**
+	 * Task that updates a range of enemies.
+	 */
+	private class Chunk extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private int from;
+		private int to;
+		private final List<Ai> spawnedEnemies = new ArrayList<Ai>();
+		private final List<Bullet> firedBullets = new ArrayList<Bullet>();
+
+		@Override
+		protected void compute() {
+			spawnQueue.getEnemyList().setThreadBuffer(spawnedEnemies);
+			spawnQueue.getEnemyBulletList().setThreadBuffer(firedBullets);
+			try {
+				for (int i = from; i < to; i++) {
+					Ai ai = enemies.get(i);
+					if (ai.getEnemy().isDead())
+						continue;
+					if (level.isActive(ai.getEnemy()))
+						level.moveEnemy(ai, delta);
+					else
+						ai.getEnemy().holdPosition();
+				}
+			} finally {
+				spawnQueue.getEnemyList().setThreadBuffer(null);
+				spawnQueue.getEnemyBulletList().setThreadBuffer(null);
+			}
+		}
+	}
+}
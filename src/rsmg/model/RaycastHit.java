@@ -0,0 +1,88 @@
+package rsmg.model;
+
+/**
+ * Where a ray cast with TileGrid.raycast() hit a solid tile. The same object
+ * is meant to be reused for many rays, so the raycast doesn't create any
+ * objects.
+ */
+public class RaycastHit {
+
+	private int tileX;
+	private int tileY;
+	private double x;
+	private double y;
+	private double distance;
+	private int normalX;
+	private int normalY;
+
+	/**
+	 * Store a hit. Only called by TileGrid.
+	 */
+	void set(int tileX, int tileY, double x, double y, double distance, int normalX, int normalY) {
+		this.tileX = tileX;
+		this.tileY = tileY;
+		this.x = x;
+		this.y = y;
+		this.distance = distance;
+		this.normalX = normalX;
+		this.normalY = normalY;
+	}
+
+	/**
+	 * Returns the column of the tile that was hit.
+	 * @return X coordinate in the grid.
+	 */
+	public int getTileX() {
+		return tileX;
+	}
+
+	/**
+	 * Returns the row of the tile that was hit.
+	 * @return Y coordinate in the grid.
+	 */
+	public int getTileY() {
+		return tileY;
+	}
+
+	/**
+	 * Returns where the ray entered the tile.
+	 * @return X coordinate in the model.
+	 */
+	public double getX() {
+		return x;
+	}
+
+	/**
+	 * Returns where the ray entered the tile.
+	 * @return Y coordinate in the model.
+	 */
+	public double getY() {
+		return y;
+	}
+
+	/**
+	 * Returns how far the ray travelled before it hit the tile.
+	 * @return The distance.
+	 */
+	public double getDistance() {
+		return distance;
+	}
+
+	/**
+	 * Returns the horizontal direction of the side of the tile that was hit.
+	 * @return -1 for the left side, 1 for the right side and 0 if the top or
+	 *         bottom side was hit.
+	 */
+	public int getNormalX() {
+		return normalX;
+	}
+
+	/**
+	 * Returns the vertical direction of the side of the tile that was hit.
+	 * @return -1 for the top side, 1 for the bottom side and 0 if the left or
+	 *         right side was hit.
+	 */
+	public int getNormalY() {
+		return normalY;
+	}
+}
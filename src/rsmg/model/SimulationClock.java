@@ -0,0 +1,55 @@
+package rsmg.model;
+
+/**
+ * Keeps track of how much time that has been simulated in a level. The clock
+ * only moves when the level is updated, so cooldowns and other timers in the
+ * model run at the same speed as the rest of the game, no matter if the game
+ * is paused, runs with a fixed timestep or is fast-forwarded by the
+ * simulator.
+ */
+public class SimulationClock {
+
+	/**
+	 * A time long before the clock started. Used as the time of things that
+	 * haven't happened yet, so that cooldowns are over from the start.
+	 */
+	public static final long NEVER = Long.MIN_VALUE / 2;
+
+	/**
+	 * Simulated time in seconds.
+	 */
+	private double time;
+
+	/**
+	 * Move the clock forward.
+	 * @param delta Time in seconds.
+	 */
+	public void advance(double delta) {
+		if (delta < 0)
+			throw new IllegalArgumentException("The clock can't go backwards.");
+		time += delta;
+	}
+
+	/**
+	 * Returns the simulated time.
+	 * @return The time in seconds since the clock started.
+	 */
+	public double getTime() {
+		return time;
+	}
+
+	/**
+	 * Returns the simulated time in milliseconds.
+	 * @return The time in milliseconds since the clock started.
+	 */
+	public long getTimeMillis() {
+		return (long)(time * 1000);
+	}
+
+	/**
+	 * Set the clock back to zero.
+	 */
+	public void reset() {
+		time = 0;
+	}
+}
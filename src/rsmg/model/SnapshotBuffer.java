@@ -0,0 +1,79 @@
+package rsmg.model;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands FrameSnapshots from the thread that updates a level to the thread
+ * that draws it, without locks. There are three snapshots: one that is being
+ * written, one that is being read, and the latest finished one in between.
+ * The writer swaps the one it has filled in with the one in between, and the
+ * reader swaps the one it has drawn with the one in between if a newer one
+ * has been published. Neither thread ever waits for the other, and a
+ * snapshot is never written while it's being read.
+ *
+ * If the writer publishes several snapshots before the reader asks for one,
+ * only the latest one is drawn.
+ */
+public class SnapshotBuffer {
+
+	/**
+	 * Set in the middle index when the middle snapshot hasn't been read.
+	 */
+	private static final int FRESH = 4;
+	private static final int INDEX_MASK = 3;
+
+	private final FrameSnapshot[] snapshots = {
+			new FrameSnapshot(), new FrameSnapshot(), new FrameSnapshot() };
+
+	/**
+	 * The index of the snapshot in between, and if it's fresh.
+	 */
+	private final AtomicInteger middle = new AtomicInteger(2);
+
+	/**
+	 * Only used by the writer.
+	 */
+	private int writeIndex = 0;
+
+	/**
+	 * Only used by the reader.
+	 */
+	private int readIndex = 1;
+
+	/**
+	 * Returns the snapshot that the writer should fill in. Only called by the
+	 * writer.
+	 * @return The snapshot.
+	 */
+	public FrameSnapshot getWriteSnapshot() {
+		return snapshots[writeIndex];
+	}
+
+	/**
+	 * Publish the snapshot that has been filled in. The writer gets another
+	 * snapshot to fill in next time. Only called by the writer.
+	 */
+	public void publish() {
+		writeIndex = middle.getAndSet(writeIndex | FRESH) & INDEX_MASK;
+	}
+
+	/**
+	 * Returns the latest published snapshot. The snapshot isn't changed until
+	 * this is called again. Only called by the reader.
+	 * @return The snapshot.
+	 */
+	public FrameSnapshot getReadSnapshot() {
+		if ((middle.get() & FRESH) != 0)
+			readIndex = middle.getAndSet(readIndex) & INDEX_MASK;
+		return snapshots[readIndex];
+	}
+
+	/**
+	 * Returns if a snapshot has been published that the reader hasn't got
+	 * yet.
+	 * @return If there is a newer snapshot.
+	 */
+	public boolean hasNewSnapshot() {
+		return (middle.get() & FRESH) != 0;
+	}
+}
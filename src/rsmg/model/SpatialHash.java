@@ -0,0 +1,276 @@
+package rsmg.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Set;
+
+import rsmg.model.object.InteractiveObject;
+import rsmg.model.variables.Constants;
+
+/**
+ * A uniform grid that is used as a broad phase for the collision checks in a
+ * level. The grid's cells are as large as a tile, and every object is stored
+ * in all cells that it overlaps. When checking what an object collides with,
+ * only the objects in the cells around it have to be tested, instead of every
+ * object in the level.
+ *
+ * The cells are hashed into a fixed number of buckets, so the memory used
+ * doesn't depend on how large the level is. Two cells may end up in the same
+ * bucket, but that only means that a query can return a few extra candidates
+ * which the exact collision check will then reject.
+ *
+ * A grid can be swept, and then every object is stored in the cells that it
+ * has passed on its way from its previous position to its current one. Fast
+ * objects are then found by queries along their whole path.
+ *
+ * @param <T> The type of objects stored in the grid.
+ */
+public class SpatialHash<T extends InteractiveObject> {
+
+	/**
+	 * Number of buckets used if nothing else is specified.
+	 */
+	private static final int DEFAULT_BUCKETS = 1024;
+
+	/**
+	 * The buckets that the cells are hashed into.
+	 */
+	private final List<List<T>> buckets;
+
+	/**
+	 * Used to map a hash value to a bucket. The number of buckets is always a
+	 * power of two.
+	 */
+	private final int mask;
+
+	/**
+	 * Indices of the buckets that contain objects, so clear() only has to
+	 * touch those.
+	 */
+	private int[] usedBuckets;
+	private int usedCount;
+
+	/**
+	 * If the objects are stored along the path from their previous positions.
+	 */
+	private final boolean swept;
+
+	/**
+	 * The objects that a query has found so far. An object that lies in
+	 * several cells is then only returned once, without the result list being
+	 * searched. The set is reused by every query.
+	 */
+	private final Set<T> found = Collections.newSetFromMap(new IdentityHashMap<T, Boolean>());
+
+	/**
+	 * Create a spatial hash with a default number of buckets.
+	 */
+	public SpatialHash() {
+		this(DEFAULT_BUCKETS, false);
+	}
+
+	/**
+	 * Create a spatial hash with a default number of buckets.
+	 *
+	 * @param swept
+	 *            If the objects should be stored in all cells that they have
+	 *            passed since their previous positions.
+	 */
+	public SpatialHash(boolean swept) {
+		this(DEFAULT_BUCKETS, swept);
+	}
+
+	/**
+	 * Create a spatial hash.
+	 *
+	 * @param bucketCount
+	 *            Minimum number of buckets. It is rounded up to a power of two.
+	 */
+	public SpatialHash(int bucketCount) {
+		this(bucketCount, false);
+	}
+
+	/**
+	 * Create a spatial hash.
+	 *
+	 * @param bucketCount
+	 *            Minimum number of buckets. It is rounded up to a power of two.
+	 * @param swept
+	 *            If the objects should be stored in all cells that they have
+	 *            passed since their previous positions.
+	 */
+	public SpatialHash(int bucketCount, boolean swept) {
+		this.swept = swept;
+		int size = Integer.highestOneBit(Math.max(bucketCount - 1, 1)) << 1;
+		mask = size - 1;
+		buckets = new ArrayList<List<T>>(size);
+		for (int i = 0; i < size; i++) {
+			buckets.add(new ArrayList<T>(4));
+		}
+		usedBuckets = new int[16];
+	}
+
+	/**
+	 * Remove all objects from the grid. The buckets are kept so they can be
+	 * reused when the grid is filled again.
+	 */
+	public void clear() {
+		for (int i = 0; i < usedCount; i++) {
+			buckets.get(usedBuckets[i]).clear();
+		}
+		usedCount = 0;
+	}
+
+	/**
+	 * Insert an object into all cells that it overlaps, or that it has passed
+	 * if the grid is swept.
+	 *
+	 * @param obj The object.
+	 */
+	public void insert(T obj) {
+		double minX = swept ? Math.min(obj.getX(), obj.getPX()) : obj.getX();
+		double minY = swept ? Math.min(obj.getY(), obj.getPY()) : obj.getY();
+		int left = cell(minX);
+		int right = cell((swept ? Math.max(obj.getX(), obj.getPX()) : obj.getX()) + obj.getWidth());
+		int top = cell(minY);
+		int bottom = cell((swept ? Math.max(obj.getY(), obj.getPY()) : obj.getY()) + obj.getHeight());
+
+		for (int x = left; x <= right; x++) {
+			for (int y = top; y <= bottom; y++) {
+				int index = bucket(x, y);
+				List<T> bucket = buckets.get(index);
+				// The same object can hash into the same bucket from two
+				// different cells.
+				if (bucket.isEmpty()) {
+					markUsed(index);
+				} else if (bucket.get(bucket.size() - 1) == obj) {
+					continue;
+				}
+				bucket.add(obj);
+			}
+		}
+	}
+
+	/**
+	 * Insert several objects into the grid.
+	 *
+	 * @param objects The objects.
+	 */
+	public void insertAll(Collection<? extends T> objects) {
+		if (objects instanceof List && objects instanceof RandomAccess) {
+			// Loop without an iterator, since this is done every update.
+			List<? extends T> list = (List<? extends T>)objects;
+			for (int i = 0; i < list.size(); i++) {
+				insert(list.get(i));
+			}
+			return;
+		}
+		for (T obj : objects) {
+			insert(obj);
+		}
+	}
+
+	/**
+	 * Remove an object from the grid. The object must not have moved since it
+	 * was inserted.
+	 *
+	 * @param obj The object.
+	 */
+	public void remove(T obj) {
+		double minX = swept ? Math.min(obj.getX(), obj.getPX()) : obj.getX();
+		double minY = swept ? Math.min(obj.getY(), obj.getPY()) : obj.getY();
+		int left = cell(minX);
+		int right = cell((swept ? Math.max(obj.getX(), obj.getPX()) : obj.getX()) + obj.getWidth());
+		int top = cell(minY);
+		int bottom = cell((swept ? Math.max(obj.getY(), obj.getPY()) : obj.getY()) + obj.getHeight());
+
+		for (int x = left; x <= right; x++) {
+			for (int y = top; y <= bottom; y++) {
+				List<T> bucket = buckets.get(bucket(x, y));
+				for (int i = bucket.size() - 1; i >= 0; i--) {
+					if (bucket.get(i) == obj) {
+						bucket.remove(i);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Collect all objects that lie in the same cells as the given object. The
+	 * result may contain objects that don't actually collide with it, so an
+	 * exact collision check still has to be done.
+	 *
+	 * @param obj The object to look around.
+	 * @param result List that the candidates are written to. It is cleared
+	 *            before anything is added.
+	 * @return The result list.
+	 */
+	public List<T> getNearby(InteractiveObject obj, List<T> result) {
+		result.clear();
+		int left = cell(obj.getX());
+		int right = cell(obj.getX() + obj.getWidth());
+		int top = cell(obj.getY());
+		int bottom = cell(obj.getY() + obj.getHeight());
+
+		// An object is never stored twice in a bucket, so the candidates in a
+		// single cell don't have to be checked for duplicates.
+		if (left == right && top == bottom) {
+			List<T> bucket = buckets.get(bucket(left, top));
+			for (int i = 0; i < bucket.size(); i++) {
+				result.add(bucket.get(i));
+			}
+			return result;
+		}
+
+		for (int x = left; x <= right; x++) {
+			for (int y = top; y <= bottom; y++) {
+				List<T> bucket = buckets.get(bucket(x, y));
+				for (int i = 0; i < bucket.size(); i++) {
+					T candidate = bucket.get(i);
+					if (found.add(candidate)) {
+						result.add(candidate);
+					}
+				}
+			}
+		}
+		found.clear();
+		return result;
+	}
+
+	/**
+	 * Get the cell that a coordinate in the model lies in.
+	 * @param realPos The coordinate.
+	 * @return The cell.
+	 */
+	private static int cell(double realPos) {
+		return (int)Math.floor(realPos / Constants.TILESIZE);
+	}
+
+	/**
+	 * Get the bucket that a cell is hashed into.
+	 * @param x The cell's x coordinate.
+	 * @param y The cell's y coordinate.
+	 * @return Index of the bucket.
+	 */
+	private int bucket(int x, int y) {
+		return ((x * 73856093) ^ (y * 19349663)) & mask;
+	}
+
+	/**
+	 * Remember that a bucket has content.
+	 * @param index Index of the bucket.
+	 */
+	private void markUsed(int index) {
+		if (usedCount == usedBuckets.length) {
+			int[] larger = new int[usedBuckets.length * 2];
+			System.arraycopy(usedBuckets, 0, larger, 0, usedCount);
+			usedBuckets = larger;
+		}
+		usedBuckets[usedCount++] = index;
+	}
+}
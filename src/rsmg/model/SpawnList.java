@@ -0,0 +1,97 @@
+package rsmg.model;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A list in a SpawnQueue. The objects that are created during an update are
+ * added to it, and it is emptied when the queue is flushed.
+ *
+ * When the enemies are updated on several threads at the same time, the
+ * elements they add can be put in a buffer of their thread instead, and be
+ * appended to the list in a fixed order afterwards. See setBuffering().
+ *
+ * @param <T> The type of the elements.
+ */
+class SpawnList<T> extends AbstractList<T> implements RandomAccess {
+
+	private final ArrayList<T> elements = new ArrayList<T>();
+
+	/**
+	 * If the elements that threads add should be put in their buffers.
+	 */
+	private volatile boolean buffering;
+
+	/**
+	 * The buffer of every thread that has one.
+	 */
+	private final ThreadLocal<List<T>> threadBuffer = new ThreadLocal<List<T>>();
+
+	@Override
+	public T get(int index) {
+		return elements.get(index);
+	}
+
+	@Override
+	public int size() {
+		return elements.size();
+	}
+
+	/**
+	 * Add an element to the end of the list, or to the current thread's
+	 * buffer if the list is buffering and the thread has a buffer.
+	 */
+	@Override
+	public void add(int index, T element) {
+		if (buffering) {
+			List<T> buffer = threadBuffer.get();
+			if (buffer != null) {
+				buffer.add(element);
+				return;
+			}
+		}
+		elements.add(index, element);
+		modCount++;
+	}
+
+	@Override
+	public T remove(int index) {
+		modCount++;
+		return elements.remove(index);
+	}
+
+	/**
+	 * Remove all elements. The list keeps its capacity, so it doesn't have to
+	 * grow again in the next update.
+	 */
+	@Override
+	public void clear() {
+		elements.clear();
+		modCount++;
+	}
+
+	/**
+	 * Turn buffering on or off. While it's on, elements that are added by a
+	 * thread that has a buffer are put in that buffer instead of in the list.
+	 * The buffers are then appended to the list by the thread that turned on
+	 * the buffering, after it has been turned off.
+	 * @param buffering If the adds should be buffered.
+	 */
+	void setBuffering(boolean buffering) {
+		this.buffering = buffering;
+	}
+
+	/**
+	 * Set the buffer that the current thread adds elements to while the list
+	 * is buffering.
+	 * @param buffer The buffer, or null if the thread shouldn't have one.
+	 */
+	void setThreadBuffer(List<T> buffer) {
+		if (buffer == null)
+			threadBuffer.remove();
+		else
+			threadBuffer.set(buffer);
+	}
+}
@@ -0,0 +1,73 @@
+package rsmg.model;
+
+import java.util.List;
+
+import rsmg.model.ai.Ai;
+import rsmg.model.object.bullet.Bullet;
+
+/**
+ * Collects the bullets, explosions and enemies that are created while a level
+ * is being updated. Nothing that is added here is part of the level until the
+ * level flushes the queue, which it does once at the start of every update.
+ * The lists of the level are therefore never added to while they are being
+ * looped over.
+ *
+ * The weapons, the enemies and the AI that spawns enemies are given the lists
+ * of the queue instead of the lists of the level.
+ */
+public class SpawnQueue {
+
+	private final SpawnList<Bullet> alliedBullets = new SpawnList<Bullet>();
+	private final SpawnList<Bullet> enemyBullets = new SpawnList<Bullet>();
+	private final SpawnList<Ai> enemies = new SpawnList<Ai>();
+
+	/**
+	 * Returns the list where new bullets and explosions from the character are
+	 * put.
+	 * @return The list.
+	 */
+	public List<Bullet> getAlliedBullets() {
+		return alliedBullets;
+	}
+
+	/**
+	 * Returns the list where new bullets from the enemies are put.
+	 * @return The list.
+	 */
+	public List<Bullet> getEnemyBullets() {
+		return enemyBullets;
+	}
+
+	/**
+	 * Returns the list where new enemies are put.
+	 * @return The list.
+	 */
+	public List<Ai> getEnemies() {
+		return enemies;
+	}
+
+	/**
+	 * Returns if nothing is waiting in the queue.
+	 * @return If all lists are empty.
+	 */
+	public boolean isEmpty() {
+		return alliedBullets.isEmpty() && enemyBullets.isEmpty() && enemies.isEmpty();
+	}
+
+	/**
+	 * Remove everything that is waiting in the queue.
+	 */
+	public void clear() {
+		alliedBullets.clear();
+		enemyBullets.clear();
+		enemies.clear();
+	}
+
+	SpawnList<Bullet> getEnemyBulletList() {
+		return enemyBullets;
+	}
+
+	SpawnList<Ai> getEnemyList() {
+		return enemies;
+	}
+}
@@ -0,0 +1,100 @@
+package rsmg.model;
+
+import rsmg.model.object.InteractiveObject;
+
+/**
+ * Collision tests along the path an object has moved during an update,
+ * instead of only at the position where it ended up. Fast bullets can move
+ * further than the size of an enemy in one update, and would otherwise pass
+ * straight through it.
+ *
+ * Times are given as the fraction of the move, where 0 is the position
+ * before the move and 1 the position after it.
+ */
+public final class SweptCollision {
+
+	/**
+	 * Returned when there is no hit.
+	 */
+	public static final double NO_HIT = -1;
+
+	private SweptCollision() {
+	}
+
+	/**
+	 * Find when a moving rectangle first overlaps a still rectangle. Touching
+	 * edges don't count as an overlap.
+	 *
+	 * @param x The moving rectangle's horizontal position before the move.
+	 * @param y The moving rectangle's vertical position before the move.
+	 * @param width The moving rectangle's width.
+	 * @param height The moving rectangle's height.
+	 * @param dx How far the rectangle moved horizontally.
+	 * @param dy How far the rectangle moved vertically.
+	 * @param targetX The still rectangle's horizontal position.
+	 * @param targetY The still rectangle's vertical position.
+	 * @param targetWidth The still rectangle's width.
+	 * @param targetHeight The still rectangle's height.
+	 * @return The time of the first overlap, or NO_HIT.
+	 */
+	public static double sweep(double x, double y, double width, double height, double dx, double dy,
+			double targetX, double targetY, double targetWidth, double targetHeight) {
+		double enter = 0;
+		double exit = 1;
+
+		// Horizontally the rectangles overlap while
+		// targetX - width < x + dx * t < targetX + targetWidth.
+		if (dx == 0) {
+			if (x <= targetX - width || x >= targetX + targetWidth)
+				return NO_HIT;
+		} else {
+			double t1 = (targetX - width - x) / dx;
+			double t2 = (targetX + targetWidth - x) / dx;
+			enter = Math.max(enter, Math.min(t1, t2));
+			exit = Math.min(exit, Math.max(t1, t2));
+		}
+
+		if (dy == 0) {
+			if (y <= targetY - height || y >= targetY + targetHeight)
+				return NO_HIT;
+		} else {
+			double t1 = (targetY - height - y) / dy;
+			double t2 = (targetY + targetHeight - y) / dy;
+			enter = Math.max(enter, Math.min(t1, t2));
+			exit = Math.min(exit, Math.max(t1, t2));
+		}
+
+		return enter < exit ? enter : NO_HIT;
+	}
+
+	/**
+	 * Find when an object that has moved during the last update first
+	 * overlapped another object. The other object is treated as if it had
+	 * stood still where it is now. If the objects collide according to
+	 * InteractiveObject.hasCollidedWith() the result is never NO_HIT.
+	 *
+	 * @param moving The object that has moved.
+	 * @param target The other object.
+	 * @return The time of the first overlap, or NO_HIT.
+	 */
+	public static double sweep(InteractiveObject moving, InteractiveObject target) {
+		double t = sweep(moving.getPX(), moving.getPY(), moving.getWidth(), moving.getHeight(),
+				moving.getX() - moving.getPX(), moving.getY() - moving.getPY(),
+				target.getX(), target.getY(), target.getWidth(), target.getHeight());
+		if (t == NO_HIT && target.hasCollidedWith(moving))
+			return 1;
+		return t;
+	}
+
+	/**
+	 * Move an object back along its last move, to where it was at a time
+	 * during the move.
+	 *
+	 * @param obj The object.
+	 * @param t The time.
+	 */
+	public static void moveBack(InteractiveObject obj, double t) {
+		obj.setPosition(obj.getPX() + (obj.getX() - obj.getPX()) * t,
+				obj.getPY() + (obj.getY() - obj.getPY()) * t);
+	}
+}
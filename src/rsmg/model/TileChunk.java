@@ -0,0 +1,172 @@
+package rsmg.model;
+
+import rsmg.model.tile.Tiles;
+
+/**
+ * A square part of a tile grid, SIZE tiles wide and high. Every tile is
+ * stored as its code from the Tiles class, and if it's solid as one bit in
+ * the long of its row.
+ *
+ * A chunk is created with all its tiles and is only changed through
+ * TileGrid.set(), so it can be created on another thread and then handed to
+ * the grid. A shared chunk is never changed; the grid changes a copy of it
+ * instead.
+ */
+public final class TileChunk {
+
+	/**
+	 * log2 of SIZE.
+	 */
+	public static final int SHIFT = 6;
+
+	/**
+	 * Number of tiles on each side of a chunk.
+	 */
+	public static final int SIZE = 1 << SHIFT;
+
+	/**
+	 * Used to get the position of a tile inside its chunk.
+	 */
+	static final int MASK = SIZE - 1;
+
+	/**
+	 * If a tile with a code is solid.
+	 */
+	private static final boolean[] SOLID_CODES = new boolean[Tiles.getCodeCount()];
+
+	static {
+		for (byte code = 0; code < SOLID_CODES.length; code++)
+			SOLID_CODES[code] = Tiles.get(code).isSolid();
+	}
+
+	/**
+	 * The code of every tile, row by row.
+	 */
+	private final byte[] codes;
+
+	/**
+	 * One long per row, where bit x is set if the tile in column x is solid.
+	 */
+	private final long[] solid = new long[SIZE];
+
+	/**
+	 * If the chunk has been changed since it was created.
+	 */
+	private boolean modified;
+
+	/**
+	 * If the chunk is used by several grids and must not be changed.
+	 */
+	private boolean shared;
+
+	/**
+	 * Create a chunk with only air.
+	 */
+	public TileChunk() {
+		this(new byte[SIZE * SIZE]);
+	}
+
+	/**
+	 * Create a chunk.
+	 * @param codes The code of every tile, row by row. The array is used by
+	 *            the chunk and must not be changed afterwards.
+	 * @throws IllegalArgumentException If the array has the wrong length or
+	 *             contains a code that isn't a tile's.
+	 */
+	public TileChunk(byte[] codes) {
+		this(codes, true);
+	}
+
+	/**
+	 * Create a chunk, and work out which tiles are solid unless the caller
+	 * fills that in.
+	 */
+	private TileChunk(byte[] codes, boolean check) {
+		if (codes.length != SIZE * SIZE)
+			throw new IllegalArgumentException("A chunk has " + SIZE * SIZE + " tiles, not " + codes.length + ".");
+		this.codes = codes;
+		if (!check)
+			return;
+		for (int i = 0; i < codes.length; i++) {
+			byte code = codes[i];
+			if (code < 0 || code >= SOLID_CODES.length)
+				throw new IllegalArgumentException(code + " is not a tile code.");
+			if (SOLID_CODES[code])
+				solid[i >>> SHIFT] |= 1L << (i & MASK);
+		}
+	}
+
+	/**
+	 * Returns a new chunk with the same tiles. The copy can be changed without
+	 * changing this chunk.
+	 * @return The copy.
+	 */
+	public TileChunk copy() {
+		TileChunk copy = new TileChunk(codes.clone(), false);
+		System.arraycopy(solid, 0, copy.solid, 0, SIZE);
+		return copy;
+	}
+
+	/**
+	 * Let several grids use the chunk. A grid that changes a tile in a shared
+	 * chunk first replaces the chunk with a copy of it. Should be called
+	 * before the chunk is handed to another thread.
+	 */
+	public void share() {
+		shared = true;
+	}
+
+	/**
+	 * Returns if the chunk is shared and must be copied before it's changed.
+	 * @return If the chunk is shared.
+	 */
+	boolean isShared() {
+		return shared;
+	}
+
+	/**
+	 * Returns the code of a tile.
+	 * @param x The tile's column in the chunk.
+	 * @param y The tile's row in the chunk.
+	 * @return The code.
+	 */
+	public byte getCode(int x, int y) {
+		return codes[(y << SHIFT) + x];
+	}
+
+	/**
+	 * Check if a tile is solid.
+	 * @param x The tile's column in the chunk.
+	 * @param y The tile's row in the chunk.
+	 * @return If the tile is solid.
+	 */
+	boolean isSolid(int x, int y) {
+		return (solid[y] & (1L << x)) != 0;
+	}
+
+	/**
+	 * Change a tile.
+	 * @param x The tile's column in the chunk.
+	 * @param y The tile's row in the chunk.
+	 * @param code The tile's new code.
+	 */
+	void set(int x, int y, byte code) {
+		if (shared)
+			throw new IllegalStateException("A shared chunk can't be changed.");
+		codes[(y << SHIFT) + x] = code;
+		if (SOLID_CODES[code])
+			solid[y] |= 1L << x;
+		else
+			solid[y] &= ~(1L << x);
+		modified = true;
+	}
+
+	/**
+	 * Returns if the chunk has been changed since it was created. Changed
+	 * chunks are never unloaded, since the changes would be lost.
+	 * @return If the chunk has been changed.
+	 */
+	boolean isModified() {
+		return modified;
+	}
+}
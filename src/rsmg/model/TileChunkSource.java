@@ -0,0 +1,39 @@
+package rsmg.model;
+
+/**
+ * Where a streamed TileGrid gets its chunks from. The grid asks for a chunk
+ * when the character comes close to it, and may ask for it again after it has
+ * been unloaded. Chunks can be asked for from other threads than the one
+ * updating the level.
+ */
+public interface TileChunkSource {
+
+	/**
+	 * Returns the number of tiles horizontally in the level.
+	 * @return Number of tiles horizontally.
+	 */
+	public int getWidth();
+
+	/**
+	 * Returns the number of tiles vertically in the level.
+	 * @return Number of tiles vertically.
+	 */
+	public int getHeight();
+
+	/**
+	 * Returns the positions of all tiles of a special kind in the level, so
+	 * the grid can find them without loading every chunk.
+	 * @param kind TileGrid.SPAWN or TileGrid.END.
+	 * @return The positions as x and y in the grid, one pair after the other.
+	 */
+	public int[] getFeatures(byte kind);
+
+	/**
+	 * Read a chunk. Tiles that are outside the level should be air.
+	 * @param chunkX The chunk's column, in chunks.
+	 * @param chunkY The chunk's row, in chunks.
+	 * @return The chunk.
+	 * @throws IllegalStateException If the chunk can't be read.
+	 */
+	public TileChunk loadChunk(int chunkX, int chunkY);
+}
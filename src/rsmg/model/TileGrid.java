@@ -1,19 +1,173 @@
 package rsmg.model;
 
 import java.awt.Point;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import rsmg.model.object.InteractiveObject;
-import rsmg.model.tile.EndTile;
-import rsmg.model.tile.SpawnTile;
 import rsmg.model.tile.Tile;
+import rsmg.model.tile.Tiles;
 import rsmg.model.variables.Constants;
+import rsmg.model.variables.ObjectName;
 
 /**
  * Contains information about the Tile[][]
+ *
+ * The tiles are stored in chunks of TileChunk.SIZE * TileChunk.SIZE tiles.
+ * A chunk keeps one byte per tile with the tile's code from Tiles, and one
+ * bit per tile that tells if it's solid, so the collision queries don't have
+ * to look at any Tile objects.
+ *
+ * A grid created from a Tile[][] has all its chunks in memory. A grid created
+ * from a TileChunkSource is streamed: only the chunks around the character
+ * are loaded, in the background, and the chunks far away are unloaded again.
+ * See streamAround(). If a query needs a chunk that isn't loaded, it's loaded
+ * at once. A ChunkListener is told about the loads and unloads, so what is
+ * placed in a chunk can be loaded and unloaded with it.
+ *
+ * The positions of the special tiles, i.e. the tiles that aren't air or
+ * ground, are indexed by kind and by position for the whole grid. The spawn
+ * point and overlaps with the end tile are then found without walking the
+ * grid or loading any chunks.
  */
 public class TileGrid {
 
-	private Tile[][] grid;
+	/**
+	 * Told when the chunks of a streamed grid are loaded and unloaded.
+	 */
+	public interface ChunkListener {
+
+		/**
+		 * Called once every time a chunk has been loaded, on the thread that
+		 * loaded it. That is usually the grid's loader, but can be any thread
+		 * that makes a query.
+		 * @param chunkX The chunk's column.
+		 * @param chunkY The chunk's row.
+		 */
+		public void chunkLoaded(int chunkX, int chunkY);
+
+		/**
+		 * Called just before a chunk is unloaded, on the thread that calls
+		 * streamAround(). Never called before chunkLoaded() has returned for
+		 * the same load.
+		 * @param chunkX The chunk's column.
+		 * @param chunkY The chunk's row.
+		 */
+		public void chunkUnloaded(int chunkX, int chunkY);
+	}
+
+	/**
+	 * The kinds of tiles in the grid.
+	 */
+	public static final byte AIR = 0;
+	public static final byte GROUND = 1;
+	public static final byte SPAWN = 2;
+	public static final byte END = 3;
+
+	/**
+	 * Number of tile kinds.
+	 */
+	private static final int KIND_COUNT = 4;
+
+	/**
+	 * The kind of the tiles with every tile code.
+	 */
+	private static final byte[] KIND_OF_CODE = new byte[Tiles.getCodeCount()];
+
+	static {
+		for (byte code = 0; code < KIND_OF_CODE.length; code++) {
+			Tile tile = Tiles.get(code);
+			if (tile.getName() == ObjectName.SPAWN_TILE)
+				KIND_OF_CODE[code] = SPAWN;
+			else if (tile.getName() == ObjectName.END_TILE)
+				KIND_OF_CODE[code] = END;
+			else
+				KIND_OF_CODE[code] = tile.isSolid() ? GROUND : AIR;
+		}
+	}
+
+	/**
+	 * Number of chunks around the character's chunk that are kept loaded in
+	 * a streamed grid, if nothing else is set.
+	 */
+	private static final int DEFAULT_STREAMING_RADIUS = 2;
+
+	private final int width;
+	private final int height;
+
+	/**
+	 * Number of chunks horizontally and vertically.
+	 */
+	private final int chunksX;
+	private final int chunksY;
+
+	/**
+	 * The chunks, row by row. Null for the chunks of a streamed grid that
+	 * aren't loaded.
+	 */
+	private final AtomicReferenceArray<TileChunk> chunks;
+
+	/**
+	 * Where the chunks of a streamed grid are read from, or null if all
+	 * chunks are in memory.
+	 */
+	private final TileChunkSource source;
+
+	/**
+	 * Runs the background loading of a streamed grid.
+	 */
+	private final Executor loader;
+
+	/**
+	 * The indexes of the chunks that are loaded, and of the chunks that are
+	 * being loaded in the background.
+	 */
+	private final Set<Integer> loadedChunks;
+	private final Set<Integer> pendingChunks;
+
+	/**
+	 * Told about the loads and unloads, or null.
+	 */
+	private volatile ChunkListener listener;
+
+	/**
+	 * Number of chunks around the character's chunk that are kept loaded.
+	 */
+	private int streamingRadius = DEFAULT_STREAMING_RADIUS;
+
+	/**
+	 * The chunk that the grid was last streamed around.
+	 */
+	private int streamedChunkX = -1;
+	private int streamedChunkY = -1;
+
+	/**
+	 * Number of chunks that had to be loaded at once because a query needed
+	 * them before the background loading was done. Queries can be made from
+	 * several threads, e.g. when the enemies are updated in parallel.
+	 */
+	private final AtomicInteger synchronousLoads = new AtomicInteger();
+
+	/**
+	 * The positions of the special tiles of every kind. Only the first
+	 * featureCounts[kind] elements are used. Null for the kinds that have no
+	 * tiles in the grid, and always for AIR and GROUND.
+	 */
+	private final int[][] featureXs = new int[KIND_COUNT][];
+	private final int[][] featureYs = new int[KIND_COUNT][];
+	private final int[] featureCounts = new int[KIND_COUNT];
+
+	/**
+	 * The special tiles by kind and position, so it can be checked if a tile
+	 * is of a special kind without walking the lists above.
+	 */
+	private final CellSet featureCells = new CellSet();
 
 	/**
 	 * Constructor. Gets the level specified from IO
@@ -22,7 +176,461 @@ public class TileGrid {
 	 *            Level that are going to run
 	 */
 	public TileGrid(Tile[][] grid) {
-		this.grid = grid;
+		this(grid[0].length, grid.length, null, null);
+		for (int i = 0; i < chunks.length(); i++) {
+			chunks.set(i, new TileChunk());
+		}
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				byte code = Tiles.getCode(grid[y][x].getName());
+				if (code != 0)
+					chunk(x >> TileChunk.SHIFT, y >> TileChunk.SHIFT).set(x & TileChunk.MASK, y & TileChunk.MASK, code);
+				addFeature(KIND_OF_CODE[code], x, y);
+			}
+		}
+	}
+
+	/**
+	 * Create a streamed grid. No chunks are loaded until they are needed or
+	 * streamAround() is called.
+	 * @param source Where the chunks are read from.
+	 * @param loader Runs the background loading of the chunks.
+	 */
+	public TileGrid(TileChunkSource source, Executor loader) {
+		this(source.getWidth(), source.getHeight(), source, loader);
+		addFeatures(source);
+	}
+
+	/**
+	 * Create a grid with all chunks read from a source at once. The grid
+	 * doesn't keep the source and isn't streamed.
+	 * @param source Where the chunks are read from.
+	 */
+	public TileGrid(TileChunkSource source) {
+		this(source.getWidth(), source.getHeight(), null, null);
+		for (int chunkY = 0; chunkY < chunksY; chunkY++) {
+			for (int chunkX = 0; chunkX < chunksX; chunkX++) {
+				chunks.set(chunkY * chunksX + chunkX, source.loadChunk(chunkX, chunkY));
+			}
+		}
+		addFeatures(source);
+	}
+
+	private TileGrid(int width, int height, TileChunkSource source, Executor loader) {
+		if (width <= 0 || height <= 0)
+			throw new IllegalArgumentException("A tile grid must have at least one tile.");
+		this.width = width;
+		this.height = height;
+		this.source = source;
+		this.loader = loader;
+		chunksX = (width + TileChunk.MASK) >> TileChunk.SHIFT;
+		chunksY = (height + TileChunk.MASK) >> TileChunk.SHIFT;
+		chunks = new AtomicReferenceArray<TileChunk>(chunksX * chunksY);
+		loadedChunks = Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+		pendingChunks = Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+	}
+
+	/**
+	 * Returns a chunk that may be changed. A shared chunk is replaced with a
+	 * copy of it the first time it's changed.
+	 * @param chunkX The chunk's column.
+	 * @param chunkY The chunk's row.
+	 * @return The chunk.
+	 */
+	private TileChunk writableChunk(int chunkX, int chunkY) {
+		TileChunk chunk = chunk(chunkX, chunkY);
+		if (chunk.isShared()) {
+			chunk = chunk.copy();
+			chunks.set(chunkY * chunksX + chunkX, chunk);
+		}
+		return chunk;
+	}
+
+	/**
+	 * Returns a chunk, and loads it at once if it isn't loaded.
+	 * @param chunkX The chunk's column.
+	 * @param chunkY The chunk's row.
+	 * @return The chunk.
+	 */
+	private TileChunk chunk(int chunkX, int chunkY) {
+		int index = chunkY * chunksX + chunkX;
+		TileChunk chunk = chunks.get(index);
+		if (chunk == null) {
+			synchronousLoads.incrementAndGet();
+			chunk = load(chunkX, chunkY, index);
+		}
+		return chunk;
+	}
+
+	/**
+	 * Load a chunk from the source, unless it has been loaded by another
+	 * thread in the meantime. Only the thread that loads it tells the
+	 * listener, and the chunk can't be unloaded until it has.
+	 * @return The loaded chunk.
+	 */
+	private TileChunk load(int chunkX, int chunkY, int index) {
+		TileChunk chunk = source.loadChunk(chunkX, chunkY);
+		if (!chunks.compareAndSet(index, null, chunk))
+			return chunks.get(index);
+		try {
+			ChunkListener listener = this.listener;
+			if (listener != null)
+				listener.chunkLoaded(chunkX, chunkY);
+		} finally {
+			loadedChunks.add(index);
+		}
+		return chunk;
+	}
+
+	/**
+	 * Set what is told about the chunks that are loaded and unloaded. Should
+	 * be set before any chunk is loaded.
+	 * @param listener The listener, or null.
+	 */
+	public void setChunkListener(ChunkListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Set how many chunks around the character's chunk that are kept loaded
+	 * in a streamed grid.
+	 * @param radius Number of chunks in every direction.
+	 */
+	public void setStreamingRadius(int radius) {
+		if (radius < 0)
+			throw new IllegalArgumentException("The streaming radius can't be negative.");
+		streamingRadius = radius;
+	}
+
+	/**
+	 * Load the chunks around a position at once, e.g. where the character
+	 * starts, and then stream the grid around it. Does nothing for a grid
+	 * that isn't streamed.
+	 * @param x X coordinate in the model.
+	 * @param y Y coordinate in the model.
+	 */
+	public void loadAround(double x, double y) {
+		if (source == null)
+			return;
+		int centerX = clamp(getTilePosFromRealPos(x) >> TileChunk.SHIFT, chunksX);
+		int centerY = clamp(getTilePosFromRealPos(y) >> TileChunk.SHIFT, chunksY);
+		for (int chunkY = Math.max(0, centerY - streamingRadius); chunkY <= Math.min(chunksY - 1, centerY + streamingRadius); chunkY++) {
+			for (int chunkX = Math.max(0, centerX - streamingRadius); chunkX <= Math.min(chunksX - 1, centerX + streamingRadius); chunkX++) {
+				int index = chunkY * chunksX + chunkX;
+				if (chunks.get(index) == null)
+					load(chunkX, chunkY, index);
+			}
+		}
+		streamAround(x, y);
+	}
+
+	/**
+	 * Start loading the chunks around a position in the background, and
+	 * unload the chunks that are far from it. Chunks that have been changed
+	 * with set() are kept. Does nothing for a grid that isn't streamed, or if
+	 * the position is in the same chunk as the last time.
+	 * @param x X coordinate in the model.
+	 * @param y Y coordinate in the model.
+	 */
+	public void streamAround(double x, double y) {
+		if (source == null)
+			return;
+		int centerX = clamp(getTilePosFromRealPos(x) >> TileChunk.SHIFT, chunksX);
+		int centerY = clamp(getTilePosFromRealPos(y) >> TileChunk.SHIFT, chunksY);
+		if (centerX == streamedChunkX && centerY == streamedChunkY)
+			return;
+		streamedChunkX = centerX;
+		streamedChunkY = centerY;
+
+		for (int chunkY = Math.max(0, centerY - streamingRadius); chunkY <= Math.min(chunksY - 1, centerY + streamingRadius); chunkY++) {
+			for (int chunkX = Math.max(0, centerX - streamingRadius); chunkX <= Math.min(chunksX - 1, centerX + streamingRadius); chunkX++) {
+				final int index = chunkY * chunksX + chunkX;
+				if (chunks.get(index) != null || !pendingChunks.add(index))
+					continue;
+				final int loadX = chunkX;
+				final int loadY = chunkY;
+				loader.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							load(loadX, loadY, index);
+						} catch (RuntimeException e) {
+							// The chunk is loaded at once when it's needed
+							// instead, and the error is reported then.
+						} finally {
+							pendingChunks.remove(index);
+						}
+					}
+				});
+			}
+		}
+
+		// Unload the chunks that are more than one chunk outside the radius,
+		// so moving back and forth over a chunk border doesn't reload them.
+		int keep = streamingRadius + 1;
+		for (Iterator<Integer> it = loadedChunks.iterator(); it.hasNext();) {
+			int index = it.next();
+			int chunkX = index % chunksX;
+			int chunkY = index / chunksX;
+			if (Math.abs(chunkX - centerX) <= keep && Math.abs(chunkY - centerY) <= keep)
+				continue;
+			TileChunk chunk = chunks.get(index);
+			if (chunk != null && chunk.isModified())
+				continue;
+			ChunkListener listener = this.listener;
+			if (listener != null)
+				listener.chunkUnloaded(chunkX, chunkY);
+			chunks.set(index, null);
+			it.remove();
+		}
+	}
+
+	private static int clamp(int value, int count) {
+		return Math.max(0, Math.min(count - 1, value));
+	}
+
+	/**
+	 * Returns if the chunk with a tile is loaded. Always true for a grid that
+	 * isn't streamed.
+	 * @param x X coordinate in the grid.
+	 * @param y Y coordinate in the grid.
+	 * @return If the tile's chunk is loaded.
+	 */
+	public boolean isLoaded(int x, int y) {
+		checkBounds(x, y);
+		return chunks.get((y >> TileChunk.SHIFT) * chunksX + (x >> TileChunk.SHIFT)) != null;
+	}
+
+	/**
+	 * Check if all chunks that a rectangle overlaps are loaded, so nothing
+	 * inside it has to be loaded at once when it's asked for. The part of the
+	 * rectangle that is outside the grid is ignored. Always true for a grid
+	 * that isn't streamed.
+	 * @param x The rectangle's horizontal position in the model.
+	 * @param y The rectangle's vertical position in the model.
+	 * @param width The rectangle's width.
+	 * @param height The rectangle's height.
+	 * @return If the rectangle's chunks are loaded.
+	 */
+	public boolean isAreaLoaded(double x, double y, double width, double height) {
+		if (source == null)
+			return true;
+		int left = Math.max(0, (int)Math.floor(x / Constants.TILESIZE)) >> TileChunk.SHIFT;
+		int top = Math.max(0, (int)Math.floor(y / Constants.TILESIZE)) >> TileChunk.SHIFT;
+		int right = Math.min(this.width - 1, (int)Math.floor((x + width) / Constants.TILESIZE)) >> TileChunk.SHIFT;
+		int bottom = Math.min(this.height - 1, (int)Math.floor((y + height) / Constants.TILESIZE)) >> TileChunk.SHIFT;
+		for (int chunkY = top; chunkY <= bottom; chunkY++) {
+			for (int chunkX = left; chunkX <= right; chunkX++) {
+				if (chunks.get(chunkY * chunksX + chunkX) == null)
+					return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Returns if the grid is streamed, i.e. only has the chunks around the
+	 * character loaded.
+	 * @return If the grid is streamed.
+	 */
+	public boolean isStreamed() {
+		return source != null;
+	}
+
+	/**
+	 * Returns the number of chunks that a query had to load at once, because
+	 * the background loading wasn't done. The level keeps what it updates
+	 * inside the loaded chunks, so this should stay close to zero.
+	 * @return Number of chunks.
+	 */
+	public int getSynchronousLoads() {
+		return synchronousLoads.get();
+	}
+
+	private static boolean isFeature(byte kind) {
+		return kind != AIR && kind != GROUND;
+	}
+
+	private void addFeatures(TileChunkSource source) {
+		for (byte kind = 0; kind < KIND_COUNT; kind++) {
+			if (!isFeature(kind))
+				continue;
+			int[] positions = source.getFeatures(kind);
+			for (int i = 0; i + 1 < positions.length; i += 2)
+				addFeature(kind, positions[i], positions[i + 1]);
+		}
+	}
+
+	private void addFeature(byte kind, int x, int y) {
+		if (!isFeature(kind) || !featureCells.add(CellSet.key(kind, x, y)))
+			return;
+		int count = featureCounts[kind];
+		if (featureXs[kind] == null) {
+			featureXs[kind] = new int[4];
+			featureYs[kind] = new int[4];
+		} else if (count == featureXs[kind].length) {
+			featureXs[kind] = Arrays.copyOf(featureXs[kind], count * 2);
+			featureYs[kind] = Arrays.copyOf(featureYs[kind], count * 2);
+		}
+		featureXs[kind][count] = x;
+		featureYs[kind][count] = y;
+		featureCounts[kind]++;
+	}
+
+	private void removeFeature(byte kind, int x, int y) {
+		if (!isFeature(kind) || !featureCells.remove(CellSet.key(kind, x, y)))
+			return;
+		int[] xs = featureXs[kind];
+		int[] ys = featureYs[kind];
+		int last = featureCounts[kind] - 1;
+		for (int i = 0; i <= last; i++) {
+			if (xs[i] == x && ys[i] == y) {
+				xs[i] = xs[last];
+				ys[i] = ys[last];
+				featureCounts[kind]--;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of tiles of a kind in the grid. Only counted for the
+	 * special kinds; always 0 for AIR and GROUND.
+	 * @param kind The kind of tile, e.g. SPAWN or END.
+	 * @return The number of tiles.
+	 */
+	public int getFeatureCount(byte kind) {
+		return featureCounts[kind];
+	}
+
+	/**
+	 * Returns the position of a tile of a special kind.
+	 * @param kind The kind of tile, e.g. SPAWN or END.
+	 * @param i Which of the tiles, from 0 to getFeatureCount(kind) - 1.
+	 * @return The tile's position in the grid.
+	 */
+	public Point getFeature(byte kind, int i) {
+		if (i < 0 || i >= featureCounts[kind])
+			throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + featureCounts[kind]);
+		return new Point(featureXs[kind][i], featureYs[kind][i]);
+	}
+
+	/**
+	 * Check if a rectangle of tiles contains a tile of a special kind. Only
+	 * the tiles in the rectangle are looked up, unless there are fewer tiles
+	 * of the kind than that.
+	 * @param kind The kind of tile, e.g. END.
+	 * @param leftX The leftmost column.
+	 * @param topY The top row.
+	 * @param rightX The rightmost column.
+	 * @param bottomY The bottom row.
+	 * @return If any tile of the kind is inside the rectangle.
+	 */
+	public boolean containsFeature(byte kind, int leftX, int topY, int rightX, int bottomY) {
+		int count = featureCounts[kind];
+		leftX = Math.max(leftX, 0);
+		topY = Math.max(topY, 0);
+		rightX = Math.min(rightX, width - 1);
+		bottomY = Math.min(bottomY, height - 1);
+		if (count == 0 || leftX > rightX || topY > bottomY)
+			return false;
+
+		if ((long)(rightX - leftX + 1) * (bottomY - topY + 1) <= count) {
+			for (int y = topY; y <= bottomY; y++) {
+				for (int x = leftX; x <= rightX; x++) {
+					if (featureCells.contains(CellSet.key(kind, x, y)))
+						return true;
+				}
+			}
+			return false;
+		}
+
+		int[] xs = featureXs[kind];
+		int[] ys = featureYs[kind];
+		for (int i = 0; i < count; i++) {
+			if (xs[i] >= leftX && xs[i] <= rightX && ys[i] >= topY && ys[i] <= bottomY)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Throw an exception if a tile is outside the grid.
+	 * @param x X coordinate in the grid.
+	 * @param y Y coordinate in the grid.
+	 */
+	private void checkBounds(int x, int y) {
+		if (x < 0 || x >= width || y < 0 || y >= height)
+			throw new ArrayIndexOutOfBoundsException("Tile (" + x + ", " + y + ") is outside the grid.");
+	}
+
+	/**
+	 * Check if the tile on a grid coordinate is solid.
+	 * @param x X coordinate in the grid.
+	 * @param y Y coordinate in the grid.
+	 * @return If the tile is solid.
+	 */
+	public boolean isSolid(int x, int y) {
+		checkBounds(x, y);
+		return chunk(x >> TileChunk.SHIFT, y >> TileChunk.SHIFT).isSolid(x & TileChunk.MASK, y & TileChunk.MASK);
+	}
+
+	/**
+	 * Returns the code from Tiles of the tile on a grid coordinate.
+	 * @param x X coordinate in the grid.
+	 * @param y Y coordinate in the grid.
+	 * @return The tile's code.
+	 */
+	private byte getCode(int x, int y) {
+		checkBounds(x, y);
+		return chunk(x >> TileChunk.SHIFT, y >> TileChunk.SHIFT).getCode(x & TileChunk.MASK, y & TileChunk.MASK);
+	}
+
+	/**
+	 * Copy the codes from Tiles of the tiles in a rectangle, without loading
+	 * any chunks. The tiles in chunks that aren't loaded and the tiles
+	 * outside the grid are copied as air, so this can be used to draw the
+	 * grid without stalling on a load.
+	 * @param left The rectangle's left column.
+	 * @param top The rectangle's top row.
+	 * @param width The rectangle's width in tiles.
+	 * @param height The rectangle's height in tiles.
+	 * @param codes Where the codes are written, row by row. Must have room
+	 *            for width * height codes.
+	 */
+	public void copyLoadedCodes(int left, int top, int width, int height, byte[] codes) {
+		for (int y = 0; y < height; y++) {
+			int tileY = top + y;
+			for (int x = 0; x < width; x++) {
+				int tileX = left + x;
+				byte code = 0;
+				if (tileX >= 0 && tileX < this.width && tileY >= 0 && tileY < this.height) {
+					TileChunk chunk = chunks.get((tileY >> TileChunk.SHIFT) * chunksX + (tileX >> TileChunk.SHIFT));
+					if (chunk != null)
+						code = chunk.getCode(tileX & TileChunk.MASK, tileY & TileChunk.MASK);
+				}
+				codes[y * width + x] = code;
+			}
+		}
+	}
+
+	/**
+	 * Returns what kind of tile there is on a grid coordinate.
+	 * @param x X coordinate in the grid.
+	 * @param y Y coordinate in the grid.
+	 * @return AIR, GROUND, SPAWN or END.
+	 */
+	public byte getKind(int x, int y) {
+		return KIND_OF_CODE[getCode(x, y)];
+	}
+
+	/**
+	 * Returns what kind the tiles with a code are.
+	 * @param code A tile code from Tiles.
+	 * @return AIR, GROUND, SPAWN or END.
+	 */
+	public static byte getKindOfCode(byte code) {
+		return KIND_OF_CODE[code];
 	}
 
 	/**
@@ -36,7 +644,13 @@ public class TileGrid {
 	 *            The tile to be set
 	 */
 	public void set(int x, int y, Tile tile) {
-		grid[y][x] = tile;
+		byte code = Tiles.getCode(tile.getName());
+		byte oldCode = getCode(x, y);
+		writableChunk(x >> TileChunk.SHIFT, y >> TileChunk.SHIFT).set(x & TileChunk.MASK, y & TileChunk.MASK, code);
+		if (KIND_OF_CODE[oldCode] != KIND_OF_CODE[code]) {
+			removeFeature(KIND_OF_CODE[oldCode], x, y);
+			addFeature(KIND_OF_CODE[code], x, y);
+		}
 	}
 
 	/**
@@ -46,17 +660,18 @@ public class TileGrid {
 	 * @return The Tile on the game coordinate.
 	 */
 	public Tile getTile(double x, double y) {
-		return grid[(int)y/Constants.TILESIZE][(int)x/Constants.TILESIZE];
+		return getFromCoord((int)x/Constants.TILESIZE, (int)y/Constants.TILESIZE);
 	}
 	
 	/**
-	 * Get the Tile on a grid coordinate.
+	 * Get the Tile on a grid coordinate. The tile is the shared instance from
+	 * Tiles with the same name as the tile that was put there.
 	 * @param x X coordinate in the grid.
 	 * @param y y coordinate in the grid.
 	 * @return The Tile on the given grid coordinate.
 	 */
 	public Tile getFromCoord(int x, int y) {
-		return grid[y][x];
+		return Tiles.get(getCode(x, y));
 	}
 	
 	/**
@@ -64,7 +679,7 @@ public class TileGrid {
 	 * @return Number of tiles horizontally.
 	 */
 	public int getWidth() {
-		return grid[0].length;
+		return width;
 	}
 	
 	/**
@@ -72,25 +687,37 @@ public class TileGrid {
 	 * @return Number of tiles vertically.
 	 */
 	public int getHeight() {
-		return grid.length;
+		return height;
 	}
 	
 	/**
-	 * Get the spawn position as a real position in the model.
+	 * Returns if the grid has a spawn tile.
+	 * @return If there is a spawn tile.
+	 */
+	public boolean hasSpawnPoint() {
+		return featureCounts[SPAWN] > 0;
+	}
+	
+	/**
+	 * Get the spawn position as a real position in the model. If there are
+	 * several spawn tiles, the leftmost one is used, and of those the top one.
 	 * @return The position where the spawn position is located.
-	 * @throws Exception If a spawn position can't be found.
+	 * @throws IllegalStateException If a spawn position can't be found.
 	 */
-	public Point getSpawnPoint() throws Exception {
-		for(int x = 0; x < getWidth(); x++) {
-			for(int y = 0; y < getHeight(); y++) {
-				if (grid[y][x] instanceof SpawnTile) {
-					return new Point(x*Constants.TILESIZE, y*Constants.TILESIZE);
-				}
-			}
+	public Point getSpawnPoint() {
+		if (!hasSpawnPoint())
+			throw new IllegalStateException("The tile grid has no spawn tile.");
+		
+		int[] xs = featureXs[SPAWN];
+		int[] ys = featureYs[SPAWN];
+		int best = 0;
+		for (int i = 1; i < featureCounts[SPAWN]; i++) {
+			if (xs[i] < xs[best] || (xs[i] == xs[best] && ys[i] < ys[best]))
+				best = i;
 		}
-		throw new Exception();
-		//TODO change to a specifed exception
+		return new Point(xs[best] * Constants.TILESIZE, ys[best] * Constants.TILESIZE);
 	}
+
 	
 	/**
 	 * Get tile number from a coordinate in the model.
@@ -110,24 +737,192 @@ public class TileGrid {
 	 * @return If the object intersects with any solid tiles.
 	 */
 	public boolean intersectsWith(InteractiveObject object) {
+		return intersectsWith(object.getX(), object.getY(), object.getWidth(), object.getHeight());
+	}
+	
+	/**
+	 * Check if a rectangle intersects with any solid tiles.
+	 * @param x The rectangle's horizontal position.
+	 * @param y The rectangle's vertical position.
+	 * @param width The rectangle's width.
+	 * @param height The rectangle's height.
+	 * @return If the rectangle intersects with any solid tiles.
+	 */
+	public boolean intersectsWith(double x, double y, double width, double height) {
 		
-		// Get the object's boundaries in the tile grid.
-		int leftX = getTilePosFromRealPos(object.getX());
-		int rightX = getTilePosFromRealPos(object.getX()+object.getWidth()-0.00001);
-		int topY = getTilePosFromRealPos(object.getY());
-		int bottomY = getTilePosFromRealPos(object.getY()+object.getHeight()-0.00001);
+		// Get the rectangle's boundaries in the tile grid.
+		int leftX = getTilePosFromRealPos(x);
+		int rightX = getTilePosFromRealPos(x+width-0.00001);
+		int topY = getTilePosFromRealPos(y);
+		int bottomY = getTilePosFromRealPos(y+height-0.00001);
 		
-		// Walk through all tiles that the object is lying over and check if any
-		// of those are solid.
-		for (int x = leftX; x <= rightX; x++) {
-			for (int y = topY; y <= bottomY; y++) {
-				if (grid[y][x].isSolid())
+		// Walk through all tiles that the rectangle is lying over and check if
+		// any of those are solid.
+		for (int tileX = leftX; tileX <= rightX; tileX++) {
+			for (int tileY = topY; tileY <= bottomY; tileY++) {
+				if (isSolid(tileX, tileY))
 					return true;
 			}
 		}
 		return false;
 	}
 	
+	/**
+	 * Find where a moving rectangle first intersects a solid tile. The
+	 * rectangle is tested at steps along its move that are never longer than
+	 * its own width or height, so it can't pass through a tile between two
+	 * updates.
+	 * @param x The rectangle's horizontal position before the move.
+	 * @param y The rectangle's vertical position before the move.
+	 * @param width The rectangle's width.
+	 * @param height The rectangle's height.
+	 * @param dx How far the rectangle moved horizontally.
+	 * @param dy How far the rectangle moved vertically.
+	 * @return The fraction of the move where the first solid tile was hit,
+	 *         or SweptCollision.NO_HIT. The position after the move is
+	 *         always tested.
+	 */
+	public double sweep(double x, double y, double width, double height, double dx, double dy) {
+		double step = Math.max(1, Math.min(Math.min(width, height), Constants.TILESIZE));
+		double distance = Math.max(Math.abs(dx), Math.abs(dy));
+		int steps = Math.max(1, (int)Math.ceil(distance / step));
+		for (int i = 1; i <= steps; i++) {
+			double t = (double)i / steps;
+			if (intersectsWith(x + dx * t, y + dy * t, width, height))
+				return t;
+		}
+		return SweptCollision.NO_HIT;
+	}
+	
+	/**
+	 * Find where an object that has moved during the last update first
+	 * intersected a solid tile.
+	 * @param object The interactive object.
+	 * @return The fraction of the move where the first solid tile was hit,
+	 *         or SweptCollision.NO_HIT.
+	 */
+	public double sweep(InteractiveObject object) {
+		return sweep(object.getPX(), object.getPY(), object.getWidth(), object.getHeight(),
+				object.getX() - object.getPX(), object.getY() - object.getPY());
+	}
+	
+	/**
+	 * Find the first solid tile along a ray. The tiles are visited one at a
+	 * time in the order the ray passes them (Amanatides and Woo's grid
+	 * traversal), so the time it takes depends on the length of the ray and
+	 * not on the size of the grid. Tiles outside the grid are never hit, but a
+	 * ray that starts outside the grid is followed from where it enters it.
+	 * @param x The ray's horizontal starting point.
+	 * @param y The ray's vertical starting point.
+	 * @param directionX The ray's horizontal direction.
+	 * @param directionY The ray's vertical direction.
+	 * @param maxDistance How far the ray reaches.
+	 * @param hit Where the hit is written, if there is one.
+	 * @return If a solid tile was hit. If the starting point is inside a solid
+	 *         tile, that tile is hit at distance 0.
+	 * @throws IllegalArgumentException If the direction has zero length.
+	 */
+	public boolean raycast(double x, double y, double directionX, double directionY,
+			double maxDistance, RaycastHit hit) {
+		double length = Math.sqrt(directionX * directionX + directionY * directionY);
+		if (length == 0)
+			throw new IllegalArgumentException("The ray must have a direction.");
+		double dirX = directionX / length;
+		double dirY = directionY / length;
+		int stepX = dirX > 0 ? 1 : (dirX < 0 ? -1 : 0);
+		int stepY = dirY > 0 ? 1 : (dirY < 0 ? -1 : 0);
+		
+		// Clip the ray to the grid, and remember which side it enters through.
+		double distance = 0;
+		double exit = maxDistance;
+		int normalX = 0;
+		int normalY = 0;
+		if (stepX == 0) {
+			if (x < 0 || x >= width * Constants.TILESIZE)
+				return false;
+		} else {
+			double t1 = -x / dirX;
+			double t2 = (width * Constants.TILESIZE - x) / dirX;
+			if (Math.min(t1, t2) > distance) {
+				distance = Math.min(t1, t2);
+				normalX = -stepX;
+			}
+			exit = Math.min(exit, Math.max(t1, t2));
+		}
+		if (stepY == 0) {
+			if (y < 0 || y >= height * Constants.TILESIZE)
+				return false;
+		} else {
+			double t1 = -y / dirY;
+			double t2 = (height * Constants.TILESIZE - y) / dirY;
+			if (Math.min(t1, t2) > distance) {
+				distance = Math.min(t1, t2);
+				normalX = 0;
+				normalY = -stepY;
+			}
+			exit = Math.min(exit, Math.max(t1, t2));
+		}
+		if (distance > exit)
+			return false;
+		
+		// The tile where the ray starts or enters the grid. A ray that enters
+		// lies on the grid's border, which may round to a tile outside it.
+		int tileX = Math.max(0, Math.min(width - 1, (int)Math.floor((x + dirX * distance) / Constants.TILESIZE)));
+		int tileY = Math.max(0, Math.min(height - 1, (int)Math.floor((y + dirY * distance) / Constants.TILESIZE)));
+		
+		// Distance along the ray to the next vertical and horizontal tile
+		// border, and between two borders.
+		double deltaX = stepX == 0 ? Double.POSITIVE_INFINITY : Constants.TILESIZE / Math.abs(dirX);
+		double deltaY = stepY == 0 ? Double.POSITIVE_INFINITY : Constants.TILESIZE / Math.abs(dirY);
+		double nextX = stepX == 0 ? Double.POSITIVE_INFINITY
+				: ((stepX > 0 ? tileX + 1 : tileX) * Constants.TILESIZE - x) / dirX;
+		double nextY = stepY == 0 ? Double.POSITIVE_INFINITY
+				: ((stepY > 0 ? tileY + 1 : tileY) * Constants.TILESIZE - y) / dirY;
+		
+		while (distance <= maxDistance
+				&& tileX >= 0 && tileX < width && tileY >= 0 && tileY < height) {
+			if (chunk(tileX >> TileChunk.SHIFT, tileY >> TileChunk.SHIFT).isSolid(tileX & TileChunk.MASK, tileY & TileChunk.MASK)) {
+				hit.set(tileX, tileY, x + dirX * distance, y + dirY * distance, distance, normalX, normalY);
+				return true;
+			}
+			
+			if (nextX < nextY) {
+				distance = nextX;
+				nextX += deltaX;
+				tileX += stepX;
+				normalX = -stepX;
+				normalY = 0;
+			} else {
+				distance = nextY;
+				nextY += deltaY;
+				tileY += stepY;
+				normalX = 0;
+				normalY = -stepY;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Check if there are no solid tiles on the line between two points.
+	 * @param x1 The first point's horizontal position.
+	 * @param y1 The first point's vertical position.
+	 * @param x2 The second point's horizontal position.
+	 * @param y2 The second point's vertical position.
+	 * @param hit Where the blocking tile is written, if there is one.
+	 * @return If the line doesn't pass any solid tile.
+	 */
+	public boolean hasLineOfSight(double x1, double y1, double x2, double y2, RaycastHit hit) {
+		double dx = x2 - x1;
+		double dy = y2 - y1;
+		if (dx == 0 && dy == 0) {
+			int x = getTilePosFromRealPos(x1);
+			int y = getTilePosFromRealPos(y1);
+			return x1 < 0 || y1 < 0 || x >= width || y >= height || !isSolid(x, y);
+		}
+		return !raycast(x1, y1, dx, dy, Math.sqrt(dx * dx + dy * dy), hit);
+	}
+	
 	/**
 	 * Returns how much the object is inside a tile to his left;
 	 * @param object The interactive object.
@@ -140,7 +935,7 @@ public class TileGrid {
 		int bottomY = getTilePosFromRealPos(object.getY()+object.getHeight());
 		
 		for (int y = topY; y <= bottomY; y++) {
-			if (grid[y][leftX].isSolid())
+			if (isSolid(leftX, y))
 				return (leftX + 1) * Constants.TILESIZE - object.getX();
 		}
 		return 0;
@@ -158,7 +953,7 @@ public class TileGrid {
 		int bottomY = getTilePosFromRealPos(object.getY()+object.getHeight());
 		
 		for (int y = topY; y <= bottomY; y++) {
-			if (grid[y][rightX].isSolid())
+			if (isSolid(rightX, y))
 				return object.getX() + object.getWidth() - rightX * Constants.TILESIZE - 0.00001;
 		}
 		return 0;
@@ -176,7 +971,7 @@ public class TileGrid {
 		int bottomY = getTilePosFromRealPos(object.getY()+object.getHeight());
 		
 		for (int x = leftX; x <= rightX; x++) {
-			if (grid[bottomY][x].isSolid())
+			if (isSolid(x, bottomY))
 				return object.getY() + object.getHeight() - bottomY * Constants.TILESIZE - 0.00001;
 		}
 		return 0;
@@ -194,7 +989,7 @@ public class TileGrid {
 		int topY = getTilePosFromRealPos(object.getY()+object.getHeight());
 		
 		for (int x = leftX; x <= rightX; x++) {
-			if (grid[topY][x].isSolid())
+			if (isSolid(x, topY))
 				return topY * Constants.TILESIZE - object.getY();
 		}
 		return 0;
@@ -207,7 +1002,7 @@ public class TileGrid {
 	 * @return If the tile is solid.
 	 */
 	public boolean tileIntersect(double x, double y) {
-		return getTile(x, y).isSolid();
+		return isSolid((int)x/Constants.TILESIZE, (int)y/Constants.TILESIZE);
 	}
 	
 	/**
@@ -223,15 +1018,7 @@ public class TileGrid {
 		int topY = getTilePosFromRealPos(object.getY());
 		int bottomY = getTilePosFromRealPos(object.getY()+object.getHeight());
 		
-		// Walk through all tiles that the object is lying over and check if any
-		// of them is the end tile.
-		for (int x = leftX; x <= rightX; x++) {
-			for (int y = topY; y <= bottomY; y++) {
-				if (grid[y][x] instanceof EndTile)
-					return true;
-			}
-		}
-		return false;
+		return containsFeature(END, leftX, topY, rightX, bottomY);
 	}
 
 	/**
@@ -80,7 +80,9 @@ public class BallBotAi implements Ai {
 	 * Spawns a MiniBallBot.
 	 */
 	private void spawnEnemy() {
-		enemyAiList.add(new RocketBotAi(new MiniBallBot(enemy.getX(), enemy.getY()), character));
+		MiniBallBot miniBallBot = new MiniBallBot(enemy.getX(), enemy.getY());
+		miniBallBot.setClock(enemy.getClock());
+		enemyAiList.add(new RocketBotAi(miniBallBot, character));
 	}
 
 	/**
@@ -49,6 +49,17 @@ public class BossBotAi implements Ai {
 	private static final int bulletSpeed = 200;
 	private static final int bulletSpeed2 = 230;
 	private Vector2d bulletVector = new Vector2d();
+	
+	/**
+	 * If bullets have been fired with the current bulletVector. Those bullets
+	 * keep the vector, so a new one is needed when the aim is reset.
+	 */
+	private boolean bulletVectorUsed = false;
+	
+	/**
+	 * Vector reused for the secondary attack, whose bullets copy it.
+	 */
+	private Vector2d bulletVector2 = new Vector2d();
 	private double offset = 0.05;
 	
 	/**
@@ -89,18 +100,23 @@ public class BossBotAi implements Ai {
 		
 		if (characterIsBehindBoss(playerX)) {
 			angle = Math.PI / 2.7;
-			bulletVector = new Vector2d();
+			// Give the bullets in the air their own vector so they stop
+			// following the aim.
+			if (bulletVectorUsed) {
+				bulletVector = new Vector2d();
+				bulletVectorUsed = false;
+			}
 		} else if (shouldAttack()) {
 			// do the primary attack
 			bulletVector.setX(-bulletSpeed * Math.cos(angle));
 			bulletVector.setY(bulletSpeed * Math.sin(angle));
 			enemy.shoot(bulletVector, angle);
+			bulletVectorUsed = true;
 		}
 		
 		if (shouldAttack2()) {
 			// do the second attack
 			double angle2 = Math.random() * Math.PI - 2;
-			Vector2d bulletVector2 = new Vector2d();
 			bulletVector2.setX(-bulletSpeed2 * Math.cos(angle2));
 			bulletVector2.setY(bulletSpeed2 * Math.sin(angle2));
 			enemy.shoot2(bulletVector2, angle2);
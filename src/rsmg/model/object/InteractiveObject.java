@@ -1,5 +1,6 @@
 package rsmg.model.object;
 
+import rsmg.model.BoxCollision;
 import rsmg.model.variables.Constants;
 import rsmg.model.variables.ObjectName;
 import rsmg.util.Vector2d;
@@ -11,8 +12,8 @@ import rsmg.util.Vector2d;
  *
  */
 public abstract class InteractiveObject {
-	private double previousY = 0;
-	private double previousX = 0;
+	private double previousY;
+	private double previousX;
 	private double x;
 	private double y;
 	private double height;
@@ -45,12 +46,33 @@ public abstract class InteractiveObject {
 	protected InteractiveObject(double x, double y, double width, double height, ObjectName name) {
 		this.x = x;
 		this.y = y;
+		this.previousX = x;
+		this.previousY = y;
 		this.height = height;
 		this.width = width;
 		this.velocity = new Vector2d();
 		this.name = name;
 	}
 	
+	/**
+	 * Give the object a new position, size and name, as if it had just been
+	 * created. Used by objects that are reused instead of created anew.
+	 * @param x The x position of the InteractiveObject
+	 * @param y The y position of the InteractiveObject
+	 * @param width The width of the InteractiveObject
+	 * @param height The height of the InteractiveObject
+	 * @param name The name of the InteractiveObject
+	 */
+	protected void reset(double x, double y, double width, double height, ObjectName name) {
+		this.x = x;
+		this.y = y;
+		this.previousX = x;
+		this.previousY = y;
+		this.height = height;
+		this.width = width;
+		this.name = name;
+	}
+	
 	/**
 	 * Get the name for the InteractiveObject
 	 * @return The name
@@ -198,6 +220,17 @@ public abstract class InteractiveObject {
 		return previousY;
 	}
 	
+	/**
+	 * Tell that the object hasn't moved during this update, so its previous
+	 * position is set to where it is now. Used for objects that aren't moved
+	 * in an update and objects that are put on a new position, so they aren't
+	 * drawn as if they were moving from where they were before.
+	 */
+	public void holdPosition() {
+		previousX = x;
+		previousY = y;
+	}
+	
 	/**
 	 * Changes the position of the InteractiveObject based on its current Vector.
 	 * a vector with the strength of 1 is equivalent to a speed of 1pixel/s
@@ -219,7 +252,9 @@ public abstract class InteractiveObject {
 	}
 	
 	/**
-	 * Checks if the given Interactive object have collided with this. Dose not check for collision in same plane(to optimize performance)
+	 * Checks if the given Interactive object have collided with this, i.e. if
+	 * they overlap. Objects on the same position or with edges on the same
+	 * line have collided, objects that only touch each other haven't.
 	 * @param obj is the object that intersect this one
 	 * @return true if the two InteractiveObjects have collided, otherwise it returns false
 	 */
@@ -227,69 +262,11 @@ public abstract class InteractiveObject {
 		if (obj == null) {
 			return false;
 		} else {
-			return (leftCollision(obj) || rightCollision(obj));
+			return BoxCollision.overlaps(getX(), getY(), getWidth(), getHeight(),
+					obj.getX(), obj.getY(), obj.getWidth(), obj.getHeight());
 		}
 	}
 	
-	/**
-	 * Check if the object have collided from the left side
-	 * @param obj is the object that intersect this one
-	 * @return true if the two InteractiveObjects have collided from left side, otherwise it returns false
-	 */
-	private boolean leftCollision(InteractiveObject obj){
-		return leftUpCollision(obj) || leftDownCollision(obj);
-	}
-	
-	/**
-	 * Check if the object have collided from the right side
-	 * @param obj is the object that intersect this one
-	 * @return true if the two InteractiveObjects have collided from right side, otherwise it returns false
-	 */
-	private boolean rightCollision(InteractiveObject obj){
-		return rightUpCollision(obj) || rightDownCollision(obj);
-	}
-	
-	
-	/**
-	 * Checks if the object have collided from left-upper side
-	 * @param obj is the object that intersect this one
-	 * @return true if the two InteractiveObjects have collided from left-upper side, otherwise it returns false
-	 */
-	private boolean leftUpCollision(InteractiveObject obj){
-		return (((this.getX() - obj.getX()) < obj.getWidth()) && (this.getX() > obj.getX()) &&
-				((this.getY() - obj.getY()) < obj.getHeight()) && (this.getY() > obj.getY()));
-	}
-	
-	/**
-	 * Checks if the object have collided from left-bottom side
-	 * @param obj is the object that intersect this one
-	 * @return true if the two InteractiveObjects have collided from left-bottom side, otherwise it returns false
-	 */
-	private boolean leftDownCollision(InteractiveObject obj){
-		return (((this.getX() - obj.getX()) < obj.getWidth()) && (this.getX() > obj.getX()) &&
-				((obj.getY() - this.getY()) < this.getHeight()) && (obj.getY() > this.getY()));
-	}
-	
-	/**
-	 * Checks if the object have collided from right-upper side
-	 * @param obj is the object that intersect this one
-	 * @return true if the two InteractiveObjects have collided from right-upper side, otherwise it returns false
-	 */
-	private boolean rightUpCollision(InteractiveObject obj){
-		return (((obj.getX() - this.getX()) < this.getWidth()) && (obj.getX() > this.getX()) &&
-				((this.getY() - obj.getY()) < obj.getHeight()) && (this.getY() > obj.getY()));
-	}
-	
-	/**
-	 * Checks if the object have collided from right-bottom side
-	 * @param obj is the object that intersect this one
-	 * @return true if the two InteractiveObjects have collided from right-bottom side, otherwise it returns false
-	 */
-	private boolean rightDownCollision(InteractiveObject obj){
-		return ((obj.getX() - this.getX() < this.getWidth()) && (obj.getX() > this.getX()) &&
-				(obj.getY() - this.getY() < this.getHeight()) && (obj.getY() > this.getY()));
-	}
-	
 	/**
 	 * 
 	 * @return true if object did not move horizontally last time
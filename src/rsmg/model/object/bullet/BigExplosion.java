@@ -31,6 +31,16 @@ class BigExplosion extends Bullet implements Explosion, Projectile{
 				Constants.EXPLOSION_AOE_UPG, Constants.EXPLOSION_AOE_UPG, ObjectName.EXPLOSION, Constants.EXPLOSIONDMG, new Vector2d(0,0));
 	}
 	
+	/**
+	 * Reuse the explosion as if it had just been created.
+	 * @param detonator object which creates the explosion
+	 */
+	void reset(InteractiveObject detonator) {
+		reset(detonator.getX()-Constants.EXPLOSION_AOE_UPG/2+detonator.getWidth()/2, detonator.getY()-Constants.EXPLOSION_AOE_UPG/2+detonator.getHeight()/2,
+				Constants.EXPLOSION_AOE_UPG, Constants.EXPLOSION_AOE_UPG, ObjectName.EXPLOSION, Constants.EXPLOSIONDMG, 0, 0);
+		age = 0;
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 */
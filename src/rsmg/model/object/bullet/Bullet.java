@@ -1,5 +1,6 @@
 package rsmg.model.object.bullet;
 
+import rsmg.model.EntityList;
 import rsmg.model.object.InteractiveObject;
 import rsmg.model.variables.ObjectName;
 import rsmg.util.Vector2d;
@@ -11,10 +12,31 @@ import rsmg.util.Vector2d;
  * @author Daniel Jonsson
  *
  */
-public abstract class Bullet extends InteractiveObject implements Projectile {
+public abstract class Bullet extends InteractiveObject implements Projectile, EntityList.Indexed {
 	
 	private int dmg;
 	
+	/**
+	 * The bullet's index in the level's EntityList.
+	 */
+	private int entityIndex = -1;
+	
+	/**
+	 * The velocity vector that belongs to this bullet. Used when the bullet is
+	 * reused with a new velocity, so a new vector doesn't have to be created.
+	 */
+	private Vector2d ownVelocity;
+	
+	/**
+	 * The velocity vector if it's shared with other bullets, otherwise null.
+	 */
+	private Vector2d sharedVelocity;
+	
+	/**
+	 * If the bullet is lying unused in the BulletPool.
+	 */
+	boolean pooled;
+	
 	/**
 	 * Create a bullet.
 	 * 
@@ -34,6 +56,61 @@ public abstract class Bullet extends InteractiveObject implements Projectile {
 		this.setVelocity(velocity);
 	}
 	
+	/**
+	 * Reuse the bullet as if it had just been created.
+	 * 
+	 * @param x Horizontal coordinate for where the bullet spawns.
+	 * @param y Vertical coordinate for where the bullet spawns.
+	 * @param width Width of the bullet.
+	 * @param height Height of the bullet.
+	 * @param name Name of the bullet.
+	 * @param dmg The bullet's damage.
+	 * @param velocity The bullet's velocity. The vector is used as it is and
+	 *            not copied.
+	 */
+	void reset(double x, double y, double width, double height,
+			ObjectName name, int dmg, Vector2d velocity) {
+		
+		super.reset(x, y, width, height, name);
+		this.dmg = dmg;
+		this.setVelocity(velocity);
+		sharedVelocity = velocity;
+	}
+	
+	/**
+	 * Reuse the bullet as if it had just been created. The velocity is stored
+	 * in a vector that belongs to the bullet.
+	 * 
+	 * @param x Horizontal coordinate for where the bullet spawns.
+	 * @param y Vertical coordinate for where the bullet spawns.
+	 * @param width Width of the bullet.
+	 * @param height Height of the bullet.
+	 * @param name Name of the bullet.
+	 * @param dmg The bullet's damage.
+	 * @param velocityX The bullet's horizontal velocity.
+	 * @param velocityY The bullet's vertical velocity.
+	 */
+	void reset(double x, double y, double width, double height,
+			ObjectName name, int dmg, double velocityX, double velocityY) {
+		
+		if (ownVelocity == null)
+			ownVelocity = new Vector2d();
+		ownVelocity.setX(velocityX);
+		ownVelocity.setY(velocityY);
+		reset(x, y, width, height, name, dmg, ownVelocity);
+		sharedVelocity = null;
+	}
+	
+	/**
+	 * Returns the bullet's velocity vector if the bullet was reused with a
+	 * vector that may be shared with other bullets.
+	 * 
+	 * @return The shared velocity, or null if the velocity isn't shared.
+	 */
+	Vector2d getSharedVelocity() {
+		return sharedVelocity;
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -42,6 +119,22 @@ public abstract class Bullet extends InteractiveObject implements Projectile {
 		return dmg;
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getEntityIndex() {
+		return entityIndex;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setEntityIndex(int index) {
+		entityIndex = index;
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 */
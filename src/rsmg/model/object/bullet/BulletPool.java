@@ -0,0 +1,229 @@
+package rsmg.model.object.bullet;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import rsmg.model.object.InteractiveObject;
+import rsmg.model.variables.ObjectName;
+import rsmg.util.Vector2d;
+
+/**
+ * Keeps bullets and explosions that are no longer used, so they can be reused
+ * instead of creating new ones every time something is shot. A bullet is
+ * taken from the pool with one of the get methods, and must be given back
+ * with release() when it is removed from the level.
+ *
+ * The methods are synchronized so enemies can shoot from several threads.
+ */
+public final class BulletPool {
+
+	/**
+	 * Maximum number of unused bullets of each type that are kept. Anything
+	 * beyond that is left to the garbage collector.
+	 */
+	private static final int MAX_POOLED = 1024;
+
+	private static final List<BasicBullet> basicBullets = new ArrayList<BasicBullet>();
+	private static final List<CurveBullet> curveBullets = new ArrayList<CurveBullet>();
+	private static final List<RotatableBullet> rotatableBullets = new ArrayList<RotatableBullet>();
+	private static final List<SmallExplosion> smallExplosions = new ArrayList<SmallExplosion>();
+	private static final List<BigExplosion> bigExplosions = new ArrayList<BigExplosion>();
+	private static final List<LaserFire> laserFires = new ArrayList<LaserFire>();
+
+	private BulletPool() {
+	}
+
+	/**
+	 * Get a basic bullet.
+	 * @param x Horizontal coordinate for where the bullet spawns.
+	 * @param y Vertical coordinate for where the bullet spawns.
+	 * @param width Width of the bullet.
+	 * @param height Height of the bullet.
+	 * @param name Name of the bullet.
+	 * @param dmg The bullet's damage.
+	 * @param velocityX The bullet's horizontal velocity.
+	 * @param velocityY The bullet's vertical velocity.
+	 * @return A basic bullet.
+	 */
+	public static synchronized BasicBullet getBasicBullet(double x, double y, double width,
+			double height, ObjectName name, int dmg, double velocityX, double velocityY) {
+
+		BasicBullet bullet = take(basicBullets);
+		if (bullet == null)
+			bullet = new BasicBullet(x, y, width, height, name, dmg, null);
+		bullet.reset(x, y, width, height, name, dmg, velocityX, velocityY);
+		return bullet;
+	}
+
+	/**
+	 * Get a bullet that is affected by gravity.
+	 * @param x Horizontal coordinate for where the bullet spawns.
+	 * @param y Vertical coordinate for where the bullet spawns.
+	 * @param width Width of the bullet.
+	 * @param height Height of the bullet.
+	 * @param name Name of the bullet.
+	 * @param dmg The bullet's damage.
+	 * @param velocityX The bullet's horizontal velocity.
+	 * @param velocityY The bullet's vertical velocity.
+	 * @return A curve bullet.
+	 */
+	public static synchronized CurveBullet getCurveBullet(double x, double y, double width,
+			double height, ObjectName name, int dmg, double velocityX, double velocityY) {
+
+		CurveBullet bullet = take(curveBullets);
+		if (bullet == null)
+			bullet = new CurveBullet(x, y, width, height, name, dmg, null);
+		bullet.reset(x, y, width, height, name, dmg, velocityX, velocityY);
+		return bullet;
+	}
+
+	/**
+	 * Get a rotatable bullet with its own velocity.
+	 * @param x Horizontal coordinate for where the bullet spawns.
+	 * @param y Vertical coordinate for where the bullet spawns.
+	 * @param width Width of the bullet.
+	 * @param height Height of the bullet.
+	 * @param name Name of the bullet.
+	 * @param dmg The bullet's damage.
+	 * @param velocityX The bullet's horizontal velocity.
+	 * @param velocityY The bullet's vertical velocity.
+	 * @param angle the angle the bullet is rotated to
+	 * @return A rotatable bullet.
+	 */
+	public static synchronized RotatableBullet getRotatableBullet(double x, double y, double width,
+			double height, ObjectName name, int dmg, double velocityX, double velocityY, float angle) {
+
+		RotatableBullet bullet = take(rotatableBullets);
+		if (bullet == null)
+			bullet = new RotatableBullet(x, y, width, height, name, dmg, null, angle);
+		bullet.reset(x, y, width, height, name, dmg, velocityX, velocityY);
+		bullet.reset(angle);
+		return bullet;
+	}
+
+	/**
+	 * Get a rotatable bullet that shares its velocity vector with the caller.
+	 * When the vector is changed, all bullets using it change direction.
+	 * @param x Horizontal coordinate for where the bullet spawns.
+	 * @param y Vertical coordinate for where the bullet spawns.
+	 * @param width Width of the bullet.
+	 * @param height Height of the bullet.
+	 * @param name Name of the bullet.
+	 * @param dmg The bullet's damage.
+	 * @param velocity The bullet's velocity. It is not copied.
+	 * @param angle the angle the bullet is rotated to
+	 * @return A rotatable bullet.
+	 */
+	public static synchronized RotatableBullet getRotatableBullet(double x, double y, double width,
+			double height, ObjectName name, int dmg, Vector2d velocity, float angle) {
+
+		RotatableBullet bullet = take(rotatableBullets);
+		if (bullet == null)
+			bullet = new RotatableBullet(x, y, width, height, name, dmg, velocity, angle);
+		bullet.reset(x, y, width, height, name, dmg, velocity);
+		bullet.reset(angle);
+		return bullet;
+	}
+
+	/**
+	 * Get a small explosion on top of an object.
+	 * @param detonator The object that explodes.
+	 * @return A small explosion.
+	 */
+	static synchronized Bullet getSmallExplosion(InteractiveObject detonator) {
+		SmallExplosion explosion = take(smallExplosions);
+		if (explosion == null)
+			explosion = new SmallExplosion(detonator);
+		explosion.reset(detonator);
+		return explosion;
+	}
+
+	/**
+	 * Get a big explosion on top of an object.
+	 * @param detonator The object that explodes.
+	 * @return A big explosion.
+	 */
+	static synchronized Bullet getBigExplosion(InteractiveObject detonator) {
+		BigExplosion explosion = take(bigExplosions);
+		if (explosion == null)
+			explosion = new BigExplosion(detonator);
+		explosion.reset(detonator);
+		return explosion;
+	}
+
+	/**
+	 * Get laser fire on top of an object.
+	 * @param detonator The object that caused the fire.
+	 * @return Laser fire.
+	 */
+	public static synchronized Bullet getLaserFire(InteractiveObject detonator) {
+		LaserFire fire = take(laserFires);
+		if (fire == null)
+			fire = new LaserFire(detonator);
+		fire.reset(detonator);
+		return fire;
+	}
+
+	/**
+	 * Get laser fire on top of a position.
+	 * @param detonatorX Horizontal coordinate of the object that caused the fire.
+	 * @param detonatorY Vertical coordinate of the object that caused the fire.
+	 * @return Laser fire.
+	 */
+	public static synchronized Bullet getLaserFire(double detonatorX, double detonatorY) {
+		LaserFire fire = take(laserFires);
+		if (fire == null)
+			fire = new LaserFire(detonatorX - 10, detonatorY - 14);
+		fire.reset(detonatorX, detonatorY);
+		return fire;
+	}
+
+	/**
+	 * Give back a bullet that has been removed from the level, so it can be
+	 * reused. The bullet must not be used after this. Releasing the same
+	 * bullet twice has no effect.
+	 * @param bullet The bullet.
+	 */
+	public static synchronized void release(Bullet bullet) {
+		if (bullet.pooled)
+			return;
+
+		if (bullet instanceof BasicBullet)
+			give(basicBullets, (BasicBullet)bullet);
+		else if (bullet instanceof CurveBullet)
+			give(curveBullets, (CurveBullet)bullet);
+		else if (bullet instanceof RotatableBullet)
+			give(rotatableBullets, (RotatableBullet)bullet);
+		else if (bullet instanceof SmallExplosion)
+			give(smallExplosions, (SmallExplosion)bullet);
+		else if (bullet instanceof BigExplosion)
+			give(bigExplosions, (BigExplosion)bullet);
+		else if (bullet instanceof LaserFire)
+			give(laserFires, (LaserFire)bullet);
+	}
+
+	/**
+	 * Take an unused bullet from a list.
+	 * @param pool The list.
+	 * @return The bullet, or null if the list is empty.
+	 */
+	private static <T extends Bullet> T take(List<T> pool) {
+		if (pool.isEmpty())
+			return null;
+		T bullet = pool.remove(pool.size() - 1);
+		bullet.pooled = false;
+		return bullet;
+	}
+
+	/**
+	 * Put an unused bullet in a list, unless the list is full.
+	 * @param pool The list.
+	 * @param bullet The bullet.
+	 */
+	private static <T extends Bullet> void give(List<T> pool, T bullet) {
+		if (pool.size() < MAX_POOLED) {
+			bullet.pooled = true;
+			pool.add(bullet);
+		}
+	}
+}
@@ -0,0 +1,400 @@
+package rsmg.model.object.bullet;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+import rsmg.model.BoxCollision;
+import rsmg.model.SweptCollision;
+import rsmg.model.TileGrid;
+import rsmg.model.object.InteractiveObject;
+import rsmg.model.variables.Constants;
+import rsmg.model.variables.ObjectName;
+import rsmg.util.Vector2d;
+
+/**
+ * Stores bullets in arrays of primitive values instead of as objects, one
+ * array for every property. Moving the bullets and checking them against the
+ * tile grid is then done in a single loop over the arrays, which is a lot
+ * faster than updating one bullet object at a time when there are thousands of
+ * them.
+ *
+ * Bullets are added as Bullet objects, which are copied into the arrays. Only
+ * bullets that disappear when they hit something can be stored, not
+ * explosions. When a bullet is removed the last bullet is moved to its index,
+ * so the indexes of the bullets change.
+ */
+public class BulletStore implements BulletView {
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private static final ObjectName[] NAMES = ObjectName.values();
+
+	private int size;
+
+	private double[] x;
+	private double[] y;
+
+	/**
+	 * Where the bullets were before the last update. The collision tests are
+	 * done along the path from there, so fast bullets can't pass through
+	 * tiles or the character.
+	 */
+	private double[] previousX;
+	private double[] previousY;
+	private double[] velocityX;
+	private double[] velocityY;
+	private double[] width;
+	private double[] height;
+	private double[] age;
+	private int[] damage;
+	private int[] name;
+	private float[] rotation;
+
+	/**
+	 * If the bullets are affected by gravity.
+	 */
+	private boolean[] gravity;
+
+	/**
+	 * Velocity vectors that the bullets share with other bullets, like the
+	 * boss's laser bolts. The velocity of such a bullet is read from the
+	 * vector every update. Null for bullets with their own velocity.
+	 */
+	private Vector2d[] sharedVelocity;
+
+	/**
+	 * Indexes of the bullets that are found by removeCollisions().
+	 */
+	private int[] overlapBuffer;
+	private int[] hitBuffer;
+
+	/**
+	 * Create an empty bullet store.
+	 */
+	public BulletStore() {
+		x = new double[INITIAL_CAPACITY];
+		y = new double[INITIAL_CAPACITY];
+		previousX = new double[INITIAL_CAPACITY];
+		previousY = new double[INITIAL_CAPACITY];
+		velocityX = new double[INITIAL_CAPACITY];
+		velocityY = new double[INITIAL_CAPACITY];
+		width = new double[INITIAL_CAPACITY];
+		height = new double[INITIAL_CAPACITY];
+		age = new double[INITIAL_CAPACITY];
+		damage = new int[INITIAL_CAPACITY];
+		name = new int[INITIAL_CAPACITY];
+		rotation = new float[INITIAL_CAPACITY];
+		gravity = new boolean[INITIAL_CAPACITY];
+		sharedVelocity = new Vector2d[INITIAL_CAPACITY];
+		overlapBuffer = new int[INITIAL_CAPACITY];
+		hitBuffer = new int[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Copy a bullet into the store. The bullet object isn't used by the store
+	 * afterwards and can be released to the BulletPool.
+	 *
+	 * @param bullet The bullet.
+	 */
+	public void add(Bullet bullet) {
+		if (bullet.isExplosion())
+			throw new IllegalArgumentException("Explosions can't be stored in a BulletStore.");
+
+		if (size == x.length)
+			grow();
+
+		int i = size++;
+		x[i] = bullet.getX();
+		y[i] = bullet.getY();
+		previousX[i] = x[i];
+		previousY[i] = y[i];
+		velocityX[i] = bullet.getVelocityX();
+		velocityY[i] = bullet.getVelocityY();
+		width[i] = bullet.getWidth();
+		height[i] = bullet.getHeight();
+		age[i] = 0;
+		damage[i] = bullet.getDamage();
+		name[i] = bullet.getName().ordinal();
+		rotation[i] = bullet instanceof RotatableBullet ? ((RotatableBullet)bullet).getRotation() : 0;
+		gravity[i] = bullet instanceof CurveBullet;
+		sharedVelocity[i] = bullet.getSharedVelocity();
+	}
+
+	/**
+	 * Copy all bullets in a collection into the store and release them to the
+	 * BulletPool. The collection is emptied.
+	 *
+	 * @param bullets The bullets.
+	 */
+	public void addAll(Collection<Bullet> bullets) {
+		if (bullets instanceof List && bullets instanceof RandomAccess) {
+			// Loop without an iterator, since this is done every update.
+			List<Bullet> list = (List<Bullet>)bullets;
+			for (int i = 0; i < list.size(); i++) {
+				add(list.get(i));
+				BulletPool.release(list.get(i));
+			}
+		} else {
+			for (Bullet bullet : bullets) {
+				add(bullet);
+				BulletPool.release(bullet);
+			}
+		}
+		bullets.clear();
+	}
+
+	/**
+	 * Move all bullets and remove the ones that hit a solid tile anywhere
+	 * along their move, or that leave the loaded part of a streamed grid.
+	 * Laser bolts that hit a tile leave laser fire behind, where they first
+	 * hit it.
+	 *
+	 * @param delta Time since last update.
+	 * @param tileGrid The tile grid the bullets are moving in.
+	 * @param laserFire Collection where the laser fire is added.
+	 */
+	public void update(double delta, TileGrid tileGrid, Collection<Bullet> laserFire) {
+		double gravityStep = Constants.GRAVITYSTRENGTH * delta;
+		int laserBolt = ObjectName.LASERBOLT.ordinal();
+
+		int i = 0;
+		while (i < size) {
+			Vector2d shared = sharedVelocity[i];
+			if (shared != null) {
+				velocityX[i] = shared.getX();
+				velocityY[i] = shared.getY();
+			}
+			if (gravity[i])
+				velocityY[i] += gravityStep;
+
+			age[i] += delta;
+			double dx = velocityX[i] * delta;
+			double dy = velocityY[i] * delta;
+			previousX[i] = x[i];
+			previousY[i] = y[i];
+			x[i] += dx;
+			y[i] += dy;
+
+			// Bullets that leave the loaded part of a streamed grid are
+			// removed instead of having chunks loaded for them.
+			if (!tileGrid.isAreaLoaded(Math.min(x[i], previousX[i]), Math.min(y[i], previousY[i]),
+					width[i] + Math.abs(dx), height[i] + Math.abs(dy))) {
+				remove(i);
+				continue;
+			}
+
+			double hit = tileGrid.sweep(previousX[i], previousY[i], width[i], height[i], dx, dy);
+			if (hit != SweptCollision.NO_HIT) {
+				if (name[i] == laserBolt)
+					laserFire.add(BulletPool.getLaserFire(previousX[i] + dx * hit, previousY[i] + dy * hit));
+				remove(i);
+			} else {
+				i++;
+			}
+		}
+	}
+
+	/**
+	 * Remove the bullets that have collided with an object. For every removed
+	 * bullet a bullet object with the same values is added to the result, so
+	 * the object can be told what hit it. Those bullets are taken from the
+	 * BulletPool and should be released when they aren't needed anymore.
+	 *
+	 * A bullet hits the object if they collide according to
+	 * InteractiveObject.hasCollidedWith(), or if the bullet passed through the
+	 * object during the last update.
+	 *
+	 * @param obj The object.
+	 * @param result Collection where the bullets that hit the object are
+	 *            added.
+	 * @return Number of bullets that hit the object.
+	 */
+	public int removeCollisions(InteractiveObject obj, Collection<Bullet> result) {
+		double objX = obj.getX();
+		double objY = obj.getY();
+		double objWidth = obj.getWidth();
+		double objHeight = obj.getHeight();
+
+		int overlaps = BoxCollision.overlapping(objX, objY, objWidth, objHeight,
+				x, y, width, height, size, overlapBuffer);
+
+		// The bullets that don't overlap the object may still have passed
+		// through it.
+		int hits = 0;
+		int next = 0;
+		for (int i = 0; i < size; i++) {
+			boolean collided = next < overlaps && overlapBuffer[next] == i;
+			if (collided) {
+				next++;
+			} else {
+				double hit = SweptCollision.sweep(previousX[i], previousY[i], width[i], height[i],
+						x[i] - previousX[i], y[i] - previousY[i], objX, objY, objWidth, objHeight);
+				if (hit != SweptCollision.NO_HIT) {
+					// Put the bullet where it hit the object.
+					x[i] = previousX[i] + (x[i] - previousX[i]) * hit;
+					y[i] = previousY[i] + (y[i] - previousY[i]) * hit;
+					collided = true;
+				}
+			}
+			if (collided)
+				hitBuffer[hits++] = i;
+		}
+
+		for (int h = 0; h < hits; h++) {
+			int i = hitBuffer[h];
+			result.add(BulletPool.getBasicBullet(x[i], y[i], width[i], height[i],
+					NAMES[name[i]], damage[i], velocityX[i], velocityY[i]));
+		}
+		// Remove from the highest index down, so the bullet that is moved
+		// from the end is never one that is also going to be removed.
+		for (int h = hits - 1; h >= 0; h--)
+			remove(hitBuffer[h]);
+		return hits;
+	}
+
+	/**
+	 * Remove the bullets that have left the level to the left or the top.
+	 */
+	public void removeOutsideLevel() {
+		int i = 0;
+		while (i < size) {
+			if (x[i] < 0 || y[i] < 0)
+				remove(i);
+			else
+				i++;
+		}
+	}
+
+	/**
+	 * Remove a bullet. The last bullet is moved to its index.
+	 *
+	 * @param index The bullet's index.
+	 */
+	public void remove(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+
+		int last = --size;
+		x[index] = x[last];
+		y[index] = y[last];
+		previousX[index] = previousX[last];
+		previousY[index] = previousY[last];
+		velocityX[index] = velocityX[last];
+		velocityY[index] = velocityY[last];
+		width[index] = width[last];
+		height[index] = height[last];
+		age[index] = age[last];
+		damage[index] = damage[last];
+		name[index] = name[last];
+		rotation[index] = rotation[last];
+		gravity[index] = gravity[last];
+		sharedVelocity[index] = sharedVelocity[last];
+		sharedVelocity[last] = null;
+	}
+
+	/**
+	 * Remove all bullets.
+	 */
+	public void clear() {
+		Arrays.fill(sharedVelocity, 0, size, null);
+		size = 0;
+	}
+
+	/**
+	 * Make room for twice as many bullets.
+	 */
+	private void grow() {
+		int capacity = x.length * 2;
+		x = Arrays.copyOf(x, capacity);
+		y = Arrays.copyOf(y, capacity);
+		previousX = Arrays.copyOf(previousX, capacity);
+		previousY = Arrays.copyOf(previousY, capacity);
+		velocityX = Arrays.copyOf(velocityX, capacity);
+		velocityY = Arrays.copyOf(velocityY, capacity);
+		width = Arrays.copyOf(width, capacity);
+		height = Arrays.copyOf(height, capacity);
+		age = Arrays.copyOf(age, capacity);
+		damage = Arrays.copyOf(damage, capacity);
+		name = Arrays.copyOf(name, capacity);
+		rotation = Arrays.copyOf(rotation, capacity);
+		gravity = Arrays.copyOf(gravity, capacity);
+		sharedVelocity = Arrays.copyOf(sharedVelocity, capacity);
+		overlapBuffer = new int[capacity];
+		hitBuffer = new int[capacity];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public double getX(int index) {
+		return x[index];
+	}
+
+	@Override
+	public double getPreviousX(int index) {
+		return previousX[index];
+	}
+
+	@Override
+	public double getPreviousY(int index) {
+		return previousY[index];
+	}
+
+	@Override
+	public double getY(int index) {
+		return y[index];
+	}
+
+	@Override
+	public double getWidth(int index) {
+		return width[index];
+	}
+
+	@Override
+	public double getHeight(int index) {
+		return height[index];
+	}
+
+	@Override
+	public ObjectName getName(int index) {
+		return NAMES[name[index]];
+	}
+
+	@Override
+	public float getRotation(int index) {
+		return rotation[index];
+	}
+
+	@Override
+	public int getDamage(int index) {
+		return damage[index];
+	}
+
+	@Override
+	public double getAge(int index) {
+		return age[index];
+	}
+
+	/**
+	 * Returns a bullet's horizontal velocity.
+	 * @param index The bullet's index.
+	 * @return The bullet's horizontal velocity.
+	 */
+	public double getVelocityX(int index) {
+		return velocityX[index];
+	}
+
+	/**
+	 * Returns a bullet's vertical velocity.
+	 * @param index The bullet's index.
+	 * @return The bullet's vertical velocity.
+	 */
+	public double getVelocityY(int index) {
+		return velocityY[index];
+	}
+}
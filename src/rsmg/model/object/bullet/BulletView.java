@@ -0,0 +1,87 @@
+package rsmg.model.object.bullet;
+
+import rsmg.model.variables.ObjectName;
+
+/**
+ * Read only access to bullets that are stored by their index instead of as
+ * objects. Used by the graphics to draw the bullets in a BulletStore.
+ */
+public interface BulletView {
+
+	/**
+	 * Returns the number of bullets.
+	 * @return The number of bullets.
+	 */
+	public int size();
+
+	/**
+	 * Returns a bullet's horizontal position.
+	 * @param index The bullet's index.
+	 * @return The bullet's horizontal position.
+	 */
+	public double getX(int index);
+
+	/**
+	 * Returns a bullet's vertical position.
+	 * @param index The bullet's index.
+	 * @return The bullet's vertical position.
+	 */
+	public double getY(int index);
+
+	/**
+	 * Returns a bullet's horizontal position before the last update.
+	 * @param index The bullet's index.
+	 * @return The bullet's previous horizontal position.
+	 */
+	public double getPreviousX(int index);
+
+	/**
+	 * Returns a bullet's vertical position before the last update.
+	 * @param index The bullet's index.
+	 * @return The bullet's previous vertical position.
+	 */
+	public double getPreviousY(int index);
+
+	/**
+	 * Returns a bullet's width.
+	 * @param index The bullet's index.
+	 * @return The bullet's width.
+	 */
+	public double getWidth(int index);
+
+	/**
+	 * Returns a bullet's height.
+	 * @param index The bullet's index.
+	 * @return The bullet's height.
+	 */
+	public double getHeight(int index);
+
+	/**
+	 * Returns a bullet's name.
+	 * @param index The bullet's index.
+	 * @return The bullet's name.
+	 */
+	public ObjectName getName(int index);
+
+	/**
+	 * Returns the angle a bullet is rotated to. Bullets that aren't rotatable
+	 * have the angle 0.
+	 * @param index The bullet's index.
+	 * @return The bullet's angle in radians.
+	 */
+	public float getRotation(int index);
+
+	/**
+	 * Returns how much damage a bullet deals.
+	 * @param index The bullet's index.
+	 * @return The bullet's damage.
+	 */
+	public int getDamage(int index);
+
+	/**
+	 * Returns how long a bullet has existed.
+	 * @param index The bullet's index.
+	 * @return The bullet's age in seconds.
+	 */
+	public double getAge(int index);
+}
@@ -12,15 +12,16 @@ import rsmg.model.object.InteractiveObject;
 public final class ExplosionFactory {
 
 	/**
-	 * Creates an explosion on top of an object.
+	 * Creates an explosion on top of an object. The explosion is taken from
+	 * the BulletPool and should be released to it when it is removed.
 	 * 
 	 * @param object On which object the explosion should be created.
 	 * @return An explosion.
 	 */
 	public static Bullet getExplosion(InteractiveObject object) {
 		if (CharacterProgress.isIncRPGAoEUnlocked())
-			return new BigExplosion(object);
+			return BulletPool.getBigExplosion(object);
 		else
-			return new SmallExplosion(object);
+			return BulletPool.getSmallExplosion(object);
 	}
 }
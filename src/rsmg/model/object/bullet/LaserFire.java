@@ -37,6 +37,24 @@ public class LaserFire extends Bullet implements Explosion{
 		super(detonator.getX()-10, detonator.getY()-14, 20, 28, ObjectName.LASERFIRE, 70, new Vector2d(0,0));
 	}
 	
+	/**
+	 * Reuse the LaserFire as if it had just been created.
+	 * @param detonator object which creates the explosion
+	 */
+	void reset(InteractiveObject detonator) {
+		reset(detonator.getX(), detonator.getY());
+	}
+	
+	/**
+	 * Reuse the LaserFire as if it had just been created.
+	 * @param detonatorX Horizontal coordinate of the object which creates the explosion
+	 * @param detonatorY Vertical coordinate of the object which creates the explosion
+	 */
+	void reset(double detonatorX, double detonatorY) {
+		reset(detonatorX-10, detonatorY-14, 20, 28, ObjectName.LASERFIRE, 70, 0, 0);
+		age = 0;
+	}
+	
 	/**
 	 * Ages 6 times faster than explosions so that it will disappear faster
 	 */
@@ -27,6 +27,14 @@ public class RotatableBullet extends Bullet {
 		this.angle = angle;
 		// TODO Auto-generated constructor stub
 	}
+	/**
+	 * Reuse the bullet as if it had just been created.
+	 * @param angle the angle this bullet is rotated to
+	 */
+	void reset(float angle) {
+		this.angle = angle;
+	}
+	
 	/**
 	 * returns what angle the RotatableBullet currently is at
 	 * @return the RotatableBullets angle
@@ -27,6 +27,16 @@ class SmallExplosion extends Bullet implements Explosion, Projectile {
 				Constants.EXPLOSION_AOE, Constants.EXPLOSION_AOE, ObjectName.EXPLOSION, Constants.EXPLOSIONDMG, new Vector2d(0,0));
 	}
 	
+	/**
+	 * Reuse the explosion as if it had just been created.
+	 * @param detonator object which creates the explosion
+	 */
+	void reset(InteractiveObject detonator) {
+		reset(detonator.getX()-Constants.EXPLOSION_AOE/2+detonator.getWidth()/2, detonator.getY()-Constants.EXPLOSION_AOE/2+detonator.getHeight()/2,
+				Constants.EXPLOSION_AOE, Constants.EXPLOSION_AOE, ObjectName.EXPLOSION, Constants.EXPLOSIONDMG, 0, 0);
+		age = 0;
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -3,7 +3,7 @@ package rsmg.model.object.unit;
 import java.util.List;
 
 import rsmg.model.object.bullet.Bullet;
-import rsmg.model.object.bullet.RotatableBullet;
+import rsmg.model.object.bullet.BulletPool;
 import rsmg.model.variables.ObjectName;
 import rsmg.util.Vector2d;
 
@@ -53,17 +53,19 @@ public class BossBotHead extends Enemy {
 	}
 	
 	/**
-	 * Fires the bosses primary attack
+	 * Fires the bosses primary attack. The bullets share the given velocity
+	 * vector, so they all change direction when it is changed.
 	 */
 	public void shoot(Vector2d bulletVelocity, double angle) {
-		bulletList.add(new RotatableBullet(this.getX()+OFFSETX1, this.getY()+OFFSETY1, 10, 8, ObjectName.LASERBOLT, DMG, bulletVelocity, (float)angle));
-		bulletList.add(new RotatableBullet(this.getX()+OFFSETX2, this.getY()+OFFSETY1, 10, 8, ObjectName.LASERBOLT, DMG, bulletVelocity, (float)angle));
+		bulletList.add(BulletPool.getRotatableBullet(this.getX()+OFFSETX1, this.getY()+OFFSETY1, 10, 8, ObjectName.LASERBOLT, DMG, bulletVelocity, (float)angle));
+		bulletList.add(BulletPool.getRotatableBullet(this.getX()+OFFSETX2, this.getY()+OFFSETY1, 10, 8, ObjectName.LASERBOLT, DMG, bulletVelocity, (float)angle));
 	}
 	
 	/**
-	 * Fires the bosses secondary attack
+	 * Fires the bosses secondary attack. The velocity is copied, so the
+	 * vector can be reused.
 	 */
 	public void shoot2(Vector2d bulletVelocity, double angle) {
-		bulletList.add(new RotatableBullet(this.getX()+CRYSTAL_OFFSETX, this.getY()+CRYSTAL_OFFSETY, 33, 11, ObjectName.LASERBLAST, 10, bulletVelocity, (float)angle));
+		bulletList.add(BulletPool.getRotatableBullet(this.getX()+CRYSTAL_OFFSETX, this.getY()+CRYSTAL_OFFSETY, 33, 11, ObjectName.LASERBLAST, 10, bulletVelocity.getX(), bulletVelocity.getY(), (float)angle));
 	}
 }
@@ -3,9 +3,8 @@ package rsmg.model.object.unit;
 import java.util.List;
 
 import rsmg.model.object.bullet.Bullet;
-import rsmg.model.object.bullet.CurveBullet;
+import rsmg.model.object.bullet.BulletPool;
 import rsmg.model.variables.ObjectName;
-import rsmg.util.Vector2d;
 /**
  * Class representing a stationary non-flying enemy
  * @author Johan Gronvall
@@ -55,6 +54,6 @@ public class BucketBot extends Enemy implements AttackingEnemy{
 		} else {
 			bulletSpeed = -XBULLETSPEED;
 		}
-		bulletList.add(new CurveBullet(getX(), getY(), 10, 10, ObjectName.STONE, 20, new Vector2d(bulletSpeed, YBULLETSPEED)));
+		bulletList.add(BulletPool.getCurveBullet(getX(), getY(), 10, 10, ObjectName.STONE, 20, bulletSpeed, YBULLETSPEED));
 	}
 }
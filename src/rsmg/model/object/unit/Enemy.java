@@ -1,5 +1,6 @@
 package rsmg.model.object.unit;
 
+import rsmg.model.SimulationClock;
 import rsmg.model.object.InteractiveObject;
 import rsmg.model.object.bullet.Bullet;
 import rsmg.model.variables.Constants;
@@ -13,7 +14,7 @@ import rsmg.model.variables.ObjectName;
  */
 public abstract class Enemy extends LivingObject {
 	
-	private long lastAttackedTime;
+	private long lastAttackedTime = SimulationClock.NEVER;
 	private boolean vulnerableToExplosions = true;
 	/**
 	 * creates an enemy
@@ -43,7 +44,7 @@ public abstract class Enemy extends LivingObject {
 			if(dealsExplosionDmg(((Bullet)obj)) && !vulnerableToExplosions) {
 				//do nothing
 			}else {
-				lastAttackedTime = System.currentTimeMillis();
+				lastAttackedTime = getTimeMillis();
 				vulnerableToExplosions = false;
 				this.damage(((Bullet)obj).getDamage());
 			}
@@ -51,7 +52,7 @@ public abstract class Enemy extends LivingObject {
 		if (obj instanceof PCharacter) {
 			if(((PCharacter) obj).isDashing() && vulnerableToExplosions){
 				this.damage(Constants.DASHDAMAGE);
-				lastAttackedTime = System.currentTimeMillis();
+				lastAttackedTime = getTimeMillis();
 				vulnerableToExplosions = false;
 			}
 		}
@@ -71,7 +72,7 @@ public abstract class Enemy extends LivingObject {
 	 * updates whether the enemy can take damage from explosionDamage or not
 	 */
 	public void updateVulnerability() {
-		if(lastAttackedTime + Constants.EXPLOSION_TICK < System.currentTimeMillis()){
+		if(lastAttackedTime + Constants.EXPLOSION_TICK < getTimeMillis()){
 			vulnerableToExplosions = true;
 		}
 	}
@@ -89,7 +90,7 @@ public abstract class Enemy extends LivingObject {
 	 * @return
 	 */
 	public boolean recentlytookDamage() {
-		return (lastAttackedTime + Constants.ENEMY_FLASHDURATION > System.currentTimeMillis());
+		return (lastAttackedTime + Constants.ENEMY_FLASHDURATION > getTimeMillis());
 	}
 	
 	/**
@@ -1,5 +1,6 @@
 package rsmg.model.object.unit;
 
+import rsmg.model.SimulationClock;
 import rsmg.model.object.InteractiveObject;
 import rsmg.model.variables.ObjectName;
 
@@ -16,6 +17,12 @@ public abstract class LivingObject extends InteractiveObject {
 	private int health;
 	private int maxHealth;
 	
+	/**
+	 * The clock that cooldowns and timers are measured with. Until the object
+	 * is given the level's clock it has its own clock, which stands still.
+	 */
+	private SimulationClock clock = new SimulationClock();
+	
 	public LivingObject(double x, double y, double width, double height, int health, ObjectName name) {
 		super(x, y, width, height, name);
 		this.health = maxHealth = health;
@@ -87,4 +94,26 @@ public abstract class LivingObject extends InteractiveObject {
 	public boolean isDead(){
 		return health < 1;
 	}
+	
+	/**
+	 * Set the clock that cooldowns and timers are measured with.
+	 * @param clock The level's clock.
+	 */
+	public void setClock(SimulationClock clock) {
+		this.clock = clock;
+	}
+	
+	/**
+	 * @return the clock that cooldowns and timers are measured with
+	 */
+	public SimulationClock getClock() {
+		return clock;
+	}
+	
+	/**
+	 * @return the current simulated time in milliseconds
+	 */
+	protected long getTimeMillis() {
+		return clock.getTimeMillis();
+	}
 }
@@ -4,6 +4,7 @@ import java.util.Collection;
 import java.util.EnumMap;
 
 import rsmg.io.CharacterProgress;
+import rsmg.model.SimulationClock;
 import rsmg.model.object.InteractiveObject;
 import rsmg.model.object.bullet.Bullet;
 import rsmg.model.object.item.Item;
@@ -44,17 +45,17 @@ public class PCharacter extends LivingObject {
 	 * Keeps track of when the character last attacked. Used to have a cooldown
 	 * on the attack.
 	 */
-	private long lastAttacktime = 0;
+	private long lastAttacktime = SimulationClock.NEVER;
 	
 	/**
 	 * Keeps track of when the character was last attacked.
 	 */
-	private long lastAttackedTime = 0;
+	private long lastAttackedTime = SimulationClock.NEVER;
 	
 	/**
 	 * Keeps track of when the character last Dashed
 	 */
-	private long lastDashed = 0;
+	private long lastDashed = SimulationClock.NEVER;
 	
 	/**
 	 * If the character can use the dash move.
@@ -197,9 +198,9 @@ public class PCharacter extends LivingObject {
 	 */
 	private void updateImmortality() {
 		
-		if(lastAttackedTime + Constants.CHARACTER_IMMORTALITY_TIME < System.currentTimeMillis()){
+		if(lastAttackedTime + Constants.CHARACTER_IMMORTALITY_TIME < getTimeMillis()){
 			immortal = false;
-			lastAttackedTime = 0;
+			lastAttackedTime = SimulationClock.NEVER;
 		}
 	}
 	
@@ -375,10 +376,11 @@ public class PCharacter extends LivingObject {
 	 * Make the character attack (i.e. shoot with his gun.
 	 */
 	public void attack() {
-		if (lastAttacktime + currentWeapon.getCooldown() < System.currentTimeMillis()) {
+		long time = getTimeMillis();
+		if (lastAttacktime + currentWeapon.getCooldown() < time) {
 			currentWeapon.shoot(this.getX(), this.getY(), this.isFacingRight());
 			this.addVelocity(currentWeapon.getKnockback(isFacingRight()));
-			lastAttacktime = System.currentTimeMillis(); 
+			lastAttacktime = time; 
 		}
 	}
 
@@ -404,11 +406,11 @@ public class PCharacter extends LivingObject {
 			isDashing = false;
 			distanceDashed = 0;
 		}
-		lastDashed = System.currentTimeMillis();
+		lastDashed = getTimeMillis();
 	}
 	
 	private boolean recentlyDashed() {
-		return lastDashed + Constants.DASHCOOLDOWN > System.currentTimeMillis();
+		return lastDashed + Constants.DASHCOOLDOWN > getTimeMillis();
 	}
 
 	/**
@@ -418,7 +420,7 @@ public class PCharacter extends LivingObject {
 		if(!immortal) {
 			this.damage(dmg);
 			immortal = true;
-			lastAttackedTime = System.currentTimeMillis();
+			lastAttackedTime = getTimeMillis();
 		}
 	}
 
@@ -515,7 +517,7 @@ public class PCharacter extends LivingObject {
 	 * @return 0.0 if it's just fired. Then it loads up to 1.0.
 	 */
 	public float getWeaponLoadedPercentage() {
-		float loaded = (System.currentTimeMillis() - lastAttacktime) / (float)currentWeapon.getCooldown();
+		float loaded = (getTimeMillis() - lastAttacktime) / (float)currentWeapon.getCooldown();
 		if (loaded > 1)
 			return 1;
 		else
@@ -2,10 +2,9 @@ package rsmg.model.object.unit;
 
 import java.util.List;
 
-import rsmg.model.object.bullet.BasicBullet;
 import rsmg.model.object.bullet.Bullet;
+import rsmg.model.object.bullet.BulletPool;
 import rsmg.model.variables.ObjectName;
-import rsmg.util.Vector2d;
 
 /**
  * Class representing a stationary non-flying enemy
@@ -57,7 +56,7 @@ public class TankBot extends Enemy implements AttackingEnemy{
 			bulletSpeed = -XBULLETSPEED;
 		}
 		
-		bulletList.add(new BasicBullet(getX(), getY(), 8, 2, ObjectName.PISTOL_BULLET, 25, new Vector2d(bulletSpeed, 0)));
+		bulletList.add(BulletPool.getBasicBullet(getX(), getY(), 8, 2, ObjectName.PISTOL_BULLET, 25, bulletSpeed, 0));
 
 	}
 }
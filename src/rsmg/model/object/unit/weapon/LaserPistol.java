@@ -3,8 +3,8 @@ package rsmg.model.object.unit.weapon;
 import java.util.Collection;
 
 import rsmg.io.CharacterProgress;
-import rsmg.model.object.bullet.BasicBullet;
 import rsmg.model.object.bullet.Bullet;
+import rsmg.model.object.bullet.BulletPool;
 import rsmg.model.variables.ObjectName;
 import rsmg.util.Vector2d;
 /**
@@ -20,6 +20,7 @@ public class LaserPistol implements Weapon {
 	private static int bulletHeight = 3;
 	private static int bulletDamage = 2;
 	private static int bulletSpeed = 600;
+	private static final Vector2d NO_KNOCKBACK = new Vector2d();
 	private int offsetX;
 	private int offsetY;
 	private Collection<Bullet> bulletList;
@@ -35,19 +36,19 @@ public class LaserPistol implements Weapon {
 	@Override
 	public void shoot(double x, double y, boolean isFacingRight) {
 	
-		Vector2d bulletVelocity = new Vector2d();
+		int velocityX;
 		
 		if (isFacingRight) {
-			bulletVelocity.setX(bulletSpeed);
+			velocityX = bulletSpeed;
 			offsetX = 25;
 			offsetY = 5;
 		} else { //isFacingLeft
-			bulletVelocity.setX(-bulletSpeed);
+			velocityX = -bulletSpeed;
 			offsetX = -5;
 			offsetY = 5;
 		}
 		
-		bulletList.add(new BasicBullet(x+offsetX, y+offsetY, bulletWidth, bulletHeight, ObjectName.LASER_BULLET, bulletDamage, bulletVelocity));
+		bulletList.add(BulletPool.getBasicBullet(x+offsetX, y+offsetY, bulletWidth, bulletHeight, ObjectName.LASER_BULLET, bulletDamage, velocityX, 0));
 		
 		shot = true;
 	}
@@ -80,7 +81,7 @@ public class LaserPistol implements Weapon {
 	 */
 	@Override
 	public Vector2d getKnockback(boolean isFacingRight) {
-		return new Vector2d(0,0);
+		return NO_KNOCKBACK;
 	}
 	
 	/**
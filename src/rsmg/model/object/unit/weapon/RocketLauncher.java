@@ -3,8 +3,8 @@ package rsmg.model.object.unit.weapon;
 import java.util.Collection;
 
 import rsmg.io.CharacterProgress;
-import rsmg.model.object.bullet.BasicBullet;
 import rsmg.model.object.bullet.Bullet;
+import rsmg.model.object.bullet.BulletPool;
 import rsmg.model.variables.ObjectName;
 import rsmg.util.Vector2d;
 /**
@@ -21,6 +21,7 @@ public class RocketLauncher implements Weapon {
 	private static final int bulletDamage = 3;
 	private static final int bulletSpeed = 400;
 	private static final int rpgKnockback = 200;
+	private final Vector2d knockbackVector = new Vector2d();
 
 	public RocketLauncher(Collection<Bullet> bulletList) {
 		this.bulletList = bulletList;
@@ -33,22 +34,19 @@ public class RocketLauncher implements Weapon {
 	@Override
 	public void shoot(double x, double y, boolean isFacingRight) {
 
-		Vector2d bulletVelocity = new Vector2d();
 		int offsetX;
 		int offsetY;
 		
 		
 		if (isFacingRight){
-			bulletVelocity.setX(bulletSpeed);
 			offsetX = 25;
 			offsetY = 0;
-			bulletList.add(new BasicBullet(x+offsetX, y+offsetY, bulletWidth, bulletHeight, ObjectName.ROCKETR, bulletDamage, bulletVelocity));
+			bulletList.add(BulletPool.getBasicBullet(x+offsetX, y+offsetY, bulletWidth, bulletHeight, ObjectName.ROCKETR, bulletDamage, bulletSpeed, 0));
 
 		}else{
-			bulletVelocity.setX(-bulletSpeed);
 			offsetX = -5;
 			offsetY = 0;
-			bulletList.add(new BasicBullet(x+offsetX, y+offsetY, bulletWidth, bulletHeight, ObjectName.ROCKETL, bulletDamage, bulletVelocity));
+			bulletList.add(BulletPool.getBasicBullet(x+offsetX, y+offsetY, bulletWidth, bulletHeight, ObjectName.ROCKETL, bulletDamage, -bulletSpeed, 0));
 
 		}
 		
@@ -88,7 +86,8 @@ public class RocketLauncher implements Weapon {
 		if(isFacingRight) {
 			knockback*=-1;
 		}
-		return new Vector2d(knockback, 0);
+		knockbackVector.setX(knockback);
+		return knockbackVector;
 	}
 	
 	/**
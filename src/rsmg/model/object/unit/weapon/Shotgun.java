@@ -4,8 +4,8 @@ import java.util.Collection;
 import java.util.Random;
 
 import rsmg.io.CharacterProgress;
-import rsmg.model.object.bullet.BasicBullet;
 import rsmg.model.object.bullet.Bullet;
+import rsmg.model.object.bullet.BulletPool;
 import rsmg.model.variables.Constants;
 import rsmg.model.variables.ObjectName;
 import rsmg.util.Vector2d;
@@ -25,8 +25,10 @@ public class Shotgun implements Weapon {
 	private int offsetX;
 	private int offsetY = 5;
 	private static int amountOfBulletsPerShot = 9;
+	private final Vector2d knockbackVector = new Vector2d();
 	private static int shotgunKnockback = 50;
 	private final int spread;
+	private final Random randomGen = new Random();
 	
 	public Shotgun(Collection<Bullet> bulletList) {
 		this.bulletList = bulletList;
@@ -52,13 +54,9 @@ public class Shotgun implements Weapon {
 			offsetX = -5;
 		}
 		
-		Random randomGen = new Random();
-		
 		for(int i = 0; i < amountOfBulletsPerShot; i++){
-			Vector2d bulletVelocity = new Vector2d();
-			bulletVelocity.setX(xBulletSpeed);
-			bulletVelocity.setY((randomGen.nextDouble()*2-1)*spread);
-			bulletList.add(new BasicBullet(x+offsetX, y+offsetY, bulletWidth, bulletHeight, ObjectName.SHOTGUN_BULLET, bulletDamage, bulletVelocity));
+			double yBulletSpeed = (randomGen.nextDouble()*2-1)*spread;
+			bulletList.add(BulletPool.getBasicBullet(x+offsetX, y+offsetY, bulletWidth, bulletHeight, ObjectName.SHOTGUN_BULLET, bulletDamage, xBulletSpeed, yBulletSpeed));
 		}
 		
 		shot = true;
@@ -96,7 +94,8 @@ public class Shotgun implements Weapon {
 		if(isFacingRight) {
 			knockback*=-1;
 		}
-		return new Vector2d(knockback, 0);
+		knockbackVector.setX(knockback);
+		return knockbackVector;
 	}
 	
 	/**
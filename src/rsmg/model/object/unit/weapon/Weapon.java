@@ -34,6 +34,7 @@ public interface Weapon {
 
 	/**
 	 * Returns the vector of how much the wield should be pushed back when firing the weapon.
+	 * The weapon may return the same vector every time, so it must not be kept or changed.
 	 * @param isFacingRight If the wielder is facing to the right.
 	 * @return
 	 */
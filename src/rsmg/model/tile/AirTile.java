@@ -8,7 +8,7 @@ import rsmg.model.variables.ObjectName;
  */
 public class AirTile extends Tile {
 
-	private static boolean solid = false;
+	private static final boolean solid = false;
 
 	/**
 	 * Constructor of AirTile
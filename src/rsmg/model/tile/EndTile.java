@@ -9,7 +9,7 @@ import rsmg.model.variables.ObjectName;
  */
 public class EndTile extends Tile {
 
-	private static boolean solid = false;
+	private static final boolean solid = false;
 
 	/**
 	 * Constructor of EndTile
@@ -8,7 +8,7 @@ import rsmg.model.variables.ObjectName;
  */
 public class GroundTile extends Tile {
 
-	private static boolean solid = true;
+	private static final boolean solid = true;
 
 	/**
 	 * Constructor of GroundTile
@@ -17,7 +17,7 @@ public abstract class Tile {
 	/**
 	 * Name for the tile
 	 */
-	private ObjectName name;
+	private final ObjectName name;
 
 	/**
 	 * Constructor of Tile
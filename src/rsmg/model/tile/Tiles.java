@@ -0,0 +1,89 @@
+package rsmg.model.tile;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import rsmg.model.variables.ObjectName;
+
+/**
+ * Holds one shared instance of every kind of tile. Tiles don't have any state
+ * apart from their name, so a level can use the same instance in all cells
+ * with the same name instead of creating one object per cell.
+ *
+ * Every tile also has a code, a small number that can be stored in a byte
+ * instead of a reference to the tile. Air has code 0, so an array of codes
+ * that hasn't been filled in is all air.
+ */
+public final class Tiles {
+
+	private static final Map<ObjectName, Tile> tiles = new EnumMap<ObjectName, Tile>(ObjectName.class);
+
+	private static final Map<ObjectName, Byte> codes = new EnumMap<ObjectName, Byte>(ObjectName.class);
+
+	private static final List<Tile> byCode = new ArrayList<Tile>();
+
+	static {
+		add(new AirTile());
+		add(new GroundTile(ObjectName.BOX_TILE1));
+		add(new GroundTile(ObjectName.BOX_TILE2));
+		add(new GroundTile(ObjectName.BOX_TILE3));
+		add(new GroundTile(ObjectName.BOX_TILE4));
+		add(new SpawnTile());
+		add(new EndTile());
+	}
+
+	private Tiles() {
+	}
+
+	private static void add(Tile tile) {
+		tiles.put(tile.getName(), tile);
+		codes.put(tile.getName(), (byte)byCode.size());
+		byCode.add(tile);
+	}
+
+	/**
+	 * Returns the shared tile with a name.
+	 * @param name The tile's name.
+	 * @return The tile.
+	 * @throws IllegalArgumentException If there is no tile with the name.
+	 */
+	public static Tile get(ObjectName name) {
+		Tile tile = name == null ? null : tiles.get(name);
+		if (tile == null)
+			throw new IllegalArgumentException(name + " is not a tile.");
+		return tile;
+	}
+
+	/**
+	 * Returns the shared tile with a code.
+	 * @param code The tile's code.
+	 * @return The tile.
+	 * @throws IllegalArgumentException If there is no tile with the code.
+	 */
+	public static Tile get(byte code) {
+		if (code < 0 || code >= byCode.size())
+			throw new IllegalArgumentException(code + " is not a tile code.");
+		return byCode.get(code);
+	}
+
+	/**
+	 * Returns the code of the tiles with a name.
+	 * @param name The tile's name.
+	 * @return The code.
+	 * @throws IllegalArgumentException If there is no tile with the name.
+	 */
+	public static byte getCode(ObjectName name) {
+		return codes.get(get(name).getName());
+	}
+
+	/**
+	 * Returns the number of tile codes. The codes go from 0 to this number
+	 * minus one.
+	 * @return The number of codes.
+	 */
+	public static int getCodeCount() {
+		return byCode.size();
+	}
+}
@@ -81,4 +81,10 @@ public enum Constants{
 	 * restarted.
 	 */
 	public static final int DEATH_TIME = 5;
+	
+	/**
+	 * How many tiles outside the screen the enemies are still moved and
+	 * allowed to think.
+	 */
+	public static final int ACTIVITY_MARGIN = 8;
 }
@@ -0,0 +1,284 @@
+package rsmg.simulator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+
+import rsmg.io.Levels;
+import rsmg.levelfactory.LevelFactory;
+import rsmg.model.Level;
+import rsmg.model.variables.Constants;
+
+/**
+ * Plays levels without a window, as fast as the computer allows. The levels
+ * are built by LevelFactory and updated in fixed ticks while the character is
+ * controlled by a script. Nothing from Slick or LWJGL is used, so the
+ * simulator only needs the model, the io package and JDOM on the classpath.
+ *
+ * For every run the outcome, the number of ticks, how many ticks that were
+ * simulated per second and how many objects that were left in the level are
+ * printed. It is meant to be used to check the balance and the performance of
+ * the levels in res/data/level.
+ *
+ * Usage:
+ *
+ * <pre>
+ * java rsmg.simulator.LevelSimulator [options] [level numbers]
+ *   --runs N        Number of times each level is played. Default 1.
+ *   --ticks N       Maximum number of ticks per run. Default 36000.
+ *   --tick-rate N   Ticks per simulated second. Default 60.
+ *   --threads N     Number of threads the enemies are updated on. Default 1.
+ *   --cull          Only update the enemies close to the character, like the
+ *                   game does. By default all enemies are updated.
+ *   --script FILE   Script that controls the character. By default the
+ *                   character runs to the right, jumps and shoots.
+ * </pre>
+ *
+ * If no level numbers are given, all available levels are played.
+ */
+public final class LevelSimulator {
+
+	/**
+	 * The outcome of a run.
+	 */
+	public enum Outcome {
+		WON, LOST, TIMEOUT
+	}
+
+	/**
+	 * The result of playing a level once.
+	 */
+	public static final class Result {
+		private final Outcome outcome;
+		private final int ticks;
+		private final long nanos;
+		private final int enemies;
+		private final int alliedBullets;
+		private final int enemyBullets;
+		private final int items;
+
+		private Result(Outcome outcome, int ticks, long nanos, Level level) {
+			this.outcome = outcome;
+			this.ticks = ticks;
+			this.nanos = nanos;
+			this.enemies = level.getEnemies().size();
+			this.alliedBullets = level.getAlliedBulletList().size();
+			this.enemyBullets = level.getEnemyBullets().size();
+			this.items = level.getItemList().size();
+		}
+
+		/**
+		 * @return How the run ended.
+		 */
+		public Outcome getOutcome() {
+			return outcome;
+		}
+
+		/**
+		 * @return Number of ticks that were simulated.
+		 */
+		public int getTicks() {
+			return ticks;
+		}
+
+		/**
+		 * @return Number of ticks that were simulated per second of real time.
+		 */
+		public double getTicksPerSecond() {
+			return nanos == 0 ? 0 : ticks / (nanos / 1e9);
+		}
+
+		@Override
+		public String toString() {
+			return String.format(Locale.ENGLISH,
+					"%-7s ticks=%-6d ticks/s=%-10.0f enemies=%d alliedBullets=%d enemyBullets=%d items=%d",
+					outcome, ticks, getTicksPerSecond(), enemies, alliedBullets, enemyBullets, items);
+		}
+	}
+
+	/**
+	 * The size of what the game shows of a level in its window, in the
+	 * model's units.
+	 */
+	private static final int SCREEN_WIDTH = 480;
+	private static final int SCREEN_HEIGHT = 270;
+
+	/**
+	 * The length of a tick in seconds.
+	 */
+	private final double tickLength;
+
+	/**
+	 * Maximum number of ticks before a run is stopped.
+	 */
+	private final int maxTicks;
+
+	/**
+	 * The pool the enemies are updated in, or null if they are updated on the
+	 * simulator's thread.
+	 */
+	private ForkJoinPool aiPool;
+
+	/**
+	 * If only the enemies close to the character are updated.
+	 */
+	private boolean cull;
+
+	/**
+	 * Create a simulator.
+	 *
+	 * @param tickRate Number of ticks per simulated second.
+	 * @param maxTicks Maximum number of ticks before a run is stopped.
+	 */
+	public LevelSimulator(int tickRate, int maxTicks) {
+		this.tickLength = 1.0 / tickRate;
+		this.maxTicks = maxTicks;
+	}
+
+	/**
+	 * Set the pool that the enemies of the levels are updated in.
+	 *
+	 * @param aiPool The pool, or null to update the enemies on the
+	 *            simulator's thread.
+	 */
+	public void setAiPool(ForkJoinPool aiPool) {
+		this.aiPool = aiPool;
+	}
+
+	/**
+	 * Set if only the enemies close to the character should be updated. The
+	 * region is as large as what the game shows in its window, plus
+	 * Constants.ACTIVITY_MARGIN tiles.
+	 *
+	 * @param cull If the enemies far away should be dormant.
+	 */
+	public void setCulling(boolean cull) {
+		this.cull = cull;
+	}
+
+	/**
+	 * Play a level once, until it is won, lost or the tick limit is reached.
+	 *
+	 * @param levelNumber The level's number.
+	 * @param input The input controlling the character. It is reset before
+	 *            the run starts.
+	 * @return The result of the run.
+	 */
+	public Result run(int levelNumber, ScriptedInput input) {
+		Level level = LevelFactory.getLevel(levelNumber);
+		try {
+			return run(level, input);
+		} finally {
+			LevelFactory.releaseLevel(level);
+		}
+	}
+
+	/**
+	 * Play a level until it is won, lost or the tick limit is reached.
+	 *
+	 * @param level The level.
+	 * @param input The input controlling the character. It is reset before
+	 *            the run starts.
+	 * @return The result of the run.
+	 */
+	public Result run(Level level, ScriptedInput input) {
+		input.reset();
+		level.setAiPool(aiPool);
+		if (cull)
+			level.setActivityRegion(SCREEN_WIDTH, SCREEN_HEIGHT, Constants.ACTIVITY_MARGIN);
+		long start = System.nanoTime();
+		int tick = 0;
+		while (tick < maxTicks && !level.hasWon() && !level.hasLost()) {
+			input.apply(tick, level.getCharacter());
+			level.update(tickLength);
+			tick++;
+		}
+		long nanos = System.nanoTime() - start;
+
+		Outcome outcome;
+		if (level.hasWon())
+			outcome = Outcome.WON;
+		else if (level.hasLost())
+			outcome = Outcome.LOST;
+		else
+			outcome = Outcome.TIMEOUT;
+		return new Result(outcome, tick, nanos, level);
+	}
+
+	public static void main(String[] args) {
+		int runs = 1;
+		int maxTicks = 36000;
+		int tickRate = 60;
+		int threads = 1;
+		boolean cull = false;
+		String script = null;
+		List<Integer> levelNumbers = new ArrayList<Integer>();
+
+		try {
+			for (int i = 0; i < args.length; i++) {
+				if (args[i].equals("--runs"))
+					runs = Integer.parseInt(args[++i]);
+				else if (args[i].equals("--ticks"))
+					maxTicks = Integer.parseInt(args[++i]);
+				else if (args[i].equals("--tick-rate"))
+					tickRate = Integer.parseInt(args[++i]);
+				else if (args[i].equals("--threads"))
+					threads = Integer.parseInt(args[++i]);
+				else if (args[i].equals("--cull"))
+					cull = true;
+				else if (args[i].equals("--script"))
+					script = args[++i];
+				else
+					levelNumbers.add(Integer.parseInt(args[i]));
+			}
+		} catch (RuntimeException e) {
+			System.out.println("Invalid arguments. See the documentation of LevelSimulator.");
+			System.exit(1);
+		}
+
+		if (levelNumbers.isEmpty())
+			levelNumbers.addAll(Levels.getLevelNumbers());
+		Collections.sort(levelNumbers);
+
+		ScriptedInput input;
+		try {
+			input = script != null ? ScriptedInput.fromFile(script) : ScriptedInput.runRight(maxTicks);
+		} catch (IOException e) {
+			System.out.println("Couldn't read the script: " + e.getMessage());
+			System.exit(1);
+			return;
+		}
+
+		LevelSimulator simulator = new LevelSimulator(tickRate, maxTicks);
+		simulator.setCulling(cull);
+		ForkJoinPool aiPool = null;
+		if (threads > 1) {
+			aiPool = new ForkJoinPool(threads);
+			simulator.setAiPool(aiPool);
+		}
+		for (int levelNumber : levelNumbers) {
+			int won = 0;
+			int lost = 0;
+			long totalTicks = 0;
+			long start = System.nanoTime();
+			for (int run = 1; run <= runs; run++) {
+				Result result = simulator.run(levelNumber, input);
+				System.out.println("Level " + levelNumber + " run " + run + ": " + result);
+				totalTicks += result.getTicks();
+				if (result.getOutcome() == Outcome.WON)
+					won++;
+				else if (result.getOutcome() == Outcome.LOST)
+					lost++;
+			}
+			double seconds = (System.nanoTime() - start) / 1e9;
+			System.out.println(String.format(Locale.ENGLISH,
+					"Level %d: %d runs, %d won, %d lost, %d timed out, %.1f runs/s, %.0f ticks/s including loading",
+					levelNumber, runs, won, lost, runs - won - lost, runs / seconds, totalTicks / seconds));
+		}
+		if (aiPool != null)
+			aiPool.shutdown();
+	}
+}
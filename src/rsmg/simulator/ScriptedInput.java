@@ -0,0 +1,261 @@
+package rsmg.simulator;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+
+import rsmg.model.object.unit.PCharacter;
+import rsmg.model.variables.ObjectName;
+
+/**
+ * Input for the character that is read from a script instead of from a
+ * keyboard. The script says on which tick a key is pressed and on which tick
+ * it is released, and the keys are then handled the same way as LevelState
+ * handles the real keyboard.
+ *
+ * A script is a text file with one event per line:
+ *
+ * <pre>
+ * # tick  event    key
+ * 0       press    right
+ * 30      press    jump
+ * 45      release  jump
+ * </pre>
+ *
+ * The keys are left, right, jump, attack, dash, pistol, laserPistol, shotgun
+ * and rocketLauncher. Attack, dash and the weapon keys only do something on
+ * the tick they are pressed, just like in the game.
+ */
+public class ScriptedInput {
+
+	/**
+	 * The keys that can be used in a script.
+	 */
+	public enum Key {
+		LEFT, RIGHT, JUMP, ATTACK, DASH, PISTOL, LASERPISTOL, SHOTGUN, ROCKETLAUNCHER
+	}
+
+	/**
+	 * A key being pressed or released on a given tick.
+	 */
+	private static class Event {
+		private final int tick;
+		private final boolean press;
+		private final Key key;
+
+		private Event(int tick, boolean press, Key key) {
+			this.tick = tick;
+			this.press = press;
+			this.key = key;
+		}
+	}
+
+	/**
+	 * All events in the script, sorted on their ticks.
+	 */
+	private final List<Event> events;
+
+	/**
+	 * Index of the next event that hasn't happened yet.
+	 */
+	private int nextEvent;
+
+	/**
+	 * The keys that are held down.
+	 */
+	private final EnumSet<Key> held = EnumSet.noneOf(Key.class);
+
+	/**
+	 * The keys that were pressed on the current tick.
+	 */
+	private final EnumSet<Key> pressed = EnumSet.noneOf(Key.class);
+
+	/**
+	 * Track if the left, right and jump keys were down on the last tick, so
+	 * the character can be told when they are released.
+	 */
+	private boolean leftKeyIsDown;
+	private boolean rightKeyIsDown;
+	private boolean upKeyIsDown;
+
+	/**
+	 * Create scripted input from a list of events.
+	 * @param events The events.
+	 */
+	private ScriptedInput(List<Event> events) {
+		this.events = events;
+		Collections.sort(this.events, new Comparator<Event>() {
+			@Override
+			public int compare(Event e1, Event e2) {
+				return e1.tick < e2.tick ? -1 : (e1.tick == e2.tick ? 0 : 1);
+			}
+		});
+	}
+
+	/**
+	 * Read a script from a file.
+	 *
+	 * @param path Path to the script.
+	 * @return The scripted input.
+	 * @throws IOException If the file can't be read or has an invalid line.
+	 */
+	public static ScriptedInput fromFile(String path) throws IOException {
+		BufferedReader reader = new BufferedReader(new FileReader(path));
+		try {
+			return parse(reader);
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Read a script.
+	 *
+	 * @param reader Reader that the script is read from.
+	 * @return The scripted input.
+	 * @throws IOException If the script can't be read or has an invalid line.
+	 */
+	public static ScriptedInput parse(BufferedReader reader) throws IOException {
+		List<Event> events = new ArrayList<Event>();
+		String line;
+		int lineNumber = 0;
+		while ((line = reader.readLine()) != null) {
+			lineNumber++;
+			line = line.trim();
+			if (line.length() == 0 || line.startsWith("#"))
+				continue;
+
+			String[] parts = line.split("\\s+");
+			if (parts.length != 3)
+				throw new IOException("Line " + lineNumber + ": expected <tick> press|release <key>");
+			try {
+				int tick = Integer.parseInt(parts[0]);
+				boolean press;
+				if (parts[1].equals("press"))
+					press = true;
+				else if (parts[1].equals("release"))
+					press = false;
+				else
+					throw new IOException("Line " + lineNumber + ": unknown event " + parts[1]);
+				Key key = Key.valueOf(parts[2].toUpperCase(Locale.ENGLISH));
+				events.add(new Event(tick, press, key));
+			} catch (IllegalArgumentException e) {
+				throw new IOException("Line " + lineNumber + ": " + e.getMessage());
+			}
+		}
+		return new ScriptedInput(events);
+	}
+
+	/**
+	 * Create input that holds the right key down the whole time, jumps every
+	 * 40th tick and shoots every 30th tick. Good enough to get through the
+	 * simple levels.
+	 *
+	 * @param ticks For how many ticks the input should last.
+	 * @return The scripted input.
+	 */
+	public static ScriptedInput runRight(int ticks) {
+		List<Event> events = new ArrayList<Event>();
+		events.add(new Event(0, true, Key.RIGHT));
+		for (int tick = 0; tick < ticks; tick++) {
+			if (tick % 40 == 0)
+				events.add(new Event(tick, true, Key.JUMP));
+			else if (tick % 40 == 20)
+				events.add(new Event(tick, false, Key.JUMP));
+			if (tick % 30 == 0)
+				events.add(new Event(tick, true, Key.ATTACK));
+			else if (tick % 30 == 1)
+				events.add(new Event(tick, false, Key.ATTACK));
+		}
+		return new ScriptedInput(events);
+	}
+
+	/**
+	 * Start the script over from the beginning, with no keys held down.
+	 */
+	public void reset() {
+		nextEvent = 0;
+		held.clear();
+		pressed.clear();
+		leftKeyIsDown = false;
+		rightKeyIsDown = false;
+		upKeyIsDown = false;
+	}
+
+	/**
+	 * Returns if a key is held down.
+	 * @param key The key.
+	 * @return If the key is held down.
+	 */
+	public boolean isHeld(Key key) {
+		return held.contains(key);
+	}
+
+	/**
+	 * Handle all events for a tick and control the character accordingly.
+	 * Should be called once every tick with increasing tick numbers, before
+	 * the level is updated.
+	 *
+	 * @param tick The current tick.
+	 * @param character The character to control.
+	 */
+	public void apply(int tick, PCharacter character) {
+		pressed.clear();
+		while (nextEvent < events.size() && events.get(nextEvent).tick <= tick) {
+			Event event = events.get(nextEvent++);
+			if (event.press) {
+				if (held.add(event.key))
+					pressed.add(event.key);
+			} else {
+				held.remove(event.key);
+			}
+		}
+
+		// left key
+		if (held.contains(Key.LEFT)) {
+			character.moveLeft();
+			leftKeyIsDown = true;
+		} else if (leftKeyIsDown) {
+			leftKeyIsDown = false;
+			character.moveLeftReleased();
+		}
+
+		// right key
+		if (held.contains(Key.RIGHT) && !leftKeyIsDown) {
+			character.moveRight();
+			rightKeyIsDown = true;
+		} else if (rightKeyIsDown) {
+			rightKeyIsDown = false;
+			character.moveRightReleased();
+		}
+
+		// jump key
+		if (held.contains(Key.JUMP)) {
+			if (!upKeyIsDown)
+				character.jump();
+			upKeyIsDown = true;
+		} else if (upKeyIsDown) {
+			upKeyIsDown = false;
+			character.jumpReleased();
+		}
+
+		if (pressed.contains(Key.ATTACK))
+			character.attack();
+		if (pressed.contains(Key.DASH))
+			character.dash();
+		if (pressed.contains(Key.PISTOL))
+			character.changeWeapon(ObjectName.PISTOL);
+		if (pressed.contains(Key.LASERPISTOL))
+			character.changeWeapon(ObjectName.LASER_PISTOL);
+		if (pressed.contains(Key.SHOTGUN))
+			character.changeWeapon(ObjectName.SHOTGUN);
+		if (pressed.contains(Key.ROCKETLAUNCHER))
+			character.changeWeapon(ObjectName.ROCKET_LAUNCHER);
+	}
+}
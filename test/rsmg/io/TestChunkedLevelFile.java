@@ -0,0 +1,93 @@
+package rsmg.io;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import rsmg.io.CompiledLevelFile.Spawn;
+import rsmg.model.TileChunk;
+import rsmg.model.TileGrid;
+import rsmg.model.tile.AirTile;
+import rsmg.model.tile.GroundTile;
+import rsmg.model.tile.Tile;
+import rsmg.model.variables.ObjectName;
+
+public class TestChunkedLevelFile {
+
+	/**
+	 * A grid that is three chunks wide, where the middle chunk only has air.
+	 */
+	private TileGrid createGrid() {
+		Tile[][] tiles = new Tile[10][TileChunk.SIZE * 3];
+		for (int y = 0; y < tiles.length; y++) {
+			for (int x = 0; x < tiles[y].length; x++) {
+				boolean middle = x >= TileChunk.SIZE && x < TileChunk.SIZE * 2;
+				if (y == tiles.length - 1 && !middle)
+					tiles[y][x] = new GroundTile(ObjectName.BOX_TILE1);
+				else
+					tiles[y][x] = new AirTile();
+			}
+		}
+		return new TileGrid(tiles);
+	}
+
+	@Test
+	public void testSpawns() throws IOException {
+		TileGrid grid = createGrid();
+		List<Spawn> items = new ArrayList<Spawn>();
+		items.add(new Spawn(ObjectName.HEALTH_PACK, 2, 3));
+		items.add(new Spawn(ObjectName.SHOTGUN, TileChunk.SIZE + 4, 5));
+		List<Spawn> enemies = new ArrayList<Spawn>();
+		enemies.add(new Spawn(ObjectName.TANKBOT, TileChunk.SIZE + 1, 8));
+		enemies.add(new Spawn(ObjectName.BALLBOT, TileChunk.SIZE + 2, 2));
+
+		File file = File.createTempFile("level", ".rsmc");
+		file.deleteOnExit();
+		ChunkedLevelFile.write(grid, items, enemies, file);
+
+		ChunkedLevelFile chunked = new ChunkedLevelFile(file);
+		try {
+			List<Spawn> chunkItems = new ArrayList<Spawn>();
+			List<Spawn> chunkEnemies = new ArrayList<Spawn>();
+			chunked.loadSpawns(0, 0, chunkItems, chunkEnemies);
+			assertTrue(chunkItems.size() == 1 && chunkEnemies.isEmpty());
+			assertTrue(chunkItems.get(0).getName() == ObjectName.HEALTH_PACK);
+			assertTrue(chunkItems.get(0).getX() == 2 && chunkItems.get(0).getY() == 3);
+
+			// The middle chunk has no tiles but has spawns.
+			chunkItems.clear();
+			chunked.loadSpawns(1, 0, chunkItems, chunkEnemies);
+			assertTrue(chunkItems.size() == 1 && chunkEnemies.size() == 2);
+			assertTrue(chunkEnemies.get(0).getName() == ObjectName.TANKBOT);
+			assertTrue(chunkEnemies.get(1).getName() == ObjectName.BALLBOT);
+			assertTrue(chunkEnemies.get(1).getX() == TileChunk.SIZE + 2 && chunkEnemies.get(1).getY() == 2);
+			assertTrue(chunked.loadChunk(1, 0).getCode(0, 9) == 0);
+			assertTrue(chunked.loadChunk(2, 0).getCode(0, 9) != 0);
+
+			chunkItems.clear();
+			chunkEnemies.clear();
+			chunked.loadSpawns(2, 0, chunkItems, chunkEnemies);
+			assertTrue(chunkItems.isEmpty() && chunkEnemies.isEmpty());
+		} finally {
+			chunked.close();
+		}
+	}
+
+	@Test
+	public void testSpawnOutsideGrid() throws IOException {
+		List<Spawn> enemies = new ArrayList<Spawn>();
+		enemies.add(new Spawn(ObjectName.TANKBOT, TileChunk.SIZE * 3, 0));
+		File file = File.createTempFile("level", ".rsmc");
+		file.deleteOnExit();
+		try {
+			ChunkedLevelFile.write(createGrid(), new ArrayList<Spawn>(), enemies, file);
+			assertTrue(false);
+		} catch (IllegalArgumentException e) {
+		}
+	}
+}
@@ -0,0 +1,148 @@
+package rsmg.io;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import rsmg.io.CompiledLevelFile.Spawn;
+import rsmg.levelfactory.LevelFactory;
+import rsmg.model.Level;
+import rsmg.model.TileChunk;
+import rsmg.model.TileGrid;
+import rsmg.model.tile.AirTile;
+import rsmg.model.tile.EndTile;
+import rsmg.model.tile.GroundTile;
+import rsmg.model.tile.SpawnTile;
+import rsmg.model.tile.Tile;
+import rsmg.model.variables.ObjectName;
+
+public class TestCompiledLevelFile {
+
+	/**
+	 * A grid that is wider than one chunk, so the chunks are read from
+	 * several rows of the file.
+	 */
+	private TileGrid createGrid() {
+		Tile[][] tiles = new Tile[10][TileChunk.SIZE + 5];
+		for (int y = 0; y < tiles.length; y++) {
+			for (int x = 0; x < tiles[y].length; x++) {
+				if (y == tiles.length - 1 || x == y * 7)
+					tiles[y][x] = new GroundTile(ObjectName.BOX_TILE2);
+				else
+					tiles[y][x] = new AirTile();
+			}
+		}
+		tiles[8][1] = new SpawnTile();
+		tiles[8][TileChunk.SIZE + 3] = new EndTile();
+		return new TileGrid(tiles);
+	}
+
+	private File createSource() throws IOException {
+		File source = File.createTempFile("level", ".xml");
+		source.deleteOnExit();
+		FileOutputStream out = new FileOutputStream(source);
+		out.write("<level/>".getBytes("US-ASCII"));
+		out.close();
+		return source;
+	}
+
+	@Test
+	public void testWriteAndLoad() throws IOException {
+		TileGrid grid = createGrid();
+		List<Spawn> items = new ArrayList<Spawn>();
+		items.add(new Spawn(ObjectName.HEALTH_PACK, 2, 3));
+		items.add(new Spawn(ObjectName.ROCKET_LAUNCHER, 4, 5));
+		List<Spawn> enemies = new ArrayList<Spawn>();
+		enemies.add(new Spawn(ObjectName.SPIKES, TileChunk.SIZE + 1, 8));
+
+		File source = createSource();
+		File file = File.createTempFile("level", ".lvl");
+		file.deleteOnExit();
+		CompiledLevelFile.write(grid, items, enemies, source, file);
+
+		CompiledLevelFile compiled = new CompiledLevelFile(file);
+		assertTrue(compiled.isCompiledFrom(source));
+		TileGrid loaded = new TileGrid(compiled);
+		assertTrue(loaded.getWidth() == grid.getWidth() && loaded.getHeight() == grid.getHeight());
+		assertTrue(loaded.getSpawnPoint().equals(grid.getSpawnPoint()));
+		assertTrue(loaded.getFeatureCount(TileGrid.END) == 1);
+		for (int y = 0; y < grid.getHeight(); y++) {
+			for (int x = 0; x < grid.getWidth(); x++) {
+				assertTrue(loaded.getFromCoord(x, y).getName() == grid.getFromCoord(x, y).getName());
+			}
+		}
+
+		assertTrue(compiled.getItems().size() == 2);
+		assertTrue(compiled.getItems().get(1).getName() == ObjectName.ROCKET_LAUNCHER);
+		assertTrue(compiled.getItems().get(1).getX() == 4 && compiled.getItems().get(1).getY() == 5);
+		assertTrue(compiled.getEnemies().size() == 1);
+		assertTrue(compiled.getEnemies().get(0).getName() == ObjectName.SPIKES);
+		assertTrue(compiled.getEnemies().get(0).getX() == TileChunk.SIZE + 1);
+
+		// Changing the XML file makes the compiled file out of date.
+		FileOutputStream out = new FileOutputStream(source, true);
+		out.write(' ');
+		out.close();
+		assertTrue(!compiled.isCompiledFrom(source));
+	}
+
+	@Test
+	public void testSameLevelAsXml() {
+		int levelNumber = 1;
+		Levels.getCompiledLevelFile(levelNumber).delete();
+		LevelFactory.forgetLevel(levelNumber);
+		Level fromXml = LevelFactory.getLevel(levelNumber);
+		assertTrue(Levels.getCompiledLevel(levelNumber) != null);
+		LevelFactory.forgetLevel(levelNumber);
+		Level compiled = LevelFactory.getLevel(levelNumber);
+
+		TileGrid xmlGrid = fromXml.getTileGrid();
+		TileGrid compiledGrid = compiled.getTileGrid();
+		assertTrue(compiledGrid.getWidth() == xmlGrid.getWidth() && compiledGrid.getHeight() == xmlGrid.getHeight());
+		for (int y = 0; y < xmlGrid.getHeight(); y++) {
+			for (int x = 0; x < xmlGrid.getWidth(); x++) {
+				assertTrue(compiledGrid.getFromCoord(x, y).getName() == xmlGrid.getFromCoord(x, y).getName());
+			}
+		}
+		assertTrue(compiled.getItemList().size() == fromXml.getItemList().size());
+		assertTrue(compiled.getEnemies().size() == fromXml.getEnemies().size());
+		for (int i = 0; i < fromXml.getEnemies().size(); i++) {
+			assertTrue(compiled.getEnemies().get(i).getName() == fromXml.getEnemies().get(i).getName());
+			assertTrue(compiled.getEnemies().get(i).getX() == fromXml.getEnemies().get(i).getX());
+			assertTrue(compiled.getEnemies().get(i).getY() == fromXml.getEnemies().get(i).getY());
+		}
+	}
+
+	@Test
+	public void testInvalidFile() throws IOException {
+		File file = File.createTempFile("level", ".lvl");
+		file.deleteOnExit();
+		FileOutputStream out = new FileOutputStream(file);
+		out.write(new byte[] {'R', 'S', 'M', 'L', 0, 0});
+		out.close();
+		try {
+			new CompiledLevelFile(file);
+			assertTrue(false);
+		} catch (IOException e) {
+		}
+	}
+
+	@Test
+	public void testUnknownSpawn() throws IOException {
+		List<Spawn> items = new ArrayList<Spawn>();
+		items.add(new Spawn(ObjectName.TANKBOT, 0, 0));
+		File file = File.createTempFile("level", ".lvl");
+		file.deleteOnExit();
+		try {
+			CompiledLevelFile.write(createGrid(), items, new ArrayList<Spawn>(), createSource(), file);
+			assertTrue(false);
+		} catch (IllegalArgumentException e) {
+		}
+	}
+}
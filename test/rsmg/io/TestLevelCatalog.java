@@ -0,0 +1,101 @@
+package rsmg.io;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestLevelCatalog {
+
+	/**
+	 * How long to wait for the catalog to notice a change, in milliseconds.
+	 */
+	private static final long TIMEOUT = 10000;
+
+	private File folder;
+	private LevelCatalog catalog;
+
+	@Before
+	public void before() throws IOException {
+		folder = File.createTempFile("levels", "");
+		folder.delete();
+		folder.mkdir();
+		write("Level1.xml", "<level/>");
+		write("Level3Boss.xml", "<level/>");
+		write("template.xml", "<level/>");
+		catalog = new LevelCatalog(folder);
+	}
+
+	@After
+	public void after() {
+		catalog.close();
+		for (File file : folder.listFiles())
+			file.delete();
+		folder.delete();
+	}
+
+	private void write(String name, String content) throws IOException {
+		FileOutputStream out = new FileOutputStream(new File(folder, name));
+		out.write(content.getBytes("US-ASCII"));
+		out.close();
+	}
+
+	@Test
+	public void testScan() {
+		List<Integer> numbers = catalog.getLevelNumbers();
+		assertTrue(numbers.size() == 2 && numbers.get(0) == 1 && numbers.get(1) == 3);
+		assertTrue(!catalog.getEntry(1).isBoss());
+		assertTrue(catalog.getEntry(3).isBoss());
+		assertTrue(catalog.getEntry(3).getFile().getName().equals("Level3Boss.xml"));
+		assertTrue(catalog.getEntry(1).getSize() == "<level/>".length());
+		assertTrue(catalog.getEntry(1).getHash() == catalog.getEntry(3).getHash());
+		assertTrue(catalog.getEntry(2) == null);
+	}
+
+	@Test
+	public void testWatch() throws Exception {
+		write("Level2.xml", "<level/>");
+		long deadline = System.currentTimeMillis() + TIMEOUT;
+		while (catalog.getEntry(2) == null && System.currentTimeMillis() < deadline)
+			Thread.sleep(10);
+		assertTrue(catalog.getEntry(2) != null);
+
+		long hash = catalog.getEntry(1).getHash();
+		write("Level1.xml", "<level><row/></level>");
+		deadline = System.currentTimeMillis() + TIMEOUT;
+		while (catalog.getEntry(1).getHash() == hash && System.currentTimeMillis() < deadline)
+			Thread.sleep(10);
+		assertTrue(catalog.getEntry(1).getHash() != hash);
+
+		new File(folder, "Level3Boss.xml").delete();
+		deadline = System.currentTimeMillis() + TIMEOUT;
+		while (catalog.getEntry(3) != null && System.currentTimeMillis() < deadline)
+			Thread.sleep(10);
+		assertTrue(catalog.getEntry(3) == null);
+		assertTrue(catalog.getLevelNumbers().size() == 2);
+	}
+
+	@Test
+	public void testRefresh() throws IOException {
+		catalog.close();
+		write("Level7.xml", "<level/>");
+		catalog.refresh();
+		assertTrue(catalog.getEntry(7) != null);
+	}
+
+	@Test
+	public void testStreamed() throws IOException {
+		catalog.close();
+		write("Level1.rsmc", "RSMC");
+		catalog.refresh();
+		assertTrue(catalog.getEntry(1).isStreamed());
+		assertTrue(catalog.getEntry(1).getFile().getName().equals("Level1.rsmc"));
+		assertTrue(!catalog.getEntry(3).isStreamed());
+	}
+}
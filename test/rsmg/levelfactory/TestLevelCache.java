@@ -0,0 +1,125 @@
+package rsmg.levelfactory;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Test;
+
+import rsmg.io.Levels;
+import rsmg.model.Level;
+import rsmg.model.tile.GroundTile;
+import rsmg.model.variables.ObjectName;
+
+public class TestLevelCache {
+
+	/**
+	 * A level 8 tiles wide and 4 tiles high, with ground on the bottom row,
+	 * the spawn point at (0, 2), a health pack at (3, 2) and a TankBot at
+	 * (5, 2).
+	 */
+	private LevelPrototype createPrototype() throws IOException {
+		StringBuilder xml = new StringBuilder("<level><size><width>8</width><height>4</height></size>");
+		for (int y = 0; y < 4; y++) {
+			xml.append("<row>");
+			for (int x = 0; x < 8; x++) {
+				if (y == 3)
+					xml.append("<cell>GroundTile</cell>");
+				else if (x == 0 && y == 2)
+					xml.append("<cell>SpawnTile</cell>");
+				else if (x == 3 && y == 2)
+					xml.append("<cell item=\"healthPack\">AirTile</cell>");
+				else if (x == 5 && y == 2)
+					xml.append("<cell enemy=\"tankbot\">AirTile</cell>");
+				else
+					xml.append("<cell>AirTile</cell>");
+			}
+			xml.append("</row>");
+		}
+		xml.append("</level>");
+		LevelXmlReader reader = new LevelXmlReader(new ByteArrayInputStream(xml.toString().getBytes("UTF-8")));
+		return new LevelPrototype(reader, reader.getItems(), reader.getEnemies(), 0);
+	}
+
+	@Test
+	public void testLeastRecentlyUsedIsRemoved() throws IOException {
+		LevelPrototype prototype = createPrototype();
+		LevelCache cache = new LevelCache(prototype.getSize() * 2);
+		cache.put(1, prototype);
+		cache.put(2, createPrototype());
+		assertTrue(cache.get(1) == prototype);
+
+		cache.put(3, createPrototype());
+		assertTrue(cache.get(1) == prototype);
+		assertTrue(cache.get(2) == null);
+		assertTrue(cache.get(3) != null);
+		assertTrue(cache.getSize() == prototype.getSize() * 2);
+
+		cache.remove(1);
+		assertTrue(cache.get(1) == null);
+		assertTrue(cache.getSize() == prototype.getSize());
+	}
+
+	@Test
+	public void testLargePrototypeIsKept() throws IOException {
+		LevelPrototype prototype = createPrototype();
+		LevelCache cache = new LevelCache(1);
+		cache.put(1, createPrototype());
+		cache.put(2, prototype);
+		assertTrue(cache.get(1) == null);
+		assertTrue(cache.get(2) == prototype);
+	}
+
+	@Test
+	public void testLevelsDontShareState() throws IOException {
+		LevelPrototype prototype = createPrototype();
+		Level first = LevelFactory.createLevel(prototype);
+		Level second = LevelFactory.createLevel(prototype);
+		assertTrue(first.getCharacter() != second.getCharacter());
+		assertTrue(first.getEnemies().get(0) != second.getEnemies().get(0));
+		assertTrue(first.getItemList().iterator().next() != second.getItemList().iterator().next());
+
+		first.getTileGrid().set(1, 1, new GroundTile(ObjectName.BOX_TILE1));
+		assertTrue(first.getTileGrid().isSolid(1, 1));
+		assertTrue(!second.getTileGrid().isSolid(1, 1));
+		assertTrue(!LevelFactory.createLevel(prototype).getTileGrid().isSolid(1, 1));
+		assertTrue(second.getTileGrid().isSolid(1, 3));
+		assertTrue(second.getTileGrid().getSpawnPoint().equals(first.getTileGrid().getSpawnPoint()));
+	}
+
+	@Test
+	public void testRestartUsesPrototype() {
+		LevelFactory.forgetLevel(1);
+		LevelPrototype prototype = LevelFactory.getPrototype(1);
+		Level first = LevelFactory.getLevel(1);
+		Level second = LevelFactory.getLevel(1);
+		assertTrue(LevelFactory.getPrototype(1) == prototype);
+		assertTrue(first != second);
+		assertTrue(first.getEnemies().size() == second.getEnemies().size());
+	}
+
+	@Test
+	public void testPrefetchNextLevel() throws Exception {
+		LevelFactory.forgetLevel(2);
+		Object prototype = LevelFactory.prefetchNextLevel(1).get();
+		assertTrue(prototype != null);
+		assertTrue(LevelFactory.getPrototype(2) == prototype);
+
+		// Prefetching a level that is loaded returns it at once.
+		assertTrue(LevelFactory.prefetch(2).isDone());
+
+		int last = Collections.max(Levels.getLevelNumbers());
+		assertTrue(LevelFactory.prefetchNextLevel(last).get() == null);
+	}
+
+	@Test
+	public void testGetWaitsForPrefetch() {
+		LevelFactory.forgetLevel(3);
+		CompletableFuture<LevelPrototype> future = LevelFactory.prefetch(3);
+		LevelPrototype prototype = LevelFactory.getPrototype(3);
+		assertTrue(future.join() == prototype);
+	}
+}
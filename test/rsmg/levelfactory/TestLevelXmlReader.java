@@ -0,0 +1,122 @@
+package rsmg.levelfactory;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import org.jdom.Document;
+import org.jdom.Element;
+import org.jdom.input.SAXBuilder;
+import org.junit.Test;
+
+import rsmg.io.Levels;
+import rsmg.model.TileChunk;
+import rsmg.model.TileGrid;
+import rsmg.model.variables.ObjectName;
+
+public class TestLevelXmlReader {
+
+	private LevelXmlReader read(String xml) throws IOException {
+		return new LevelXmlReader(new ByteArrayInputStream(xml.getBytes("UTF-8")));
+	}
+
+	@Test
+	public void testSmallLevel() throws IOException {
+		LevelXmlReader reader = read("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<level>\n"
+				+ "  <size>\n    <width>3</width>\n    <height>2</height>\n  </size>\n"
+				+ "  <row>\n    <cell>GroundTile</cell>\n    <cell item=\"healthPack\">AirTile</cell>\n"
+				+ "    <cell>EndTile</cell>\n  </row>\n"
+				+ "  <row>\n    <cell>SpawnTile</cell>\n    <cell enemy=\"tankbot\"> AirTile </cell>\n"
+				+ "    <cell>GroundTile3</cell>\n  </row>\n</level>");
+		TileGrid grid = new TileGrid(reader);
+		assertTrue(grid.getWidth() == 3 && grid.getHeight() == 2);
+		assertTrue(grid.getFromCoord(0, 0).getName() == ObjectName.BOX_TILE1);
+		assertTrue(grid.getFromCoord(1, 1).getName() == ObjectName.AIR_TILE);
+		assertTrue(grid.getFromCoord(2, 1).getName() == ObjectName.BOX_TILE3);
+		assertTrue(grid.getKind(0, 1) == TileGrid.SPAWN);
+		assertTrue(grid.getFeatureCount(TileGrid.END) == 1 && grid.getFeature(TileGrid.END, 0).x == 2);
+
+		assertTrue(reader.getItems().size() == 1);
+		assertTrue(reader.getItems().get(0).getName() == ObjectName.HEALTH_PACK);
+		assertTrue(reader.getItems().get(0).getX() == 1 && reader.getItems().get(0).getY() == 0);
+		assertTrue(reader.getEnemies().size() == 1);
+		assertTrue(reader.getEnemies().get(0).getName() == ObjectName.TANKBOT);
+		assertTrue(reader.getEnemies().get(0).getX() == 1 && reader.getEnemies().get(0).getY() == 1);
+	}
+
+	@Test
+	public void testLargeLevel() throws IOException {
+		int width = TileChunk.SIZE * 2 + 7;
+		int height = TileChunk.SIZE + 3;
+		StringBuilder xml = new StringBuilder("<level><size><width>" + width + "</width><height>" + height
+				+ "</height></size>");
+		for (int y = 0; y < height; y++) {
+			xml.append("<row>");
+			for (int x = 0; x < width; x++)
+				xml.append((x + y) % 5 == 0 ? "<cell>GroundTile2</cell>" : "<cell>AirTile</cell>");
+			xml.append("</row>");
+		}
+		xml.append("</level>");
+
+		TileGrid grid = new TileGrid(read(xml.toString()));
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				assertTrue(grid.isSolid(x, y) == ((x + y) % 5 == 0));
+			}
+		}
+	}
+
+	@Test
+	public void testSameAsDocument() throws Exception {
+		for (int levelNumber : Levels.getLevelNumbers()) {
+			InputStream in = new FileInputStream(Levels.getLevelFile(levelNumber));
+			LevelXmlReader reader = new LevelXmlReader(in);
+			in.close();
+			TileGrid grid = new TileGrid(reader);
+
+			Document document = new SAXBuilder().build(Levels.getLevelFile(levelNumber));
+			@SuppressWarnings("unchecked")
+			List<Element> rows = document.getRootElement().getChildren("row");
+			assertTrue(grid.getHeight() == rows.size());
+			int items = 0;
+			int enemies = 0;
+			for (int y = 0; y < rows.size(); y++) {
+				@SuppressWarnings("unchecked")
+				List<Element> cells = rows.get(y).getChildren("cell");
+				assertTrue(grid.getWidth() == cells.size());
+				for (int x = 0; x < cells.size(); x++) {
+					assertTrue(grid.isSolid(x, y) == cells.get(x).getText().startsWith("GroundTile"));
+					if (cells.get(x).getAttributeValue("item") != null)
+						items++;
+					if (cells.get(x).getAttributeValue("enemy") != null)
+						enemies++;
+				}
+			}
+			assertTrue(reader.getItems().size() == items);
+			assertTrue(reader.getEnemies().size() == enemies);
+		}
+	}
+
+	@Test
+	public void testInvalidLevels() {
+		String[] invalid = {
+			"<level><row><cell>AirTile</cell></row></level>",
+			"<level><size><width>1</width><height>1</height></size><row><cell>LavaTile</cell></row></level>",
+			"<level><size><width>1</width><height>1</height></size><row><cell>AirTile</cell><cell>AirTile</cell></row></level>",
+			"<level><size><width>1</width><height>1</height></size><row><cell enemy=\"robot\">AirTile</cell></row></level>",
+			"<level><size><width>x</width><height>1</height></size></level>",
+			"<level><size><width>1</width><height>1</height></size><row><cell>AirTile</cell>",
+		};
+		for (String xml : invalid) {
+			try {
+				read(xml);
+				assertTrue(xml, false);
+			} catch (IOException e) {
+			}
+		}
+	}
+}
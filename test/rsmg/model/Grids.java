@@ -0,0 +1,35 @@
+package rsmg.model;
+
+import rsmg.model.tile.AirTile;
+import rsmg.model.tile.GroundTile;
+import rsmg.model.tile.SpawnTile;
+import rsmg.model.tile.Tile;
+import rsmg.model.variables.ObjectName;
+
+/**
+ * Tile grids that are used by several tests.
+ */
+final class Grids {
+
+	private Grids() {
+	}
+
+	/**
+	 * Creates a grid of air with ground on the bottom row and a spawn tile.
+	 * @param width The number of tiles horizontally.
+	 * @param height The number of tiles vertically.
+	 * @param spawnX The spawn tile's column.
+	 * @param spawnY The spawn tile's row.
+	 * @return The tiles, row by row.
+	 */
+	static Tile[][] floorGrid(int width, int height, int spawnX, int spawnY) {
+		Tile[][] tiles = new Tile[height][width];
+		for (int y = 0; y < tiles.length; y++) {
+			for (int x = 0; x < tiles[y].length; x++) {
+				tiles[y][x] = y == tiles.length - 1 ? new GroundTile(ObjectName.BOX_TILE1) : new AirTile();
+			}
+		}
+		tiles[spawnY][spawnX] = new SpawnTile();
+		return tiles;
+	}
+}
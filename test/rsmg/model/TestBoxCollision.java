@@ -0,0 +1,81 @@
+package rsmg.model;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestBoxCollision {
+
+	@Test
+	public void testOverlaps() {
+		// Same position
+		assertTrue(BoxCollision.overlaps(0, 0, 10, 10, 0, 0, 10, 10));
+		// Left edges on the same line
+		assertTrue(BoxCollision.overlaps(0, 0, 10, 10, 0, 5, 4, 4));
+		// Inside
+		assertTrue(BoxCollision.overlaps(0, 0, 10, 10, 2, 2, 2, 2));
+		assertTrue(BoxCollision.overlaps(5, 5, 10, 10, 0, 0, 10, 10));
+		// Only touching
+		assertFalse(BoxCollision.overlaps(0, 0, 10, 10, 10, 0, 10, 10));
+		assertFalse(BoxCollision.overlaps(0, 0, 10, 10, 0, 10, 10, 10));
+		assertFalse(BoxCollision.overlaps(0, 0, 10, 10, 20, 20, 10, 10));
+	}
+
+	@Test
+	public void testOverlapping() {
+		double[] xs = {0, 10, 5, 100, 4};
+		double[] ys = {0, 0, 5, 100, 10};
+		double[] widths = {10, 10, 1, 10, 2};
+		double[] heights = {10, 10, 1, 10, 2};
+		int[] hits = new int[xs.length];
+
+		int found = BoxCollision.overlapping(0, 0, 10, 10, xs, ys, widths, heights, xs.length, hits);
+		assertTrue(found == 2);
+		assertTrue(hits[0] == 0 && hits[1] == 2);
+
+		// Only the first count rectangles are tested.
+		found = BoxCollision.overlapping(0, 0, 10, 10, xs, ys, widths, heights, 1, hits);
+		assertTrue(found == 1 && hits[0] == 0);
+	}
+
+	@Test
+	public void testOverlappingSameAsOverlaps() {
+		Random random = new Random(5);
+		int count = 200;
+		double[] xs = new double[count];
+		double[] ys = new double[count];
+		double[] widths = new double[count];
+		double[] heights = new double[count];
+		for (int i = 0; i < count; i++) {
+			xs[i] = random.nextInt(40);
+			ys[i] = random.nextInt(40);
+			widths[i] = random.nextInt(10);
+			heights[i] = random.nextInt(10);
+		}
+		int[] hits = new int[count];
+		int found = BoxCollision.overlapping(10, 10, 15, 15, xs, ys, widths, heights, count, hits);
+		int expected = 0;
+		for (int i = 0; i < count; i++) {
+			if (BoxCollision.overlaps(10, 10, 15, 15, xs[i], ys[i], widths[i], heights[i]))
+				assertTrue(hits[expected++] == i);
+		}
+		assertTrue(found == expected);
+
+		// When every rectangle overlaps, every index is kept.
+		found = BoxCollision.overlapping(-10, -10, 100, 100, xs, ys, widths, heights, count, hits);
+		assertTrue(found == count && hits[count - 1] == count - 1);
+	}
+
+	@Test
+	public void testOverlappingTooSmallBuffer() {
+		double[] coords = new double[4];
+		try {
+			BoxCollision.overlapping(0, 0, 1, 1, coords, coords, coords, coords, 4, new int[3]);
+			assertTrue(false);
+		} catch (IllegalArgumentException e) {
+		}
+	}
+}
@@ -0,0 +1,44 @@
+package rsmg.model;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TestCellSet {
+
+	@Test
+	public void testAddAndRemove() {
+		CellSet set = new CellSet();
+		assertTrue(set.add(CellSet.key(TileGrid.END, 3, 4)));
+		assertFalse(set.add(CellSet.key(TileGrid.END, 3, 4)));
+		assertTrue(set.contains(CellSet.key(TileGrid.END, 3, 4)));
+		assertFalse(set.contains(CellSet.key(TileGrid.SPAWN, 3, 4)));
+		assertFalse(set.contains(CellSet.key(TileGrid.END, 4, 3)));
+		assertTrue(set.remove(CellSet.key(TileGrid.END, 3, 4)));
+		assertFalse(set.remove(CellSet.key(TileGrid.END, 3, 4)));
+		assertTrue(set.size() == 0);
+	}
+
+	@Test
+	public void testManyTiles() {
+		CellSet set = new CellSet();
+		for (int y = 0; y < 50; y++) {
+			for (int x = 0; x < 50; x++)
+				set.add(CellSet.key(TileGrid.SPAWN, x, y));
+		}
+		assertTrue(set.size() == 2500);
+
+		// Removing tiles mustn't make the ones that were put after them in
+		// the table impossible to find.
+		for (int y = 0; y < 50; y++) {
+			for (int x = (y % 2); x < 50; x += 2)
+				assertTrue(set.remove(CellSet.key(TileGrid.SPAWN, x, y)));
+		}
+		for (int y = 0; y < 50; y++) {
+			for (int x = 0; x < 50; x++)
+				assertTrue(set.contains(CellSet.key(TileGrid.SPAWN, x, y)) == ((x + y) % 2 == 1));
+		}
+		assertTrue(set.size() == 1250);
+	}
+}
@@ -0,0 +1,77 @@
+package rsmg.model;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import rsmg.model.object.bullet.BasicBullet;
+import rsmg.model.object.bullet.Bullet;
+import rsmg.model.variables.ObjectName;
+
+public class TestEntityList {
+
+	private EntityList<String> list;
+
+	@Before
+	public void before() {
+		list = new EntityList<String>();
+		for (int i = 0; i < 5; i++) {
+			list.add("" + i);
+		}
+	}
+
+	@Test
+	public void testRemove() {
+		assertTrue(list.remove(1).equals("1"));
+		assertTrue(list.size() == 4);
+		// The last element is moved to the removed element's index.
+		assertTrue(list.get(1).equals("4"));
+	}
+
+	@Test
+	public void testMarkRemoved() {
+		list.markRemoved(1);
+		list.markRemoved(4);
+		list.markRemoved(1);
+		assertTrue(list.size() == 5);
+		assertTrue(list.isMarkedRemoved(1));
+		assertFalse(list.isMarkedRemoved(2));
+
+		List<String> removed = new ArrayList<String>();
+		assertTrue(list.removeMarked(removed) == 2);
+		assertTrue(list.size() == 3);
+		assertTrue(removed.contains("1") && removed.contains("4"));
+		assertTrue(list.contains("0") && list.contains("2") && list.contains("3"));
+		assertFalse(list.isMarkedRemoved(1));
+	}
+
+	@Test
+	public void testMarkAllRemoved() {
+		for (int i = 0; i < list.size(); i++) {
+			list.markRemoved(i);
+		}
+		list.removeMarked(null);
+		assertTrue(list.isEmpty());
+	}
+
+	@Test
+	public void testIndexed() {
+		EntityList<Bullet> bullets = new EntityList<Bullet>();
+		Bullet first = new BasicBullet(0, 0, 1, 1, ObjectName.PISTOL_BULLET, 1, null);
+		Bullet second = new BasicBullet(0, 0, 1, 1, ObjectName.PISTOL_BULLET, 1, null);
+		bullets.add(first);
+		bullets.add(second);
+		assertTrue(second.getEntityIndex() == 1);
+
+		assertTrue(bullets.markRemoved(first));
+		bullets.removeMarked(null);
+		assertTrue(first.getEntityIndex() == -1);
+		assertTrue(second.getEntityIndex() == 0);
+		assertFalse(bullets.markRemoved(first));
+	}
+}
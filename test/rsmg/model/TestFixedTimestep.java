@@ -0,0 +1,58 @@
+package rsmg.model;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import rsmg.model.ai.Ai;
+import rsmg.model.object.bullet.Bullet;
+import rsmg.model.object.item.Item;
+import rsmg.model.object.unit.PCharacter;
+import rsmg.model.tile.AirTile;
+import rsmg.model.tile.GroundTile;
+import rsmg.model.tile.SpawnTile;
+import rsmg.model.tile.Tile;
+import rsmg.model.variables.ObjectName;
+
+public class TestFixedTimestep {
+
+	private Level level;
+	private FixedTimestep timestep;
+
+	@Before
+	public void before() {
+		Tile[][] tiles = {{new AirTile(), new AirTile()},
+				{new SpawnTile(), new AirTile()},
+				{new GroundTile(ObjectName.BOX_TILE1), new GroundTile(ObjectName.BOX_TILE1)}};
+		level = new Level(new TileGrid(tiles), new PCharacter(new LinkedList<Bullet>()),
+				new LinkedList<Item>(), new LinkedList<Ai>(), new SpawnQueue());
+		timestep = new FixedTimestep(50, 3);
+	}
+
+	@Test
+	public void testUpdate() {
+		assertTrue(timestep.update(level, 0.01) == 0);
+		assertTrue(timestep.update(level, 0.01) == 1);
+		assertTrue(timestep.update(level, 0.045) == 2);
+	}
+
+	@Test
+	public void testCatchUpLimit() {
+		assertTrue(timestep.update(level, 1) == 3);
+		// The time that couldn't be simulated should have been dropped.
+		assertTrue(timestep.getAlpha() < 1);
+		assertTrue(timestep.update(level, 0) == 0);
+	}
+
+	@Test
+	public void testAlpha() {
+		timestep.update(level, 0.01);
+		assertTrue(Math.abs(timestep.getAlpha() - 0.5) < 0.00001);
+		timestep.reset();
+		assertTrue(timestep.getAlpha() == 0);
+	}
+}
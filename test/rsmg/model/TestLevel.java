@@ -4,8 +4,12 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.awt.Point;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import org.junit.After;
 import org.junit.AfterClass;
@@ -13,11 +17,14 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import rsmg.io.ChunkedLevelFile;
 import rsmg.model.ai.Ai;
 import rsmg.model.ai.TankBotAi;
+import rsmg.model.object.bullet.BasicBullet;
 import rsmg.model.object.bullet.Bullet;
 import rsmg.model.object.item.HealthPack;
 import rsmg.model.object.item.Item;
+import rsmg.model.object.unit.Enemy;
 import rsmg.model.object.unit.PCharacter;
 import rsmg.model.object.unit.TankBot;
 import rsmg.model.tile.AirTile;
@@ -25,6 +32,7 @@ import rsmg.model.tile.EndTile;
 import rsmg.model.tile.GroundTile;
 import rsmg.model.tile.SpawnTile;
 import rsmg.model.tile.Tile;
+import rsmg.model.variables.Constants;
 import rsmg.model.variables.ObjectName;
 
 /**
@@ -60,7 +68,7 @@ public class TestLevel {
 		enemies.add(new TankBotAi(new TankBot(10,10, new LinkedList<Bullet>()), character));
 		
 		
-		level = new Level(tileGrid, character, items, enemies, new LinkedList<Bullet>(), new LinkedList<Bullet>());
+		level = new Level(tileGrid, character, items, enemies, new SpawnQueue());
 	}
 
 	@After
@@ -115,8 +123,8 @@ public class TestLevel {
 	}
 	
 	@Test
-	public void testGetEnemyBulletList(){
-		assertTrue(level.getEnemyBulletList().size() == 0);
+	public void testGetEnemyBullets(){
+		assertTrue(level.getEnemyBullets().size() == 0);
 	}
 	
 	@Test
@@ -128,4 +136,175 @@ public class TestLevel {
 	public void testGetItemList(){
 		assertTrue(level.getItemList().size() == 1);
 	}
+	
+	@Test
+	public void testActivityRegion() {
+		Tile[][] tiles = Grids.floorGrid(100, 4, 0, 2);
+		PCharacter character = new PCharacter(new LinkedList<Bullet>());
+		TankBot near = new TankBot(5*Constants.TILESIZE, 0, new LinkedList<Bullet>());
+		TankBot far = new TankBot(90*Constants.TILESIZE, 0, new LinkedList<Bullet>());
+		List<Ai> enemies = new LinkedList<Ai>();
+		enemies.add(new TankBotAi(near, character));
+		enemies.add(new TankBotAi(far, character));
+		Level culled = new Level(new TileGrid(tiles), character, new LinkedList<Item>(), enemies, new SpawnQueue());
+		culled.setActivityRegion(10*Constants.TILESIZE, 4*Constants.TILESIZE, 2);
+		
+		culled.update(0.1);
+		// Only the enemy close to the character has started to fall.
+		assertTrue(near.getY() > 0);
+		assertTrue(far.getY() == 0);
+		
+		culled.clearActivityRegion();
+		culled.update(0.1);
+		assertTrue(far.getY() > 0);
+	}
+	
+	@Test
+	public void testBulletHitsNearestEnemy() {
+		Tile[][] tiles = Grids.floorGrid(30, 4, 0, 2);
+		PCharacter character = new PCharacter(new LinkedList<Bullet>());
+		TankBot near = new TankBot(10*Constants.TILESIZE, Constants.TILESIZE, new LinkedList<Bullet>());
+		TankBot far = new TankBot(20*Constants.TILESIZE, Constants.TILESIZE, new LinkedList<Bullet>());
+		// The enemy that the bullet reaches last is first in the list.
+		List<Ai> enemies = new LinkedList<Ai>();
+		enemies.add(new TankBotAi(far, character));
+		enemies.add(new TankBotAi(near, character));
+		SpawnQueue spawnQueue = new SpawnQueue();
+		Level level = new Level(new TileGrid(tiles), character, new LinkedList<Item>(), enemies, spawnQueue);
+		
+		// A bullet that passed both enemies during the last update.
+		Bullet bullet = new BasicBullet(2*Constants.TILESIZE, near.getY() + near.getHeight() / 2, 5, 5,
+				ObjectName.PISTOL_BULLET, 1, null);
+		bullet.setX(25*Constants.TILESIZE);
+		spawnQueue.getAlliedBullets().add(bullet);
+		level.update(0.001);
+		
+		assertTrue(near.getHealth() < near.getMaxHealth());
+		assertTrue(far.getHealth() == far.getMaxHealth());
+		assertTrue(level.getAlliedBulletList().isEmpty());
+	}
+	
+	/**
+	 * Writes a streamed level that is eight chunks wide and one chunk high,
+	 * with ground on the bottom row and the spawn point in the first chunk.
+	 */
+	private File writeStreamedLevel() throws IOException {
+		Tile[][] tiles = Grids.floorGrid(TileChunk.SIZE * 8, TileChunk.SIZE, 2, TileChunk.SIZE - 2);
+		File file = File.createTempFile("level", ".rsmc");
+		file.deleteOnExit();
+		ChunkedLevelFile.write(new TileGrid(tiles), file);
+		return file;
+	}
+	
+	@Test
+	public void testStreamedLevel() throws IOException {
+		File file = writeStreamedLevel();
+		final List<Runnable> tasks = new ArrayList<Runnable>();
+		final int[] populated = new int[8];
+		final PCharacter character = new PCharacter(new LinkedList<Bullet>());
+		ChunkedLevelFile source = new ChunkedLevelFile(file);
+		try {
+			TileGrid grid = new TileGrid(source, new Executor() {
+				public void execute(Runnable task) {
+					tasks.add(task);
+				}
+			});
+			grid.setStreamingRadius(1);
+			// Every chunk has a TankBot in the middle of it.
+			Level level = new Level(grid, character, new ChunkPopulator() {
+				public void populate(int chunkX, int chunkY, List<Item> items, List<Ai> enemies) {
+					populated[chunkX]++;
+					double x = (chunkX * TileChunk.SIZE + TileChunk.SIZE / 2) * Constants.TILESIZE;
+					enemies.add(new TankBotAi(new TankBot(x, (TileChunk.SIZE - 2) * Constants.TILESIZE,
+							new LinkedList<Bullet>()), character));
+				}
+			}, new SpawnQueue());
+			
+			// The chunks around the spawn point are loaded at once.
+			assertTrue(level.getEnemies().size() == 2);
+			Enemy first = level.getEnemies().get(0);
+			Enemy second = level.getEnemies().get(1);
+			if (first.getX() > second.getX()) {
+				Enemy swap = first;
+				first = second;
+				second = swap;
+			}
+			first.damage(first.getMaxHealth());
+			level.update(0.001);
+			assertTrue(level.getEnemies().size() == 1);
+			
+			// Far away, the chunks around the spawn point are unloaded with
+			// their enemies, and the chunks there get theirs.
+			character.setX(7 * TileChunk.SIZE * Constants.TILESIZE);
+			character.holdPosition();
+			level.update(0.001);
+			while (!tasks.isEmpty())
+				tasks.remove(0).run();
+			level.update(0.001);
+			assertTrue(level.getEnemies().size() == 2);
+			assertFalse(level.getEnemies().contains(second));
+			
+			// Back at the spawn point, the enemy that was left is back, but
+			// the killed one isn't.
+			character.setX(2 * Constants.TILESIZE);
+			character.holdPosition();
+			level.update(0.001);
+			while (!tasks.isEmpty())
+				tasks.remove(0).run();
+			level.update(0.001);
+			assertTrue(level.getEnemies().size() == 1);
+			assertTrue(level.getEnemies().get(0) == second);
+			for (int chunkX : new int[] {0, 1, 6, 7})
+				assertTrue(populated[chunkX] == 1);
+		} finally {
+			source.close();
+		}
+	}
+	
+	@Test
+	public void testFailedPopulateIsRetried() throws IOException {
+		File file = writeStreamedLevel();
+		final List<Runnable> tasks = new ArrayList<Runnable>();
+		final int[] populated = new int[8];
+		final PCharacter character = new PCharacter(new LinkedList<Bullet>());
+		ChunkedLevelFile source = new ChunkedLevelFile(file);
+		try {
+			TileGrid grid = new TileGrid(source, new Executor() {
+				public void execute(Runnable task) {
+					tasks.add(task);
+				}
+			});
+			grid.setStreamingRadius(1);
+			// The first chunk fails the first time, after its enemy has been
+			// created.
+			Level level = new Level(grid, character, new ChunkPopulator() {
+				public void populate(int chunkX, int chunkY, List<Item> items, List<Ai> enemies) {
+					populated[chunkX]++;
+					double x = (chunkX * TileChunk.SIZE + TileChunk.SIZE / 2) * Constants.TILESIZE;
+					enemies.add(new TankBotAi(new TankBot(x, (TileChunk.SIZE - 2) * Constants.TILESIZE,
+							new LinkedList<Bullet>()), character));
+					if (chunkX == 0 && populated[chunkX] == 1)
+						throw new IllegalStateException("Could not read the chunk.");
+				}
+			}, new SpawnQueue());
+			assertTrue(level.getEnemies().size() == 1);
+			
+			// Loading the chunk again populates it again.
+			character.setX(7 * TileChunk.SIZE * Constants.TILESIZE);
+			character.holdPosition();
+			level.update(0.001);
+			while (!tasks.isEmpty())
+				tasks.remove(0).run();
+			character.setX(2 * Constants.TILESIZE);
+			character.holdPosition();
+			level.update(0.001);
+			while (!tasks.isEmpty())
+				tasks.remove(0).run();
+			level.update(0.001);
+			assertTrue(populated[0] == 2);
+			assertTrue(level.getEnemies().size() == 2);
+		} finally {
+			source.close();
+		}
+	}
 }
@@ -0,0 +1,103 @@
+package rsmg.model;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import rsmg.model.ai.Ai;
+import rsmg.model.ai.BallBotAi;
+import rsmg.model.ai.TankBotAi;
+import rsmg.model.object.item.Item;
+import rsmg.model.object.unit.BallBot;
+import rsmg.model.object.unit.Enemy;
+import rsmg.model.object.unit.PCharacter;
+import rsmg.model.object.unit.TankBot;
+import rsmg.model.tile.AirTile;
+import rsmg.model.tile.GroundTile;
+import rsmg.model.tile.Tile;
+import rsmg.model.variables.Constants;
+import rsmg.model.variables.ObjectName;
+
+/**
+ * Tests that updating the enemies in parallel gives the same result as
+ * updating them one at a time.
+ */
+public class TestParallelAiUpdate {
+
+	private ForkJoinPool pool;
+
+	@Before
+	public void before() {
+		pool = new ForkJoinPool(4);
+	}
+
+	@After
+	public void after() {
+		pool.shutdown();
+	}
+
+	private Level createLevel() {
+		Tile[][] tiles = new Tile[10][20];
+		for (int y = 0; y < tiles.length; y++) {
+			for (int x = 0; x < tiles[y].length; x++) {
+				if (y == tiles.length - 1)
+					tiles[y][x] = new GroundTile(ObjectName.BOX_TILE1);
+				else
+					tiles[y][x] = new AirTile();
+			}
+		}
+
+		SpawnQueue spawnQueue = new SpawnQueue();
+		List<Ai> enemies = new ArrayList<Ai>();
+		PCharacter character = new PCharacter(spawnQueue.getAlliedBullets());
+		for (int i = 0; i < 100; i++) {
+			double x = Constants.TILESIZE + i;
+			enemies.add(new TankBotAi(new TankBot(x, Constants.TILESIZE * 7, spawnQueue.getEnemyBullets()), character));
+			if (i % 10 == 0)
+				enemies.add(new BallBotAi(new BallBot(x, Constants.TILESIZE * 2), spawnQueue.getEnemies(), character));
+		}
+		return new Level(new TileGrid(tiles), character, new LinkedList<Item>(), enemies, spawnQueue);
+	}
+
+	@Test
+	public void testSameResultAsSequential() {
+		Level sequential = createLevel();
+		Level parallel = createLevel();
+		parallel.setAiPool(pool);
+
+		for (int tick = 0; tick < 300; tick++) {
+			sequential.update(1.0 / 60);
+			parallel.update(1.0 / 60);
+		}
+
+		assertTrue(sequential.getEnemyBullets().size() > 0);
+		assertTrue(sequential.getEnemyBullets().size() == parallel.getEnemyBullets().size());
+		for (int i = 0; i < sequential.getEnemyBullets().size(); i++) {
+			assertTrue(sequential.getEnemyBullets().getX(i) == parallel.getEnemyBullets().getX(i));
+			assertTrue(sequential.getEnemyBullets().getY(i) == parallel.getEnemyBullets().getY(i));
+		}
+
+		// getEnemies() doesn't keep the order, so compare the sorted positions.
+		double[] sequentialPositions = positions(sequential);
+		double[] parallelPositions = positions(parallel);
+		assertTrue(sequentialPositions.length > 110);
+		assertTrue(Arrays.equals(sequentialPositions, parallelPositions));
+	}
+
+	private double[] positions(Level level) {
+		double[] positions = new double[level.getEnemies().size()];
+		int i = 0;
+		for (Enemy enemy : level.getEnemies())
+			positions[i++] = enemy.getX() * 1000 + enemy.getY();
+		Arrays.sort(positions);
+		return positions;
+	}
+}
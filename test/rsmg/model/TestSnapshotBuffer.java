@@ -0,0 +1,132 @@
+package rsmg.model;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+
+import org.junit.Test;
+
+import rsmg.model.ai.Ai;
+import rsmg.model.object.item.Item;
+import rsmg.model.object.unit.PCharacter;
+import rsmg.model.tile.Tile;
+import rsmg.model.tile.Tiles;
+import rsmg.model.variables.ObjectName;
+
+public class TestSnapshotBuffer {
+
+	@Test
+	public void testPublish() {
+		SnapshotBuffer buffer = new SnapshotBuffer();
+		FrameSnapshot read = buffer.getReadSnapshot();
+		assertFalse(buffer.hasNewSnapshot());
+
+		FrameSnapshot written = buffer.getWriteSnapshot();
+		assertTrue(written != read);
+		written.setCharacter(1, 2, 1, 2, 3, 4, true);
+		buffer.publish();
+		assertTrue(buffer.hasNewSnapshot());
+		assertTrue(buffer.getWriteSnapshot() != written);
+		assertTrue(buffer.getWriteSnapshot() != read);
+
+		assertTrue(buffer.getReadSnapshot() == written);
+		assertTrue(buffer.getReadSnapshot() == written);
+		assertTrue(written.getCharacterX() == 1 && written.isCharacterFacingRight());
+	}
+
+	@Test
+	public void testOnlyLatestIsRead() {
+		SnapshotBuffer buffer = new SnapshotBuffer();
+		for (int i = 1; i <= 3; i++) {
+			buffer.getWriteSnapshot().setCharacter(i, i, i, i, 1, 1, false);
+			buffer.publish();
+		}
+		assertTrue(buffer.getReadSnapshot().getCharacterX() == 3);
+	}
+
+	@Test
+	public void testThreads() throws InterruptedException {
+		final SnapshotBuffer buffer = new SnapshotBuffer();
+		final int frames = 100000;
+		Thread writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				for (int i = 1; i <= frames; i++) {
+					FrameSnapshot snapshot = buffer.getWriteSnapshot();
+					snapshot.setCharacter(i, i, i, i, i, i, false);
+					buffer.publish();
+				}
+			}
+		});
+		writer.start();
+
+		// The reader must never see a half written snapshot, or an older one
+		// than it has already seen.
+		double last = 0;
+		boolean ok = true;
+		while (last < frames) {
+			FrameSnapshot snapshot = buffer.getReadSnapshot();
+			double x = snapshot.getCharacterX();
+			if (x != snapshot.getCharacterY() || x != snapshot.getCharacterHeight() || x < last)
+				ok = false;
+			last = x;
+			if (!ok)
+				break;
+		}
+		writer.join();
+		assertTrue(ok);
+	}
+
+	@Test
+	public void testWriteSnapshot() {
+		Tile[][] tiles = Grids.floorGrid(4, 3, 0, 1);
+		SpawnQueue spawnQueue = new SpawnQueue();
+		PCharacter character = new PCharacter(spawnQueue.getAlliedBullets());
+		Level level = new Level(new TileGrid(tiles), character, new LinkedList<Item>(), new ArrayList<Ai>(), spawnQueue);
+
+		FrameSnapshot snapshot = new FrameSnapshot();
+		level.writeSnapshot(snapshot);
+		assertTrue(snapshot.getCharacterX() == character.getX());
+		assertTrue(snapshot.getCharacterY() == character.getY());
+		assertTrue(snapshot.getHealth() == character.getHealth());
+		assertTrue(snapshot.getWeapon() == character.getWeapon().getName());
+		assertTrue(snapshot.getEnemies().size() == 0);
+		assertFalse(snapshot.hasWon() || snapshot.hasLost());
+		
+		level.setVisibleTiles(4, 4);
+		level.writeSnapshot(snapshot);
+		assertTrue(snapshot.getTileCode(1, 2) == Tiles.getCode(ObjectName.BOX_TILE1));
+		assertTrue(snapshot.getTileCode(0, 1) == Tiles.getCode(ObjectName.SPAWN_TILE));
+		assertTrue(snapshot.getTileCode(-1, 2) == 0);
+
+		character.attack();
+		level.update(0.01);
+		level.writeSnapshot(snapshot);
+		assertTrue(snapshot.getAlliedBullets().size() == level.getAlliedBulletList().size());
+	}
+
+	@Test
+	public void testInterpolation() {
+		FrameSnapshot snapshot = new FrameSnapshot();
+		FrameSnapshot.Sprites sprites = snapshot.getEnemies();
+		int index = sprites.add(20, 10, 10, 30, 1, 1, ObjectName.TANKBOT);
+		assertTrue(sprites.getX(index, 0) == 10 && sprites.getY(index, 0) == 30);
+		assertTrue(sprites.getX(index, 0.5) == 15 && sprites.getY(index, 0.5) == 20);
+		assertTrue(sprites.getX(index, 1) == sprites.getX(index));
+
+		snapshot.setCharacter(4, 8, 0, 0, 1, 1, true);
+		assertTrue(snapshot.getCharacterX(0.25) == 1 && snapshot.getCharacterY(0.25) == 2);
+
+		snapshot.setTiming(1000000000L, 0.1);
+		assertTrue(snapshot.getAlpha(1000000000L) == 0);
+		assertTrue(Math.abs(snapshot.getAlpha(1050000000L) - 0.5) < 1e-9);
+		assertTrue(snapshot.getAlpha(2000000000L) == 1);
+		assertTrue(snapshot.getAlpha(0) == 0);
+
+		// A snapshot without a tick length is always drawn as it is.
+		snapshot.setTiming(1000000000L, 0);
+		assertTrue(snapshot.getAlpha(1000000000L) == 1);
+	}
+}
@@ -0,0 +1,90 @@
+package rsmg.model;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import rsmg.model.object.bullet.BasicBullet;
+import rsmg.model.object.bullet.Bullet;
+import rsmg.model.object.unit.PCharacter;
+import rsmg.model.variables.Constants;
+import rsmg.model.variables.ObjectName;
+
+public class TestSpatialHash {
+
+	private SpatialHash<Bullet> grid;
+	private List<Bullet> result;
+	private Bullet near;
+	private Bullet far;
+
+	@Before
+	public void before() {
+		grid = new SpatialHash<Bullet>();
+		result = new ArrayList<Bullet>();
+		near = new BasicBullet(10, 10, 5, 5, ObjectName.PISTOL_BULLET, 1, null);
+		far = new BasicBullet(Constants.TILESIZE*20, 10, 5, 5, ObjectName.PISTOL_BULLET, 1, null);
+		grid.insert(near);
+		grid.insert(far);
+	}
+
+	@Test
+	public void testGetNearby() {
+		PCharacter character = new PCharacter(0, 0, null);
+		grid.getNearby(character, result);
+		assertTrue(result.contains(near));
+		assertFalse(result.contains(far));
+	}
+
+	@Test
+	public void testObjectOverlappingSeveralCells() {
+		Bullet wide = new BasicBullet(Constants.TILESIZE-2, 10, 4, 4, ObjectName.PISTOL_BULLET, 1, null);
+		grid.insert(wide);
+
+		PCharacter left = new PCharacter(0, 0, null);
+		PCharacter right = new PCharacter(Constants.TILESIZE*1.5, 0, null);
+		assertTrue(grid.getNearby(left, result).contains(wide));
+		assertTrue(grid.getNearby(right, result).contains(wide));
+
+		// The bullet lies in two cells but should only be returned once.
+		PCharacter between = new PCharacter(Constants.TILESIZE-10, 0, null);
+		grid.getNearby(between, result);
+		result.remove(wide);
+		assertFalse(result.contains(wide));
+	}
+
+	@Test
+	public void testDenseCluster() {
+		List<Bullet> cluster = new ArrayList<Bullet>();
+		for (int i = 0; i < 200; i++) {
+			Bullet bullet = new BasicBullet(Constants.TILESIZE-10 + i % 7, 10 + i % 5, 20, 20, ObjectName.PISTOL_BULLET, 1, null);
+			cluster.add(bullet);
+			grid.insert(bullet);
+		}
+		PCharacter character = new PCharacter(0, 0, null);
+		grid.getNearby(character, result);
+		assertTrue(result.size() == cluster.size() + 1);
+		assertTrue(result.containsAll(cluster));
+
+		// The next query isn't affected by what the previous one found.
+		grid.getNearby(character, result);
+		assertTrue(result.size() == cluster.size() + 1);
+	}
+
+	@Test
+	public void testRemove() {
+		grid.remove(near);
+		assertFalse(grid.getNearby(near, result).contains(near));
+	}
+
+	@Test
+	public void testClear() {
+		grid.clear();
+		assertTrue(grid.getNearby(near, result).isEmpty());
+		assertTrue(grid.getNearby(far, result).isEmpty());
+	}
+}
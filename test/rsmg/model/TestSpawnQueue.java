@@ -0,0 +1,75 @@
+package rsmg.model;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import rsmg.model.ai.Ai;
+import rsmg.model.ai.TankBotAi;
+import rsmg.model.object.bullet.BulletPool;
+import rsmg.model.object.item.Item;
+import rsmg.model.object.unit.PCharacter;
+import rsmg.model.object.unit.TankBot;
+import rsmg.model.tile.Tile;
+import rsmg.model.variables.Constants;
+import rsmg.model.variables.ObjectName;
+
+public class TestSpawnQueue {
+
+	private SpawnQueue spawnQueue;
+	private PCharacter character;
+	private Level level;
+
+	@Before
+	public void before() {
+		Tile[][] tiles = Grids.floorGrid(8, 4, 0, 2);
+
+		spawnQueue = new SpawnQueue();
+		character = new PCharacter(spawnQueue.getAlliedBullets());
+		level = new Level(new TileGrid(tiles), character, new LinkedList<Item>(), new ArrayList<Ai>(), spawnQueue);
+	}
+
+	@Test
+	public void testBulletsAddedAtFlush() {
+		spawnQueue.getAlliedBullets().add(BulletPool.getBasicBullet(Constants.TILESIZE, Constants.TILESIZE,
+				1, 1, ObjectName.PISTOL_BULLET, 1, 0, 0));
+		assertTrue(level.getAlliedBulletList().isEmpty());
+
+		level.update(0.01);
+		assertTrue(level.getAlliedBulletList().size() == 1);
+		assertTrue(spawnQueue.isEmpty());
+	}
+
+	@Test
+	public void testEnemiesAddedAtFlush() {
+		spawnQueue.getEnemies().add(new TankBotAi(new TankBot(Constants.TILESIZE * 4,
+				Constants.TILESIZE, spawnQueue.getEnemyBullets()), character));
+		assertTrue(level.getEnemies().isEmpty());
+
+		level.update(0.01);
+		assertTrue(level.getEnemies().size() == 1);
+		assertTrue(spawnQueue.getEnemies().isEmpty());
+	}
+
+	@Test
+	public void testBuffering() {
+		SpawnList<String> list = new SpawnList<String>();
+		List<String> buffer = new ArrayList<String>();
+		list.setThreadBuffer(buffer);
+		list.add("a");
+		list.setBuffering(true);
+		list.add("b");
+		list.setBuffering(false);
+		list.setThreadBuffer(null);
+		list.add("c");
+
+		assertTrue(list.size() == 2);
+		assertTrue(list.get(1).equals("c"));
+		assertTrue(buffer.size() == 1 && buffer.get(0).equals("b"));
+	}
+}
@@ -0,0 +1,67 @@
+package rsmg.model;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import rsmg.model.object.bullet.BasicBullet;
+import rsmg.model.object.bullet.Bullet;
+import rsmg.model.tile.AirTile;
+import rsmg.model.tile.GroundTile;
+import rsmg.model.tile.Tile;
+import rsmg.model.variables.Constants;
+import rsmg.model.variables.ObjectName;
+import rsmg.util.Vector2d;
+
+public class TestSweptCollision {
+
+	@Test
+	public void testSweep() {
+		// Moves from x = 0 to x = 100 through a 10 units wide box at x = 50.
+		double hit = SweptCollision.sweep(0, 0, 2, 2, 100, 0, 50, -5, 10, 10);
+		assertTrue(hit == 0.48);
+
+		// Moves past the box.
+		assertTrue(SweptCollision.sweep(0, 20, 2, 2, 100, 0, 50, -5, 10, 10) == SweptCollision.NO_HIT);
+		// Stops before the box.
+		assertTrue(SweptCollision.sweep(0, 0, 2, 2, 40, 0, 50, -5, 10, 10) == SweptCollision.NO_HIT);
+		// Only touches the box's edge.
+		assertTrue(SweptCollision.sweep(0, 0, 2, 2, 48, 0, 50, -5, 10, 10) == SweptCollision.NO_HIT);
+	}
+
+	@Test
+	public void testSweepObjects() {
+		Bullet bullet = new BasicBullet(0, 0, 2, 2, ObjectName.PISTOL_BULLET, 1, new Vector2d(1000, 0));
+		Bullet target = new BasicBullet(50, -5, 10, 10, ObjectName.PISTOL_BULLET, 1, null);
+		assertTrue(SweptCollision.sweep(bullet, target) == SweptCollision.NO_HIT);
+		
+		bullet.move(0.1);
+		double hit = SweptCollision.sweep(bullet, target);
+		assertTrue(hit == 0.48);
+		
+		SweptCollision.moveBack(bullet, hit);
+		assertTrue(bullet.getX() == 48);
+	}
+
+	@Test
+	public void testSweepTileGrid() {
+		Tile[][] tiles = new Tile[3][10];
+		for (int y = 0; y < tiles.length; y++) {
+			for (int x = 0; x < tiles[y].length; x++) {
+				tiles[y][x] = x == 5 ? new GroundTile(ObjectName.BOX_TILE1) : new AirTile();
+			}
+		}
+		TileGrid grid = new TileGrid(tiles);
+		double y = Constants.TILESIZE + 10;
+
+		// Both ends of the move are in air tiles, but the wall is in between.
+		assertTrue(!grid.intersectsWith(Constants.TILESIZE, y, 4, 4));
+		assertTrue(!grid.intersectsWith(Constants.TILESIZE * 8, y, 4, 4));
+		double hit = grid.sweep(Constants.TILESIZE, y, 4, 4, Constants.TILESIZE * 7, 0);
+		assertTrue(hit != SweptCollision.NO_HIT);
+		double x = Constants.TILESIZE + Constants.TILESIZE * 7 * hit;
+		assertTrue(x + 4 > Constants.TILESIZE * 5 && x < Constants.TILESIZE * 5 + 4);
+
+		assertTrue(grid.sweep(Constants.TILESIZE, y, 4, 4, Constants.TILESIZE * 2, 0) == SweptCollision.NO_HIT);
+	}
+}
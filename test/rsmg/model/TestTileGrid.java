@@ -4,16 +4,23 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.awt.Point;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import rsmg.io.ChunkedLevelFile;
 import rsmg.model.object.unit.PCharacter;
 import rsmg.model.tile.AirTile;
 import rsmg.model.tile.EndTile;
 import rsmg.model.tile.GroundTile;
 import rsmg.model.tile.SpawnTile;
 import rsmg.model.tile.Tile;
+import rsmg.model.tile.Tiles;
 import rsmg.model.variables.Constants;
 import rsmg.model.variables.ObjectName;
 
@@ -76,6 +83,60 @@ public class TestTileGrid {
 		assertTrue(point.getY() == 1);
 	}
 	
+	@Test
+	public void testNoSpawnPoint() {
+		grid.set(0, 1, new AirTile());
+		assertFalse(grid.hasSpawnPoint());
+		try {
+			grid.getSpawnPoint();
+			assertTrue(false);
+		} catch (IllegalStateException e) {
+		}
+	}
+	
+	@Test
+	public void testMovedSpawnPoint() {
+		grid.set(1, 0, new SpawnTile());
+		assertTrue(grid.getFeatureCount(TileGrid.SPAWN) == 2);
+		assertTrue(grid.getSpawnPoint().getX() == 0);
+		
+		grid.set(0, 1, new AirTile());
+		assertTrue(grid.getSpawnPoint().getX() == Constants.TILESIZE);
+		assertTrue(grid.getSpawnPoint().getY() == 0);
+	}
+	
+	@Test
+	public void testContainsFeature() {
+		assertTrue(grid.containsFeature(TileGrid.END, 0, 0, 1, 1));
+		assertFalse(grid.containsFeature(TileGrid.END, 0, 0, 0, 2));
+		grid.set(1, 1, new AirTile());
+		assertFalse(grid.containsFeature(TileGrid.END, 0, 0, 1, 2));
+	}
+	
+	@Test
+	public void testContainsManyFeatures() {
+		Tile[][] tiles = new Tile[40][70];
+		for (int y = 0; y < tiles.length; y++) {
+			for (int x = 0; x < tiles[y].length; x++) {
+				tiles[y][x] = x % 4 == 0 && y % 3 == 0 ? new EndTile() : new AirTile();
+			}
+		}
+		TileGrid large = new TileGrid(tiles);
+		for (int y = 0; y < tiles.length; y++) {
+			for (int x = 0; x < tiles[y].length; x++) {
+				assertTrue(large.containsFeature(TileGrid.END, x, y, x, y) == (x % 4 == 0 && y % 3 == 0));
+			}
+		}
+		assertTrue(large.containsFeature(TileGrid.END, 1, 1, 3, 2) == false);
+		assertTrue(large.containsFeature(TileGrid.END, -5, -5, 0, 0));
+		assertTrue(large.containsFeature(TileGrid.END, 0, 0, 69, 39));
+		
+		large.set(4, 3, new AirTile());
+		assertFalse(large.containsFeature(TileGrid.END, 3, 2, 5, 4));
+		large.set(5, 4, new EndTile());
+		assertTrue(large.containsFeature(TileGrid.END, 5, 4, 5, 4));
+	}
+	
 	@Test
 	public void testGetTilePosFromRealPos() {
 		assertTrue(grid.getTilePosFromRealPos(50) == 1);
@@ -130,6 +191,117 @@ public class TestTileGrid {
 	@Test
 	public void testTopSideIntersection() {	}
 	
+	@Test
+	public void testIsSolid() {
+		assertFalse(grid.isSolid(0, 1));
+		assertTrue(grid.isSolid(1, 2));
+		grid.set(1, 2, new AirTile());
+		assertFalse(grid.isSolid(1, 2));
+		assertFalse(grid.tileIntersect(Constants.TILESIZE+10, 2*Constants.TILESIZE+10));
+	}
+	
+	@Test
+	public void testGetKind() {
+		assertTrue(grid.getKind(0, 0) == TileGrid.AIR);
+		assertTrue(grid.getKind(0, 1) == TileGrid.SPAWN);
+		assertTrue(grid.getKind(1, 1) == TileGrid.END);
+		assertTrue(grid.getKind(0, 2) == TileGrid.GROUND);
+	}
+	
+	@Test
+	public void testLargeGrid() {
+		// More tiles than fit in one long, so the bits span several words.
+		Tile[][] tiles = new Tile[10][13];
+		for (int y = 0; y < tiles.length; y++) {
+			for (int x = 0; x < tiles[y].length; x++) {
+				tiles[y][x] = (x + y) % 3 == 0 ? new GroundTile(ObjectName.BOX_TILE1) : new AirTile();
+			}
+		}
+		TileGrid large = new TileGrid(tiles);
+		for (int y = 0; y < tiles.length; y++) {
+			for (int x = 0; x < tiles[y].length; x++) {
+				assertTrue(large.isSolid(x, y) == ((x + y) % 3 == 0));
+			}
+		}
+	}
+	
+	@Test
+	public void testOutsideGrid() {
+		try {
+			grid.isSolid(2, 0);
+			assertTrue(false);
+		} catch (IndexOutOfBoundsException e) {
+		}
+	}
+	
+	@Test
+	public void testRaycast() {
+		RaycastHit hit = new RaycastHit();
+		assertTrue(grid.raycast(10, 10, 0, 1, 100, hit));
+		assertTrue(hit.getTileX() == 0 && hit.getTileY() == 2);
+		assertTrue(hit.getX() == 10 && hit.getY() == 2*Constants.TILESIZE);
+		assertTrue(hit.getDistance() == 2*Constants.TILESIZE - 10);
+		assertTrue(hit.getNormalX() == 0 && hit.getNormalY() == -1);
+		
+		// Too short, and along a row without solid tiles.
+		assertFalse(grid.raycast(10, 10, 0, 1, 50, hit));
+		assertFalse(grid.raycast(10, 10, 1, 0, 1000, hit));
+		
+		// Starting inside a solid tile.
+		assertTrue(grid.raycast(10, 2*Constants.TILESIZE+10, 1, 0, 100, hit));
+		assertTrue(hit.getDistance() == 0);
+	}
+	
+	@Test
+	public void testRaycastDiagonal() {
+		RaycastHit hit = new RaycastHit();
+		assertTrue(grid.raycast(10, 10, 1, 1, 1000, hit));
+		assertTrue(hit.getTileX() == 1 && hit.getTileY() == 2);
+		assertTrue(hit.getY() == 2*Constants.TILESIZE);
+		assertTrue(Math.abs(hit.getX() - (2*Constants.TILESIZE)) < 0.00001);
+	}
+	
+	@Test
+	public void testRaycastFromOutside() {
+		RaycastHit hit = new RaycastHit();
+		assertTrue(grid.raycast(-50, 2*Constants.TILESIZE+10, 1, 0, 100, hit));
+		assertTrue(hit.getTileX() == 0 && hit.getTileY() == 2);
+		assertTrue(hit.getX() == 0 && hit.getDistance() == 50);
+		assertTrue(hit.getNormalX() == -1 && hit.getNormalY() == 0);
+		
+		assertTrue(grid.raycast(10, -100, 0, 1, 1000, hit));
+		assertTrue(hit.getTileX() == 0 && hit.getTileY() == 2);
+		assertTrue(hit.getDistance() == 100 + 2*Constants.TILESIZE);
+		assertTrue(hit.getNormalX() == 0 && hit.getNormalY() == -1);
+		
+		assertTrue(grid.raycast(3*Constants.TILESIZE, 2*Constants.TILESIZE+10, -1, 0, 1000, hit));
+		assertTrue(hit.getTileX() == 1 && hit.getNormalX() == 1);
+		
+		// Too short to reach the grid, and pointing away from it.
+		assertFalse(grid.raycast(-50, 2*Constants.TILESIZE+10, 1, 0, 40, hit));
+		assertFalse(grid.raycast(-50, 2*Constants.TILESIZE+10, -1, 0, 1000, hit));
+		assertFalse(grid.raycast(-50, -50, 1, 0, 1000, hit));
+		
+		assertFalse(grid.hasLineOfSight(-50, 2*Constants.TILESIZE+10, 50, 2*Constants.TILESIZE+10, hit));
+		assertTrue(grid.hasLineOfSight(-50, 10, -20, 10, hit));
+	}
+	
+	@Test
+	public void testRaycastNoDirection() {
+		try {
+			grid.raycast(10, 10, 0, 0, 100, new RaycastHit());
+			assertTrue(false);
+		} catch (IllegalArgumentException e) {
+		}
+	}
+	
+	@Test
+	public void testHasLineOfSight() {
+		RaycastHit hit = new RaycastHit();
+		assertTrue(grid.hasLineOfSight(5, 5, 50, 50, hit));
+		assertFalse(grid.hasLineOfSight(5, 5, 50, 2*Constants.TILESIZE + 5, hit));
+	}
+	
 	@Test
 	public void testTileIntersect(){
 		assertTrue(!grid.tileIntersect(0,0));
@@ -147,6 +319,134 @@ public class TestTileGrid {
 		assertTrue(grid.intersectsWithEndTile(c));
 	}
 	
+	/**
+	 * Creates a grid that spans several chunks, with ground on the bottom
+	 * row, a spawn tile far to the left and an end tile far to the right.
+	 */
+	private Tile[][] createLargeGrid() {
+		Tile[][] tiles = Grids.floorGrid(TileChunk.SIZE * 4, TileChunk.SIZE + 10, 2, 3);
+		tiles[5][TileChunk.SIZE * 4 - 3] = new EndTile();
+		return tiles;
+	}
+	
+	@Test
+	public void testStreaming() {
+		final TileGrid large = new TileGrid(createLargeGrid());
+		final List<Runnable> tasks = new ArrayList<Runnable>();
+		TileGrid streamed = new TileGrid(new TileChunkSource() {
+			public int getWidth() { return large.getWidth(); }
+			public int getHeight() { return large.getHeight(); }
+			public int[] getFeatures(byte kind) {
+				int[] positions = new int[large.getFeatureCount(kind) * 2];
+				for (int i = 0; i < large.getFeatureCount(kind); i++) {
+					positions[i * 2] = large.getFeature(kind, i).x;
+					positions[i * 2 + 1] = large.getFeature(kind, i).y;
+				}
+				return positions;
+			}
+			public TileChunk loadChunk(int chunkX, int chunkY) {
+				byte[] codes = new byte[TileChunk.SIZE * TileChunk.SIZE];
+				for (int y = 0; y < TileChunk.SIZE; y++) {
+					for (int x = 0; x < TileChunk.SIZE; x++) {
+						int tileX = chunkX * TileChunk.SIZE + x;
+						int tileY = chunkY * TileChunk.SIZE + y;
+						if (tileX < large.getWidth() && tileY < large.getHeight())
+							codes[y * TileChunk.SIZE + x] = Tiles.getCode(large.getFromCoord(tileX, tileY).getName());
+					}
+				}
+				return new TileChunk(codes);
+			}
+		}, new Executor() {
+			public void execute(Runnable task) {
+				tasks.add(task);
+			}
+		});
+		streamed.setStreamingRadius(0);
+		
+		// The features are known without loading any chunks.
+		assertTrue(streamed.getSpawnPoint().equals(new Point(2 * Constants.TILESIZE, 3 * Constants.TILESIZE)));
+		assertTrue(streamed.getFeatureCount(TileGrid.END) == 1);
+		assertFalse(streamed.isLoaded(0, 0));
+		
+		streamed.streamAround(0, 0);
+		assertTrue(tasks.size() == 1);
+		tasks.remove(0).run();
+		assertTrue(streamed.isLoaded(0, 0));
+		assertTrue(streamed.getKind(2, 3) == TileGrid.SPAWN);
+		assertTrue(streamed.getSynchronousLoads() == 0);
+		assertTrue(streamed.isAreaLoaded(-10, -10, 20, 20));
+		assertFalse(streamed.isAreaLoaded(0, 0, TileChunk.SIZE * Constants.TILESIZE, 1));
+		assertTrue(large.isAreaLoaded(0, 0, large.getWidth() * Constants.TILESIZE, 1));
+		
+		// Copying the codes only reads the loaded chunks; the rest are air.
+		byte[] codes = new byte[1];
+		streamed.copyLoadedCodes(2, 3, 1, 1, codes);
+		assertTrue(codes[0] == Tiles.getCode(ObjectName.SPAWN_TILE));
+		streamed.copyLoadedCodes(TileChunk.SIZE * 4 - 3, 5, 1, 1, codes);
+		assertTrue(codes[0] == 0);
+		assertTrue(streamed.getSynchronousLoads() == 0);
+		
+		// A query for a chunk that isn't loaded loads it at once.
+		assertTrue(streamed.isSolid(TileChunk.SIZE * 3, large.getHeight() - 1));
+		assertTrue(streamed.getKind(TileChunk.SIZE * 4 - 3, 5) == TileGrid.END);
+		assertTrue(streamed.getSynchronousLoads() == 2);
+		
+		// Chunks far from the position are unloaded, unless they are changed.
+		streamed.set(1, 1, new GroundTile(ObjectName.BOX_TILE1));
+		streamed.streamAround(TileChunk.SIZE * 3 * Constants.TILESIZE, 0);
+		assertTrue(streamed.isLoaded(1, 1));
+		assertFalse(streamed.isLoaded(0, TileChunk.SIZE));
+		assertTrue(streamed.isLoaded(TileChunk.SIZE * 3, 0));
+	}
+	
+	@Test
+	public void testSharedChunk() {
+		final TileChunk shared = new TileChunk();
+		shared.share();
+		TileChunkSource source = new TileChunkSource() {
+			public int getWidth() { return TileChunk.SIZE; }
+			public int getHeight() { return TileChunk.SIZE; }
+			public int[] getFeatures(byte kind) { return new int[0]; }
+			public TileChunk loadChunk(int chunkX, int chunkY) { return shared; }
+		};
+		TileGrid first = new TileGrid(source);
+		TileGrid second = new TileGrid(source);
+		
+		// The chunk is copied when a tile in it is changed.
+		first.set(1, 1, new GroundTile(ObjectName.BOX_TILE1));
+		assertTrue(first.isSolid(1, 1));
+		assertFalse(second.isSolid(1, 1));
+		assertTrue(shared.getCode(1, 1) == 0);
+		first.set(2, 1, new GroundTile(ObjectName.BOX_TILE1));
+		assertTrue(first.isSolid(1, 1) && first.isSolid(2, 1));
+	}
+	
+	@Test
+	public void testChunkedLevelFile() throws IOException {
+		TileGrid large = new TileGrid(createLargeGrid());
+		File file = File.createTempFile("level", ".rsmc");
+		file.deleteOnExit();
+		ChunkedLevelFile.write(large, file);
+		
+		ChunkedLevelFile source = new ChunkedLevelFile(file);
+		try {
+			TileGrid streamed = new TileGrid(source, new Executor() {
+				public void execute(Runnable task) {
+					task.run();
+				}
+			});
+			assertTrue(streamed.getWidth() == large.getWidth() && streamed.getHeight() == large.getHeight());
+			assertTrue(streamed.getSpawnPoint().equals(large.getSpawnPoint()));
+			for (int y = 0; y < large.getHeight(); y++) {
+				for (int x = 0; x < large.getWidth(); x++) {
+					assertTrue(streamed.getKind(x, y) == large.getKind(x, y));
+				}
+			}
+		} finally {
+			source.close();
+		}
+	}
+	
 	// TODO remove this one
 	@Test
 	public void testShowGrid(){	}
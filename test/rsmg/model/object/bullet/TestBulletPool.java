@@ -0,0 +1,61 @@
+package rsmg.model.object.bullet;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import rsmg.model.variables.ObjectName;
+import rsmg.util.Vector2d;
+
+/**
+ * Tests the BulletPool class
+ *
+ */
+public class TestBulletPool {
+
+	@Test
+	public void testReuse() {
+		BasicBullet bullet = BulletPool.getBasicBullet(10, 10, 5, 5, ObjectName.PISTOL_BULLET, 1, 100, 0);
+		BulletPool.release(bullet);
+		BasicBullet reused = BulletPool.getBasicBullet(50, 60, 8, 2, ObjectName.LASER_BULLET, 3, -200, 5);
+		assertTrue(reused == bullet);
+		assertTrue(reused.getX() == 50 && reused.getY() == 60);
+		assertTrue(reused.getWidth() == 8 && reused.getHeight() == 2);
+		assertTrue(reused.getName() == ObjectName.LASER_BULLET);
+		assertTrue(reused.getDamage() == 3);
+		assertTrue(reused.getVelocityX() == -200 && reused.getVelocityY() == 5);
+	}
+
+	@Test
+	public void testReleaseTwice() {
+		BasicBullet bullet = BulletPool.getBasicBullet(10, 10, 5, 5, ObjectName.PISTOL_BULLET, 1, 100, 0);
+		BulletPool.release(bullet);
+		BulletPool.release(bullet);
+		BasicBullet first = BulletPool.getBasicBullet(10, 10, 5, 5, ObjectName.PISTOL_BULLET, 1, 100, 0);
+		BasicBullet second = BulletPool.getBasicBullet(10, 10, 5, 5, ObjectName.PISTOL_BULLET, 1, 100, 0);
+		assertFalse(first == second);
+	}
+
+	@Test
+	public void testExplosionAgeIsReset() {
+		BasicBullet rocket = BulletPool.getBasicBullet(10, 10, 5, 5, ObjectName.ROCKETR, 1, 100, 0);
+		Bullet explosion = BulletPool.getSmallExplosion(rocket);
+		explosion.update(1);
+		assertTrue(((Explosion)explosion).getAge() > 0);
+		BulletPool.release(explosion);
+		Bullet reused = BulletPool.getSmallExplosion(rocket);
+		assertTrue(reused == explosion);
+		assertTrue(((Explosion)reused).getAge() == 0);
+	}
+
+	@Test
+	public void testSharedVelocity() {
+		Vector2d velocity = new Vector2d(10, 0);
+		Bullet first = BulletPool.getRotatableBullet(0, 0, 10, 8, ObjectName.LASERBOLT, 1, velocity, 0);
+		Bullet second = BulletPool.getRotatableBullet(0, 0, 10, 8, ObjectName.LASERBOLT, 1, velocity, 0);
+		velocity.setX(-10);
+		assertTrue(first.getVelocityX() == -10);
+		assertTrue(second.getVelocityX() == -10);
+	}
+}
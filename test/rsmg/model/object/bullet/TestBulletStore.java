@@ -0,0 +1,123 @@
+package rsmg.model.object.bullet;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import rsmg.model.TileGrid;
+import rsmg.model.object.unit.PCharacter;
+import rsmg.model.tile.AirTile;
+import rsmg.model.tile.GroundTile;
+import rsmg.model.tile.Tile;
+import rsmg.model.variables.Constants;
+import rsmg.model.variables.ObjectName;
+import rsmg.util.Vector2d;
+
+/**
+ * Tests the BulletStore class
+ *
+ */
+public class TestBulletStore {
+
+	private BulletStore store;
+	private TileGrid tileGrid;
+	private List<Bullet> fire;
+
+	@Before
+	public void before() {
+		Tile[][] tiles = {{new AirTile(), new AirTile(), new GroundTile(ObjectName.BOX_TILE1)},
+				 {new AirTile(), new AirTile(), new GroundTile(ObjectName.BOX_TILE1)}};
+		tileGrid = new TileGrid(tiles);
+		store = new BulletStore();
+		fire = new ArrayList<Bullet>();
+	}
+
+	@Test
+	public void testAdd() {
+		store.add(new RotatableBullet(10, 20, 10, 8, ObjectName.LASERBOLT, 5, new Vector2d(1, 2), 3));
+		assertTrue(store.size() == 1);
+		assertTrue(store.getX(0) == 10 && store.getY(0) == 20);
+		assertTrue(store.getWidth(0) == 10 && store.getHeight(0) == 8);
+		assertTrue(store.getName(0) == ObjectName.LASERBOLT);
+		assertTrue(store.getDamage(0) == 5);
+		assertTrue(store.getRotation(0) == 3);
+	}
+
+	@Test
+	public void testAddExplosion() {
+		try {
+			store.add(new SmallExplosion(10, 10));
+			assertTrue(false);
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	@Test
+	public void testUpdate() {
+		store.add(new BasicBullet(10, 10, 2, 2, ObjectName.PISTOL_BULLET, 1, new Vector2d(100, 0)));
+		store.add(new CurveBullet(10, 10, 2, 2, ObjectName.STONE, 1, new Vector2d(100, 0)));
+		store.update(0.05, tileGrid, fire);
+		assertTrue(store.getX(0) == 15 && store.getY(0) == 10);
+		assertTrue(store.getX(1) == 15 && store.getY(1) > 10);
+		assertTrue(store.getAge(0) == 0.05);
+	}
+
+	@Test
+	public void testTileCollision() {
+		store.add(new BasicBullet(10, 10, 2, 2, ObjectName.PISTOL_BULLET, 1, new Vector2d(Constants.TILESIZE*2, 0)));
+		store.add(new RotatableBullet(10, 10, 2, 2, ObjectName.LASERBOLT, 1, new Vector2d(Constants.TILESIZE*2, 0), 0));
+		store.add(new BasicBullet(10, 10, 2, 2, ObjectName.PISTOL_BULLET, 1, new Vector2d(0, 0)));
+		store.update(1, tileGrid, fire);
+		assertTrue(store.size() == 1);
+		assertTrue(store.getX(0) == 10);
+		assertTrue(fire.size() == 1);
+		assertTrue(fire.get(0).getName() == ObjectName.LASERFIRE);
+	}
+
+	@Test
+	public void testSharedVelocity() {
+		Vector2d velocity = new Vector2d();
+		store.add(BulletPool.getRotatableBullet(10, 10, 2, 2, ObjectName.LASERBOLT, 1, velocity, 0));
+		velocity.setX(4);
+		store.update(1, tileGrid, fire);
+		assertTrue(store.getX(0) == 14);
+	}
+
+	@Test
+	public void testRemoveCollisions() {
+		PCharacter character = new PCharacter(0, 0, null);
+		store.add(new BasicBullet(5, 5, 2, 2, ObjectName.PISTOL_BULLET, 7, new Vector2d()));
+		store.add(new BasicBullet(Constants.TILESIZE*2, 5, 2, 2, ObjectName.PISTOL_BULLET, 1, new Vector2d()));
+		List<Bullet> hits = new ArrayList<Bullet>();
+		assertTrue(store.removeCollisions(character, hits) == 1);
+		assertTrue(store.size() == 1);
+		assertTrue(hits.get(0).getDamage() == 7);
+	}
+
+	@Test
+	public void testSweptCollision() {
+		// The bullet moves from x = 60 to x = 2 in one update, past the
+		// character that stands between x = 20 and x = 40.
+		PCharacter character = new PCharacter(20, 0, null);
+		store.add(new BasicBullet(60, 5, 2, 2, ObjectName.PISTOL_BULLET, 1, new Vector2d(-58, 0)));
+		store.update(1, tileGrid, fire);
+		assertTrue(store.getX(0) == 2);
+
+		List<Bullet> hits = new ArrayList<Bullet>();
+		assertTrue(store.removeCollisions(character, hits) == 1);
+		assertTrue(hits.get(0).getX() == 40);
+	}
+
+	@Test
+	public void testRemoveOutsideLevel() {
+		store.add(new BasicBullet(-1, 5, 2, 2, ObjectName.PISTOL_BULLET, 1, new Vector2d()));
+		store.add(new BasicBullet(5, 5, 2, 2, ObjectName.PISTOL_BULLET, 1, new Vector2d()));
+		store.removeOutsideLevel();
+		assertTrue(store.size() == 1);
+		assertTrue(store.getX(0) == 5);
+	}
+}
@@ -4,6 +4,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.util.LinkedList;
+import java.util.List;
 
 import org.junit.After;
 import org.junit.AfterClass;
@@ -11,6 +12,7 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import rsmg.model.SimulationClock;
 import rsmg.model.object.bullet.Bullet;
 import rsmg.model.object.item.HealthPack;
 import rsmg.model.object.item.Item;
@@ -24,6 +26,7 @@ import rsmg.model.object.item.Item;
 public class TestPCharacter {
 
 	PCharacter character;
+	List<Bullet> bullets;
 	
 	@BeforeClass
 	public static void beforeClass() {
@@ -35,7 +38,8 @@ public class TestPCharacter {
 
 	@Before
 	public void before() {
-		character = new PCharacter(new LinkedList<Bullet>());
+		bullets = new LinkedList<Bullet>();
+		character = new PCharacter(bullets);
 	}
 
 	@After
@@ -60,6 +64,22 @@ public class TestPCharacter {
 		assertTrue(character.getVelocityX() > 0);
 	}
 
+	@Test
+	public void testAttackCooldown() {
+		SimulationClock clock = new SimulationClock();
+		character.setClock(clock);
+		character.attack();
+		assertTrue(bullets.size() == 1);
+		character.attack();
+		assertTrue(bullets.size() == 1);
+		assertTrue(character.getWeaponLoadedPercentage() == 0);
+		
+		clock.advance((character.getWeapon().getCooldown() + 1) / 1000.0);
+		assertTrue(character.getWeaponLoadedPercentage() == 1);
+		character.attack();
+		assertTrue(bullets.size() == 2);
+	}
+
 	@Test
 	public void testHasCollidedWith() {
 		
@@ -82,5 +102,10 @@ public class TestPCharacter {
 		assertFalse(character.hasCollidedWith(item));
 		item.setY(character.getHeight()-1);
 		assertTrue(character.hasCollidedWith(item));
+		
+		// Same position
+		character2.setX(character.getX());
+		character2.setY(character.getY());
+		assertTrue(character.hasCollidedWith(character2));
 	}
 }
@@ -0,0 +1,29 @@
+package rsmg.model.tile;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import rsmg.model.variables.ObjectName;
+
+public class TestTiles {
+
+	@Test
+	public void testGet() {
+		assertTrue(Tiles.get(ObjectName.BOX_TILE2) == Tiles.get(ObjectName.BOX_TILE2));
+		assertTrue(Tiles.get(ObjectName.BOX_TILE2).getName() == ObjectName.BOX_TILE2);
+		assertTrue(Tiles.get(ObjectName.BOX_TILE2).isSolid());
+		assertTrue(Tiles.get(ObjectName.SPAWN_TILE) instanceof SpawnTile);
+		assertTrue(Tiles.get(ObjectName.END_TILE) instanceof EndTile);
+		assertTrue(!Tiles.get(ObjectName.AIR_TILE).isSolid());
+	}
+
+	@Test
+	public void testNotATile() {
+		try {
+			Tiles.get(ObjectName.TANKBOT);
+			assertTrue(false);
+		} catch (IllegalArgumentException e) {
+		}
+	}
+}
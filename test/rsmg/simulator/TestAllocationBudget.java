@@ -0,0 +1,73 @@
+package rsmg.simulator;
+
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Test;
+
+import rsmg.io.Levels;
+import rsmg.levelfactory.LevelFactory;
+import rsmg.model.Level;
+
+/**
+ * Measures how many bytes Level.update() allocates on every shipped level,
+ * and fails if it's more than the budget. Every allocation in the game loop
+ * adds to the work of the garbage collector, which makes the game stutter.
+ */
+public class TestAllocationBudget {
+
+	/**
+	 * The most bytes that one update may allocate on average. Allows the
+	 * lists and the bullet pool to grow now and then.
+	 */
+	private static final long BUDGET = 64;
+
+	/**
+	 * Updates that aren't measured at the start of a level, while the lists
+	 * and the bullet pool grow to their normal size.
+	 */
+	private static final int WARM_UP_TICKS = 60;
+
+	private static final int MAX_TICKS = 2000;
+
+	@Test
+	public void testAllocationsPerUpdate() {
+		if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean))
+			return;
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		if (!threads.isThreadAllocatedMemorySupported())
+			return;
+		threads.setThreadAllocatedMemoryEnabled(true);
+		long thread = Thread.currentThread().getId();
+
+		ScriptedInput input = ScriptedInput.runRight(MAX_TICKS);
+		for (int levelNumber : Levels.getLevelNumbers()) {
+			// The first run fills the bullet pool and loads the classes.
+			run(LevelFactory.getLevel(levelNumber), input, threads, thread);
+			long bytes = run(LevelFactory.getLevel(levelNumber), input, threads, thread);
+			assertTrue("Level " + levelNumber + " allocates " + bytes + " bytes per update", bytes <= BUDGET);
+		}
+	}
+
+	/**
+	 * Play a level and measure the allocations in the updates.
+	 * @return The average number of bytes allocated per update, not counting
+	 *         the warm-up.
+	 */
+	private static long run(Level level, ScriptedInput input, com.sun.management.ThreadMXBean threads, long thread) {
+		input.reset();
+		long total = 0;
+		int tick = 0;
+		while (tick < MAX_TICKS && !level.hasWon() && !level.hasLost()) {
+			input.apply(tick, level.getCharacter());
+			long before = threads.getThreadAllocatedBytes(thread);
+			level.update(1.0 / 60);
+			long allocated = threads.getThreadAllocatedBytes(thread) - before;
+			if (tick >= WARM_UP_TICKS)
+				total += allocated;
+			tick++;
+		}
+		return tick > WARM_UP_TICKS ? total / (tick - WARM_UP_TICKS) : 0;
+	}
+}
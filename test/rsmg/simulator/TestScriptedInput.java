@@ -0,0 +1,68 @@
+package rsmg.simulator;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.LinkedList;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import rsmg.model.object.bullet.Bullet;
+import rsmg.model.object.unit.PCharacter;
+import rsmg.simulator.ScriptedInput.Key;
+
+public class TestScriptedInput {
+
+	private PCharacter character;
+
+	@Before
+	public void before() {
+		character = new PCharacter(new LinkedList<Bullet>());
+	}
+
+	private static ScriptedInput parse(String script) throws IOException {
+		return ScriptedInput.parse(new BufferedReader(new StringReader(script)));
+	}
+
+	@Test
+	public void testParse() throws IOException {
+		ScriptedInput input = parse("# comment\n\n0 press right\n2 release right\n");
+		input.apply(0, character);
+		assertTrue(input.isHeld(Key.RIGHT));
+		input.apply(1, character);
+		assertTrue(input.isHeld(Key.RIGHT));
+		input.apply(2, character);
+		assertFalse(input.isHeld(Key.RIGHT));
+	}
+
+	@Test
+	public void testInvalidKey() {
+		try {
+			parse("0 press fly");
+			assertTrue(false);
+		} catch (IOException e) {
+			// The key doesn't exist.
+		}
+	}
+
+	@Test
+	public void testJump() throws IOException {
+		ScriptedInput input = parse("1 press jump");
+		input.apply(0, character);
+		assertTrue(character.getVelocityY() == 0);
+		input.apply(1, character);
+		assertTrue(character.getVelocityY() < 0);
+	}
+
+	@Test
+	public void testReset() throws IOException {
+		ScriptedInput input = parse("0 press left");
+		input.apply(0, character);
+		input.reset();
+		assertFalse(input.isHeld(Key.LEFT));
+	}
+}